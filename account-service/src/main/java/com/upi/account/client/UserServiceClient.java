@@ -8,11 +8,19 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class UserServiceClient {
     
     private static final Logger logger = LoggerFactory.getLogger(UserServiceClient.class);
     
+    // Largest batch user-service accepts on POST /api/users/batch
+    private static final int MAX_BATCH_SIZE = 1000;
+    
     private final RestTemplate restTemplate;
     private final String userServiceBaseUrl;
     
@@ -76,6 +84,31 @@ public class UserServiceClient {
         }
     }
     
+    /**
+     * Get user details for many IDs, one call per 1000 IDs.
+     * Unknown IDs are missing from the result. Errors propagate so a bulk caller
+     * can tell "user not found" apart from "user-service unavailable".
+     */
+    public Map<Long, UserDetails> getUsersByIds(Collection<Long> userIds) {
+        logger.debug("Fetching user details for {} IDs", userIds.size());
+        
+        String url = userServiceBaseUrl + "/api/users/batch";
+        List<Long> ids = List.copyOf(userIds);
+        Map<Long, UserDetails> users = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size()));
+            UserDetails[] found = restTemplate.postForObject(url, Map.of("ids", chunk), UserDetails[].class);
+            if (found != null) {
+                for (UserDetails user : found) {
+                    users.put(user.getId(), user);
+                }
+            }
+        }
+        
+        logger.debug("Fetched {} of {} requested users", users.size(), ids.size());
+        return users;
+    }
+    
     /**
      * DTO for User details
      */
@@ -0,0 +1,313 @@
+package com.upi.account.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.upi.account.dto.ErrorResponse;
+import com.upi.account.exception.HoldNotFoundException;
+import com.upi.account.service.AccountOwnership;
+import com.upi.account.service.HoldService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Forwards requests that debit a UPI ID owned by another instance to that instance and relays
+ * its response unchanged: balance updates, transfers (routed by the sender), hold placement and
+ * hold transitions (routed by the held UPI ID, looked up from the hold), and balance batches
+ * whose debits all come from one UPI ID. Other batches are applied where they land. The credited
+ * side of a transfer or batch is applied by the debited UPI ID's owner; credits are only
+ * journaled, so they need no single writer. A forwarded request is always handled where it lands, so instances
+ * with different views of the ring cannot bounce a request between them. Forwarded requests
+ * carry the cluster's shared secret in the forwarded header, so a client cannot mark its own
+ * request as forwarded; a header with any other value is ignored.
+ *
+ * If the owner refuses the connection the update is handled locally, which is safe because the
+ * database stays authoritative. Any later failure, such as a read timeout, may come after the
+ * owner applied the update, so it is answered with 504 instead of being applied a second time.
+ */
+@Component
+public class OwnerForwardingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_HEADER = "X-Account-Owner-Forwarded";
+    public static final String OWNER_HEADER = "X-Account-Owner";
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerForwardingFilter.class);
+
+    private static final Pattern BALANCE_UPDATE_PATH = Pattern.compile("^/api/accounts/upi/([^/]+)/balance$");
+    private static final Pattern HOLD_TRANSITION_PATH =
+            Pattern.compile("^/api/accounts/holds/([0-9]+)/(begin-capture|capture|release)$");
+    private static final String TRANSFER_PATH = "/api/accounts/transfer";
+    private static final String HOLDS_PATH = "/api/accounts/holds";
+    private static final String BATCH_PATH = "/api/accounts/balances/batch";
+    private static final String[] FORWARDED_REQUEST_HEADERS = {
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, "Idempotency-Key"
+    };
+
+    private final AccountOwnership accountOwnership;
+    private final HoldService holdService;
+    private final ObjectMapper objectMapper;
+    private final RestTemplate ownerRestTemplate;
+    private final byte[] forwardSecret;
+
+    public OwnerForwardingFilter(AccountOwnership accountOwnership, HoldService holdService,
+                                 RestTemplateBuilder restTemplateBuilder, ObjectMapper objectMapper,
+                                 @Value("${account.ownership.forward-timeout-ms:2000}") long forwardTimeoutMs,
+                                 @Value("${account.ownership.forward-secret:}") String forwardSecret) {
+        if (accountOwnership.isEnabled() && forwardSecret.isBlank()) {
+            throw new IllegalStateException("account.ownership.forward-secret must be set when account ownership is enabled");
+        }
+        this.accountOwnership = accountOwnership;
+        this.holdService = holdService;
+        this.objectMapper = objectMapper;
+        this.forwardSecret = forwardSecret.getBytes(StandardCharsets.UTF_8);
+        // Plain (not load-balanced) client: the target is one specific instance
+        this.ownerRestTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(forwardTimeoutMs))
+                .setReadTimeout(Duration.ofMillis(forwardTimeoutMs))
+                .errorHandler(new PassThroughErrorHandler())
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !accountOwnership.isEnabled()
+               || !(HttpMethod.PUT.matches(request.getMethod()) || HttpMethod.POST.matches(request.getMethod()))
+               || isForwardedByPeer(request);
+    }
+
+    private boolean isForwardedByPeer(HttpServletRequest request) {
+        String value = request.getHeader(FORWARDED_HEADER);
+        if (value == null) {
+            return false;
+        }
+        if (!MessageDigest.isEqual(forwardSecret, value.getBytes(StandardCharsets.UTF_8))) {
+            logger.warn("Ignoring {} header with an invalid secret from {}", FORWARDED_HEADER, request.getRemoteAddr());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        byte[] body = null;
+        String upiId = null;
+        Matcher balanceUpdate = BALANCE_UPDATE_PATH.matcher(path);
+        Matcher holdTransition = HOLD_TRANSITION_PATH.matcher(path);
+        if (method == HttpMethod.PUT && balanceUpdate.matches()) {
+            upiId = URLDecoder.decode(balanceUpdate.group(1), StandardCharsets.UTF_8);
+        } else if (method == HttpMethod.POST && holdTransition.matches()) {
+            upiId = heldUpiId(Long.valueOf(holdTransition.group(1)));
+        } else if ((method == HttpMethod.POST && (TRANSFER_PATH.equals(path) || HOLDS_PATH.equals(path))) ||
+                   (method == HttpMethod.PUT && BATCH_PATH.equals(path))) {
+            body = StreamUtils.copyToByteArray(request.getInputStream());
+            upiId = debitedUpiId(path, body);
+        }
+
+        Optional<URI> owner = upiId != null ? accountOwnership.remoteOwner(upiId) : Optional.empty();
+        if (owner.isEmpty()) {
+            chain.doFilter(body != null ? new CachedBodyRequest(request, body) : request, response);
+            return;
+        }
+
+        if (body == null) {
+            body = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+        headers.set(FORWARDED_HEADER, new String(forwardSecret, StandardCharsets.UTF_8));
+
+        String query = request.getQueryString();
+        URI target = URI.create(owner.get().toString() + request.getRequestURI() + (query != null ? "?" + query : ""));
+        ResponseEntity<byte[]> forwarded;
+        try {
+            forwarded = ownerRestTemplate.exchange(target, method, new HttpEntity<>(body, headers), byte[].class);
+        } catch (ResourceAccessException e) {
+            if (isConnectFailure(e)) {
+                logger.warn("Owner {} unreachable for {}, handling locally: {}", owner.get(), target, e.getMessage());
+                chain.doFilter(new CachedBodyRequest(request, body), response);
+            } else {
+                logger.error("Forward to owner {} for {} failed, outcome unknown: {}", owner.get(), target, e.getMessage());
+                writeError(response, HttpStatus.GATEWAY_TIMEOUT, "Account owner " + owner.get().getAuthority() +
+                           " did not answer; the update may have been applied, retry with the same Idempotency-Key");
+            }
+            return;
+        }
+
+        response.setStatus(forwarded.getStatusCode().value());
+        if (forwarded.getHeaders().getContentType() != null) {
+            response.setContentType(forwarded.getHeaders().getContentType().toString());
+        }
+        response.setHeader(OWNER_HEADER, owner.get().getAuthority());
+        if (forwarded.getBody() != null) {
+            response.getOutputStream().write(forwarded.getBody());
+        }
+    }
+
+    /**
+     * UPI ID a hold was placed on, or null if there is no such hold (answered locally with 404)
+     */
+    private String heldUpiId(Long holdId) {
+        try {
+            return holdService.getHold(holdId).getUpiId();
+        } catch (HoldNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * UPI ID a transfer, hold or balance batch debits, read from the request body; null if the
+     * body cannot be parsed (answered locally with 400) or a batch debits several UPI IDs or none
+     */
+    private String debitedUpiId(String path, byte[] body) {
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+        if (request == null) {
+            return null;
+        }
+        if (TRANSFER_PATH.equals(path)) {
+            return request.path("senderUpiId").textValue();
+        }
+        if (HOLDS_PATH.equals(path)) {
+            return request.path("upiId").textValue();
+        }
+
+        String debited = null;
+        for (JsonNode entry : request.path("entries")) {
+            if (!"DEBIT".equalsIgnoreCase(entry.path("operation").textValue())) {
+                continue;
+            }
+            String upiId = entry.path("upiId").textValue();
+            if (upiId == null || (debited != null && !debited.equals(upiId))) {
+                return null;
+            }
+            debited = upiId;
+        }
+        return debited;
+    }
+
+    /**
+     * Whether the owner was never reached, so it cannot have applied the update
+     */
+    private static boolean isConnectFailure(ResourceAccessException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof NoRouteToHostException || 
+                cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), 
+                                new ErrorResponse(status.name(), message, status.value()));
+    }
+
+    /**
+     * Relay error statuses from the owner as they are instead of throwing
+     */
+    private static class PassThroughErrorHandler implements ResponseErrorHandler {
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+
+    /**
+     * Replays a request body that has already been read
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.upi.account.controller;
+
+import com.upi.account.dto.BalanceSlotsRequest;
+import com.upi.account.dto.BalanceSlotsResponse;
+import com.upi.account.entity.Account;
+import com.upi.account.service.AccountService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for account admin operations
+ */
+@RestController
+@RequestMapping("/api/accounts/admin")
+public class AccountAdminController {
+    
+    private final AccountService accountService;
+    
+    @Autowired
+    public AccountAdminController(AccountService accountService) {
+        this.accountService = accountService;
+    }
+    
+    /**
+     * Shard the balance of a hot UPI ID across balance slots, or unshard it with 0
+     */
+    @PutMapping("/upi/{upiId}/balance-slots")
+    public ResponseEntity<BalanceSlotsResponse> changeBalanceSlots(@PathVariable String upiId,
+                                                                   @Valid @RequestBody BalanceSlotsRequest request) {
+        Account account = accountService.changeBalanceSlots(upiId, request.getBalanceSlots());
+        return ResponseEntity.ok(new BalanceSlotsResponse(account));
+    }
+}
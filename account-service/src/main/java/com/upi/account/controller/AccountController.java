@@ -1,27 +1,51 @@
 package com.upi.account.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upi.account.dto.*;
 import com.upi.account.entity.Account;
 import com.upi.account.exception.AccountNotFoundException;
+import com.upi.account.service.AccountProvisioningService;
 import com.upi.account.service.AccountService;
+import com.upi.account.service.BalanceMailboxes;
+import com.upi.account.service.IdempotencyStore;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/accounts")
 public class AccountController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    
     private final AccountService accountService;
+    private final AccountProvisioningService accountProvisioningService;
+    private final IdempotencyStore idempotencyStore;
+    private final BalanceMailboxes balanceMailboxes;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, AccountProvisioningService accountProvisioningService,
+                             IdempotencyStore idempotencyStore, BalanceMailboxes balanceMailboxes,
+                             ObjectMapper objectMapper) {
         this.accountService = accountService;
+        this.accountProvisioningService = accountProvisioningService;
+        this.idempotencyStore = idempotencyStore;
+        this.balanceMailboxes = balanceMailboxes;
+        this.objectMapper = objectMapper;
     }
     
     /**
@@ -34,6 +58,26 @@ public class AccountController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
     
+    /**
+     * Provision many accounts at once. Results are streamed back as
+     * newline-delimited JSON, one line per requested account, as each chunk commits.
+     */
+    @PostMapping(value = "/bulk", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> provisionAccounts(@Valid @RequestBody BulkAccountRequest request) {
+        StreamingResponseBody body = out -> accountProvisioningService.provision(request.getAccounts(), results -> {
+            try {
+                for (BulkAccountResult result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
     /**
      * Get account by user ID
      */
@@ -95,11 +139,40 @@ public class AccountController {
     }
     
     /**
-     * Update balance by UPI ID
+     * Get journal entries by UPI ID, newest first
+     */
+    @GetMapping("/upi/{upiId}/entries")
+    public ResponseEntity<List<AccountEntryResponse>> getAccountEntries(
+            @PathVariable String upiId,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<AccountEntryResponse> responses = accountService.getAccountEntries(upiId, Math.min(limit, 500))
+                .stream()
+                .map(AccountEntryResponse::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(responses);
+    }
+    
+    /**
+     * Get the journal entries written for a transaction reference, on any account.
+     * Lets the caller see which legs of a transfer were applied.
+     */
+    @GetMapping("/entries")
+    public ResponseEntity<List<AccountEntryResponse>> getEntriesByTransactionRef(@RequestParam String transactionRef) {
+        List<AccountEntryResponse> responses = accountService.getEntriesByTransactionRef(transactionRef)
+                .stream()
+                .map(AccountEntryResponse::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(responses);
+    }
+    
+    /**
+     * Update balance by UPI ID. A request repeated with the same Idempotency-Key
+     * returns the original response without updating the balance again.
      */
     @PutMapping("/upi/{upiId}/balance")
     public ResponseEntity<BalanceResponse> updateBalanceByUpiId(
             @PathVariable String upiId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
             @Valid @RequestBody BalanceUpdateRequest request) {
         
         // Validate operation
@@ -109,30 +182,58 @@ public class AccountController {
         }
         
         // Calculate amount based on operation
-        BigDecimal amount = request.getAmount();
-        if ("DEBIT".equalsIgnoreCase(request.getOperation())) {
-            amount = amount.negate();
-        }
-        
-        // Update balance
-        accountService.updateBalanceByUpiId(upiId, amount);
+        BigDecimal amount = "DEBIT".equalsIgnoreCase(request.getOperation()) ?
+                            request.getAmount().negate() : request.getAmount();
         
-        // Get updated balance
-        Optional<BigDecimal> updatedBalance = accountService.getBalanceByUpiId(upiId);
-        if (updatedBalance.isEmpty()) {
-            throw new AccountNotFoundException("Account not found for UPI ID: " + upiId);
+        String fingerprint = fingerprint("upi", upiId, amount);
+        if (balanceMailboxes.isEnabled()) {
+            // Serialized per UPI ID and group-committed with other queued updates
+            return ResponseEntity.ok(balanceMailboxes.update(upiId, amount, request.getTransactionRef(), 
+                                                             idempotencyKey, fingerprint));
         }
         
-        BalanceResponse response = new BalanceResponse(updatedBalance.get(), upiId);
+        // Update balance and get the resulting balance in the same transaction
+        BalanceResponse response = idempotencyStore.execute(idempotencyKey, fingerprint,
+                () -> new BalanceResponse(
+                        accountService.updateBalanceByUpiId(upiId, amount, request.getTransactionRef()), upiId));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Transfer funds between two UPI IDs atomically
+     */
+    @PostMapping("/transfer")
+    public ResponseEntity<TransferResponse> transfer(@Valid @RequestBody TransferRequest request) {
+        TransferResponse response = accountService.transfer(
+                request.getSenderUpiId(),
+                request.getReceiverUpiId(),
+                request.getAmount(),
+                request.getTransactionRef()
+        );
         return ResponseEntity.ok(response);
     }
     
     /**
-     * Update balance by account ID
+     * Apply a batch of balance updates in one transaction. An atomic batch is applied in
+     * full or rejected as a whole with the error of its first rejected entry.
+     */
+    @PutMapping("/balances/batch")
+    public ResponseEntity<BatchBalanceUpdateResponse> updateBalances(
+            @Valid @RequestBody BatchBalanceUpdateRequest request) {
+        BatchBalanceUpdateResponse response = new BatchBalanceUpdateResponse(request.isAtomic() ?
+                accountService.updateBalancesAtomically(request.getEntries()) :
+                accountService.updateBalances(request.getEntries()));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Update balance by account ID. A request repeated with the same Idempotency-Key
+     * returns the original response without updating the balance again.
      */
     @PutMapping("/{accountId}/balance")
     public ResponseEntity<BalanceResponse> updateBalanceByAccountId(
             @PathVariable Long accountId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
             @Valid @RequestBody BalanceUpdateRequest request) {
         
         // Validate operation
@@ -142,28 +243,36 @@ public class AccountController {
         }
         
         // Calculate amount based on operation
-        BigDecimal amount = request.getAmount();
-        if ("DEBIT".equalsIgnoreCase(request.getOperation())) {
-            amount = amount.negate();
-        }
+        BigDecimal amount = "DEBIT".equalsIgnoreCase(request.getOperation()) ?
+                            request.getAmount().negate() : request.getAmount();
         
-        // Update balance
-        accountService.updateBalanceByAccountId(accountId, amount);
-        
-        // Get updated balance and UPI ID
-        Optional<BigDecimal> updatedBalance = accountService.getBalanceByAccountId(accountId);
-        if (updatedBalance.isEmpty()) {
-            throw new AccountNotFoundException("Account not found for ID: " + accountId);
-        }
-        
-        // Get UPI ID for response
-        Optional<Account> accountOpt = accountService.getAccountByUserId(accountId);
-        String upiId = accountOpt.map(Account::getUpiId).orElse("unknown");
-        
-        BalanceResponse response = new BalanceResponse(updatedBalance.get(), upiId);
+        BalanceResponse response = idempotencyStore.execute(idempotencyKey,
+                fingerprint("account", accountId.toString(), amount), () -> {
+            // Update balance
+            accountService.updateBalanceByAccountId(accountId, amount);
+            
+            // Get updated balance and UPI ID
+            Optional<BigDecimal> updatedBalance = accountService.getBalanceByAccountId(accountId);
+            if (updatedBalance.isEmpty()) {
+                throw new AccountNotFoundException("Account not found for ID: " + accountId);
+            }
+            
+            // Get UPI ID for response
+            Optional<Account> accountOpt = accountService.getAccountByUserId(accountId);
+            String upiId = accountOpt.map(Account::getUpiId).orElse("unknown");
+            
+            return new BalanceResponse(updatedBalance.get(), upiId);
+        });
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Identify a balance update so that reusing its idempotency key for another request is detected
+     */
+    private String fingerprint(String target, String id, BigDecimal signedAmount) {
+        return target + ":" + id + ":" + signedAmount.stripTrailingZeros().toPlainString();
+    }
+    
     /**
      * Validate UPI ID
      */
@@ -172,4 +281,12 @@ public class AccountController {
         boolean isValid = accountService.validateUpiId(upiId);
         return ResponseEntity.ok(isValid);
     }
+    
+    /**
+     * Validate several UPI IDs in one call; maps each UPI ID to whether it exists
+     */
+    @PostMapping("/validate")
+    public ResponseEntity<Map<String, Boolean>> validateUpiIds(@Valid @RequestBody UpiIdValidationRequest request) {
+        return ResponseEntity.ok(accountService.validateUpiIds(request.getUpiIds()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.upi.account.controller;
+
+import com.upi.account.dto.HoldRequest;
+import com.upi.account.dto.HoldResponse;
+import com.upi.account.service.HoldService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/accounts/holds")
+public class HoldController {
+    
+    private final HoldService holdService;
+    
+    @Autowired
+    public HoldController(HoldService holdService) {
+        this.holdService = holdService;
+    }
+    
+    /**
+     * Reserve an amount on a UPI ID
+     */
+    @PostMapping
+    public ResponseEntity<HoldResponse> placeHold(@Valid @RequestBody HoldRequest request) {
+        HoldResponse response = new HoldResponse(holdService.placeHold(
+                request.getUpiId(), request.getAmount(), request.getTransactionRef(), request.getTtlSeconds()));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+    
+    /**
+     * Get hold by ID
+     */
+    @GetMapping("/{holdId}")
+    public ResponseEntity<HoldResponse> getHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok(new HoldResponse(holdService.getHold(holdId)));
+    }
+    
+    /**
+     * Mark a hold as being captured, so it no longer expires while its payment is in flight
+     */
+    @PostMapping("/{holdId}/begin-capture")
+    public ResponseEntity<HoldResponse> beginCapture(@PathVariable Long holdId) {
+        return ResponseEntity.ok(new HoldResponse(holdService.beginCapture(holdId)));
+    }
+    
+    /**
+     * Capture a hold, making the reserved debit final
+     */
+    @PostMapping("/{holdId}/capture")
+    public ResponseEntity<HoldResponse> captureHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok(new HoldResponse(holdService.capture(holdId)));
+    }
+    
+    /**
+     * Release a hold, returning the reserved amount to the account
+     */
+    @PostMapping("/{holdId}/release")
+    public ResponseEntity<HoldResponse> releaseHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok(new HoldResponse(holdService.release(holdId)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.upi.account.dto;
+
+import com.upi.account.entity.AccountEntry;
+import com.upi.account.enums.EntryType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class AccountEntryResponse {
+    
+    private Long id;
+    private String upiId;
+    private BigDecimal amount;
+    private EntryType entryType;
+    private String transactionRef;
+    private LocalDateTime createdAt;
+    
+    // Default constructor
+    public AccountEntryResponse() {}
+    
+    // Constructor from AccountEntry entity
+    public AccountEntryResponse(AccountEntry entry) {
+        this.id = entry.getId();
+        this.upiId = entry.getUpiId();
+        this.amount = entry.getAmount();
+        this.entryType = entry.getEntryType();
+        this.transactionRef = entry.getTransactionRef();
+        this.createdAt = entry.getCreatedAt();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public EntryType getEntryType() {
+        return entryType;
+    }
+    
+    public void setEntryType(EntryType entryType) {
+        this.entryType = entryType;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountEntryResponse{" +
+                "id=" + id +
+                ", upiId='" + upiId + '\'' +
+                ", amount=" + amount +
+                ", entryType=" + entryType +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
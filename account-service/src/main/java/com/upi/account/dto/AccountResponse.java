@@ -24,7 +24,7 @@ public class AccountResponse {
         this.userId = account.getUserId();
         this.upiId = account.getUpiId();
         this.accountNumber = account.getAccountNumber();
-        this.balance = account.getBalance();
+        this.balance = account.getCurrentBalance();
         this.createdAt = account.getCreatedAt();
         this.updatedAt = account.getUpdatedAt();
     }
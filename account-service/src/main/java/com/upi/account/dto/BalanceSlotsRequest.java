@@ -0,0 +1,35 @@
+package com.upi.account.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class BalanceSlotsRequest {
+    
+    @NotNull(message = "Balance slots is required")
+    @Min(value = 0, message = "Balance slots cannot be negative")
+    private Integer balanceSlots;
+    
+    // Default constructor
+    public BalanceSlotsRequest() {}
+    
+    // Constructor
+    public BalanceSlotsRequest(Integer balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+    
+    // Getters and Setters
+    public Integer getBalanceSlots() {
+        return balanceSlots;
+    }
+    
+    public void setBalanceSlots(Integer balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+    
+    @Override
+    public String toString() {
+        return "BalanceSlotsRequest{" +
+                "balanceSlots=" + balanceSlots +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package com.upi.account.dto;
+
+import com.upi.account.entity.Account;
+
+import java.math.BigDecimal;
+
+public class BalanceSlotsResponse {
+    
+    private String upiId;
+    private Integer balanceSlots;
+    private BigDecimal balance;
+    
+    // Default constructor
+    public BalanceSlotsResponse() {}
+    
+    // Constructor from Account entity
+    public BalanceSlotsResponse(Account account) {
+        this.upiId = account.getUpiId();
+        this.balanceSlots = account.getBalanceSlots();
+        this.balance = account.getCurrentBalance();
+    }
+    
+    // Getters and Setters
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public Integer getBalanceSlots() {
+        return balanceSlots;
+    }
+    
+    public void setBalanceSlots(Integer balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    @Override
+    public String toString() {
+        return "BalanceSlotsResponse{" +
+                "upiId='" + upiId + '\'' +
+                ", balanceSlots=" + balanceSlots +
+                ", balance=" + balance +
+                '}';
+    }
+}
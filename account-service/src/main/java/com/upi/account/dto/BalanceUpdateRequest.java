@@ -12,6 +12,8 @@ public class BalanceUpdateRequest {
     @NotNull(message = "Operation is required")
     private String operation; // DEBIT or CREDIT
     
+    private String transactionRef; // optional, recorded in the account journal
+    
     // Default constructor
     public BalanceUpdateRequest() {}
     
@@ -38,11 +40,20 @@ public class BalanceUpdateRequest {
         this.operation = operation;
     }
     
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
     @Override
     public String toString() {
         return "BalanceUpdateRequest{" +
                 "amount=" + amount +
                 ", operation='" + operation + '\'' +
+                ", transactionRef='" + transactionRef + '\'' +
                 '}';
     }
 }
\ No newline at end of file
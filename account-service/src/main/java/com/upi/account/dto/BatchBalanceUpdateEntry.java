@@ -0,0 +1,38 @@
+package com.upi.account.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.math.BigDecimal;
+
+public class BatchBalanceUpdateEntry extends BalanceUpdateRequest {
+    
+    @NotBlank(message = "UPI ID is required")
+    private String upiId;
+    
+    // Default constructor
+    public BatchBalanceUpdateEntry() {}
+    
+    // Constructor
+    public BatchBalanceUpdateEntry(String upiId, BigDecimal amount, String operation) {
+        super(amount, operation);
+        this.upiId = upiId;
+    }
+    
+    // Getters and Setters
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchBalanceUpdateEntry{" +
+                "upiId='" + upiId + '\'' +
+                ", amount=" + getAmount() +
+                ", operation='" + getOperation() + '\'' +
+                '}';
+    }
+}
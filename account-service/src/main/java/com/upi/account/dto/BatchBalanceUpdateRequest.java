@@ -0,0 +1,50 @@
+package com.upi.account.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchBalanceUpdateRequest {
+    
+    @NotEmpty(message = "At least one entry is required")
+    @Size(max = 1000, message = "A batch may contain at most 1000 entries")
+    private List<@Valid BatchBalanceUpdateEntry> entries;
+    
+    // Apply every entry or none: the first rejected entry fails the whole batch
+    private boolean atomic;
+    
+    // Default constructor
+    public BatchBalanceUpdateRequest() {}
+    
+    // Constructor
+    public BatchBalanceUpdateRequest(List<BatchBalanceUpdateEntry> entries) {
+        this.entries = entries;
+    }
+    
+    // Getters and Setters
+    public List<BatchBalanceUpdateEntry> getEntries() {
+        return entries;
+    }
+    
+    public void setEntries(List<BatchBalanceUpdateEntry> entries) {
+        this.entries = entries;
+    }
+    
+    public boolean isAtomic() {
+        return atomic;
+    }
+    
+    public void setAtomic(boolean atomic) {
+        this.atomic = atomic;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchBalanceUpdateRequest{" +
+                "entries=" + entries +
+                ", atomic=" + atomic +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package com.upi.account.dto;
+
+import java.util.List;
+
+public class BatchBalanceUpdateResponse {
+    
+    private List<BatchBalanceUpdateResult> results;
+    private int successCount;
+    private int failureCount;
+    
+    // Default constructor
+    public BatchBalanceUpdateResponse() {}
+    
+    // Constructor
+    public BatchBalanceUpdateResponse(List<BatchBalanceUpdateResult> results) {
+        this.results = results;
+        this.successCount = (int) results.stream()
+                .filter(result -> BatchBalanceUpdateResult.SUCCESS.equals(result.getStatus()))
+                .count();
+        this.failureCount = results.size() - successCount;
+    }
+    
+    // Getters and Setters
+    public List<BatchBalanceUpdateResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<BatchBalanceUpdateResult> results) {
+        this.results = results;
+    }
+    
+    public int getSuccessCount() {
+        return successCount;
+    }
+    
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+    
+    public int getFailureCount() {
+        return failureCount;
+    }
+    
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchBalanceUpdateResponse{" +
+                "successCount=" + successCount +
+                ", failureCount=" + failureCount +
+                ", results=" + results +
+                '}';
+    }
+}
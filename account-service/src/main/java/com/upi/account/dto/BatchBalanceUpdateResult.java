@@ -0,0 +1,120 @@
+package com.upi.account.dto;
+
+import java.math.BigDecimal;
+
+public class BatchBalanceUpdateResult {
+    
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    
+    private int index;
+    private String upiId;
+    private String operation;
+    private BigDecimal amount;
+    private String status;
+    private BigDecimal balance;
+    private String error;
+    private String message;
+    
+    // Default constructor
+    public BatchBalanceUpdateResult() {}
+    
+    // Constructor
+    public BatchBalanceUpdateResult(int index, BatchBalanceUpdateEntry entry) {
+        this.index = index;
+        this.upiId = entry.getUpiId();
+        this.operation = entry.getOperation();
+        this.amount = entry.getAmount();
+    }
+    
+    public BatchBalanceUpdateResult succeeded(BigDecimal balance) {
+        this.status = SUCCESS;
+        this.balance = balance;
+        return this;
+    }
+    
+    public BatchBalanceUpdateResult failed(String error, String message) {
+        this.status = FAILED;
+        this.error = error;
+        this.message = message;
+        return this;
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchBalanceUpdateResult{" +
+                "index=" + index +
+                ", upiId='" + upiId + '\'' +
+                ", operation='" + operation + '\'' +
+                ", amount=" + amount +
+                ", status='" + status + '\'' +
+                ", balance=" + balance +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
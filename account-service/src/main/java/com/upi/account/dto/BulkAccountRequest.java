@@ -0,0 +1,38 @@
+package com.upi.account.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkAccountRequest {
+    
+    @NotEmpty(message = "At least one account is required")
+    @Size(max = 50000, message = "A bulk request may contain at most 50000 accounts")
+    private List<@Valid CreateAccountRequest> accounts;
+    
+    // Default constructor
+    public BulkAccountRequest() {}
+    
+    // Constructor
+    public BulkAccountRequest(List<CreateAccountRequest> accounts) {
+        this.accounts = accounts;
+    }
+    
+    // Getters and Setters
+    public List<CreateAccountRequest> getAccounts() {
+        return accounts;
+    }
+    
+    public void setAccounts(List<CreateAccountRequest> accounts) {
+        this.accounts = accounts;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkAccountRequest{" +
+                "accounts=" + (accounts != null ? accounts.size() : 0) +
+                '}';
+    }
+}
@@ -0,0 +1,107 @@
+package com.upi.account.dto;
+
+public class BulkAccountResult {
+    
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    
+    private int index;
+    private Long userId;
+    private String status;
+    private String upiId;
+    private String accountNumber;
+    private String error;
+    private String message;
+    
+    // Default constructor
+    public BulkAccountResult() {}
+    
+    // Constructor
+    public BulkAccountResult(int index, Long userId) {
+        this.index = index;
+        this.userId = userId;
+    }
+    
+    public BulkAccountResult succeeded(String upiId, String accountNumber) {
+        this.status = SUCCESS;
+        this.upiId = upiId;
+        this.accountNumber = accountNumber;
+        return this;
+    }
+    
+    public BulkAccountResult failed(String error, String message) {
+        this.status = FAILED;
+        this.error = error;
+        this.message = message;
+        return this;
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkAccountResult{" +
+                "index=" + index +
+                ", userId=" + userId +
+                ", status='" + status + '\'' +
+                ", upiId='" + upiId + '\'' +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.upi.account.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public class HoldRequest {
+    
+    @NotBlank(message = "UPI ID is required")
+    private String upiId;
+    
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be positive")
+    private BigDecimal amount;
+    
+    private String transactionRef; // optional, recorded in the account journal
+    
+    private Long ttlSeconds; // optional, defaults to account.holds.default-ttl-seconds
+    
+    // Default constructor
+    public HoldRequest() {}
+    
+    // Constructor
+    public HoldRequest(String upiId, BigDecimal amount, String transactionRef, Long ttlSeconds) {
+        this.upiId = upiId;
+        this.amount = amount;
+        this.transactionRef = transactionRef;
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    // Getters and Setters
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+    
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    @Override
+    public String toString() {
+        return "HoldRequest{" +
+                "upiId='" + upiId + '\'' +
+                ", amount=" + amount +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", ttlSeconds=" + ttlSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.upi.account.dto;
+
+import com.upi.account.entity.AccountHold;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class HoldResponse {
+    
+    private Long holdId;
+    private String upiId;
+    private BigDecimal amount;
+    private String status;
+    private String transactionRef;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime resolvedAt;
+    
+    // Default constructor
+    public HoldResponse() {}
+    
+    // Constructor from AccountHold entity
+    public HoldResponse(AccountHold hold) {
+        this.holdId = hold.getId();
+        this.upiId = hold.getUpiId();
+        this.amount = hold.getAmount();
+        this.status = hold.getStatus().name();
+        this.transactionRef = hold.getTransactionRef();
+        this.expiresAt = hold.getExpiresAt();
+        this.createdAt = hold.getCreatedAt();
+        this.resolvedAt = hold.getResolvedAt();
+    }
+    
+    // Getters and Setters
+    public Long getHoldId() {
+        return holdId;
+    }
+    
+    public void setHoldId(Long holdId) {
+        this.holdId = holdId;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+    
+    public void setResolvedAt(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "HoldResponse{" +
+                "holdId=" + holdId +
+                ", upiId='" + upiId + '\'' +
+                ", amount=" + amount +
+                ", status='" + status + '\'' +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
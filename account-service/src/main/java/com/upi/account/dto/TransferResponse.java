@@ -0,0 +1,77 @@
+package com.upi.account.dto;
+
+import java.math.BigDecimal;
+
+public class TransferResponse {
+    
+    private String senderUpiId;
+    private BigDecimal senderBalance;
+    private String receiverUpiId;
+    private BigDecimal receiverBalance;
+    private BigDecimal amount;
+    
+    // Default constructor
+    public TransferResponse() {}
+    
+    // Constructor
+    public TransferResponse(String senderUpiId, BigDecimal senderBalance, 
+                           String receiverUpiId, BigDecimal receiverBalance, BigDecimal amount) {
+        this.senderUpiId = senderUpiId;
+        this.senderBalance = senderBalance;
+        this.receiverUpiId = receiverUpiId;
+        this.receiverBalance = receiverBalance;
+        this.amount = amount;
+    }
+    
+    // Getters and Setters
+    public String getSenderUpiId() {
+        return senderUpiId;
+    }
+    
+    public void setSenderUpiId(String senderUpiId) {
+        this.senderUpiId = senderUpiId;
+    }
+    
+    public BigDecimal getSenderBalance() {
+        return senderBalance;
+    }
+    
+    public void setSenderBalance(BigDecimal senderBalance) {
+        this.senderBalance = senderBalance;
+    }
+    
+    public String getReceiverUpiId() {
+        return receiverUpiId;
+    }
+    
+    public void setReceiverUpiId(String receiverUpiId) {
+        this.receiverUpiId = receiverUpiId;
+    }
+    
+    public BigDecimal getReceiverBalance() {
+        return receiverBalance;
+    }
+    
+    public void setReceiverBalance(BigDecimal receiverBalance) {
+        this.receiverBalance = receiverBalance;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransferResponse{" +
+                "senderUpiId='" + senderUpiId + '\'' +
+                ", senderBalance=" + senderBalance +
+                ", receiverUpiId='" + receiverUpiId + '\'' +
+                ", receiverBalance=" + receiverBalance +
+                ", amount=" + amount +
+                '}';
+    }
+}
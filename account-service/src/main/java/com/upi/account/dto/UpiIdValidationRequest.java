@@ -0,0 +1,37 @@
+package com.upi.account.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class UpiIdValidationRequest {
+    
+    @NotEmpty(message = "At least one UPI ID is required")
+    @Size(max = 1000, message = "At most 1000 UPI IDs may be validated at once")
+    private List<String> upiIds;
+    
+    // Default constructor
+    public UpiIdValidationRequest() {}
+    
+    // Constructor
+    public UpiIdValidationRequest(List<String> upiIds) {
+        this.upiIds = upiIds;
+    }
+    
+    // Getters and Setters
+    public List<String> getUpiIds() {
+        return upiIds;
+    }
+    
+    public void setUpiIds(List<String> upiIds) {
+        this.upiIds = upiIds;
+    }
+    
+    @Override
+    public String toString() {
+        return "UpiIdValidationRequest{" +
+                "upiIds=" + upiIds +
+                '}';
+    }
+}
@@ -2,13 +2,16 @@ package com.upi.account.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+    @Index(name = "idx_accounts_created_at", columnList = "created_at")
+})
 public class Account {
     
     @Id
@@ -24,9 +27,31 @@ public class Account {
     @Column(name = "account_number", unique = true, nullable = false, length = 20)
     private String accountNumber;
     
+    /**
+     * Balance snapshot. Credits land in account_entries first and are folded in
+     * here by compaction; use currentBalance for the up-to-date figure.
+     */
     @Column(precision = 15, scale = 2)
     private BigDecimal balance = BigDecimal.ZERO;
     
+    /**
+     * Snapshot balance plus the balance slots (for sharded accounts) plus the unfolded journal tail
+     */
+    @Formula("(balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s " +
+             "WHERE s.upi_id = upi_id), 0) + COALESCE((SELECT SUM(e.amount) FROM account_entries e " +
+             "WHERE e.upi_id = upi_id AND e.snapshot_version IS NULL), 0))")
+    private BigDecimal currentBalance;
+    
+    @Column(name = "snapshot_version", nullable = false)
+    private Long snapshotVersion = 0L;
+    
+    /**
+     * Number of account_balance_slots rows holding the snapshot; 0 means the
+     * snapshot lives in balance only
+     */
+    @Column(name = "balance_slots", nullable = false)
+    private Integer balanceSlots = 0;
+    
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -87,6 +112,26 @@ public class Account {
         this.balance = balance;
     }
     
+    public BigDecimal getCurrentBalance() {
+        return currentBalance != null ? currentBalance : balance;
+    }
+    
+    public Long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+    
+    public void setSnapshotVersion(Long snapshotVersion) {
+        this.snapshotVersion = snapshotVersion;
+    }
+    
+    public Integer getBalanceSlots() {
+        return balanceSlots;
+    }
+    
+    public void setBalanceSlots(Integer balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -111,6 +156,8 @@ public class Account {
                 ", upiId='" + upiId + '\'' +
                 ", accountNumber='" + accountNumber + '\'' +
                 ", balance=" + balance +
+                ", snapshotVersion=" + snapshotVersion +
+                ", balanceSlots=" + balanceSlots +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
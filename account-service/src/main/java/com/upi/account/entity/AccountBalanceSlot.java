@@ -0,0 +1,83 @@
+package com.upi.account.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One sub-balance of a sharded account. The account's snapshot balance is the
+ * sum of its slots, so debits and folds on different slots lock different rows.
+ */
+@Entity
+@Table(name = "account_balance_slots", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_account_balance_slots_upi_slot", columnNames = {"upi_id", "slot_no"})
+})
+public class AccountBalanceSlot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "upi_id", nullable = false, length = 100)
+    private String upiId;
+    
+    @Column(name = "slot_no", nullable = false)
+    private Integer slotNo;
+    
+    @Column(precision = 15, scale = 2, nullable = false)
+    private BigDecimal balance = BigDecimal.ZERO;
+    
+    @Column(name = "snapshot_version", nullable = false)
+    private Long snapshotVersion = 0L;
+    
+    // Default constructor
+    public AccountBalanceSlot() {}
+    
+    // Constructor with required fields
+    public AccountBalanceSlot(String upiId, Integer slotNo, BigDecimal balance, Long snapshotVersion) {
+        this.upiId = upiId;
+        this.slotNo = slotNo;
+        this.balance = balance;
+        this.snapshotVersion = snapshotVersion;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public Integer getSlotNo() {
+        return slotNo;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    public Long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+    
+    public void setSnapshotVersion(Long snapshotVersion) {
+        this.snapshotVersion = snapshotVersion;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountBalanceSlot{" +
+                "id=" + id +
+                ", upiId='" + upiId + '\'' +
+                ", slotNo=" + slotNo +
+                ", balance=" + balance +
+                ", snapshotVersion=" + snapshotVersion +
+                '}';
+    }
+}
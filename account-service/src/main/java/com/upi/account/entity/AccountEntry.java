@@ -0,0 +1,121 @@
+package com.upi.account.entity;
+
+import com.upi.account.enums.EntryType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable journal row for a single debit or credit.
+ * The amount is signed (negative for debits). snapshotVersion records which
+ * compaction folded the entry into Account.balance; null means the entry is
+ * still part of the unfolded tail and must be added on read. slotNo is the
+ * balance slot a credit was assigned to when its account is sharded.
+ */
+@Entity
+@Table(name = "account_entries", indexes = {
+    @Index(name = "idx_account_entries_upi_snapshot", columnList = "upi_id, snapshot_version"),
+    @Index(name = "idx_account_entries_transaction_ref", columnList = "transaction_ref")
+})
+public class AccountEntry {
+    
+    /**
+     * Marker for entries that were applied to the balance directly when written (debits)
+     */
+    public static final long APPLIED_IN_PLACE = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "upi_id", nullable = false, updatable = false, length = 100)
+    private String upiId;
+    
+    @Column(precision = 15, scale = 2, nullable = false, updatable = false)
+    private BigDecimal amount;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 10)
+    private EntryType entryType;
+    
+    @Column(name = "transaction_ref", updatable = false, length = 50)
+    private String transactionRef;
+    
+    @Column(name = "snapshot_version")
+    private Long snapshotVersion;
+    
+    @Column(name = "slot_no", updatable = false)
+    private Integer slotNo;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    // Default constructor
+    public AccountEntry() {}
+    
+    // Constructor with required fields
+    public AccountEntry(String upiId, BigDecimal amount, String transactionRef, Long snapshotVersion) {
+        this(upiId, amount, transactionRef, snapshotVersion, null);
+    }
+    
+    // Constructor for entries assigned to a balance slot
+    public AccountEntry(String upiId, BigDecimal amount, String transactionRef, Long snapshotVersion, 
+                        Integer slotNo) {
+        this.upiId = upiId;
+        this.amount = amount;
+        this.entryType = amount.signum() < 0 ? EntryType.DEBIT : EntryType.CREDIT;
+        this.transactionRef = transactionRef;
+        this.snapshotVersion = snapshotVersion;
+        this.slotNo = slotNo;
+    }
+    
+    // Getters
+    public Long getId() {
+        return id;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public EntryType getEntryType() {
+        return entryType;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public Long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+    
+    public Integer getSlotNo() {
+        return slotNo;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountEntry{" +
+                "id=" + id +
+                ", upiId='" + upiId + '\'' +
+                ", amount=" + amount +
+                ", entryType=" + entryType +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", snapshotVersion=" + snapshotVersion +
+                ", slotNo=" + slotNo +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,106 @@
+package com.upi.account.entity;
+
+import com.upi.account.enums.HoldStatus;
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Funds reserved on an account until they are captured, released or expire.
+ * The amount is debited from the balance when the hold is placed, so the
+ * balance reported for the account is already net of open holds.
+ */
+@Entity
+@Table(name = "account_holds", indexes = {
+    @Index(name = "idx_account_holds_status_expires", columnList = "status, expires_at"),
+    @Index(name = "idx_account_holds_upi_id", columnList = "upi_id")
+})
+public class AccountHold {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "upi_id", nullable = false, updatable = false, length = 100)
+    private String upiId;
+    
+    @Column(precision = 15, scale = 2, nullable = false, updatable = false)
+    private BigDecimal amount;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private HoldStatus status = HoldStatus.HELD;
+    
+    @Column(name = "transaction_ref", updatable = false, length = 50)
+    private String transactionRef;
+    
+    @Column(name = "expires_at", nullable = false, updatable = false)
+    private LocalDateTime expiresAt;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+    
+    // Default constructor
+    public AccountHold() {}
+    
+    // Constructor with required fields
+    public AccountHold(String upiId, BigDecimal amount, String transactionRef, LocalDateTime expiresAt) {
+        this.upiId = upiId;
+        this.amount = amount;
+        this.transactionRef = transactionRef;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters
+    public Long getId() {
+        return id;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public HoldStatus getStatus() {
+        return status;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountHold{" +
+                "id=" + id +
+                ", upiId='" + upiId + '\'' +
+                ", amount=" + amount +
+                ", status=" + status +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", expiresAt=" + expiresAt +
+                ", createdAt=" + createdAt +
+                ", resolvedAt=" + resolvedAt +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.upi.account.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a balance update made under an Idempotency-Key, kept until it expires so a
+ * retried request can be answered with the original response instead of being applied again.
+ * The fingerprint identifies the request the key was first used with.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+    
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+    
+    @Column(nullable = false, updatable = false, length = 200)
+    private String fingerprint;
+    
+    @Column(name = "upi_id", updatable = false, length = 100)
+    private String upiId;
+    
+    @Column(precision = 15, scale = 2, updatable = false)
+    private BigDecimal balance;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "expires_at", nullable = false, updatable = false)
+    private LocalDateTime expiresAt;
+    
+    // Default constructor
+    public IdempotencyRecord() {}
+    
+    // Constructor with required fields
+    public IdempotencyRecord(String idempotencyKey, String fingerprint, String upiId, BigDecimal balance,
+                             LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.fingerprint = fingerprint;
+        this.upiId = upiId;
+        this.balance = balance;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public String getFingerprint() {
+        return fingerprint;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", fingerprint='" + fingerprint + '\'' +
+                ", upiId='" + upiId + '\'' +
+                ", balance=" + balance +
+                ", createdAt=" + createdAt +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
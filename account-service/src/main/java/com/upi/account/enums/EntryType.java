@@ -0,0 +1,6 @@
+package com.upi.account.enums;
+
+public enum EntryType {
+    DEBIT,
+    CREDIT
+}
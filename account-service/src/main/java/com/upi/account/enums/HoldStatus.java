@@ -0,0 +1,9 @@
+package com.upi.account.enums;
+
+public enum HoldStatus {
+    HELD,
+    CAPTURING,
+    CAPTURED,
+    RELEASED,
+    EXPIRED
+}
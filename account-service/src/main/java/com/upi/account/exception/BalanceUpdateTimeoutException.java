@@ -0,0 +1,12 @@
+package com.upi.account.exception;
+
+public class BalanceUpdateTimeoutException extends RuntimeException {
+    
+    public BalanceUpdateTimeoutException(String message) {
+        super(message);
+    }
+    
+    public BalanceUpdateTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
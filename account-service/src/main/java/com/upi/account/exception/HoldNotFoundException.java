@@ -0,0 +1,12 @@
+package com.upi.account.exception;
+
+public class HoldNotFoundException extends RuntimeException {
+    
+    public HoldNotFoundException(String message) {
+        super(message);
+    }
+    
+    public HoldNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
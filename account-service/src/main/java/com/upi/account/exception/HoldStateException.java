@@ -0,0 +1,12 @@
+package com.upi.account.exception;
+
+public class HoldStateException extends RuntimeException {
+    
+    public HoldStateException(String message) {
+        super(message);
+    }
+    
+    public HoldStateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,67 @@
+package com.upi.account.repository;
+
+import com.upi.account.entity.AccountBalanceSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+    
+    /**
+     * Find all slots of a UPI ID in slot order
+     */
+    List<AccountBalanceSlot> findByUpiIdOrderBySlotNoAsc(String upiId);
+    
+    /**
+     * Find and lock all slots of a UPI ID in slot order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceSlot s WHERE s.upiId = :upiId ORDER BY s.slotNo ASC")
+    List<AccountBalanceSlot> findByUpiIdForUpdate(@Param("upiId") String upiId);
+    
+    /**
+     * Atomically apply a signed delta to one slot, refusing to take it below zero
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance + :amount " +
+           "WHERE s.upiId = :upiId AND s.slotNo = :slotNo AND s.balance + :amount >= 0")
+    int updateBalance(@Param("upiId") String upiId, @Param("slotNo") int slotNo, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Open a new snapshot version for one slot, locking the slot row for the fold
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccountBalanceSlot s SET s.snapshotVersion = s.snapshotVersion + 1 " +
+           "WHERE s.upiId = :upiId AND s.slotNo = :slotNo")
+    int incrementSnapshotVersion(@Param("upiId") String upiId, @Param("slotNo") int slotNo);
+    
+    /**
+     * Get the current snapshot version of one slot
+     */
+    @Query("SELECT s.snapshotVersion FROM AccountBalanceSlot s WHERE s.upiId = :upiId AND s.slotNo = :slotNo")
+    Optional<Long> getSnapshotVersion(@Param("upiId") String upiId, @Param("slotNo") int slotNo);
+    
+    /**
+     * Fold already-validated journal entries into one slot
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance + :amount " +
+           "WHERE s.upiId = :upiId AND s.slotNo = :slotNo")
+    int foldIntoBalance(@Param("upiId") String upiId, @Param("slotNo") int slotNo, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Remove all slots of a UPI ID
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM AccountBalanceSlot s WHERE s.upiId = :upiId")
+    int deleteByUpiId(@Param("upiId") String upiId);
+}
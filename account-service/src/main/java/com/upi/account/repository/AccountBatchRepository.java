@@ -0,0 +1,200 @@
+package com.upi.account.repository;
+
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountEntry;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-level account operations that need statement batching,
+ * which Spring Data JPA modifying queries cannot express.
+ */
+@Repository
+public class AccountBatchRepository {
+    
+    private static final String GUARDED_BALANCE_UPDATE_SQL =
+            "UPDATE accounts SET balance = balance + ?, updated_at = ? " +
+            "WHERE upi_id = ? AND balance + ? >= 0";
+    
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO account_entries (upi_id, amount, entry_type, transaction_ref, snapshot_version, slot_no, " +
+            "created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String BALANCES_BY_UPI_IDS_SQL =
+            "SELECT a.upi_id, a.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s " +
+            "WHERE s.upi_id = a.upi_id), 0) + COALESCE((SELECT SUM(e.amount) FROM account_entries e " +
+            "WHERE e.upi_id = a.upi_id AND e.snapshot_version IS NULL), 0) AS balance " +
+            "FROM accounts a WHERE a.upi_id IN (:upiIds)";
+    
+    private static final String INSERT_ACCOUNT_SQL =
+            "INSERT INTO accounts (user_id, upi_id, account_number, balance, snapshot_version, balance_slots, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, 0, 0, ?, ?)";
+    
+    private static final String ALL_UPI_IDS_SQL = "SELECT upi_id, created_at FROM accounts";
+    
+    private static final String UPI_IDS_CREATED_SINCE_SQL =
+            "SELECT upi_id, created_at FROM accounts WHERE created_at >= ?";
+    
+    private static final String EXISTING_UPI_IDS_SQL = "SELECT upi_id FROM accounts WHERE upi_id IN (:upiIds)";
+    
+    private static final int UPI_ID_FETCH_SIZE = 1000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    public AccountBatchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+    
+    /**
+     * Apply signed deltas as one JDBC batch of guarded updates, in list order.
+     * Returns the update count per entry (0 if the account is missing or funds are insufficient).
+     */
+    public int[] updateBalancesByUpiId(List<String> upiIds, List<BigDecimal> amounts) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(GUARDED_BALANCE_UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setBigDecimal(1, amounts.get(i));
+                ps.setTimestamp(2, now);
+                ps.setString(3, upiIds.get(i));
+                ps.setBigDecimal(4, amounts.get(i));
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return upiIds.size();
+            }
+        });
+    }
+    
+    /**
+     * Append journal entries as one JDBC batch
+     */
+    public void insertEntries(List<AccountEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AccountEntry entry = entries.get(i);
+                ps.setString(1, entry.getUpiId());
+                ps.setBigDecimal(2, entry.getAmount());
+                ps.setString(3, entry.getEntryType().name());
+                ps.setString(4, entry.getTransactionRef());
+                ps.setObject(5, entry.getSnapshotVersion(), Types.BIGINT);
+                ps.setObject(6, entry.getSlotNo(), Types.INTEGER);
+                ps.setTimestamp(7, now);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+    
+    /**
+     * Get current balances (snapshot, balance slots and unfolded journal entries) for several UPI IDs in one query.
+     * Unknown UPI IDs are absent from the result.
+     */
+    public Map<String, BigDecimal> getBalancesByUpiIds(Collection<String> upiIds) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        if (upiIds.isEmpty()) {
+            return balances;
+        }
+        namedParameterJdbcTemplate.query(BALANCES_BY_UPI_IDS_SQL,
+                new MapSqlParameterSource("upiIds", upiIds),
+                rs -> {
+                    balances.put(rs.getString("upi_id"), rs.getBigDecimal("balance"));
+                });
+        return balances;
+    }
+    
+    /**
+     * The given UPI IDs that have an account, in one query
+     */
+    public Set<String> findExistingUpiIds(Collection<String> upiIds) {
+        Set<String> existing = new HashSet<>();
+        if (upiIds.isEmpty()) {
+            return existing;
+        }
+        namedParameterJdbcTemplate.query(EXISTING_UPI_IDS_SQL,
+                new MapSqlParameterSource("upiIds", upiIds),
+                rs -> {
+                    existing.add(rs.getString("upi_id"));
+                });
+        return existing;
+    }
+    
+    /**
+     * Insert new accounts as one JDBC batch
+     */
+    public void insertAccounts(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ACCOUNT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Account account = accounts.get(i);
+                ps.setLong(1, account.getUserId());
+                ps.setString(2, account.getUpiId());
+                ps.setString(3, account.getAccountNumber());
+                ps.setBigDecimal(4, account.getBalance());
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return accounts.size();
+            }
+        });
+    }
+    
+    /**
+     * Stream the UPI IDs of accounts created at or after {@code since} (all of them when it is
+     * null) to the consumer without materializing them all in memory. Returns the latest
+     * creation time seen, or null if no row had one.
+     */
+    public LocalDateTime forEachUpiIdCreatedSince(LocalDateTime since, Consumer<String> consumer) {
+        LocalDateTime[] latest = new LocalDateTime[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(since == null ? ALL_UPI_IDS_SQL : UPI_IDS_CREATED_SINCE_SQL);
+            if (since != null) {
+                ps.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            ps.setFetchSize(UPI_ID_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(rs.getString(1));
+            Timestamp createdAt = rs.getTimestamp(2);
+            if (createdAt != null && (latest[0] == null || createdAt.toLocalDateTime().isAfter(latest[0]))) {
+                latest[0] = createdAt.toLocalDateTime();
+            }
+        });
+        return latest[0];
+    }
+}
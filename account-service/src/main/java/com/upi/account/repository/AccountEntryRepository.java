@@ -0,0 +1,69 @@
+package com.upi.account.repository;
+
+import com.upi.account.entity.AccountEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface AccountEntryRepository extends JpaRepository<AccountEntry, Long> {
+    
+    /**
+     * Find journal entries for a UPI ID, newest first
+     */
+    List<AccountEntry> findByUpiIdOrderByIdDesc(String upiId, Pageable pageable);
+    
+    /**
+     * Find journal entries written for a transaction reference
+     */
+    List<AccountEntry> findByTransactionRefOrderByIdAsc(String transactionRef);
+    
+    /**
+     * Find UPI IDs that have entries not yet folded into their balance
+     */
+    @Query("SELECT DISTINCT e.upiId FROM AccountEntry e WHERE e.snapshotVersion IS NULL")
+    List<String> findUpiIdsWithUnfoldedEntries(Pageable pageable);
+    
+    /**
+     * Claim all unfolded entries of a UPI ID for the given snapshot version.
+     * Only committed entries are claimed; entries still being written stay in the tail.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountEntry e SET e.snapshotVersion = :snapshotVersion " +
+           "WHERE e.upiId = :upiId AND e.snapshotVersion IS NULL")
+    int claimUnfoldedEntries(@Param("upiId") String upiId, @Param("snapshotVersion") Long snapshotVersion);
+    
+    /**
+     * Sum the entries claimed by a snapshot version
+     */
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM AccountEntry e " +
+           "WHERE e.upiId = :upiId AND e.snapshotVersion = :snapshotVersion")
+    BigDecimal sumBySnapshotVersion(@Param("upiId") String upiId, @Param("snapshotVersion") Long snapshotVersion);
+    
+    /**
+     * Claim the unfolded entries of one balance slot for the given slot snapshot version.
+     * Entries are mapped onto the current slot count, so entries written without a slot
+     * or against an older slot count are still claimed by exactly one slot.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountEntry e SET e.snapshotVersion = :snapshotVersion " +
+           "WHERE e.upiId = :upiId AND e.snapshotVersion IS NULL " +
+           "AND MOD(COALESCE(e.slotNo, 0), :slots) = :slotNo")
+    int claimUnfoldedSlotEntries(@Param("upiId") String upiId, @Param("slots") int slots, 
+                                 @Param("slotNo") int slotNo, @Param("snapshotVersion") Long snapshotVersion);
+    
+    /**
+     * Sum the entries claimed by a slot snapshot version
+     */
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM AccountEntry e " +
+           "WHERE e.upiId = :upiId AND e.snapshotVersion = :snapshotVersion " +
+           "AND MOD(COALESCE(e.slotNo, 0), :slots) = :slotNo")
+    BigDecimal sumBySlotSnapshotVersion(@Param("upiId") String upiId, @Param("slots") int slots, 
+                                        @Param("slotNo") int slotNo, @Param("snapshotVersion") Long snapshotVersion);
+}
@@ -0,0 +1,45 @@
+package com.upi.account.repository;
+
+import com.upi.account.entity.AccountHold;
+import com.upi.account.enums.HoldStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountHoldRepository extends JpaRepository<AccountHold, Long> {
+    
+    /**
+     * Move a hold out of HELD or CAPTURING. Only one caller can win the transition, so a
+     * hold is captured, released or expired exactly once.
+     * Returns the number of rows updated (0 if the hold is missing or in none of the given states).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccountHold h SET h.status = :status, h.resolvedAt = LOCAL_DATETIME " +
+           "WHERE h.id = :holdId AND h.status IN :from")
+    int resolveHold(@Param("holdId") Long holdId, @Param("from") Collection<HoldStatus> from,
+                    @Param("status") HoldStatus status);
+    
+    /**
+     * Mark a HELD hold as being captured, which takes it out of expiry.
+     * Returns the number of rows updated (0 if the hold is missing or no longer held).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccountHold h SET h.status = com.upi.account.enums.HoldStatus.CAPTURING " +
+           "WHERE h.id = :holdId AND h.status = com.upi.account.enums.HoldStatus.HELD")
+    int beginCapture(@Param("holdId") Long holdId);
+    
+    /**
+     * Find holds that are still held past their expiry, oldest first
+     */
+    @Query("SELECT h.id FROM AccountHold h WHERE h.status = com.upi.account.enums.HoldStatus.HELD " +
+           "AND h.expiresAt < :now ORDER BY h.expiresAt ASC")
+    List<Long> findExpiredHoldIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
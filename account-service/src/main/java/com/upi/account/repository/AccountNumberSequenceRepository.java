@@ -0,0 +1,50 @@
+package com.upi.account.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Database sequence that reserves blocks of account numbers.
+ * Each call to nextBlockStart() reserves as many consecutive numbers as the
+ * sequence increments by, so the database is only touched once per block.
+ */
+@Repository
+public class AccountNumberSequenceRepository {
+    
+    private static final String CREATE_SEQUENCE_SQL =
+            "CREATE SEQUENCE IF NOT EXISTS account_number_seq START WITH %d INCREMENT BY %d";
+    
+    private static final String INCREMENT_SQL =
+            "SELECT CAST(INCREMENT AS BIGINT) FROM INFORMATION_SCHEMA.SEQUENCES " +
+            "WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'ACCOUNT_NUMBER_SEQ'";
+    
+    private static final String NEXT_VALUE_SQL = "SELECT NEXT VALUE FOR account_number_seq";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public AccountNumberSequenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Create the sequence if it does not exist yet
+     */
+    public void createIfNotExists(long start, int blockSize) {
+        jdbcTemplate.execute(String.format(CREATE_SEQUENCE_SQL, start, blockSize));
+    }
+    
+    /**
+     * The sequence's actual increment, which is the size of every reserved block. It is fixed
+     * when the sequence is created, so it can differ from the block size asked for since.
+     */
+    public int incrementBy() {
+        return jdbcTemplate.queryForObject(INCREMENT_SQL, Long.class).intValue();
+    }
+    
+    /**
+     * Reserve the next block and return its first number
+     */
+    public long nextBlockStart() {
+        return jdbcTemplate.queryForObject(NEXT_VALUE_SQL, Long.class);
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -33,6 +35,18 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      */
     boolean existsByUpiId(String upiId);
     
+    /**
+     * Find which of the given users already have an account
+     */
+    @Query("SELECT a.userId FROM Account a WHERE a.userId IN :userIds")
+    List<Long> findUserIdsWithAccounts(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Find UPI IDs starting with a prefix (a phone number and its numbered variants)
+     */
+    @Query("SELECT a.upiId FROM Account a WHERE a.upiId LIKE CONCAT(:prefix, '%')")
+    List<String> findUpiIdsByPrefix(@Param("prefix") String prefix);
+    
     /**
      * Check if account number exists
      */
@@ -44,21 +58,61 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     boolean existsByUserId(Long userId);
     
     /**
-     * Update account balance by UPI ID
+     * Atomically apply a signed delta to the balance snapshot of a UPI ID.
+     * The guard rejects any delta that would take the snapshot below zero,
+     * so the check and the write happen under a single row lock.
+     * Returns the number of rows updated (0 if the account is missing or funds are insufficient).
      */
-    @Modifying
-    @Query("UPDATE Account a SET a.balance = a.balance + :amount WHERE a.upiId = :upiId")
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.updatedAt = LOCAL_DATETIME " +
+           "WHERE a.upiId = :upiId AND a.balance + :amount >= 0")
     int updateBalanceByUpiId(@Param("upiId") String upiId, @Param("amount") BigDecimal amount);
     
     /**
-     * Get balance by UPI ID
+     * Open a new snapshot version for a UPI ID, locking the account row for the fold
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Account a SET a.snapshotVersion = a.snapshotVersion + 1 WHERE a.upiId = :upiId")
+    int incrementSnapshotVersion(@Param("upiId") String upiId);
+    
+    /**
+     * Get the current snapshot version by UPI ID
+     */
+    @Query("SELECT a.snapshotVersion FROM Account a WHERE a.upiId = :upiId")
+    Optional<Long> getSnapshotVersionByUpiId(@Param("upiId") String upiId);
+    
+    /**
+     * Fold already-validated journal entries into the balance snapshot
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.updatedAt = LOCAL_DATETIME " +
+           "WHERE a.upiId = :upiId")
+    int foldIntoBalance(@Param("upiId") String upiId, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Get the number of balance slots by UPI ID (0 for unsharded accounts)
+     */
+    @Query("SELECT a.balanceSlots FROM Account a WHERE a.upiId = :upiId")
+    Optional<Integer> getBalanceSlotsByUpiId(@Param("upiId") String upiId);
+    
+    /**
+     * Switch the balance layout of a UPI ID. Only called while the account row is locked.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Account a SET a.balanceSlots = :balanceSlots, a.balance = :balance, " +
+           "a.snapshotVersion = :snapshotVersion, a.updatedAt = LOCAL_DATETIME WHERE a.upiId = :upiId")
+    int updateBalanceLayout(@Param("upiId") String upiId, @Param("balanceSlots") int balanceSlots,
+                            @Param("balance") BigDecimal balance, @Param("snapshotVersion") Long snapshotVersion);
+    
+    /**
+     * Get current balance (snapshot plus unfolded journal entries) by UPI ID
      */
-    @Query("SELECT a.balance FROM Account a WHERE a.upiId = :upiId")
+    @Query("SELECT a.currentBalance FROM Account a WHERE a.upiId = :upiId")
     Optional<BigDecimal> getBalanceByUpiId(@Param("upiId") String upiId);
     
     /**
-     * Get balance by account ID
+     * Get current balance (snapshot plus unfolded journal entries) by account ID
      */
-    @Query("SELECT a.balance FROM Account a WHERE a.id = :accountId")
+    @Query("SELECT a.currentBalance FROM Account a WHERE a.id = :accountId")
     Optional<BigDecimal> getBalanceByAccountId(@Param("accountId") Long accountId);
 }
\ No newline at end of file
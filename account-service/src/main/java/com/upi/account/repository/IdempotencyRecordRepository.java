@@ -0,0 +1,48 @@
+package com.upi.account.repository;
+
+import com.upi.account.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    
+    /**
+     * Insert a record immediately. Unlike save, a key already taken by another
+     * transaction fails here with a duplicate key error instead of being merged.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, fingerprint, upi_id, balance, created_at, expires_at) " +
+                   "VALUES (:key, :fingerprint, :upiId, :balance, :createdAt, :expiresAt)", nativeQuery = true)
+    void insert(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("upiId") String upiId,
+                @Param("balance") BigDecimal balance, @Param("createdAt") LocalDateTime createdAt,
+                @Param("expiresAt") LocalDateTime expiresAt);
+    
+    /**
+     * Find the record for a key unless it has expired
+     */
+    @Query("SELECT r FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt > :now")
+    Optional<IdempotencyRecord> findUnexpired(@Param("key") String key, @Param("now") LocalDateTime now);
+    
+    /**
+     * Delete the record for a key if it has expired, so the key can be taken again before
+     * the next purge. Returns the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt <= :now")
+    int deleteExpiredKey(@Param("key") String key, @Param("now") LocalDateTime now);
+    
+    /**
+     * Delete records past their expiry. Returns the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
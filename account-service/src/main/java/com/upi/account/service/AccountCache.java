@@ -0,0 +1,83 @@
+package com.upi.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upi.account.entity.Account;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, TTL-evicting near-cache of accounts (including their current balance) keyed by UPI ID.
+ *
+ * Entries are loaded atomically per key, and every balance change invalidates its UPI IDs
+ * both immediately and again once the changing transaction completes. A read that raced
+ * the change therefore cannot leave a stale entry behind after the commit.
+ * Hit, miss and eviction counts are published as cache.* metrics with cache=accounts.
+ */
+@Component
+public class AccountCache {
+    
+    private final Cache<String, Account> accounts;
+    
+    public AccountCache(MeterRegistry meterRegistry,
+                        @Value("${account.cache.maximum-size:100000}") long maximumSize,
+                        @Value("${account.cache.expire-after-write-seconds:30}") long expireAfterWriteSeconds) {
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "accounts");
+    }
+    
+    /**
+     * Get an account from the cache, loading it on a miss. Missing accounts are not cached.
+     */
+    public Optional<Account> get(String upiId, Function<String, Optional<Account>> loader) {
+        return Optional.ofNullable(accounts.get(upiId, key -> loader.apply(key).orElse(null)));
+    }
+    
+    /**
+     * Drop a UPI ID now and after the current transaction completes
+     */
+    public void invalidate(String upiId) {
+        accounts.invalidate(upiId);
+        afterCompletion(() -> accounts.invalidate(upiId));
+    }
+    
+    /**
+     * Drop several UPI IDs now and after the current transaction completes
+     */
+    public void invalidateAll(Collection<String> upiIds) {
+        accounts.invalidateAll(upiIds);
+        afterCompletion(() -> accounts.invalidateAll(upiIds));
+    }
+    
+    /**
+     * Drop every cached UPI ID matching the predicate
+     */
+    public void invalidateIf(Predicate<String> predicate) {
+        accounts.asMap().keySet().removeIf(predicate);
+    }
+    
+    private void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.upi.account.service;
+
+import com.upi.account.repository.AccountNumberSequenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique 10-digit account numbers without probing the accounts table.
+ *
+ * Numbers are a 9-digit serial followed by a Luhn check digit. Serials are reserved
+ * from account_number_seq in blocks and handed out from memory with a single atomic
+ * increment; only the thread that finds the block exhausted goes back to the database.
+ * Serials left in a block when the service stops are skipped, never reused.
+ *
+ * The block size is the sequence's own increment, read at startup, so instances
+ * configured with a different account.number.block-size never hand out overlapping blocks.
+ */
+@Component
+public class AccountNumberAllocator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AccountNumberAllocator.class);
+    
+    private static final long FIRST_SERIAL = 100_000_000L;
+    private static final long LAST_SERIAL = 999_999_999L;
+    
+    private final AccountNumberSequenceRepository sequenceRepository;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+    
+    public AccountNumberAllocator(AccountNumberSequenceRepository sequenceRepository,
+                                  @Value("${account.number.block-size:100}") int blockSize) {
+        this.sequenceRepository = sequenceRepository;
+        sequenceRepository.createIfNotExists(FIRST_SERIAL, blockSize);
+        this.blockSize = sequenceRepository.incrementBy();
+        if (this.blockSize != blockSize) {
+            logger.warn("account_number_seq increments by {}, not the configured block size {}; using {}",
+                        this.blockSize, blockSize, this.blockSize);
+        }
+    }
+    
+    /**
+     * Allocate the next account number
+     */
+    public String nextAccountNumber() {
+        long serial = nextSerial();
+        return Long.toString(serial) + checkDigit(serial);
+    }
+    
+    private long nextSerial() {
+        while (true) {
+            Block current = block;
+            long serial = current.next.getAndIncrement();
+            if (serial < current.end) {
+                return serial;
+            }
+            refill(current);
+        }
+    }
+    
+    private synchronized void refill(Block exhausted) {
+        // Another thread may already have replaced the block we found exhausted
+        if (block != exhausted) {
+            return;
+        }
+        
+        long start = sequenceRepository.nextBlockStart();
+        if (start + blockSize - 1 > LAST_SERIAL) {
+            throw new IllegalStateException("Account number range exhausted");
+        }
+        block = new Block(start, start + blockSize);
+        logger.debug("Reserved account number block {} - {}", start, start + blockSize - 1);
+    }
+    
+    /**
+     * Luhn check digit for a serial, so mistyped account numbers can be rejected
+     */
+    static int checkDigit(long serial) {
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (long remaining = serial; remaining > 0; remaining /= 10) {
+            int digit = (int) (remaining % 10);
+            if (doubleDigit) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleDigit = !doubleDigit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+    
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+        
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.upi.account.service;
+
+import com.upi.common.ownership.ConsistentHashRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Partitions UPI IDs across the running account-service instances with a consistent-hash
+ * ring built from the service registry. Callers route balance updates, transfers, holds
+ * and balance batches to the instance owning the debited UPI ID and non-owners forward
+ * them, so each account is debited by one instance and that instance's mailbox and
+ * near-cache see every debit. The credited side of a transfer or batch is applied by the
+ * payer's owner; the payee's owner may serve its cached balance until the entry expires.
+ *
+ * The database stays the source of truth: ownership only decides where updates run, so
+ * two instances briefly disagreeing about the ring (while the registry converges) costs
+ * an extra hop or some row-lock contention, never correctness. When membership changes,
+ * the cached accounts whose owner changed are dropped, so a new owner starts from the
+ * database and a former owner keeps nothing it can no longer see updated.
+ */
+@Component
+public class AccountOwnership {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AccountOwnership.class);
+    
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final AccountCache accountCache;
+    private final boolean enabled;
+    private final String serviceId;
+    private final int virtualNodes;
+    private final String configuredSelf;
+    
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 0);
+    private volatile Map<String, URI> instanceUris = Map.of();
+    private volatile String self;
+    
+    public AccountOwnership(DiscoveryClient discoveryClient, ObjectProvider<Registration> registration,
+                            AccountCache accountCache,
+                            @Value("${account.ownership.enabled:false}") boolean enabled,
+                            @Value("${spring.application.name}") String serviceId,
+                            @Value("${account.ownership.virtual-nodes:128}") int virtualNodes,
+                            @Value("${account.ownership.self:}") String configuredSelf) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.accountCache = accountCache;
+        this.enabled = enabled;
+        this.serviceId = serviceId;
+        this.virtualNodes = virtualNodes;
+        this.configuredSelf = configuredSelf;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Rebuild the ring from the registry. Runs at startup and then periodically,
+     * picking up instances as the registry sees them join and leave.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${account.ownership.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        if (self == null) {
+            self = resolveSelf();
+        }
+        
+        Map<String, URI> uris = new HashMap<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            uris.put(node(instance.getHost(), instance.getPort()), instance.getUri());
+        }
+        // This instance owns its share even before the registry lists it
+        if (self != null) {
+            uris.putIfAbsent(self, null);
+        }
+        if (uris.keySet().equals(ring.getNodes())) {
+            return;
+        }
+        
+        ConsistentHashRing previous = ring;
+        ConsistentHashRing next = new ConsistentHashRing(uris.keySet(), virtualNodes);
+        instanceUris = uris;
+        ring = next;
+        
+        // Ownership handoff: forget cached accounts that moved to or away from this instance
+        accountCache.invalidateIf(upiId -> {
+            String before = previous.nodeFor(upiId);
+            return before == null || !before.equals(next.nodeFor(upiId));
+        });
+        logger.info("Account ownership ring changed: {} instances {} (self {})", 
+                    next.getNodes().size(), next.getNodes(), self);
+    }
+    
+    /**
+     * The owner of a UPI ID if it is another instance; empty if this instance owns it,
+     * ownership is disabled or the owner's address is unknown
+     */
+    public Optional<URI> remoteOwner(String upiId) {
+        if (!enabled || self == null) {
+            return Optional.empty();
+        }
+        String owner = ring.nodeFor(upiId);
+        if (owner == null || owner.equals(self)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(instanceUris.get(owner));
+    }
+    
+    /**
+     * Instance ("host:port") owning a UPI ID, or null if ownership is disabled
+     */
+    public String ownerOf(String upiId) {
+        return enabled ? ring.nodeFor(upiId) : null;
+    }
+    
+    private String resolveSelf() {
+        if (!configuredSelf.isBlank()) {
+            return configuredSelf;
+        }
+        Registration local = registration.getIfAvailable();
+        if (local == null) {
+            logger.warn("Account ownership is enabled but this instance's address is unknown; " +
+                        "set account.ownership.self to host:port");
+            return null;
+        }
+        return node(local.getHost(), local.getPort());
+    }
+    
+    private static String node(String host, int port) {
+        return host + ":" + port;
+    }
+}
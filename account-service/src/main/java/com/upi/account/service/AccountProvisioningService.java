@@ -0,0 +1,187 @@
+package com.upi.account.service;
+
+import com.upi.account.client.UserServiceClient;
+import com.upi.account.dto.BulkAccountResult;
+import com.upi.account.dto.CreateAccountRequest;
+import com.upi.account.entity.Account;
+import com.upi.account.repository.AccountBatchRepository;
+import com.upi.account.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bulk account provisioning for onboarding imports.
+ *
+ * Requests are processed in chunks. Per chunk there is one batched user-service call,
+ * one query for users that already have accounts and one JDBC batch insert; UPI IDs
+ * and account numbers are generated in memory. Each chunk commits on its own, so a
+ * failure in one chunk never undoes accounts already reported as created.
+ */
+@Service
+public class AccountProvisioningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountProvisioningService.class);
+
+    private final AccountRepository accountRepository;
+    private final AccountBatchRepository accountBatchRepository;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final UpiIdGenerator upiIdGenerator;
+    private final UpiIdBloomFilter upiIdBloomFilter;
+    private final UserServiceClient userServiceClient;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public AccountProvisioningService(AccountRepository accountRepository,
+                                      AccountBatchRepository accountBatchRepository,
+                                      AccountNumberAllocator accountNumberAllocator,
+                                      UpiIdGenerator upiIdGenerator,
+                                      UpiIdBloomFilter upiIdBloomFilter,
+                                      UserServiceClient userServiceClient,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${account.provisioning.chunk-size:500}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.accountBatchRepository = accountBatchRepository;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.upiIdGenerator = upiIdGenerator;
+        this.upiIdBloomFilter = upiIdBloomFilter;
+        this.userServiceClient = userServiceClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Provision accounts, handing the results of each chunk to the sink in request order
+     * as soon as the chunk is committed
+     */
+    public void provision(List<CreateAccountRequest> requests, Consumer<List<BulkAccountResult>> sink) {
+        logger.info("Provisioning {} accounts in chunks of {}", requests.size(), chunkSize);
+
+        Set<Long> seenUserIds = new HashSet<>();
+        int created = 0;
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            List<BulkAccountResult> results = provisionChunk(requests, from,
+                                                             Math.min(from + chunkSize, requests.size()), seenUserIds);
+            created += (int) results.stream().filter(r -> BulkAccountResult.SUCCESS.equals(r.getStatus())).count();
+            sink.accept(results);
+        }
+
+        logger.info("Provisioned {} of {} accounts", created, requests.size());
+    }
+
+    private List<BulkAccountResult> provisionChunk(List<CreateAccountRequest> requests, int from, int to,
+                                                   Set<Long> seenUserIds) {
+        List<BulkAccountResult> results = new ArrayList<>(to - from);
+        List<Integer> candidates = new ArrayList<>(to - from);
+        Set<Long> userIds = new HashSet<>();
+
+        for (int i = from; i < to; i++) {
+            CreateAccountRequest request = requests.get(i);
+            BulkAccountResult result = new BulkAccountResult(i, request.getUserId());
+            results.add(result);
+
+            if (request.getInitialBalance() != null && request.getInitialBalance().compareTo(BigDecimal.ZERO) < 0) {
+                result.failed("INVALID_REQUEST", "Initial balance cannot be negative");
+            } else if (!seenUserIds.add(request.getUserId())) {
+                result.failed("DUPLICATE_USER", "User appears more than once in the request");
+            } else {
+                candidates.add(i);
+                userIds.add(request.getUserId());
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        Map<Long, UserServiceClient.UserDetails> users;
+        try {
+            users = userServiceClient.getUsersByIds(userIds);
+        } catch (Exception e) {
+            logger.error("Failed to fetch users for provisioning chunk {}-{}: {}", from, to - 1, e.getMessage());
+            candidates.forEach(i -> results.get(i - from).failed("USER_SERVICE_UNAVAILABLE",
+                                                                 "Unable to fetch user details"));
+            return results;
+        }
+        Set<Long> usersWithAccounts = new HashSet<>(accountRepository.findUserIdsWithAccounts(userIds));
+
+        // Generate UPI IDs and account numbers in memory; reserved covers IDs not yet inserted
+        Set<String> reservedUpiIds = new HashSet<>();
+        List<Account> accounts = new ArrayList<>(candidates.size());
+        List<BulkAccountResult> pending = new ArrayList<>(candidates.size());
+        for (int i : candidates) {
+            CreateAccountRequest request = requests.get(i);
+            BulkAccountResult result = results.get(i - from);
+            UserServiceClient.UserDetails user = users.get(request.getUserId());
+
+            if (user == null) {
+                result.failed("USER_NOT_FOUND", "User not found with ID: " + request.getUserId());
+            } else if (usersWithAccounts.contains(request.getUserId())) {
+                result.failed("ACCOUNT_EXISTS", "User already has an account");
+            } else if (user.getPhone() == null) {
+                result.failed("INVALID_PHONE", "Unable to fetch user phone number for UPI ID generation");
+            } else {
+                try {
+                    String upiId = upiIdGenerator.nextFree(upiIdGenerator.baseFor(user.getPhone()), reservedUpiIds);
+                    reservedUpiIds.add(upiId);
+                    accounts.add(new Account(request.getUserId(), upiId, accountNumberAllocator.nextAccountNumber(),
+                                             request.getInitialBalance() != null ?
+                                             request.getInitialBalance() : BigDecimal.ZERO));
+                    pending.add(result);
+                } catch (IllegalArgumentException e) {
+                    result.failed("INVALID_PHONE", e.getMessage());
+                }
+            }
+        }
+
+        insert(accounts, pending);
+        return results;
+    }
+
+    /**
+     * Insert the chunk as one batch. If the batch is rejected (for example a concurrent
+     * createAccount took the same UPI ID), fall back to one insert per account
+     * so only the conflicting rows fail.
+     */
+    private void insert(List<Account> accounts, List<BulkAccountResult> pending) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountBatchRepository.insertAccounts(accounts));
+            for (int k = 0; k < accounts.size(); k++) {
+                created(accounts.get(k), pending.get(k));
+            }
+            return;
+        } catch (DataAccessException e) {
+            logger.warn("Batch insert of {} accounts failed, retrying one by one: {}", accounts.size(), e.getMessage());
+        }
+
+        for (int k = 0; k < accounts.size(); k++) {
+            Account account = accounts.get(k);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        accountBatchRepository.insertAccounts(List.of(account)));
+                created(account, pending.get(k));
+            } catch (DataAccessException e) {
+                // Let the Bloom filter learn the taken UPI ID so a retry picks a suffix
+                upiIdBloomFilter.recordMissed(account.getUpiId());
+                pending.get(k).failed("CONFLICT", "Account could not be created: UPI ID already taken");
+            }
+        }
+    }
+
+    private void created(Account account, BulkAccountResult result) {
+        upiIdBloomFilter.put(account.getUpiId());
+        result.succeeded(account.getUpiId(), account.getAccountNumber());
+    }
+}
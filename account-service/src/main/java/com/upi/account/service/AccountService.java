@@ -1,17 +1,34 @@
 package com.upi.account.service;
 
 import com.upi.account.client.UserServiceClient;
+import com.upi.account.dto.BatchBalanceUpdateEntry;
+import com.upi.account.dto.BatchBalanceUpdateResult;
+import com.upi.account.dto.TransferResponse;
 import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountEntry;
+import com.upi.account.exception.AccountNotFoundException;
+import com.upi.account.exception.InsufficientBalanceException;
+import com.upi.account.repository.AccountBatchRepository;
 import com.upi.account.repository.AccountRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Service
 @Transactional
@@ -19,13 +36,30 @@ public class AccountService {
     
     private static final Logger logger = LoggerFactory.getLogger(AccountService.class);
     
+    // UPI ID format for phone-based IDs (10digits@upi or 10digits1@upi)
+    private static final Pattern UPI_ID_PATTERN = Pattern.compile("^[0-9]{10}[0-9]*@upi$");
+    
     private final AccountRepository accountRepository;
+    private final AccountBatchRepository accountBatchRepository;
+    private final LedgerService ledgerService;
+    private final UpiIdBloomFilter upiIdBloomFilter;
+    private final AccountCache accountCache;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final UpiIdGenerator upiIdGenerator;
     private final UserServiceClient userServiceClient;
-    private final Random random = new Random();
     
     @Autowired
-    public AccountService(AccountRepository accountRepository, UserServiceClient userServiceClient) {
+    public AccountService(AccountRepository accountRepository, AccountBatchRepository accountBatchRepository,
+                          LedgerService ledgerService, UpiIdBloomFilter upiIdBloomFilter, 
+                          AccountCache accountCache, AccountNumberAllocator accountNumberAllocator,
+                          UpiIdGenerator upiIdGenerator, UserServiceClient userServiceClient) {
         this.accountRepository = accountRepository;
+        this.accountBatchRepository = accountBatchRepository;
+        this.ledgerService = ledgerService;
+        this.upiIdBloomFilter = upiIdBloomFilter;
+        this.accountCache = accountCache;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.upiIdGenerator = upiIdGenerator;
         this.userServiceClient = userServiceClient;
     }
     
@@ -52,13 +86,21 @@ public class AccountService {
         
         // Generate unique UPI ID and account number
         String upiId = generateUniqueUpiId(userId);
-        String accountNumber = generateUniqueAccountNumber();
+        String accountNumber = accountNumberAllocator.nextAccountNumber();
         
         // Create and save account
         Account account = new Account(userId, upiId, accountNumber, 
                                     initialBalance != null ? initialBalance : BigDecimal.ZERO);
         
-        Account savedAccount = accountRepository.save(account);
+        Account savedAccount;
+        try {
+            savedAccount = accountRepository.save(account);
+        } catch (DataIntegrityViolationException e) {
+            // The Bloom filter did not know the UPI ID was taken; once it does, a retry picks a suffix
+            upiIdBloomFilter.recordMissed(upiId);
+            throw new IllegalArgumentException("Account could not be created: UPI ID already taken, please retry");
+        }
+        upiIdBloomFilter.put(upiId);
         logger.info("Successfully created account with ID: {} for user ID: {}", savedAccount.getId(), userId);
         
         return savedAccount;
@@ -73,11 +115,12 @@ public class AccountService {
     }
     
     /**
-     * Get account by UPI ID
+     * Get account by UPI ID, served from the near-cache when possible.
+     * Runs without a transaction so cache hits never touch the database.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Account> getAccountByUpiId(String upiId) {
-        return accountRepository.findByUpiId(upiId);
+        return accountCache.get(upiId, accountRepository::findByUpiId);
     }
     
     /**
@@ -89,11 +132,11 @@ public class AccountService {
     }
     
     /**
-     * Get account balance by UPI ID
+     * Get account balance by UPI ID, served from the near-cache when possible
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<BigDecimal> getBalanceByUpiId(String upiId) {
-        return accountRepository.getBalanceByUpiId(upiId);
+        return getAccountByUpiId(upiId).map(Account::getCurrentBalance);
     }
     
     /**
@@ -107,68 +150,308 @@ public class AccountService {
     /**
      * Update account balance by UPI ID
      */
-    public boolean updateBalanceByUpiId(String upiId, BigDecimal amount) {
-        // Validate UPI ID exists
-        Optional<Account> accountOpt = accountRepository.findByUpiId(upiId);
-        if (accountOpt.isEmpty()) {
-            throw new IllegalArgumentException("Account not found for UPI ID: " + upiId);
+    public BigDecimal updateBalanceByUpiId(String upiId, BigDecimal amount) {
+        return updateBalanceByUpiId(upiId, amount, null);
+    }
+    
+    /**
+     * Update account balance by UPI ID and journal it against a transaction reference.
+     * Debits go through a guarded UPDATE so concurrent debits cannot overdraw the account;
+     * credits are appended to the journal without touching the account row.
+     * Returns the resulting balance.
+     */
+    public BigDecimal updateBalanceByUpiId(String upiId, BigDecimal amount, String transactionRef) {
+        accountCache.invalidate(upiId);
+        if (amount.signum() < 0) {
+            ledgerService.applyDebit(upiId, amount, transactionRef);
+        } else {
+            int balanceSlots = accountRepository.getBalanceSlotsByUpiId(upiId)
+                    .orElseThrow(() -> new AccountNotFoundException("Account not found for UPI ID: " + upiId));
+            ledgerService.appendCredit(upiId, amount, transactionRef, balanceSlots);
+        }
+        
+        return accountRepository.getBalanceByUpiId(upiId)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found for UPI ID: " + upiId));
+    }
+    
+    /**
+     * Move funds between two UPI IDs in a single local transaction.
+     * Only the sender row is locked (by the guarded debit); the receiver is credited
+     * through the journal, so opposing transfers cannot deadlock on each other.
+     * If either side fails the whole transfer rolls back.
+     */
+    public TransferResponse transfer(String senderUpiId, String receiverUpiId, BigDecimal amount, 
+                                     String transactionRef) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (senderUpiId.equals(receiverUpiId)) {
+            throw new IllegalArgumentException("Cannot transfer to same account");
+        }
+        int receiverBalanceSlots = accountRepository.getBalanceSlotsByUpiId(receiverUpiId)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found for UPI ID: " + receiverUpiId));
+        
+        logger.info("Transferring {} from {} to {}", amount, senderUpiId, receiverUpiId);
+        accountCache.invalidateAll(List.of(senderUpiId, receiverUpiId));
+        
+        ledgerService.applyDebit(senderUpiId, amount.negate(), transactionRef);
+        ledgerService.appendCredit(receiverUpiId, amount, transactionRef, receiverBalanceSlots);
+        
+        Map<String, BigDecimal> balances = accountBatchRepository.getBalancesByUpiIds(
+                List.of(senderUpiId, receiverUpiId));
+        return new TransferResponse(senderUpiId, balances.get(senderUpiId), 
+                                    receiverUpiId, balances.get(receiverUpiId), amount);
+    }
+    
+    /**
+     * Apply a batch of balance updates in one transaction.
+     * Credits are journaled first, so debits later in the batch can spend them. Debits are
+     * then applied in ascending UPI ID order (request order is kept for the same UPI ID) so
+     * concurrent batches always lock rows in the same order. An entry that fails is reported
+     * in its result and does not roll back the rest of the batch.
+     * Results are returned in request order.
+     */
+    public List<BatchBalanceUpdateResult> updateBalances(List<BatchBalanceUpdateEntry> entries) {
+        List<BatchBalanceUpdateResult> results = new ArrayList<>(entries.size());
+        List<Integer> applicable = new ArrayList<>(entries.size());
+        
+        for (int i = 0; i < entries.size(); i++) {
+            BatchBalanceUpdateEntry entry = entries.get(i);
+            BatchBalanceUpdateResult result = new BatchBalanceUpdateResult(i, entry);
+            results.add(result);
+            if (isValid(entry, result)) {
+                applicable.add(i);
+            }
+        }
+        
+        if (applicable.isEmpty()) {
+            return results;
         }
         
-        Account account = accountOpt.get();
-        BigDecimal newBalance = account.getBalance().add(amount);
+        // List.sort is stable, so entries for the same UPI ID keep their request order
+        applicable.sort(Comparator.comparing(i -> entries.get(i).getUpiId()));
         
-        // Check for negative balance
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Insufficient balance. Current balance: " + 
-                                             account.getBalance() + ", Requested amount: " + amount);
+        Set<String> upiIds = new HashSet<>();
+        applicable.forEach(i -> upiIds.add(entries.get(i).getUpiId()));
+        accountCache.invalidateAll(upiIds);
+        Set<String> existingUpiIds = accountBatchRepository.getBalancesByUpiIds(upiIds).keySet();
+        
+        List<AccountEntry> credits = new ArrayList<>();
+        List<Integer> creditIndexes = new ArrayList<>();
+        List<Integer> debitIndexes = new ArrayList<>();
+        for (int i : applicable) {
+            BatchBalanceUpdateEntry entry = entries.get(i);
+            if (!existingUpiIds.contains(entry.getUpiId())) {
+                results.get(i).failed("ACCOUNT_NOT_FOUND", "Account not found for UPI ID: " + entry.getUpiId());
+            } else if ("CREDIT".equalsIgnoreCase(entry.getOperation())) {
+                credits.add(new AccountEntry(entry.getUpiId(), entry.getAmount(), entry.getTransactionRef(), null));
+                creditIndexes.add(i);
+            } else {
+                debitIndexes.add(i);
+            }
+        }
+        accountBatchRepository.insertEntries(credits);
+        
+        List<String> debitUpiIds = new ArrayList<>(debitIndexes.size());
+        List<BigDecimal> debitAmounts = new ArrayList<>(debitIndexes.size());
+        for (int i : debitIndexes) {
+            debitUpiIds.add(entries.get(i).getUpiId());
+            debitAmounts.add(entries.get(i).getAmount().negate());
+        }
+        int[] updateCounts = accountBatchRepository.updateBalancesByUpiId(debitUpiIds, debitAmounts);
+        
+        List<AccountEntry> debits = new ArrayList<>();
+        List<Integer> appliedIndexes = new ArrayList<>(creditIndexes);
+        for (int k = 0; k < debitIndexes.size(); k++) {
+            String upiId = debitUpiIds.get(k);
+            int i = debitIndexes.get(k);
+            if (updateCounts[k] > 0) {
+                debits.add(new AccountEntry(upiId, debitAmounts.get(k), entries.get(i).getTransactionRef(), 
+                                            AccountEntry.APPLIED_IN_PLACE));
+                appliedIndexes.add(i);
+            } else if (ledgerService.retryDebit(upiId, debitAmounts.get(k), entries.get(i).getTransactionRef())) {
+                // The snapshot alone was insufficient or the account is sharded; retried and journaled by the ledger
+                appliedIndexes.add(i);
+            } else {
+                results.get(i).failed("INSUFFICIENT_BALANCE", "Insufficient balance. Requested amount: " + 
+                                      entries.get(i).getAmount());
+            }
         }
+        accountBatchRepository.insertEntries(debits);
+        
+        Map<String, BigDecimal> balances = accountBatchRepository.getBalancesByUpiIds(upiIds);
+        for (int i : appliedIndexes) {
+            results.get(i).succeeded(balances.get(entries.get(i).getUpiId()));
+        }
+        
+        logger.info("Applied balance batch of {} entries, {} rejected", entries.size(), 
+                   results.stream().filter(r -> BatchBalanceUpdateResult.FAILED.equals(r.getStatus())).count());
+        return results;
+    }
+    
+    /**
+     * Apply balance updates one at a time in list order, each debit guarded and each credit
+     * journaled, reporting the balance right after each one. Unlike updateBalances, a debit
+     * can only spend the credits listed before it. A rejected update is reported in its
+     * result and does not roll back the rest.
+     */
+    public List<BatchBalanceUpdateResult> updateBalancesInOrder(List<BatchBalanceUpdateEntry> entries) {
+        List<BatchBalanceUpdateResult> results = new ArrayList<>(entries.size());
+        Set<String> upiIds = new HashSet<>();
+        entries.forEach(entry -> upiIds.add(entry.getUpiId()));
+        accountCache.invalidateAll(upiIds);
         
-        // Update balance
-        account.setBalance(newBalance);
-        accountRepository.save(account);
+        Map<String, Optional<Integer>> balanceSlots = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BatchBalanceUpdateEntry entry = entries.get(i);
+            BatchBalanceUpdateResult result = new BatchBalanceUpdateResult(i, entry);
+            results.add(result);
+            if (!isValid(entry, result)) {
+                continue;
+            }
+            
+            String upiId = entry.getUpiId();
+            Optional<Integer> slots = balanceSlots.computeIfAbsent(upiId, accountRepository::getBalanceSlotsByUpiId);
+            if (slots.isEmpty()) {
+                result.failed("ACCOUNT_NOT_FOUND", "Account not found for UPI ID: " + upiId);
+                continue;
+            }
+            if ("CREDIT".equalsIgnoreCase(entry.getOperation())) {
+                ledgerService.appendCredit(upiId, entry.getAmount(), entry.getTransactionRef(), slots.get());
+            } else if (!ledgerService.tryDebit(upiId, entry.getAmount().negate(), entry.getTransactionRef())) {
+                result.failed("INSUFFICIENT_BALANCE", "Insufficient balance. Requested amount: " + entry.getAmount());
+                continue;
+            }
+            result.succeeded(accountRepository.getBalanceByUpiId(upiId).orElseThrow());
+        }
+        return results;
+    }
+    
+    private static boolean isValid(BatchBalanceUpdateEntry entry, BatchBalanceUpdateResult result) {
+        if (!"DEBIT".equalsIgnoreCase(entry.getOperation()) && 
+            !"CREDIT".equalsIgnoreCase(entry.getOperation())) {
+            result.failed("INVALID_REQUEST", "Operation must be either DEBIT or CREDIT");
+            return false;
+        }
+        if (entry.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            result.failed("INVALID_REQUEST", "Amount must be positive");
+            return false;
+        }
         return true;
     }
     
+    /**
+     * Apply a batch of balance updates all together or not at all. The first rejected entry
+     * is thrown as the exception its own update would have raised, which rolls back the
+     * entries already applied.
+     */
+    public List<BatchBalanceUpdateResult> updateBalancesAtomically(List<BatchBalanceUpdateEntry> entries) {
+        List<BatchBalanceUpdateResult> results = updateBalances(entries);
+        for (BatchBalanceUpdateResult result : results) {
+            if (!BatchBalanceUpdateResult.FAILED.equals(result.getStatus())) {
+                continue;
+            }
+            String message = "Batch entry " + result.getIndex() + " rejected: " + result.getMessage();
+            switch (result.getError()) {
+                case "ACCOUNT_NOT_FOUND" -> throw new AccountNotFoundException(message);
+                case "INSUFFICIENT_BALANCE" -> throw new InsufficientBalanceException(message);
+                default -> throw new IllegalArgumentException(message);
+            }
+        }
+        return results;
+    }
+    
     /**
      * Update account balance by account ID
      */
-    public boolean updateBalanceByAccountId(Long accountId, BigDecimal amount) {
+    public BigDecimal updateBalanceByAccountId(Long accountId, BigDecimal amount) {
         Optional<Account> accountOpt = accountRepository.findById(accountId);
         if (accountOpt.isEmpty()) {
             throw new IllegalArgumentException("Account not found for ID: " + accountId);
         }
         
-        Account account = accountOpt.get();
-        BigDecimal newBalance = account.getBalance().add(amount);
-        
-        // Check for negative balance
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Insufficient balance. Current balance: " + 
-                                             account.getBalance() + ", Requested amount: " + amount);
+        return updateBalanceByUpiId(accountOpt.get().getUpiId(), amount);
+    }
+    
+    /**
+     * Shard the balance of a UPI ID across the given number of slots (0 or 1 to unshard)
+     */
+    public Account changeBalanceSlots(String upiId, int balanceSlots) {
+        accountCache.invalidate(upiId);
+        ledgerService.changeBalanceSlots(upiId, balanceSlots);
+        return accountRepository.findByUpiId(upiId)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found for UPI ID: " + upiId));
+    }
+    
+    /**
+     * Get the most recent journal entries for a UPI ID
+     */
+    @Transactional(readOnly = true)
+    public List<AccountEntry> getAccountEntries(String upiId, int limit) {
+        if (!accountRepository.existsByUpiId(upiId)) {
+            throw new AccountNotFoundException("Account not found for UPI ID: " + upiId);
         }
-        
-        // Update balance
-        account.setBalance(newBalance);
-        accountRepository.save(account);
-        return true;
+        return ledgerService.getEntries(upiId, limit);
+    }
+    
+    /**
+     * Get the journal entries written for a transaction reference, on any account
+     */
+    public List<AccountEntry> getEntriesByTransactionRef(String transactionRef) {
+        return ledgerService.getEntriesByTransactionRef(transactionRef);
     }
     
     /**
      * Validate UPI ID format and existence
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean validateUpiId(String upiId) {
         if (upiId == null || upiId.trim().isEmpty()) {
             return false;
         }
         
-        // UPI ID format validation for phone-based IDs (10digits@upi or 10digits1@upi)
-        if (!upiId.matches("^[0-9]{10}[0-9]*@upi$")) {
+        if (!UPI_ID_PATTERN.matcher(upiId).matches()) {
             return false;
         }
         
-        // Check if UPI ID exists
-        return accountRepository.existsByUpiId(upiId);
+        // An ID missing from the Bloom filter does not exist, so skip the database entirely
+        if (!upiIdBloomFilter.mightContain(upiId)) {
+            return false;
+        }
+        
+        // Check if UPI ID exists, loading the account into the near-cache for the reads that follow
+        boolean exists = getAccountByUpiId(upiId).isPresent();
+        if (!exists) {
+            upiIdBloomFilter.recordFalsePositive();
+        }
+        return exists;
+    }
+    
+    /**
+     * Validate several UPI IDs at once, looking up the well-formed ones the Bloom filter
+     * may contain together in one query. Results are in request order.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Boolean> validateUpiIds(List<String> upiIds) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        List<String> candidates = new ArrayList<>();
+        for (String upiId : upiIds) {
+            boolean first = results.put(upiId, false) == null;
+            if (first && upiId != null && UPI_ID_PATTERN.matcher(upiId).matches() &&
+                    upiIdBloomFilter.mightContain(upiId)) {
+                candidates.add(upiId);
+            }
+        }
+        
+        Set<String> existing = accountBatchRepository.findExistingUpiIds(candidates);
+        for (String upiId : candidates) {
+            if (existing.contains(upiId)) {
+                results.put(upiId, true);
+            } else {
+                upiIdBloomFilter.recordFalsePositive();
+            }
+        }
+        return results;
     }
     
     /**
@@ -184,62 +467,9 @@ public class AccountService {
         }
         
         String phoneNumber = userDetails.getPhone();
-        
-        // Remove any non-digit characters and country code prefix
-        String cleanPhone = phoneNumber.replaceAll("[^0-9]", "");
-        
-        // If phone starts with country code (like +91), remove it
-        if (cleanPhone.startsWith("91") && cleanPhone.length() > 10) {
-            cleanPhone = cleanPhone.substring(2);
-        }
-        
-        // Ensure we have a 10-digit phone number
-        if (cleanPhone.length() != 10) {
-            throw new IllegalArgumentException("Invalid phone number format for UPI ID generation: " + phoneNumber);
-        }
-        
-        String baseUpiId = cleanPhone;
-        String upiId = baseUpiId + "@upi";
-        int attempts = 0;
-        
-        // Check if UPI ID already exists (in case of duplicate phone numbers)
-        while (accountRepository.existsByUpiId(upiId)) {
-            if (attempts > 10) {
-                throw new RuntimeException("Unable to generate unique UPI ID after multiple attempts for phone: " + phoneNumber);
-            }
-            
-            // If phone-based UPI ID exists, add a suffix
-            int suffix = 1 + attempts;
-            upiId = baseUpiId + suffix + "@upi";
-            attempts++;
-        }
+        String upiId = upiIdGenerator.nextFree(upiIdGenerator.baseFor(phoneNumber), Set.of());
         
         logger.info("Generated UPI ID: {} for user ID: {} with phone: {}", upiId, userId, phoneNumber);
         return upiId;
     }
-    
-    /**
-     * Generate unique account number
-     */
-    private String generateUniqueAccountNumber() {
-        String accountNumber;
-        int attempts = 0;
-        
-        do {
-            if (attempts > 10) {
-                throw new RuntimeException("Unable to generate unique account number after multiple attempts");
-            }
-            
-            // Generate 10-digit account number
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                sb.append(random.nextInt(10));
-            }
-            accountNumber = sb.toString();
-            attempts++;
-            
-        } while (accountRepository.existsByAccountNumber(accountNumber));
-        
-        return accountNumber;
-    }
 }
\ No newline at end of file
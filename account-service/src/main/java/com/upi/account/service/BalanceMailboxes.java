@@ -0,0 +1,352 @@
+package com.upi.account.service;
+
+import com.upi.account.dto.BalanceResponse;
+import com.upi.account.dto.BatchBalanceUpdateEntry;
+import com.upi.account.dto.BatchBalanceUpdateResult;
+import com.upi.account.exception.AccountNotFoundException;
+import com.upi.account.exception.BalanceUpdateTimeoutException;
+import com.upi.account.exception.InsufficientBalanceException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional single-writer execution mode for balance updates by UPI ID.
+ *
+ * Each UPI ID hashes to one of N partitions. A partition is a lock-free multi-producer queue
+ * drained by one thread, which applies everything queued so far as a micro-batch through
+ * AccountService.updateBalancesInOrder in a single transaction. Updates to a hot account are
+ * thus group-committed by one writer instead of queueing on the account row lock. Updates
+ * in a batch are applied in queue order, so a debit can only spend credits queued before
+ * it, and each update reports the balance right after it.
+ *
+ * Keyed requests are checked against the IdempotencyStore before they are queued and
+ * recorded in the batch transaction. If a batch cannot commit (for example because a key was
+ * taken concurrently), its updates are applied one by one on the direct path instead.
+ * Correctness never depends on the mailboxes: every update still goes through the guarded
+ * ledger, so direct updates, transfers and holds may run alongside them.
+ *
+ * A caller waits at most account.mailbox.wait-timeout-ms for its update. The update stays
+ * queued after a timeout and may still commit, so the caller should retry with the same
+ * Idempotency-Key to learn the outcome.
+ */
+@Component
+public class BalanceMailboxes {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceMailboxes.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AccountService accountService;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final int queueCapacity;
+    private final long waitTimeoutMs;
+    private final Partition[] partitions;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+
+    public BalanceMailboxes(AccountService accountService, IdempotencyStore idempotencyStore,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${account.mailbox.enabled:false}") boolean enabled,
+                            @Value("${account.mailbox.partitions:8}") int partitionCount,
+                            @Value("${account.mailbox.max-batch-size:256}") int maxBatchSize,
+                            @Value("${account.mailbox.queue-capacity:10000}") int queueCapacity,
+                            @Value("${account.mailbox.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        this.accountService = accountService;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.queueCapacity = queueCapacity;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.partitions = new Partition[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i);
+        }
+
+        this.batchSizes = DistributionSummary.builder("account.mailbox.batch_size")
+                .description("Balance updates committed per mailbox micro-batch")
+                .register(meterRegistry);
+        Gauge.builder("account.mailbox.queue_depth", this, BalanceMailboxes::queueDepth)
+                .description("Balance updates waiting in mailboxes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        logger.info("Started {} balance mailboxes (max batch {}, capacity {} each)",
+                    partitions.length, maxBatchSize, queueCapacity);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.thread);
+            partition.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Anything that was queued after a partition finished draining is applied directly
+        for (Partition partition : partitions) {
+            Command command;
+            while ((command = partition.queue.poll()) != null) {
+                applyDirectly(command);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Apply a signed balance update through the mailbox of its UPI ID and wait for it to commit.
+     * Falls back to the direct path if the mailboxes are not running or the mailbox is full.
+     * Throws a BalanceUpdateTimeoutException if the update has not completed within the wait timeout.
+     */
+    public BalanceResponse update(String upiId, BigDecimal amount, String transactionRef,
+                                  String idempotencyKey, String fingerprint) {
+        Command command = new Command(upiId, amount, transactionRef,
+                                      idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey,
+                                      fingerprint);
+        if (!running) {
+            applyDirectly(command);
+        } else if (command.idempotencyKey != null) {
+            idempotencyStore.find(command.idempotencyKey, fingerprint).ifPresentOrElse(
+                    command.result::complete, () -> enqueue(command));
+        } else {
+            enqueue(command);
+        }
+
+        try {
+            return command.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BalanceUpdateTimeoutException("Balance update for " + upiId + " did not complete within " + 
+                                                    waitTimeoutMs + "ms; its outcome is unknown");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BalanceUpdateTimeoutException("Interrupted waiting for balance update for " + upiId, e);
+        }
+    }
+
+    private void enqueue(Command command) {
+        Partition partition = partitions[Math.floorMod(command.upiId.hashCode(), partitions.length)];
+        if (!partition.offer(command)) {
+            logger.debug("Mailbox {} is full, applying update for {} directly", partition.index, command.upiId);
+            applyDirectly(command);
+        }
+    }
+
+    private void applyBatch(List<Command> batch) {
+        batchSizes.record(batch.size());
+
+        // A key repeated within the batch is applied once; the repeats complete with its result.
+        // Keys are checked again here, since an earlier batch may have recorded them after they were queued.
+        List<Command> unique = new ArrayList<>(batch.size());
+        Map<String, Command> byKey = new HashMap<>();
+        for (Command command : batch) {
+            Command first = command.idempotencyKey != null ? byKey.putIfAbsent(command.idempotencyKey, command) : null;
+            if (first == null) {
+                if (command.idempotencyKey == null || !replayed(command)) {
+                    unique.add(command);
+                }
+            } else {
+                first.result.whenComplete((response, error) -> {
+                    if (error != null) {
+                        command.result.completeExceptionally(error);
+                    } else if (!first.fingerprint.equals(command.fingerprint)) {
+                        applyDirectly(command);
+                    } else {
+                        command.result.complete(response);
+                    }
+                });
+            }
+        }
+
+        if (unique.isEmpty()) {
+            return;
+        }
+
+        List<BatchBalanceUpdateResult> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                List<BatchBalanceUpdateEntry> entries = new ArrayList<>(unique.size());
+                for (Command command : unique) {
+                    BatchBalanceUpdateEntry entry = new BatchBalanceUpdateEntry(command.upiId, command.amount.abs(),
+                            command.amount.signum() < 0 ? "DEBIT" : "CREDIT");
+                    entry.setTransactionRef(command.transactionRef);
+                    entries.add(entry);
+                }
+
+                List<BatchBalanceUpdateResult> applied = accountService.updateBalancesInOrder(entries);
+                for (int i = 0; i < unique.size(); i++) {
+                    Command command = unique.get(i);
+                    BatchBalanceUpdateResult result = applied.get(i);
+                    if (command.idempotencyKey != null && BatchBalanceUpdateResult.SUCCESS.equals(result.getStatus())) {
+                        idempotencyStore.record(command.idempotencyKey, command.fingerprint,
+                                                new BalanceResponse(result.getBalance(), command.upiId));
+                    }
+                }
+                return applied;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Mailbox batch of {} updates failed, applying them one by one: {}", unique.size(), e.getMessage());
+            unique.forEach(this::applyDirectly);
+            return;
+        }
+
+        for (int i = 0; i < unique.size(); i++) {
+            complete(unique.get(i), results.get(i));
+        }
+    }
+
+    private boolean replayed(Command command) {
+        try {
+            return idempotencyStore.find(command.idempotencyKey, command.fingerprint)
+                    .map(command.result::complete)
+                    .isPresent();
+        } catch (RuntimeException e) {
+            command.result.completeExceptionally(e);
+            return true;
+        }
+    }
+
+    private void complete(Command command, BatchBalanceUpdateResult result) {
+        if (BatchBalanceUpdateResult.SUCCESS.equals(result.getStatus())) {
+            command.result.complete(new BalanceResponse(result.getBalance(), command.upiId));
+        } else if ("INSUFFICIENT_BALANCE".equals(result.getError())) {
+            command.result.completeExceptionally(new InsufficientBalanceException(result.getMessage()));
+        } else if ("ACCOUNT_NOT_FOUND".equals(result.getError())) {
+            command.result.completeExceptionally(new AccountNotFoundException(result.getMessage()));
+        } else {
+            command.result.completeExceptionally(new IllegalArgumentException(result.getMessage()));
+        }
+    }
+
+    private void applyDirectly(Command command) {
+        try {
+            command.result.complete(idempotencyStore.execute(command.idempotencyKey, command.fingerprint,
+                    () -> new BalanceResponse(accountService.updateBalanceByUpiId(command.upiId, command.amount,
+                                                                                  command.transactionRef),
+                                              command.upiId)));
+        } catch (RuntimeException e) {
+            command.result.completeExceptionally(e);
+        }
+    }
+
+    private double queueDepth() {
+        int depth = 0;
+        for (Partition partition : partitions) {
+            depth += partition.size.get();
+        }
+        return depth;
+    }
+
+    private static final class Command {
+        private final String upiId;
+        private final BigDecimal amount;
+        private final String transactionRef;
+        private final String idempotencyKey;
+        private final String fingerprint;
+        private final CompletableFuture<BalanceResponse> result = new CompletableFuture<>();
+
+        private Command(String upiId, BigDecimal amount, String transactionRef, String idempotencyKey,
+                        String fingerprint) {
+            this.upiId = upiId;
+            this.amount = amount;
+            this.transactionRef = transactionRef;
+            this.idempotencyKey = idempotencyKey;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * One mailbox: any thread may offer, only the partition thread polls
+     */
+    private final class Partition implements Runnable {
+        private final int index;
+        private final ConcurrentLinkedQueue<Command> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final Thread thread;
+
+        private Partition(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "balance-mailbox-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private boolean offer(Command command) {
+            if (size.incrementAndGet() > queueCapacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.offer(command);
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                Command command;
+                while (batch.size() < maxBatchSize && (command = queue.poll()) != null) {
+                    batch.add(command);
+                }
+                if (batch.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                size.addAndGet(-batch.size());
+                try {
+                    applyBatch(batch);
+                } catch (RuntimeException e) {
+                    // applyBatch completes every command itself; this only guards the thread
+                    logger.error("Mailbox {} failed to apply a batch", index, e);
+                    batch.forEach(c -> c.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.upi.account.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically releases holds that were neither captured nor released before their TTL.
+ */
+@Component
+public class HoldExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldExpiryJob.class);
+
+    private final HoldService holdService;
+    private final int batchSize;
+
+    public HoldExpiryJob(HoldService holdService,
+                         @Value("${account.holds.expiry-batch-size:100}") int batchSize) {
+        this.holdService = holdService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${account.holds.expiry-interval-ms:1000}")
+    public void expireHolds() {
+        List<Long> holdIds = holdService.findExpiredHoldIds(batchSize);
+        int expired = 0;
+        for (Long holdId : holdIds) {
+            try {
+                // Each hold expires in its own transaction; a concurrent capture simply wins
+                if (holdService.expire(holdId)) {
+                    expired++;
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to expire hold {}: {}", holdId, e.getMessage());
+            }
+        }
+
+        if (expired > 0) {
+            logger.info("Released {} expired holds", expired);
+        }
+    }
+}
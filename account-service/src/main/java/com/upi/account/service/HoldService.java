@@ -0,0 +1,170 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.AccountHold;
+import com.upi.account.enums.HoldStatus;
+import com.upi.account.exception.AccountNotFoundException;
+import com.upi.account.exception.HoldNotFoundException;
+import com.upi.account.exception.HoldStateException;
+import com.upi.account.repository.AccountHoldRepository;
+import com.upi.account.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Balance holds (authorize / capture).
+ *
+ * Placing a hold debits the amount through the guarded ledger debit, so the check and
+ * the reservation are one atomic step and the balance is net of open holds. Capturing
+ * only flips the hold status. Releasing or expiring flips the status and journals a
+ * credit for the held amount; the guarded status transition makes sure only one of
+ * capture, release and expiry ever takes effect.
+ *
+ * A caller marks the hold CAPTURING before it starts the payment the hold secures. A
+ * CAPTURING hold never expires: the payment may have gone through, so only an explicit
+ * capture or release resolves it.
+ */
+@Service
+@Transactional
+public class HoldService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HoldService.class);
+    
+    private static final Set<HoldStatus> OPEN = EnumSet.of(HoldStatus.HELD, HoldStatus.CAPTURING);
+    
+    private final AccountHoldRepository accountHoldRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerService ledgerService;
+    private final AccountCache accountCache;
+    private final long defaultTtlSeconds;
+    private final long maxTtlSeconds;
+    
+    public HoldService(AccountHoldRepository accountHoldRepository, AccountRepository accountRepository,
+                       LedgerService ledgerService, AccountCache accountCache,
+                       @Value("${account.holds.default-ttl-seconds:300}") long defaultTtlSeconds,
+                       @Value("${account.holds.max-ttl-seconds:3600}") long maxTtlSeconds) {
+        this.accountHoldRepository = accountHoldRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerService = ledgerService;
+        this.accountCache = accountCache;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+    }
+    
+    /**
+     * Reserve an amount on a UPI ID until it is captured, released or the TTL passes
+     */
+    public AccountHold placeHold(String upiId, BigDecimal amount, String transactionRef, Long ttlSeconds) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        long ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl <= 0 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("Hold TTL must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+        
+        accountCache.invalidate(upiId);
+        ledgerService.applyDebit(upiId, amount.negate(), transactionRef);
+        AccountHold hold = accountHoldRepository.save(
+                new AccountHold(upiId, amount, transactionRef, LocalDateTime.now().plusSeconds(ttl)));
+        
+        logger.info("Placed hold {} of {} on {} for {}s", hold.getId(), amount, upiId, ttl);
+        return hold;
+    }
+    
+    /**
+     * Get a hold by ID
+     */
+    @Transactional(readOnly = true)
+    public AccountHold getHold(Long holdId) {
+        return accountHoldRepository.findById(holdId)
+                .orElseThrow(() -> new HoldNotFoundException("Hold not found with ID: " + holdId));
+    }
+    
+    /**
+     * Take a hold out of expiry before the payment it secures is started. Repeating it, or
+     * calling it on a captured hold, is a no-op.
+     */
+    public AccountHold beginCapture(Long holdId) {
+        if (accountHoldRepository.beginCapture(holdId) == 0) {
+            return requireStatus(holdId, HoldStatus.CAPTURING, HoldStatus.CAPTURED);
+        }
+        
+        logger.info("Capturing hold {}", holdId);
+        return getHold(holdId);
+    }
+    
+    /**
+     * Capture a hold, making the reserved debit final. Capturing a captured hold is a no-op.
+     */
+    public AccountHold capture(Long holdId) {
+        if (accountHoldRepository.resolveHold(holdId, OPEN, HoldStatus.CAPTURED) == 0) {
+            return requireStatus(holdId, HoldStatus.CAPTURED);
+        }
+        
+        logger.info("Captured hold {}", holdId);
+        return getHold(holdId);
+    }
+    
+    /**
+     * Release a hold and return the reserved amount. Releasing a released hold is a no-op.
+     */
+    public AccountHold release(Long holdId) {
+        if (!resolveAndRefund(holdId, OPEN, HoldStatus.RELEASED)) {
+            return requireStatus(holdId, HoldStatus.RELEASED);
+        }
+        
+        logger.info("Released hold {}", holdId);
+        return getHold(holdId);
+    }
+    
+    /**
+     * Release a hold whose TTL has passed. Returns false if it was resolved meanwhile.
+     */
+    public boolean expire(Long holdId) {
+        return resolveAndRefund(holdId, EnumSet.of(HoldStatus.HELD), HoldStatus.EXPIRED);
+    }
+    
+    /**
+     * Find holds past their expiry that are still held
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findExpiredHoldIds(int limit) {
+        return accountHoldRepository.findExpiredHoldIds(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+    
+    private boolean resolveAndRefund(Long holdId, Set<HoldStatus> from, HoldStatus status) {
+        if (accountHoldRepository.resolveHold(holdId, from, status) == 0) {
+            return false;
+        }
+        
+        AccountHold hold = getHold(holdId);
+        int balanceSlots = accountRepository.getBalanceSlotsByUpiId(hold.getUpiId())
+                .orElseThrow(() -> new AccountNotFoundException("Account not found for UPI ID: " + hold.getUpiId()));
+        accountCache.invalidate(hold.getUpiId());
+        ledgerService.appendCredit(hold.getUpiId(), hold.getAmount(), hold.getTransactionRef(), balanceSlots);
+        return true;
+    }
+    
+    /**
+     * A transition lost the race or was repeated: succeed only if the hold already ended up
+     * in the requested state, or in one of the accepted states
+     */
+    private AccountHold requireStatus(Long holdId, HoldStatus status, HoldStatus... accepted) {
+        AccountHold hold = getHold(holdId);
+        if (hold.getStatus() != status && !EnumSet.of(status, accepted).contains(hold.getStatus())) {
+            throw new HoldStateException("Hold " + holdId + " is " + hold.getStatus() + 
+                                         ", cannot be " + status.name().toLowerCase());
+        }
+        return hold;
+    }
+}
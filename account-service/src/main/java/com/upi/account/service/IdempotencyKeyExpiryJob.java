@@ -0,0 +1,33 @@
+package com.upi.account.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically deletes idempotency records whose TTL has passed.
+ */
+@Component
+public class IdempotencyKeyExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyExpiryJob.class);
+
+    private final IdempotencyStore idempotencyStore;
+
+    public IdempotencyKeyExpiryJob(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    @Scheduled(fixedDelayString = "${account.idempotency.purge-interval-ms:60000}")
+    public void purgeExpiredKeys() {
+        try {
+            int purged = idempotencyStore.purgeExpired();
+            if (purged > 0) {
+                logger.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to purge expired idempotency keys: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.upi.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.upi.account.dto.BalanceResponse;
+import com.upi.account.entity.IdempotencyRecord;
+import com.upi.account.exception.IdempotencyKeyReusedException;
+import com.upi.account.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response of every balance update made with an Idempotency-Key, so a
+ * retried or hedged request is answered with the original response and never applied twice.
+ *
+ * The record is written in the same transaction as the balance update: either both commit
+ * or neither does. Two concurrent requests with the same key both run the update, but only
+ * one can insert the key; the other rolls back and replays the winner's response.
+ * Recent keys are served from a bounded in-memory cache, older ones from the
+ * idempotency_keys table until they expire. A cached record expires with its row, so
+ * neither source replays a key past its TTL.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, IdempotencyRecord> recent;
+    private final Duration ttl;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${account.idempotency.cache-size:100000}") long cacheSize,
+                            @Value("${account.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, IdempotencyRecord>() {
+                    @Override
+                    public long expireAfterCreate(String key, IdempotencyRecord record, long currentTime) {
+                        return remainingTtl(record).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, IdempotencyRecord record, long currentTime,
+                                                  long currentDuration) {
+                        return remainingTtl(record).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, IdempotencyRecord record, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "idempotency_keys");
+    }
+
+    /**
+     * Run a balance update at most once per key. Without a key the update simply runs.
+     * Reusing a key for a different request is rejected.
+     */
+    public BalanceResponse execute(String key, String fingerprint, Supplier<BalanceResponse> update) {
+        if (key == null || key.isBlank()) {
+            return update.get();
+        }
+
+        Optional<BalanceResponse> replay = find(key, fingerprint);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                BalanceResponse response = update.get();
+                record(key, fingerprint, response);
+                return response;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same key committed first and our update rolled back
+            logger.debug("Idempotency key {} taken concurrently, replaying", key);
+            return find(key, fingerprint).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Look up the stored response for a key, if the key has been used.
+     * Reusing a key for a different request is rejected.
+     */
+    public Optional<BalanceResponse> find(String key, String fingerprint) {
+        IdempotencyRecord record = recent.getIfPresent(key);
+        if (record == null) {
+            record = idempotencyRecordRepository.findUnexpired(key, LocalDateTime.now()).orElse(null);
+            if (record == null) {
+                return Optional.empty();
+            }
+            recent.put(key, record);
+        }
+
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for a different request");
+        }
+        logger.debug("Replaying response for idempotency key {}", key);
+        return Optional.of(toResponse(record));
+    }
+
+    /**
+     * Store the response for a key in the current transaction. Fails with a
+     * DataIntegrityViolationException if the key has been taken meanwhile.
+     */
+    public void record(String key, String fingerprint, BalanceResponse response) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord(key, fingerprint, response.getUpiId(),
+                                                         response.getBalance(), now, now.plus(ttl));
+        // An expired row may still be waiting for the purge
+        idempotencyRecordRepository.deleteExpiredKey(key, now);
+        idempotencyRecordRepository.insert(key, fingerprint, record.getUpiId(), record.getBalance(),
+                                           record.getCreatedAt(), record.getExpiresAt());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.put(key, record);
+            }
+        });
+    }
+
+    /**
+     * Delete records past their TTL. Returns the number of records deleted.
+     */
+    @Transactional
+    public int purgeExpired() {
+        return idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static Duration remainingTtl(IdempotencyRecord record) {
+        Duration remaining = Duration.between(LocalDateTime.now(), record.getExpiresAt());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private BalanceResponse toResponse(IdempotencyRecord record) {
+        return new BalanceResponse(record.getBalance(), record.getUpiId());
+    }
+}
@@ -0,0 +1,45 @@
+package com.upi.account.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically folds journaled credits into account balance snapshots so that
+ * balance reads only ever have to add a short tail.
+ */
+@Component
+public class LedgerCompactionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerCompactionJob.class);
+
+    private final LedgerService ledgerService;
+    private final int batchSize;
+
+    public LedgerCompactionJob(LedgerService ledgerService,
+                               @Value("${account.ledger.compaction-batch-size:100}") int batchSize) {
+        this.ledgerService = ledgerService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${account.ledger.compaction-interval-ms:5000}")
+    public void compact() {
+        List<String> upiIds = ledgerService.findUpiIdsToFold(batchSize);
+        for (String upiId : upiIds) {
+            try {
+                // Each fold runs in its own transaction and holds the account row only briefly
+                ledgerService.fold(upiId);
+            } catch (Exception e) {
+                logger.warn("Failed to fold journal for UPI ID {}: {}", upiId, e.getMessage());
+            }
+        }
+
+        if (!upiIds.isEmpty()) {
+            logger.debug("Compacted journal for {} accounts", upiIds.size());
+        }
+    }
+}
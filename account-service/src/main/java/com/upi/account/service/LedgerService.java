@@ -0,0 +1,315 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountBalanceSlot;
+import com.upi.account.entity.AccountEntry;
+import com.upi.account.exception.AccountNotFoundException;
+import com.upi.account.exception.InsufficientBalanceException;
+import com.upi.account.repository.AccountBalanceSlotRepository;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Append-only account journal.
+ *
+ * Every debit and credit is written to account_entries. Credits are insert-only and
+ * never touch the account row; they form an unfolded tail that is added to the
+ * Account.balance snapshot on read and folded into it by compaction. Debits must be
+ * guarded against overdraft, so they are applied to the snapshot with a conditional
+ * UPDATE and journaled as already applied. Because the tail only ever holds credits,
+ * checking a debit against the snapshot alone can never overdraw the account.
+ *
+ * Hot accounts can be sharded: their snapshot is split across N account_balance_slots
+ * rows. Credits are tagged with a random slot and folded per slot, and debits take a
+ * random slot first, so folds and debits on the same account rarely wait on one row.
+ * A debit that no single slot can cover borrows across all slots.
+ * Snapshot versions of the account row and its slots never overlap: switching layout
+ * carries the highest version over, so a version always identifies one fold.
+ */
+@Service
+@Transactional
+public class LedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+
+    private final AccountRepository accountRepository;
+    private final AccountEntryRepository accountEntryRepository;
+    private final AccountBalanceSlotRepository accountBalanceSlotRepository;
+    private final int maxBalanceSlots;
+
+    @Autowired
+    public LedgerService(AccountRepository accountRepository, AccountEntryRepository accountEntryRepository,
+                         AccountBalanceSlotRepository accountBalanceSlotRepository,
+                         @Value("${account.ledger.max-balance-slots:64}") int maxBalanceSlots) {
+        this.accountRepository = accountRepository;
+        this.accountEntryRepository = accountEntryRepository;
+        this.accountBalanceSlotRepository = accountBalanceSlotRepository;
+        this.maxBalanceSlots = maxBalanceSlots;
+    }
+
+    /**
+     * Journal a credit. The caller is responsible for checking that the account exists.
+     */
+    public void appendCredit(String upiId, BigDecimal amount, String transactionRef) {
+        appendCredit(upiId, amount, transactionRef, 0);
+    }
+
+    /**
+     * Journal a credit, assigning it to a random slot when the account has balance slots
+     */
+    public void appendCredit(String upiId, BigDecimal amount, String transactionRef, int balanceSlots) {
+        Integer slotNo = balanceSlots > 1 ? ThreadLocalRandom.current().nextInt(balanceSlots) : null;
+        accountEntryRepository.save(new AccountEntry(upiId, amount, transactionRef, null, slotNo));
+    }
+
+    /**
+     * Apply a debit (negative amount) to the balance snapshot and journal it.
+     * If the snapshot alone is insufficient, pending credits are folded first and the debit is retried.
+     */
+    public void applyDebit(String upiId, BigDecimal amount, String transactionRef) {
+        if (!tryDebit(upiId, amount, transactionRef)) {
+            // Nothing matched the guard: either the account is missing or funds are insufficient
+            Optional<BigDecimal> currentBalance = accountRepository.getBalanceByUpiId(upiId);
+            if (currentBalance.isEmpty()) {
+                throw new AccountNotFoundException("Account not found for UPI ID: " + upiId);
+            }
+            throw new InsufficientBalanceException("Insufficient balance. Current balance: " +
+                                                  currentBalance.get() + ", Requested amount: " + amount.negate());
+        }
+    }
+
+    /**
+     * Apply a debit (negative amount) like applyDebit, but report a missing account or
+     * insufficient funds by returning false instead of throwing, so the caller's
+     * transaction is not marked rollback-only
+     */
+    public boolean tryDebit(String upiId, BigDecimal amount, String transactionRef) {
+        if (accountRepository.updateBalanceByUpiId(upiId, amount) > 0) {
+            accountEntryRepository.save(new AccountEntry(upiId, amount, transactionRef, AccountEntry.APPLIED_IN_PLACE));
+            return true;
+        }
+        return retryDebit(upiId, amount, transactionRef);
+    }
+
+    /**
+     * Retry a debit (negative amount) that did not fit the account row snapshot.
+     * Sharded accounts are debited from their slots; otherwise pending credits are folded
+     * and the guarded update is tried once more. The debit is journaled if it applies.
+     * Returns false if the account is missing or funds are insufficient.
+     */
+    public boolean retryDebit(String upiId, BigDecimal amount, String transactionRef) {
+        int balanceSlots = accountRepository.getBalanceSlotsByUpiId(upiId).orElse(0);
+        if (balanceSlots > 0) {
+            return debitSlots(upiId, balanceSlots, amount, transactionRef);
+        }
+
+        return foldAndRetryDebit(upiId, amount, transactionRef);
+    }
+
+    /**
+     * Fold the unfolded journal tail of a UPI ID into its balance snapshot.
+     * Bumping the snapshot version locks the account row, so folds of the same account
+     * are serialized and each entry is claimed by exactly one version. Sharded accounts
+     * are folded slot by slot instead, locking only one slot row at a time.
+     * Returns the folded amount.
+     */
+    public BigDecimal fold(String upiId) {
+        int balanceSlots = accountRepository.getBalanceSlotsByUpiId(upiId).orElse(0);
+        if (balanceSlots > 0) {
+            return foldSlots(upiId, balanceSlots);
+        }
+
+        if (accountRepository.incrementSnapshotVersion(upiId) == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        // Sharding may have been enabled while we waited for the row lock
+        balanceSlots = accountRepository.getBalanceSlotsByUpiId(upiId).orElse(0);
+        if (balanceSlots > 0) {
+            return foldSlots(upiId, balanceSlots);
+        }
+
+        Long snapshotVersion = accountRepository.getSnapshotVersionByUpiId(upiId).orElseThrow();
+        if (accountEntryRepository.claimUnfoldedEntries(upiId, snapshotVersion) == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal folded = accountEntryRepository.sumBySnapshotVersion(upiId, snapshotVersion);
+        accountRepository.foldIntoBalance(upiId, folded);
+        logger.debug("Folded {} into balance of {} at snapshot version {}", folded, upiId, snapshotVersion);
+        return folded;
+    }
+
+    /**
+     * Split the balance snapshot of a UPI ID across the given number of slots, or merge
+     * it back into the account row when balanceSlots is 0 or 1. The whole journal tail is
+     * folded and the snapshot is divided evenly, with any remainder on slot 0.
+     * Returns the resulting number of slots.
+     */
+    public int changeBalanceSlots(String upiId, int balanceSlots) {
+        if (balanceSlots < 0 || balanceSlots > maxBalanceSlots) {
+            throw new IllegalArgumentException("Balance slots must be between 0 and " + maxBalanceSlots);
+        }
+        int targetSlots = balanceSlots > 1 ? balanceSlots : 0;
+
+        // Lock the account row, then the slots, the same order fold uses
+        if (accountRepository.incrementSnapshotVersion(upiId) == 0) {
+            throw new AccountNotFoundException("Account not found for UPI ID: " + upiId);
+        }
+        Account account = accountRepository.findByUpiId(upiId).orElseThrow();
+        BigDecimal snapshot = account.getBalance();
+        long snapshotVersion = account.getSnapshotVersion();
+        for (AccountBalanceSlot slot : accountBalanceSlotRepository.findByUpiIdForUpdate(upiId)) {
+            snapshot = snapshot.add(slot.getBalance());
+            snapshotVersion = Math.max(snapshotVersion, slot.getSnapshotVersion());
+        }
+        accountBalanceSlotRepository.deleteByUpiId(upiId);
+
+        snapshotVersion++;
+        if (accountEntryRepository.claimUnfoldedEntries(upiId, snapshotVersion) > 0) {
+            snapshot = snapshot.add(accountEntryRepository.sumBySnapshotVersion(upiId, snapshotVersion));
+        }
+
+        if (targetSlots == 0) {
+            accountRepository.updateBalanceLayout(upiId, 0, snapshot, snapshotVersion);
+        } else {
+            BigDecimal share = snapshot.divide(BigDecimal.valueOf(targetSlots), 2, RoundingMode.DOWN);
+            BigDecimal remainder = snapshot.subtract(share.multiply(BigDecimal.valueOf(targetSlots)));
+            List<AccountBalanceSlot> slots = new ArrayList<>(targetSlots);
+            for (int slotNo = 0; slotNo < targetSlots; slotNo++) {
+                BigDecimal slotBalance = slotNo == 0 ? share.add(remainder) : share;
+                slots.add(new AccountBalanceSlot(upiId, slotNo, slotBalance, snapshotVersion));
+            }
+            accountBalanceSlotRepository.saveAll(slots);
+            accountRepository.updateBalanceLayout(upiId, targetSlots, BigDecimal.ZERO, snapshotVersion);
+        }
+
+        logger.info("Changed balance slots of {} from {} to {}", upiId, account.getBalanceSlots(), targetSlots);
+        return targetSlots;
+    }
+
+    /**
+     * Debit a sharded account. A random slot is tried first so concurrent debits spread
+     * across rows; if no slot covers the amount, all slots are folded and locked in slot
+     * order and the debit borrows from as many slots as it needs.
+     */
+    private boolean debitSlots(String upiId, int balanceSlots, BigDecimal amount, String transactionRef) {
+        int start = ThreadLocalRandom.current().nextInt(balanceSlots);
+        for (int i = 0; i < balanceSlots; i++) {
+            int slotNo = (start + i) % balanceSlots;
+            if (accountBalanceSlotRepository.updateBalance(upiId, slotNo, amount) > 0) {
+                accountEntryRepository.save(new AccountEntry(upiId, amount, transactionRef, 
+                                                             AccountEntry.APPLIED_IN_PLACE, slotNo));
+                return true;
+            }
+        }
+
+        foldSlots(upiId, balanceSlots);
+        List<AccountBalanceSlot> slots = accountBalanceSlotRepository.findByUpiIdForUpdate(upiId);
+        BigDecimal available = slots.stream().map(AccountBalanceSlot::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (slots.isEmpty()) {
+            // Sharding was switched off since balanceSlots was read
+            return foldAndRetryDebit(upiId, amount, transactionRef);
+        }
+        BigDecimal remaining = amount.negate();
+        if (available.compareTo(remaining) < 0) {
+            return false;
+        }
+
+        List<AccountEntry> entries = new ArrayList<>();
+        for (AccountBalanceSlot slot : slots) {
+            BigDecimal taken = slot.getBalance().min(remaining);
+            if (taken.signum() > 0) {
+                accountBalanceSlotRepository.updateBalance(upiId, slot.getSlotNo(), taken.negate());
+                entries.add(new AccountEntry(upiId, taken.negate(), transactionRef, 
+                                             AccountEntry.APPLIED_IN_PLACE, slot.getSlotNo()));
+                remaining = remaining.subtract(taken);
+            }
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+        accountEntryRepository.saveAll(entries);
+        logger.debug("Debit of {} from {} borrowed across {} slots", amount.negate(), upiId, entries.size());
+        return true;
+    }
+
+    /**
+     * Fold pending credits into the account row and try the guarded debit once more
+     */
+    private boolean foldAndRetryDebit(String upiId, BigDecimal amount, String transactionRef) {
+        if (fold(upiId).signum() > 0 && accountRepository.updateBalanceByUpiId(upiId, amount) > 0) {
+            accountEntryRepository.save(new AccountEntry(upiId, amount, transactionRef, AccountEntry.APPLIED_IN_PLACE));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fold every slot of a sharded account in slot order
+     */
+    private BigDecimal foldSlots(String upiId, int balanceSlots) {
+        BigDecimal folded = BigDecimal.ZERO;
+        for (int slotNo = 0; slotNo < balanceSlots; slotNo++) {
+            folded = folded.add(foldSlot(upiId, balanceSlots, slotNo));
+        }
+        return folded;
+    }
+
+    /**
+     * Fold the unfolded entries assigned to one slot into that slot
+     */
+    private BigDecimal foldSlot(String upiId, int balanceSlots, int slotNo) {
+        if (accountBalanceSlotRepository.incrementSnapshotVersion(upiId, slotNo) == 0) {
+            // The layout changed since balanceSlots was read; the next fold picks the entries up
+            return BigDecimal.ZERO;
+        }
+
+        Long snapshotVersion = accountBalanceSlotRepository.getSnapshotVersion(upiId, slotNo).orElseThrow();
+        if (accountEntryRepository.claimUnfoldedSlotEntries(upiId, balanceSlots, slotNo, snapshotVersion) == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal folded = accountEntryRepository.sumBySlotSnapshotVersion(upiId, balanceSlots, slotNo, snapshotVersion);
+        accountBalanceSlotRepository.foldIntoBalance(upiId, slotNo, folded);
+        return folded;
+    }
+
+    /**
+     * Find UPI IDs whose journal has entries waiting to be folded
+     */
+    @Transactional(readOnly = true)
+    public List<String> findUpiIdsToFold(int limit) {
+        return accountEntryRepository.findUpiIdsWithUnfoldedEntries(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Get the most recent journal entries for a UPI ID
+     */
+    @Transactional(readOnly = true)
+    public List<AccountEntry> getEntries(String upiId, int limit) {
+        return accountEntryRepository.findByUpiIdOrderByIdDesc(upiId, PageRequest.of(0, limit));
+    }
+    
+    /**
+     * Get the journal entries written for a transaction reference, oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<AccountEntry> getEntriesByTransactionRef(String transactionRef) {
+        return accountEntryRepository.findByTransactionRefOrderByIdAsc(transactionRef);
+    }
+}
@@ -0,0 +1,210 @@
+package com.upi.account.service;
+
+import com.upi.account.repository.AccountBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of every UPI ID, so lookups of unknown IDs are answered without touching
+ * the database. A negative answer is authoritative; a positive one still needs a lookup.
+ *
+ * The filter is per instance. It is filled from the accounts table once the application
+ * is ready, and then refreshed periodically with the accounts created since the latest
+ * creation time it has seen (the watermark). Each refresh reaches back a little before
+ * the watermark, so rows committed late or stamped by a slightly skewed clock are still
+ * picked up. An account created on another instance is therefore reported missing for
+ * at most one refresh interval. Generating a UPI ID the filter missed is caught by the
+ * unique constraint on upi_id, and the ID is added then.
+ *
+ * Bits are only ever set, never cleared, so the filter is safe to read and update
+ * concurrently without locks. Until it is loaded every lookup passes through to the
+ * database.
+ */
+@Component
+public class UpiIdBloomFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UpiIdBloomFilter.class);
+    
+    private final AccountBatchRepository accountBatchRepository;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final Duration refreshOverlap;
+    private final AtomicLong insertions = new AtomicLong();
+    private volatile LocalDateTime watermark;
+    private volatile boolean ready;
+    
+    private final Counter rejectedLookups;
+    private final Counter passedLookups;
+    private final Counter falsePositives;
+    private final Counter missedIds;
+    
+    public UpiIdBloomFilter(AccountBatchRepository accountBatchRepository, MeterRegistry meterRegistry,
+                            @Value("${account.upi-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${account.upi-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                            @Value("${account.upi-filter.refresh-overlap-seconds:60}") long refreshOverlapSeconds) {
+        this.accountBatchRepository = accountBatchRepository;
+        this.refreshOverlap = Duration.ofSeconds(refreshOverlapSeconds);
+        
+        // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / 
+                                            (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        
+        this.rejectedLookups = Counter.builder("account.upi_filter.lookups")
+                .description("UPI ID lookups checked against the Bloom filter")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        this.passedLookups = Counter.builder("account.upi_filter.lookups")
+                .description("UPI ID lookups checked against the Bloom filter")
+                .tag("result", "passed")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("account.upi_filter.false_positives")
+                .description("Lookups passed by the Bloom filter that the database did not confirm")
+                .register(meterRegistry);
+        this.missedIds = Counter.builder("account.upi_filter.missed")
+                .description("UPI IDs missing from the Bloom filter that turned out to be taken when an account was created")
+                .register(meterRegistry);
+        Gauge.builder("account.upi_filter.insertions", insertions, AtomicLong::get)
+                .description("UPI IDs added to the Bloom filter")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Load every existing UPI ID. Accounts created meanwhile are added by createAccount or by
+     * the next refresh, and bits are never cleared, so nothing added concurrently is lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        watermark = accountBatchRepository.forEachUpiIdCreatedSince(null, this::put);
+        ready = true;
+        logger.info("Loaded {} UPI IDs into Bloom filter ({} bits, {} hash functions) in {} ms", 
+                   insertions.get(), bitCount, hashFunctions, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Add the UPI IDs created since the watermark, including those created on other instances
+     */
+    @Scheduled(fixedDelayString = "${account.upi-filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            LocalDateTime since = watermark != null ? watermark.minus(refreshOverlap) : null;
+            LocalDateTime latest = accountBatchRepository.forEachUpiIdCreatedSince(since, this::put);
+            if (latest != null && (watermark == null || latest.isAfter(watermark))) {
+                watermark = latest;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to refresh UPI ID Bloom filter: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Add a UPI ID to the filter. Adding one that is already present is a no-op.
+     */
+    public void put(String upiId) {
+        long hash = hash(upiId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean added = false;
+        for (int i = 1; i <= hashFunctions; i++) {
+            added |= setBit(index(h1 + i * h2));
+        }
+        if (added) {
+            insertions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Check whether a UPI ID may exist. False means it does not, unless it was created on
+     * another instance since the last refresh.
+     */
+    public boolean mightContain(String upiId) {
+        if (!ready) {
+            return true;
+        }
+        
+        long hash = hash(upiId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                rejectedLookups.increment();
+                return false;
+            }
+        }
+        passedLookups.increment();
+        return true;
+    }
+    
+    /**
+     * Record that a UPI ID passed the filter but was not found in the database
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+    
+    /**
+     * Record that a UPI ID missing from the filter was found taken when an account was
+     * created with it, and add it
+     */
+    public void recordMissed(String upiId) {
+        missedIds.increment();
+        put(upiId);
+    }
+    
+    private long index(int combinedHash) {
+        // Flip negative hashes so every index falls inside the bit array
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitCount;
+    }
+    
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the characters, finished with the MurmurHash3 fmix64 mixer
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93e185a9a63L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+package com.upi.account.service;
+
+import com.upi.account.repository.AccountRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Derives phone-based UPI IDs (10digits@upi, then 10digits1@upi, 10digits2@upi, ...)
+ * without probing the accounts table once per candidate.
+ */
+@Component
+public class UpiIdGenerator {
+    
+    private final AccountRepository accountRepository;
+    private final UpiIdBloomFilter upiIdBloomFilter;
+    
+    public UpiIdGenerator(AccountRepository accountRepository, UpiIdBloomFilter upiIdBloomFilter) {
+        this.accountRepository = accountRepository;
+        this.upiIdBloomFilter = upiIdBloomFilter;
+    }
+    
+    /**
+     * Normalize a phone number to the 10 digits a UPI ID is based on
+     */
+    public String baseFor(String phoneNumber) {
+        // Remove any non-digit characters and country code prefix
+        String cleanPhone = phoneNumber.replaceAll("[^0-9]", "");
+        
+        // If phone starts with country code (like +91), remove it
+        if (cleanPhone.startsWith("91") && cleanPhone.length() > 10) {
+            cleanPhone = cleanPhone.substring(2);
+        }
+        
+        // Ensure we have a 10-digit phone number
+        if (cleanPhone.length() != 10) {
+            throw new IllegalArgumentException("Invalid phone number format for UPI ID generation: " + phoneNumber);
+        }
+        return cleanPhone;
+    }
+    
+    /**
+     * Pick the first free UPI ID for a phone base that is neither in the database
+     * nor in the caller's reserved set (IDs already handed out but not yet inserted)
+     */
+    public String nextFree(String baseUpiId, Set<String> reserved) {
+        String upiId = baseUpiId + "@upi";
+        
+        // A phone-based UPI ID missing from the Bloom filter is free; if another instance took it
+        // since the last refresh, the unique constraint rejects the insert
+        if (!upiIdBloomFilter.mightContain(upiId) && !reserved.contains(upiId)) {
+            return upiId;
+        }
+        
+        // Otherwise fetch every variant of this phone number at once and take the first free suffix
+        Set<String> taken = new HashSet<>(accountRepository.findUpiIdsByPrefix(baseUpiId));
+        int suffix = 0;
+        while (taken.contains(upiId) || reserved.contains(upiId)) {
+            suffix++;
+            upiId = baseUpiId + suffix + "@upi";
+        }
+        return upiId;
+    }
+}
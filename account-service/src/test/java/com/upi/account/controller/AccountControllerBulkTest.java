@@ -0,0 +1,153 @@
+package com.upi.account.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.account.client.UserServiceClient;
+import com.upi.account.dto.BulkAccountResult;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk provisioning streams one NDJSON result line per input row, in request order, and a
+ * rejected row or chunk never stops the rows after it. The chunk size is 2, so the
+ * requests below span several chunks.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000",
+    "account.provisioning.chunk-size=2"
+})
+class AccountControllerBulkTest {
+
+    private static final String MIXED_BATCH = "{\"accounts\": [" +
+            "{\"userId\": 101, \"initialBalance\": 50.00}," +
+            "{\"userId\": 101}," +
+            "{\"userId\": 102}," +
+            "{\"userId\": 103}," +
+            "{\"userId\": 104}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @MockBean
+    private UserServiceClient userServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void mixedBatchStreamsOneLinePerRowInOrder() throws Exception {
+        // 102 has a phone number that cannot become a UPI ID, 103 does not exist
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(
+                101L, user(101L, "9876500101"),
+                102L, user(102L, "12345"),
+                104L, user(104L, "+91 98765 00104")));
+
+        List<BulkAccountResult> results = provision(MIXED_BATCH);
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertSucceeded(results.get(0), "9876500101@upi");
+        assertFailed(results.get(1), "DUPLICATE_USER");
+        assertFailed(results.get(2), "INVALID_PHONE");
+        assertFailed(results.get(3), "USER_NOT_FOUND");
+        assertSucceeded(results.get(4), "9876500104@upi");
+
+        assertEquals(0, accountRepository.findByUserId(101L).orElseThrow().getBalance().compareTo(
+                new BigDecimal("50.00")));
+        assertTrue(accountRepository.findByUserId(102L).isEmpty());
+        assertTrue(accountRepository.findByUserId(104L).isPresent());
+    }
+
+    @Test
+    void failedChunkDoesNotAbortTheRest() throws Exception {
+        // The user-service call for the first chunk fails, the later ones succeed
+        when(userServiceClient.getUsersByIds(anyCollection()))
+                .thenThrow(new RuntimeException("user-service down"))
+                .thenReturn(Map.of(102L, user(102L, "12345"), 104L, user(104L, "9876500104")));
+
+        List<BulkAccountResult> results = provision(MIXED_BATCH);
+
+        assertEquals(5, results.size());
+        assertFailed(results.get(0), "USER_SERVICE_UNAVAILABLE");
+        assertFailed(results.get(1), "DUPLICATE_USER");
+        assertFailed(results.get(2), "INVALID_PHONE");
+        assertFailed(results.get(3), "USER_NOT_FOUND");
+        assertSucceeded(results.get(4), "9876500104@upi");
+        assertEquals(Set.of(104L), Set.copyOf(accountRepository.findUserIdsWithAccounts(Set.of(101L, 102L, 104L))));
+    }
+
+    private List<BulkAccountResult> provision(String body) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/accounts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<BulkAccountResult> results = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            results.add(objectMapper.readValue(line, BulkAccountResult.class));
+        }
+        return results;
+    }
+
+    private static UserServiceClient.UserDetails user(Long id, String phone) {
+        UserServiceClient.UserDetails user = new UserServiceClient.UserDetails();
+        user.setId(id);
+        user.setPhone(phone);
+        return user;
+    }
+
+    private static void assertSucceeded(BulkAccountResult result, String upiId) {
+        assertEquals(BulkAccountResult.SUCCESS, result.getStatus(), result.toString());
+        assertEquals(upiId, result.getUpiId());
+        assertNotNull(result.getAccountNumber());
+    }
+
+    private static void assertFailed(BulkAccountResult result, String error) {
+        assertEquals(BulkAccountResult.FAILED, result.getStatus(), result.toString());
+        assertEquals(error, result.getError());
+    }
+}
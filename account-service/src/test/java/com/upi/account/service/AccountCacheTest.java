@@ -0,0 +1,144 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountHold;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountHoldRepository;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every balance change drops the changed accounts from the near-cache at once, and again
+ * when its transaction commits or rolls back, so an entry cached while the change was in
+ * flight is never served afterwards. The cache outlives each test, so every test uses its
+ * own UPI IDs.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000",
+    "account.holds.expiry-interval-ms=3600000"
+})
+class AccountCacheTest {
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEntryRepository accountEntryRepository;
+
+    @Autowired
+    private AccountHoldRepository accountHoldRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        accountHoldRepository.deleteAll();
+        accountEntryRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void balanceUpdateInvalidates() {
+        String upiId = account(1L, "9700000001");
+
+        assertInvalidated(true, () -> accountService.updateBalanceByUpiId(upiId, BigDecimal.TEN, "TXN1"), upiId);
+        assertInvalidated(false, () -> accountService.updateBalanceByUpiId(upiId, BigDecimal.TEN, "TXN2"), upiId);
+
+        // The next read loads the committed balance only
+        assertEquals(0, new BigDecimal("110.00").compareTo(
+                accountService.getAccountByUpiId(upiId).orElseThrow().getCurrentBalance()));
+    }
+
+    @Test
+    void transferInvalidatesBothSides() {
+        String sender = account(1L, "9700000011");
+        String receiver = account(2L, "9700000012");
+
+        assertInvalidated(true, () -> accountService.transfer(sender, receiver, BigDecimal.TEN, "TXN1"), sender, receiver);
+        assertInvalidated(false, () -> accountService.transfer(sender, receiver, BigDecimal.TEN, "TXN2"), sender, receiver);
+    }
+
+    @Test
+    void holdPlacementAndReleaseInvalidate() {
+        String upiId = account(1L, "9700000021");
+
+        assertInvalidated(true, () -> holdService.placeHold(upiId, BigDecimal.TEN, "HOLD1", 60L), upiId);
+        assertInvalidated(false, () -> holdService.placeHold(upiId, BigDecimal.TEN, "HOLD2", 60L), upiId);
+
+        AccountHold hold = accountHoldRepository.findAll().get(0);
+        assertInvalidated(true, () -> holdService.release(hold.getId()), upiId);
+    }
+
+    /**
+     * Cache the accounts, apply the change in a transaction and check they are dropped
+     * straight away. Then cache a stale copy while the transaction is still open, as a
+     * racing read would, and check that is dropped too once the transaction ends.
+     */
+    private void assertInvalidated(boolean commit, Runnable change, String... upiIds) {
+        for (String upiId : upiIds) {
+            accountService.getAccountByUpiId(upiId);
+            assertTrue(isCached(upiId));
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            change.run();
+            for (String upiId : upiIds) {
+                assertFalse(isCached(upiId), upiId + " still cached inside the transaction");
+                accountCache.get(upiId, id -> Optional.of(new Account(0L, id, "stale", BigDecimal.ZERO)));
+                assertTrue(isCached(upiId));
+            }
+            if (!commit) {
+                status.setRollbackOnly();
+            }
+        });
+
+        for (String upiId : upiIds) {
+            assertFalse(isCached(upiId), upiId + " still cached after " + (commit ? "commit" : "rollback"));
+        }
+    }
+
+    /**
+     * Whether a UPI ID is cached, without caching it: a miss calls the loader, which finds nothing
+     */
+    private boolean isCached(String upiId) {
+        AtomicBoolean loaded = new AtomicBoolean();
+        accountCache.get(upiId, id -> {
+            loaded.set(true);
+            return Optional.empty();
+        });
+        return !loaded.get();
+    }
+
+    private String account(Long userId, String phone) {
+        String upiId = phone + "@upi";
+        accountRepository.save(new Account(userId, upiId, phone, new BigDecimal("100.00")));
+        return upiId;
+    }
+}
@@ -0,0 +1,52 @@
+package com.upi.account.service;
+
+import com.upi.account.repository.AccountNumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Instances sharing account_number_seq must never hand out the same account number,
+ * even when they are configured with different block sizes
+ */
+class AccountNumberAllocatorTest {
+
+    private AccountNumberSequenceRepository sequenceRepository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:allocator-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        sequenceRepository = new AccountNumberSequenceRepository(jdbcTemplate);
+    }
+
+    @Test
+    void blockSizeFollowsTheExistingSequence() {
+        AccountNumberAllocator first = new AccountNumberAllocator(sequenceRepository, 10);
+        // Created by the first instance: the sequence keeps incrementing by 10
+        AccountNumberAllocator second = new AccountNumberAllocator(sequenceRepository, 100);
+        assertEquals(10, sequenceRepository.incrementBy());
+
+        Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(numbers.add(first.nextAccountNumber()));
+            assertTrue(numbers.add(second.nextAccountNumber()));
+        }
+    }
+
+    @Test
+    void accountNumbersCarryALuhnCheckDigit() {
+        AccountNumberAllocator allocator = new AccountNumberAllocator(sequenceRepository, 10);
+
+        String accountNumber = allocator.nextAccountNumber();
+        assertEquals("1000000008", accountNumber);
+        assertEquals(8, AccountNumberAllocator.checkDigit(100_000_000L));
+    }
+}
@@ -0,0 +1,229 @@
+package com.upi.account.service;
+
+import com.upi.account.AccountServiceApplication;
+import com.upi.account.config.OwnerForwardingFilter;
+import com.upi.account.entity.Account;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Multi-instance harness for account ownership. Boots two account-service instances on
+ * one shared database, with the registry replaced by a static instance list, and checks
+ * that balance updates, transfers, holds and balance batches sent to a non-owner of the
+ * debited UPI ID are forwarded to its owner, and that ownership moves when an instance
+ * leaves the ring.
+ *
+ * Run with: mvn test -Dtest=AccountOwnershipClusterTest -Dcluster=true
+ */
+@EnabledIfSystemProperty(named = "cluster", matches = "true")
+class AccountOwnershipClusterTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:ownership-cluster;DB_CLOSE_DELAY=-1";
+
+    private static int firstPort;
+    private static int secondPort;
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @BeforeAll
+    static void startInstances() throws IOException {
+        firstPort = freePort();
+        secondPort = freePort();
+        first = start(firstPort, "create-drop");
+        second = start(secondPort, "none");
+    }
+
+    @BeforeEach
+    void joinBothInstances() {
+        // A test may have taken an instance out of the ring
+        for (ConfigurableApplicationContext context : List.of(first, second)) {
+            setInstances(context, firstPort, secondPort);
+            context.getBean(AccountOwnership.class).refresh();
+        }
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    @Test
+    void forwardsDebitsByTheDebitedUpiId() {
+        String[] upiIds = ownedByEachInstance("95100");
+        String ownedByFirst = upiIds[0];
+        String ownedBySecond = upiIds[1];
+        AccountRepository accountRepository = first.getBean(AccountRepository.class);
+        accountRepository.save(new Account(11L, ownedByFirst, "9510000001", BigDecimal.valueOf(100)));
+        accountRepository.save(new Account(12L, ownedBySecond, "9510000002", BigDecimal.valueOf(100)));
+
+        // A transfer goes to the sender's owner, whichever instance receives it
+        ResponseEntity<Map> transfer = send(secondPort, HttpMethod.POST, "/api/accounts/transfer",
+                Map.of("senderUpiId", ownedByFirst, "receiverUpiId", ownedBySecond, "amount", 10));
+        assertEquals(node(firstPort), transfer.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+
+        // A hold, and each transition of it, goes to the owner of the held UPI ID
+        ResponseEntity<Map> hold = send(secondPort, HttpMethod.POST, "/api/accounts/holds",
+                Map.of("upiId", ownedByFirst, "amount", 5));
+        assertEquals(node(firstPort), hold.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        ResponseEntity<Map> capture = send(secondPort, HttpMethod.POST,
+                "/api/accounts/holds/" + hold.getBody().get("holdId") + "/capture", null);
+        assertEquals(node(firstPort), capture.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        assertEquals("CAPTURED", capture.getBody().get("status"));
+
+        // A batch goes to the owner of the UPI ID it debits, or stays local if it debits several
+        Map<String, Object> debit = Map.of("upiId", ownedBySecond, "amount", 1, "operation", "DEBIT");
+        Map<String, Object> credit = Map.of("upiId", ownedByFirst, "amount", 1, "operation", "CREDIT");
+        ResponseEntity<Map> batch = send(firstPort, HttpMethod.PUT, "/api/accounts/balances/batch",
+                Map.of("entries", List.of(debit, credit)));
+        assertEquals(node(secondPort), batch.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        Map<String, Object> otherDebit = Map.of("upiId", ownedByFirst, "amount", 1, "operation", "DEBIT");
+        ResponseEntity<Map> mixed = send(firstPort, HttpMethod.PUT, "/api/accounts/balances/batch",
+                Map.of("entries", List.of(debit, otherDebit)));
+        assertNull(mixed.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+
+        // 100 - 10 - 5 + 1 - 1, and 100 + 10 - 1 - 1
+        AccountService accountService = first.getBean(AccountService.class);
+        assertEquals(0, new BigDecimal("85").compareTo(accountService.getBalanceByUpiId(ownedByFirst).orElseThrow()));
+        assertEquals(0, new BigDecimal("108").compareTo(accountService.getBalanceByUpiId(ownedBySecond).orElseThrow()));
+    }
+
+    @Test
+    void forwardsUpdatesToOwnerAndHandsOffOnMembershipChange() {
+        AccountOwnership ownership = first.getBean(AccountOwnership.class);
+        AccountRepository accountRepository = first.getBean(AccountRepository.class);
+
+        String[] upiIds = ownedByEachInstance("95000");
+        String ownedByFirst = upiIds[0];
+        String ownedBySecond = upiIds[1];
+        accountRepository.save(new Account(1L, ownedByFirst, "9500000001", BigDecimal.valueOf(100)));
+        accountRepository.save(new Account(2L, ownedBySecond, "9500000002", BigDecimal.valueOf(100)));
+        assertEquals(ownership.ownerOf(ownedByFirst), second.getBean(AccountOwnership.class).ownerOf(ownedByFirst));
+
+        // Sent to the non-owner: forwarded and answered by the owner
+        ResponseEntity<Map> forwarded = credit(secondPort, ownedByFirst, 10);
+        assertEquals(node(firstPort), forwarded.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        assertEquals(0, new BigDecimal("110").compareTo(new BigDecimal(forwarded.getBody().get("balance").toString())));
+
+        // A client cannot mark its own request as forwarded: without the secret it is still forwarded
+        HttpHeaders forged = new HttpHeaders();
+        forged.set(OwnerForwardingFilter.FORWARDED_HEADER, "true");
+        ResponseEntity<Map> spoofed = credit(secondPort, ownedByFirst, 10, forged);
+        assertEquals(node(firstPort), spoofed.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+
+        // Sent to the owner: handled locally
+        ResponseEntity<Map> local = credit(secondPort, ownedBySecond, 10);
+        assertNull(local.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+
+        // The second instance leaves the first instance's ring: the first now owns everything
+        setInstances(first, firstPort);
+        ownership.refresh();
+        assertEquals(node(firstPort), ownership.ownerOf(ownedBySecond));
+        ResponseEntity<Map> handedOff = credit(firstPort, ownedBySecond, 10);
+        assertNull(handedOff.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        assertEquals(0, new BigDecimal("120").compareTo(new BigDecimal(handedOff.getBody().get("balance").toString())));
+
+        // A request forwarded by an instance with a stale ring is still handled where it lands
+        ResponseEntity<Map> stale = credit(secondPort, ownedByFirst, 10);
+        assertNotNull(stale.getHeaders().getFirst(OwnerForwardingFilter.OWNER_HEADER));
+        assertEquals(0, new BigDecimal("130").compareTo(new BigDecimal(stale.getBody().get("balance").toString())));
+    }
+
+    /**
+     * One UPI ID owned by each instance, with the given prefix
+     */
+    private static String[] ownedByEachInstance(String prefix) {
+        AccountOwnership ownership = first.getBean(AccountOwnership.class);
+        String[] owned = new String[2];
+        for (int i = 0; owned[0] == null || owned[1] == null; i++) {
+            String upiId = prefix + String.format("%05d", i) + "@upi";
+            int index = ownership.ownerOf(upiId).equals(node(firstPort)) ? 0 : 1;
+            if (owned[index] == null) {
+                owned[index] = upiId;
+            }
+        }
+        return owned;
+    }
+
+    private ResponseEntity<Map> send(int port, HttpMethod method, String path, Map<String, Object> body) {
+        return restTemplate.exchange("http://localhost:" + port + path, method,
+                                     new HttpEntity<>(body, new HttpHeaders()), Map.class);
+    }
+
+    private ResponseEntity<Map> credit(int port, String upiId, int amount) {
+        return credit(port, upiId, amount, new HttpHeaders());
+    }
+
+    private ResponseEntity<Map> credit(int port, String upiId, int amount, HttpHeaders headers) {
+        Map<String, Object> body = Map.of("amount", amount, "operation", "CREDIT");
+        return restTemplate.exchange("http://localhost:" + port + "/api/accounts/upi/{upiId}/balance",
+                                     HttpMethod.PUT, new HttpEntity<>(body, headers), Map.class, upiId);
+    }
+
+    private static ConfigurableApplicationContext start(int port, String ddlAuto) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountServiceApplication.class)
+                .run(
+                    "--server.port=" + port,
+                    "--spring.datasource.url=" + DATABASE_URL,
+                    "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                    "--spring.jpa.show-sql=false",
+                    "--eureka.client.enabled=false",
+                    "--logging.level.com.upi.account=INFO",
+                    "--logging.level.org.springframework.web=INFO",
+                    "--account.ownership.enabled=true",
+                    "--account.ownership.self=" + node(port),
+                    "--account.ownership.forward-secret=cluster-test",
+                    "--account.ownership.refresh-interval-ms=3600000");
+        setInstances(context, firstPort, secondPort);
+        context.getBean(AccountOwnership.class).refresh();
+        return context;
+    }
+
+    private static void setInstances(ConfigurableApplicationContext context, int... ports) {
+        List<DefaultServiceInstance> instances = new ArrayList<>();
+        for (int port : ports) {
+            instances.add(new DefaultServiceInstance(node(port), "account-service", "localhost", port, false));
+        }
+        context.getBean(SimpleDiscoveryProperties.class).getInstances().put("account-service", instances);
+    }
+
+    private static String node(int port) {
+        return "localhost:" + port;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.upi.account.service;
+
+import com.upi.account.dto.BatchBalanceUpdateEntry;
+import com.upi.account.dto.BatchBalanceUpdateResult;
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountEntry;
+import com.upi.account.exception.InsufficientBalanceException;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Balance updates through the journal: credits are appended unfolded, debits are guarded
+ * against the snapshot and fall back to folding when the snapshot alone is not enough.
+ * Scheduled compaction is pushed out so every fold in these tests is explicit.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000"
+})
+class AccountServiceTest {
+
+    private static final String UPI_ID = "9100000001@upi";
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEntryRepository accountEntryRepository;
+
+    @BeforeEach
+    void setUp() {
+        accountEntryRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void debitRacingCreditNeverOverdrawsOrLosesAWrite() throws Exception {
+        accountRepository.save(new Account(1L, UPI_ID, "9100000001", BigDecimal.ZERO));
+        int threads = 8;
+        int operationsPerThread = 100;
+        AtomicInteger debited = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Half the threads credit one unit at a time while the other half try to spend it
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean credit = t % 2 == 0;
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    if (credit) {
+                        accountService.updateBalanceByUpiId(UPI_ID, BigDecimal.ONE, "CR" + i);
+                        continue;
+                    }
+                    try {
+                        BigDecimal balance = accountService.updateBalanceByUpiId(UPI_ID, BigDecimal.ONE.negate(), "DR" + i);
+                        assertTrue(balance.signum() >= 0, "debit overdrew the account: " + balance);
+                        debited.incrementAndGet();
+                    } catch (InsufficientBalanceException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+
+        int credits = threads / 2 * operationsPerThread;
+        assertEquals(credits, debited.get() + rejected.get());
+        BigDecimal expected = BigDecimal.valueOf(credits - debited.get());
+        assertEquals(0, expected.compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+
+        ledgerService.fold(UPI_ID);
+        Account account = accountRepository.findByUpiId(UPI_ID).orElseThrow();
+        assertEquals(0, expected.compareTo(account.getBalance()));
+        assertEquals(0, expected.compareTo(account.getCurrentBalance()));
+    }
+
+    @Test
+    void foldBumpsSnapshotVersionAndClaimsTheTail() {
+        accountRepository.save(new Account(1L, UPI_ID, "9100000001", new BigDecimal("10.00")));
+        long versionBefore = accountRepository.getSnapshotVersionByUpiId(UPI_ID).orElseThrow();
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("25.00"), "TXN1");
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("5.00"), "TXN2");
+
+        assertEquals(0, new BigDecimal("30.00").compareTo(ledgerService.fold(UPI_ID)));
+
+        Account account = accountRepository.findByUpiId(UPI_ID).orElseThrow();
+        assertEquals(versionBefore + 1, account.getSnapshotVersion());
+        assertEquals(0, new BigDecimal("40.00").compareTo(account.getBalance()));
+        for (AccountEntry entry : entries()) {
+            assertEquals(versionBefore + 1, entry.getSnapshotVersion());
+        }
+
+        // Nothing left to claim, but the version still moves on
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledgerService.fold(UPI_ID)));
+        assertEquals(versionBefore + 2, accountRepository.getSnapshotVersionByUpiId(UPI_ID).orElseThrow());
+    }
+
+    @Test
+    void insufficientBalanceIsRejectedWithoutTouchingTheAccount() {
+        accountRepository.save(new Account(1L, UPI_ID, "9100000001", new BigDecimal("10.00")));
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("5.00"), "TXN1");
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("-15.01"), "TXN2"));
+
+        BatchBalanceUpdateEntry debit = new BatchBalanceUpdateEntry(UPI_ID, new BigDecimal("15.01"), "DEBIT");
+        BatchBalanceUpdateResult result = accountService.updateBalances(List.of(debit)).get(0);
+        assertEquals(BatchBalanceUpdateResult.FAILED, result.getStatus());
+        assertEquals("INSUFFICIENT_BALANCE", result.getError());
+
+        assertEquals(0, new BigDecimal("15.00").compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+        assertEquals(1, entries().size(), "a rejected debit must not be journaled");
+    }
+
+    @Test
+    void batchDebitFallsBackToRetryDebitWhenTheSnapshotIsShort() {
+        accountRepository.save(new Account(1L, UPI_ID, "9100000001", new BigDecimal("10.00")));
+        long versionBefore = accountRepository.getSnapshotVersionByUpiId(UPI_ID).orElseThrow();
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("100.00"), "TXN1");
+
+        // The snapshot holds 10, so the batched guarded update matches no row; the credit
+        // has to be folded by retryDebit before the debit fits
+        BatchBalanceUpdateEntry debit = new BatchBalanceUpdateEntry(UPI_ID, new BigDecimal("60.00"), "DEBIT");
+        debit.setTransactionRef("TXN2");
+        BatchBalanceUpdateResult result = accountService.updateBalances(List.of(debit)).get(0);
+
+        assertEquals(BatchBalanceUpdateResult.SUCCESS, result.getStatus());
+        assertEquals(0, new BigDecimal("50.00").compareTo(result.getBalance()));
+        Account account = accountRepository.findByUpiId(UPI_ID).orElseThrow();
+        assertEquals(versionBefore + 1, account.getSnapshotVersion());
+        assertEquals(0, new BigDecimal("50.00").compareTo(account.getBalance()));
+
+        List<AccountEntry> entries = entries();
+        assertEquals(2, entries.size());
+        assertEquals("TXN2", entries.get(0).getTransactionRef());
+        assertEquals(AccountEntry.APPLIED_IN_PLACE, entries.get(0).getSnapshotVersion());
+        assertEquals(versionBefore + 1, entries.get(1).getSnapshotVersion());
+    }
+
+    @Test
+    void inOrderBatchDebitCannotSpendALaterCredit() {
+        accountRepository.save(new Account(1L, UPI_ID, "9100000001", new BigDecimal("10.00")));
+        BatchBalanceUpdateEntry debit = new BatchBalanceUpdateEntry(UPI_ID, new BigDecimal("60.00"), "DEBIT");
+        BatchBalanceUpdateEntry credit = new BatchBalanceUpdateEntry(UPI_ID, new BigDecimal("100.00"), "CREDIT");
+        BatchBalanceUpdateEntry secondDebit = new BatchBalanceUpdateEntry(UPI_ID, new BigDecimal("60.00"), "DEBIT");
+
+        List<BatchBalanceUpdateResult> results = accountService.updateBalancesInOrder(List.of(debit, credit, secondDebit));
+
+        // Queued before the credit, the first debit fails; the one after it spends it
+        assertEquals("INSUFFICIENT_BALANCE", results.get(0).getError());
+        assertEquals(BatchBalanceUpdateResult.SUCCESS, results.get(1).getStatus());
+        assertEquals(0, new BigDecimal("110.00").compareTo(results.get(1).getBalance()));
+        assertEquals(BatchBalanceUpdateResult.SUCCESS, results.get(2).getStatus());
+        assertEquals(0, new BigDecimal("50.00").compareTo(results.get(2).getBalance()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+        assertEquals(2, entries().size());
+    }
+
+    private List<AccountEntry> entries() {
+        return accountEntryRepository.findByUpiIdOrderByIdDesc(UPI_ID, PageRequest.of(0, 100));
+    }
+}
@@ -0,0 +1,203 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Contention benchmark for balance updates on a single hot account.
+ * Compares the old read-modify-write debit path (find, add in Java, save) against
+ * the guarded single-statement debit used by AccountService, and against
+ * journaled credits which do not touch the account row at all. A second run measures
+ * a hot merchant receiving credits and refund debits while compaction folds in the
+ * background, for increasing numbers of balance slots. A third run compares direct updates
+ * with the single-writer mailboxes, which group-commit queued updates per partition.
+ *
+ * Run with: mvn test -Dtest=BalanceContentionBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.mailbox.enabled=true"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BalanceContentionBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceContentionBenchmarkTest.class);
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 500;
+    private static final long OPERATIONS = (long) THREADS * OPERATIONS_PER_THREAD;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(OPERATIONS);
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private BalanceMailboxes balanceMailboxes;
+    
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void compareReadModifyWriteWithGuardedUpdate() throws InterruptedException {
+        String legacyUpiId = "9000000001@upi";
+        String guardedUpiId = "9000000002@upi";
+        String journalUpiId = "9000000003@upi";
+        accountRepository.save(new Account(1L, legacyUpiId, "9000000001", INITIAL_BALANCE));
+        accountRepository.save(new Account(2L, guardedUpiId, "9000000002", INITIAL_BALANCE));
+        accountRepository.save(new Account(3L, journalUpiId, "9000000003", INITIAL_BALANCE));
+
+        Result legacy = run(upiId -> transactionTemplate.executeWithoutResult(status -> {
+            // Previous implementation of updateBalanceByUpiId
+            Account account = accountRepository.findByUpiId(upiId).orElseThrow();
+            account.setBalance(account.getBalance().subtract(BigDecimal.ONE));
+            accountRepository.save(account);
+        }), legacyUpiId);
+
+        Result guarded = run(upiId -> accountService.updateBalanceByUpiId(upiId, BigDecimal.ONE.negate()), guardedUpiId);
+
+        Result journal = run(upiId -> accountService.updateBalanceByUpiId(upiId, BigDecimal.ONE), journalUpiId);
+
+        logger.info("read-modify-write debit: {} ops/s, {} failed, {} lost updates",
+                    legacy.throughput(), legacy.failures, legacy.lostDebits());
+        logger.info("guarded debit:           {} ops/s, {} failed, {} lost updates",
+                    guarded.throughput(), guarded.failures, guarded.lostDebits());
+        logger.info("journaled credit:        {} ops/s, {} failed, {} lost updates",
+                    journal.throughput(), journal.failures, journal.lostCredits());
+
+        assertEquals(0, guarded.lostDebits(), "guarded debit must never lose a write");
+        assertEquals(0, journal.lostCredits(), "journaled credit must never lose a write");
+    }
+
+    @Test
+    void compareBalanceSlotCounts() throws InterruptedException {
+        int[] slotCounts = {0, 2, 4, 8};
+        for (int i = 0; i < slotCounts.length; i++) {
+            String upiId = "90000001" + (10 + i) + "@upi";
+            accountRepository.save(new Account(10L + i, upiId, "90000001" + (10 + i), INITIAL_BALANCE));
+            accountService.changeBalanceSlots(upiId, slotCounts[i]);
+
+            // Every fourth operation is a refund debit; the rest are credits
+            AtomicInteger sequence = new AtomicInteger();
+            AtomicBoolean folding = new AtomicBoolean(true);
+            Thread compaction = new Thread(() -> {
+                while (folding.get()) {
+                    ledgerService.fold(upiId);
+                }
+            });
+            compaction.start();
+            Result result = run(id -> accountService.updateBalanceByUpiId(id, 
+                    sequence.incrementAndGet() % 4 == 0 ? BigDecimal.ONE.negate() : BigDecimal.ONE), upiId);
+            folding.set(false);
+            compaction.join();
+
+            long debits = sequence.get() / 4;
+            long expectedBalance = OPERATIONS + (sequence.get() - debits) - debits;
+            logger.info("{} balance slots: {} ops/s, {} failed", slotCounts[i], result.throughput(), result.failures);
+            assertEquals(0, result.failures, "hot merchant updates must not fail");
+            assertEquals(expectedBalance, result.finalBalance, "sharded balance must not lose a write");
+        }
+    }
+
+    @Test
+    void compareMailboxWithDirectUpdates() throws InterruptedException {
+        String directUpiId = "9000000201@upi";
+        String mailboxUpiId = "9000000202@upi";
+        accountRepository.save(new Account(201L, directUpiId, "9000000201", INITIAL_BALANCE));
+        accountRepository.save(new Account(202L, mailboxUpiId, "9000000202", INITIAL_BALANCE));
+        
+        Result direct = run(upiId -> accountService.updateBalanceByUpiId(upiId, BigDecimal.ONE.negate()), directUpiId);
+        
+        Result mailbox = run(upiId -> balanceMailboxes.update(upiId, BigDecimal.ONE.negate(), null, null, 
+                                                              "upi:" + upiId + ":-1"), mailboxUpiId);
+        
+        logger.info("direct debit:  {} ops/s, {} failed, {} lost updates",
+                    direct.throughput(), direct.failures, direct.lostDebits());
+        logger.info("mailbox debit: {} ops/s, {} failed, {} lost updates",
+                    mailbox.throughput(), mailbox.failures, mailbox.lostDebits());
+        
+        assertEquals(0, mailbox.failures, "mailbox debits within the balance must not fail");
+        assertEquals(0, mailbox.lostDebits(), "mailbox debit must never lose a write");
+    }
+    
+    private Result run(Consumer<String> operation, String upiId) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        operation.accept(upiId);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long finalBalance = accountRepository.getBalanceByUpiId(upiId).orElseThrow().longValue();
+        return new Result(OPERATIONS, elapsedNanos, failures.get(), finalBalance);
+    }
+
+    private record Result(long operations, long elapsedNanos, int failures, long finalBalance) {
+        long throughput() {
+            return operations * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+        }
+
+        long lostDebits() {
+            return (operations - failures) - (OPERATIONS - finalBalance);
+        }
+
+        long lostCredits() {
+            return (operations - failures) - (finalBalance - OPERATIONS);
+        }
+    }
+}
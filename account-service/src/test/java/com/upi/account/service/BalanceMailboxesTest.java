@@ -0,0 +1,85 @@
+package com.upi.account.service;
+
+import com.upi.account.dto.BalanceResponse;
+import com.upi.account.exception.BalanceUpdateTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceMailboxesTest {
+
+    private static final String UPI_ID = "9500000001@upi";
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceMailboxes balanceMailboxes;
+
+    @BeforeEach
+    void setUp() {
+        balanceMailboxes = new BalanceMailboxes(accountService, idempotencyStore, transactionManager,
+                                                new SimpleMeterRegistry(), true, 1, 256, 100, 200);
+        balanceMailboxes.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        balanceMailboxes.stop();
+    }
+
+    @Test
+    void failedBatchIsAppliedDirectly() {
+        // The batch transaction fails, e.g. because a key was recorded concurrently
+        when(accountService.updateBalancesInOrder(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyStore.execute(any(), eq("upi:" + UPI_ID + ":-10"), any())).thenAnswer(
+                invocation -> invocation.<Supplier<BalanceResponse>>getArgument(2).get());
+        when(accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("-10"), "TXN1")).thenReturn(new BigDecimal("90"));
+
+        BalanceResponse response = balanceMailboxes.update(UPI_ID, new BigDecimal("-10"), "TXN1", null,
+                                                           "upi:" + UPI_ID + ":-10");
+
+        assertEquals(new BigDecimal("90"), response.getBalance());
+        verify(accountService).updateBalanceByUpiId(UPI_ID, new BigDecimal("-10"), "TXN1");
+    }
+
+    @Test
+    void waitingPastTheTimeoutFails() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountService.updateBalancesInOrder(anyList())).thenAnswer(invocation -> {
+            release.await();
+            throw new DataIntegrityViolationException("released");
+        });
+        when(idempotencyStore.execute(any(), any(), any())).thenReturn(new BalanceResponse(BigDecimal.ONE, UPI_ID));
+
+        try {
+            assertThrows(BalanceUpdateTimeoutException.class,
+                    () -> balanceMailboxes.update(UPI_ID, BigDecimal.ONE, "TXN1", null, "upi:" + UPI_ID + ":1"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
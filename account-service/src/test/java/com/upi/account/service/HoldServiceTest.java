@@ -0,0 +1,182 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountHold;
+import com.upi.account.enums.HoldStatus;
+import com.upi.account.exception.HoldStateException;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountHoldRepository;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hold transitions: only one of capture, release and expiry may take effect, repeated
+ * transitions are no-ops, and a hold being captured never expires. The scheduled expiry
+ * run is pushed out so the tests drive it themselves.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000",
+    "account.holds.expiry-interval-ms=3600000"
+})
+class HoldServiceTest {
+
+    private static final String UPI_ID = "9300000001@upi";
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private HoldExpiryJob holdExpiryJob;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEntryRepository accountEntryRepository;
+
+    @Autowired
+    private AccountHoldRepository accountHoldRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountHoldRepository.deleteAll();
+        accountEntryRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(new Account(1L, UPI_ID, "9300000001", INITIAL_BALANCE));
+    }
+
+    @Test
+    void captureRacingExpiryResolvesEachHoldOnce() throws Exception {
+        int holds = 20;
+        List<Long> holdIds = new ArrayList<>();
+        for (int i = 0; i < holds; i++) {
+            holdIds.add(holdService.placeHold(UPI_ID, BigDecimal.TEN, "HOLD" + i, 60L).getId());
+        }
+        expireAll();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<Integer> captures = executor.submit(() -> {
+            start.await();
+            int captured = 0;
+            for (Long holdId : holdIds) {
+                try {
+                    holdService.capture(holdId);
+                    captured++;
+                } catch (HoldStateException e) {
+                    // Expired first
+                }
+            }
+            return captured;
+        });
+        Future<?> expiry = executor.submit(() -> {
+            start.await();
+            holdExpiryJob.expireHolds();
+            return null;
+        });
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        expiry.get();
+
+        int captured = captures.get();
+        int expired = 0;
+        for (Long holdId : holdIds) {
+            HoldStatus status = holdService.getHold(holdId).getStatus();
+            assertTrue(status == HoldStatus.CAPTURED || status == HoldStatus.EXPIRED, "unresolved: " + status);
+            if (status == HoldStatus.EXPIRED) {
+                expired++;
+            }
+        }
+        assertEquals(holds, captured + expired);
+        // Only expired holds are refunded
+        assertBalance(INITIAL_BALANCE.subtract(BigDecimal.TEN.multiply(BigDecimal.valueOf(captured))));
+    }
+
+    @Test
+    void capturingHoldDoesNotExpire() {
+        AccountHold hold = holdService.placeHold(UPI_ID, BigDecimal.TEN, "HOLD1", 60L);
+        assertEquals(HoldStatus.CAPTURING, holdService.beginCapture(hold.getId()).getStatus());
+        // Repeating it is a no-op
+        assertEquals(HoldStatus.CAPTURING, holdService.beginCapture(hold.getId()).getStatus());
+        expireAll();
+
+        holdExpiryJob.expireHolds();
+        assertFalse(holdService.expire(hold.getId()));
+
+        assertEquals(HoldStatus.CAPTURING, holdService.getHold(hold.getId()).getStatus());
+        assertBalance(new BigDecimal("990.00"));
+        assertEquals(HoldStatus.CAPTURED, holdService.capture(hold.getId()).getStatus());
+        assertEquals(HoldStatus.CAPTURED, holdService.beginCapture(hold.getId()).getStatus());
+    }
+
+    @Test
+    void expiredHoldCannotBeCaptured() {
+        AccountHold hold = holdService.placeHold(UPI_ID, BigDecimal.TEN, "HOLD1", 60L);
+        expireAll();
+        holdExpiryJob.expireHolds();
+
+        assertEquals(HoldStatus.EXPIRED, holdService.getHold(hold.getId()).getStatus());
+        assertThrows(HoldStateException.class, () -> holdService.beginCapture(hold.getId()));
+        assertThrows(HoldStateException.class, () -> holdService.capture(hold.getId()));
+        assertBalance(INITIAL_BALANCE);
+    }
+
+    @Test
+    void releaseAfterCaptureIsRejected() {
+        AccountHold hold = holdService.placeHold(UPI_ID, BigDecimal.TEN, "HOLD1", 60L);
+        holdService.capture(hold.getId());
+
+        assertThrows(HoldStateException.class, () -> holdService.release(hold.getId()));
+
+        assertEquals(HoldStatus.CAPTURED, holdService.getHold(hold.getId()).getStatus());
+        assertBalance(new BigDecimal("990.00"));
+    }
+
+    @Test
+    void doubleReleaseRefundsOnce() {
+        AccountHold hold = holdService.placeHold(UPI_ID, BigDecimal.TEN, "HOLD1", 60L);
+        holdService.beginCapture(hold.getId());
+
+        assertEquals(HoldStatus.RELEASED, holdService.release(hold.getId()).getStatus());
+        assertEquals(HoldStatus.RELEASED, holdService.release(hold.getId()).getStatus());
+
+        assertThrows(HoldStateException.class, () -> holdService.capture(hold.getId()));
+        assertEquals(2, accountEntryRepository.findByTransactionRefOrderByIdAsc("HOLD1").size());
+        assertBalance(INITIAL_BALANCE);
+    }
+
+    private void expireAll() {
+        jdbcTemplate.update("UPDATE account_holds SET expires_at = DATEADD('SECOND', -1, CURRENT_TIMESTAMP)");
+    }
+
+    private void assertBalance(BigDecimal expected) {
+        BigDecimal balance = accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow();
+        assertEquals(0, expected.compareTo(balance), "balance " + balance);
+    }
+}
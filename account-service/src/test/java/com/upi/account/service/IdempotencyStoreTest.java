@@ -0,0 +1,137 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountRepository;
+import com.upi.account.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Balance updates repeated with the same Idempotency-Key are replayed until the key
+ * expires, whether the record comes from the cache or the idempotency_keys table
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000"
+})
+class IdempotencyStoreTest {
+
+    private static final String UPI_ID = "9400000001@upi";
+    private static final String FINGERPRINT = "upi:" + UPI_ID + ":10";
+
+    // The store's cache outlives each test, so every test takes a fresh key
+    private final String key = "key-" + UUID.randomUUID();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEntryRepository accountEntryRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyRecordRepository.deleteAll();
+        accountEntryRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(new Account(1L, UPI_ID, "9400000001", new BigDecimal("100.00")));
+    }
+
+    @Test
+    void repeatedRequestIsReplayed() throws Exception {
+        credit("10").andExpect(status().isOk()).andExpect(jsonPath("$.balance").value(110.0));
+        credit("10").andExpect(status().isOk()).andExpect(jsonPath("$.balance").value(110.0));
+
+        assertEquals(1, journalSize());
+        assertBalance("110.00");
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() throws Exception {
+        credit("10").andExpect(status().isOk());
+
+        credit("20")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").value("IDEMPOTENCY_KEY_REUSED"));
+
+        assertEquals(1, journalSize());
+        assertBalance("110.00");
+    }
+
+    @Test
+    void expiredRowIsNotReplayed() throws Exception {
+        insertRecord(LocalDateTime.now().minusSeconds(1));
+
+        credit("10").andExpect(status().isOk()).andExpect(jsonPath("$.balance").value(110.0));
+
+        assertEquals(1, journalSize());
+        assertEquals(1, idempotencyRecordRepository.count());
+    }
+
+    @Test
+    void rowLoadedFromTheTableIsCachedOnlyUntilItExpires() throws Exception {
+        insertRecord(LocalDateTime.now().plusSeconds(1));
+
+        // Loaded from the table and cached: replayed without touching the balance
+        credit("10").andExpect(status().isOk()).andExpect(jsonPath("$.balance").value(999.0));
+        assertEquals(0, journalSize());
+
+        Thread.sleep(1500);
+        credit("10").andExpect(status().isOk()).andExpect(jsonPath("$.balance").value(110.0));
+        assertEquals(1, journalSize());
+    }
+
+    private ResultActions credit(String amount) throws Exception {
+        return mockMvc.perform(put("/api/accounts/upi/{upiId}/balance", UPI_ID)
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": " + amount + ", \"operation\": \"CREDIT\"}"));
+    }
+
+    private void insertRecord(LocalDateTime expiresAt) {
+        // Written by another instance, so this instance has never cached it
+        jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, fingerprint, upi_id, balance, " +
+                            "created_at, expires_at) VALUES (?, ?, ?, 999.00, ?, ?)",
+                            key, FINGERPRINT, UPI_ID, expiresAt.minusDays(1), expiresAt);
+    }
+
+    private int journalSize() {
+        return accountEntryRepository.findByUpiIdOrderByIdDesc(UPI_ID, PageRequest.of(0, 10)).size();
+    }
+
+    private void assertBalance(String expected) {
+        assertEquals(0, new BigDecimal(expected).compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+    }
+}
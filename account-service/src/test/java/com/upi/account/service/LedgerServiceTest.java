@@ -0,0 +1,157 @@
+package com.upi.account.service;
+
+import com.upi.account.entity.Account;
+import com.upi.account.entity.AccountBalanceSlot;
+import com.upi.account.entity.AccountEntry;
+import com.upi.account.exception.InsufficientBalanceException;
+import com.upi.account.repository.AccountBalanceSlotRepository;
+import com.upi.account.repository.AccountEntryRepository;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sharded balances: splitting the snapshot across slots, debits that no single slot can
+ * cover, and merging the slots back into the account row
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000"
+})
+class LedgerServiceTest {
+
+    private static final String UPI_ID = "9200000001@upi";
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEntryRepository accountEntryRepository;
+
+    @Autowired
+    private AccountBalanceSlotRepository accountBalanceSlotRepository;
+
+    @BeforeEach
+    void setUp() {
+        accountEntryRepository.deleteAll();
+        accountBalanceSlotRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(new Account(1L, UPI_ID, "9200000001", new BigDecimal("100.01")));
+    }
+
+    @Test
+    void splitPutsTheRemainderOnSlotZero() {
+        assertEquals(4, ledgerService.changeBalanceSlots(UPI_ID, 4));
+
+        List<AccountBalanceSlot> slots = slots();
+        assertEquals(4, slots.size());
+        assertEquals(0, new BigDecimal("25.01").compareTo(slots.get(0).getBalance()));
+        for (int slotNo = 1; slotNo < 4; slotNo++) {
+            assertEquals(0, new BigDecimal("25.00").compareTo(slots.get(slotNo).getBalance()));
+        }
+        Account account = accountRepository.findByUpiId(UPI_ID).orElseThrow();
+        assertEquals(4, account.getBalanceSlots());
+        assertEquals(0, BigDecimal.ZERO.compareTo(account.getBalance()));
+        assertEquals(0, new BigDecimal("100.01").compareTo(account.getCurrentBalance()));
+    }
+
+    @Test
+    void debitNoSingleSlotCoversBorrowsAcrossSlots() {
+        ledgerService.changeBalanceSlots(UPI_ID, 4);
+
+        ledgerService.applyDebit(UPI_ID, new BigDecimal("-60.00"), "TXN1");
+
+        // Slots are locked and drained in slot order
+        List<AccountEntry> entries = accountEntryRepository.findByTransactionRefOrderByIdAsc("TXN1");
+        assertEquals(3, entries.size());
+        BigDecimal debited = BigDecimal.ZERO;
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i, entries.get(i).getSlotNo());
+            assertEquals(AccountEntry.APPLIED_IN_PLACE, entries.get(i).getSnapshotVersion());
+            debited = debited.add(entries.get(i).getAmount());
+        }
+        assertEquals(0, new BigDecimal("-60.00").compareTo(debited));
+
+        List<AccountBalanceSlot> slots = slots();
+        assertEquals(0, BigDecimal.ZERO.compareTo(slots.get(0).getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(slots.get(1).getBalance()));
+        assertEquals(0, new BigDecimal("15.01").compareTo(slots.get(2).getBalance()));
+        assertEquals(0, new BigDecimal("25.00").compareTo(slots.get(3).getBalance()));
+        assertEquals(0, new BigDecimal("40.01").compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+    }
+
+    @Test
+    void debitCoveredOnlyByUnfoldedSlotCreditsFoldsThemFirst() {
+        ledgerService.changeBalanceSlots(UPI_ID, 4);
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("20.00"), "TXN1");
+
+        // No slot holds more than 45.01 even with the credit, and the total only fits once it is folded
+        ledgerService.applyDebit(UPI_ID, new BigDecimal("-120.01"), "TXN2");
+
+        for (AccountBalanceSlot slot : slots()) {
+            assertEquals(0, BigDecimal.ZERO.compareTo(slot.getBalance()));
+        }
+        AccountEntry credit = accountEntryRepository.findByTransactionRefOrderByIdAsc("TXN1").get(0);
+        assertNotNull(credit.getSnapshotVersion());
+        assertNotEquals(AccountEntry.APPLIED_IN_PLACE, credit.getSnapshotVersion());
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountRepository.getBalanceByUpiId(UPI_ID).orElseThrow()));
+    }
+
+    @Test
+    void debitBeyondTheTotalOfAllSlotsIsRejected() {
+        ledgerService.changeBalanceSlots(UPI_ID, 4);
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("-100.02"), "TXN1"));
+
+        assertTrue(accountEntryRepository.findByTransactionRefOrderByIdAsc("TXN1").isEmpty());
+        BigDecimal total = slots().stream().map(AccountBalanceSlot::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("100.01").compareTo(total));
+    }
+
+    @Test
+    void mergingFoldsSlotsAndTheirCreditsBackIntoTheBalance() {
+        ledgerService.changeBalanceSlots(UPI_ID, 4);
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("10.00"), "TXN1");
+        ledgerService.fold(UPI_ID);
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("5.00"), "TXN2");
+        accountService.updateBalanceByUpiId(UPI_ID, new BigDecimal("-30.00"), "TXN3");
+        long highestSlotVersion = slots().stream().mapToLong(AccountBalanceSlot::getSnapshotVersion).max().orElseThrow();
+
+        assertEquals(0, ledgerService.changeBalanceSlots(UPI_ID, 1));
+
+        assertTrue(slots().isEmpty());
+        Account account = accountRepository.findByUpiId(UPI_ID).orElseThrow();
+        assertEquals(0, account.getBalanceSlots());
+        assertEquals(0, new BigDecimal("85.01").compareTo(account.getBalance()));
+        assertEquals(0, new BigDecimal("85.01").compareTo(account.getCurrentBalance()));
+        assertTrue(account.getSnapshotVersion() > highestSlotVersion);
+        assertTrue(ledgerService.findUpiIdsToFold(10).isEmpty());
+
+        // Unsharded again: debits go straight to the account row
+        ledgerService.applyDebit(UPI_ID, new BigDecimal("-85.01"), "TXN4");
+        assertNull(accountEntryRepository.findByTransactionRefOrderByIdAsc("TXN4").get(0).getSlotNo());
+    }
+
+    private List<AccountBalanceSlot> slots() {
+        return accountBalanceSlotRepository.findByUpiIdOrderBySlotNoAsc(UPI_ID);
+    }
+}
@@ -0,0 +1,85 @@
+package com.upi.account.service;
+
+import com.upi.account.client.UserServiceClient;
+import com.upi.account.entity.Account;
+import com.upi.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * A UPI ID missing from the Bloom filter is reported missing without a database query
+ * until a refresh picks it up. Accounts saved straight through the repository stand in
+ * for accounts created on another instance. The scheduled refresh is pushed out so the
+ * tests drive it themselves.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.account=INFO",
+    "logging.level.org.springframework.web=INFO",
+    "account.ledger.compaction-interval-ms=3600000",
+    "account.upi-filter.refresh-interval-ms=3600000"
+})
+class UpiIdBloomFilterTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UpiIdBloomFilter upiIdBloomFilter;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @MockBean
+    private UserServiceClient userServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void accountCreatedElsewhereIsFoundAfterRefresh() {
+        // The filter outlives each test, so every test uses its own UPI IDs
+        String upiId = "9600000001@upi";
+        accountRepository.save(new Account(1L, upiId, "9600000001", BigDecimal.ZERO));
+
+        assertFalse(accountService.validateUpiId(upiId));
+        assertEquals(Map.of(upiId, false), accountService.validateUpiIds(List.of(upiId)));
+
+        upiIdBloomFilter.refresh();
+
+        assertTrue(accountService.validateUpiId(upiId));
+        assertEquals(Map.of(upiId, true), accountService.validateUpiIds(List.of(upiId)));
+    }
+
+    @Test
+    void takenUpiIdMissingFromTheFilterIsLearnedOnCreate() {
+        String upiId = "9600000002@upi";
+        accountRepository.save(new Account(1L, upiId, "9600000002", BigDecimal.ZERO));
+        UserServiceClient.UserDetails user = new UserServiceClient.UserDetails();
+        user.setId(2L);
+        user.setPhone("9600000002");
+        when(userServiceClient.validateUserExists(2L)).thenReturn(true);
+        when(userServiceClient.getUserById(2L)).thenReturn(user);
+
+        // The unique constraint catches the ID the filter did not know about
+        assertThrows(IllegalArgumentException.class, () -> accountService.createAccount(2L, BigDecimal.ZERO));
+        assertTrue(upiIdBloomFilter.mightContain(upiId));
+
+        assertEquals("96000000021@upi", accountService.createAccount(2L, BigDecimal.ZERO).getUpiId());
+    }
+}
@@ -1,30 +1,45 @@
 package com.upi.transaction.client;
 
+import com.upi.common.ownership.AccountOwnerRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 public class AccountServiceClient {
     
     private static final Logger logger = LoggerFactory.getLogger(AccountServiceClient.class);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String BALANCE_PATH = "/api/accounts/upi/{upiId}/balance";
+    private static final String TRANSFER_PATH = "/api/accounts/transfer";
+    private static final String BATCH_PATH = "/api/accounts/balances/batch";
     
     private final WebClient webClient;
+    private final WebClient ownerWebClient;
+    private final AccountOwnerRouter ownerRouter;
     private final String accountServiceBaseUrl;
     private final int timeout;
     private final int maxRetries;
     private final Duration retryDelay;
     
     public AccountServiceClient(WebClient.Builder webClientBuilder,
+                               AccountOwnerRouter ownerRouter,
                                @Value("${account-service.base-url}") String accountServiceBaseUrl,
                                @Value("${account-service.timeout:5000}") int timeout,
                                @Value("${account-service.max-retries:3}") int maxRetries,
@@ -36,6 +51,9 @@ public class AccountServiceClient {
         this.webClient = webClientBuilder
                 .baseUrl(accountServiceBaseUrl)
                 .build();
+        // Requests routed to a UPI ID's owner target one specific instance, so they bypass the load balancer
+        this.ownerWebClient = WebClient.builder().build();
+        this.ownerRouter = ownerRouter;
         
         logger.info("AccountServiceClient initialized with baseUrl: {}, timeout: {}ms, maxRetries: {}", 
                    accountServiceBaseUrl, timeout, maxRetries);
@@ -47,16 +65,21 @@ public class AccountServiceClient {
     public Mono<BalanceResponse> getBalance(String upiId) {
         logger.debug("Getting balance for UPI ID: {}", upiId);
         
-        return webClient.get()
-                .uri("/api/accounts/upi/{upiId}/balance", upiId)
-                .retrieve()
-                .onStatus(HttpStatus.NOT_FOUND::equals, 
-                         response -> Mono.error(new AccountNotFoundException("Account not found for UPI ID: " + upiId)))
-                .onStatus(status -> status.is4xxClientError(),
-                         response -> Mono.error(new AccountServiceException("Client error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
-                .onStatus(status -> status.is5xxServerError(),
-                         response -> Mono.error(new AccountServiceException("Server error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
-                .bodyToMono(BalanceResponse.class)
+        return Mono.defer(() -> {
+                    Optional<URI> owner = ownerRouter.ownerOf(upiId);
+                    WebClient.RequestHeadersSpec<?> request = owner
+                            .<WebClient.RequestHeadersSpec<?>>map(uri -> ownerWebClient.get().uri(uri + BALANCE_PATH, upiId))
+                            .orElseGet(() -> webClient.get().uri(BALANCE_PATH, upiId));
+                    return request.retrieve()
+                            .onStatus(HttpStatus.NOT_FOUND::equals, 
+                                     response -> Mono.error(new AccountNotFoundException("Account not found for UPI ID: " + upiId)))
+                            .onStatus(status -> status.is4xxClientError(),
+                                     response -> Mono.error(new AccountServiceException("Client error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
+                            .onStatus(status -> status.is5xxServerError(),
+                                     response -> Mono.error(new AccountServiceException("Server error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
+                            .bodyToMono(BalanceResponse.class)
+                            .doOnError(error -> reportIfUnreachable(owner, error));
+                })
                 .timeout(Duration.ofMillis(timeout))
                 .retryWhen(Retry.backoff(maxRetries, retryDelay)
                           .filter(this::isRetryableException)
@@ -68,26 +91,46 @@ public class AccountServiceClient {
     }
     
     /**
-     * Update account balance by UPI ID with retry and error handling
+     * Update account balance by UPI ID with retry and error handling.
+     * Every attempt carries the same Idempotency-Key, so a retry after a timed-out
+     * update that actually committed is not applied twice. Each attempt is sent to the
+     * UPI ID's owning instance when owner routing is enabled.
      */
     public Mono<BalanceResponse> updateBalance(String upiId, BigDecimal amount, String operation) {
+        return updateBalance(upiId, amount, operation, null, UUID.randomUUID().toString());
+    }
+    
+    /**
+     * Update account balance by UPI ID, recording the transaction reference in the account
+     * journal. The caller chooses the Idempotency-Key, so the update can be safely repeated
+     * by a later run that does not know whether an earlier one succeeded.
+     */
+    public Mono<BalanceResponse> updateBalance(String upiId, BigDecimal amount, String operation, 
+                                               String transactionRef, String idempotencyKey) {
         BalanceUpdateRequest request = new BalanceUpdateRequest(amount, operation);
+        request.setTransactionRef(transactionRef);
         
         logger.debug("Updating balance for UPI ID: {}, amount: {}, operation: {}", upiId, amount, operation);
         
-        return webClient.put()
-                .uri("/api/accounts/upi/{upiId}/balance", upiId)
-                .bodyValue(request)
-                .retrieve()
-                .onStatus(HttpStatus.NOT_FOUND::equals, 
-                         response -> Mono.error(new AccountNotFoundException("Account not found for UPI ID: " + upiId)))
-                .onStatus(HttpStatus.BAD_REQUEST::equals,
-                         response -> Mono.error(new InsufficientBalanceException("Insufficient balance for UPI ID: " + upiId)))
-                .onStatus(status -> status.is4xxClientError(),
-                         response -> Mono.error(new AccountServiceException("Client error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
-                .onStatus(status -> status.is5xxServerError(),
-                         response -> Mono.error(new AccountServiceException("Server error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
-                .bodyToMono(BalanceResponse.class)
+        return Mono.defer(() -> {
+                    Optional<URI> owner = ownerRouter.ownerOf(upiId);
+                    WebClient.RequestBodySpec spec = owner
+                            .map(uri -> ownerWebClient.put().uri(uri + BALANCE_PATH, upiId))
+                            .orElseGet(() -> webClient.put().uri(BALANCE_PATH, upiId));
+                    return spec.header(IDEMPOTENCY_KEY, idempotencyKey)
+                            .bodyValue(request)
+                            .retrieve()
+                            .onStatus(HttpStatus.NOT_FOUND::equals, 
+                                     response -> Mono.error(new AccountNotFoundException("Account not found for UPI ID: " + upiId)))
+                            .onStatus(HttpStatus.BAD_REQUEST::equals,
+                                     response -> Mono.error(new InsufficientBalanceException("Insufficient balance for UPI ID: " + upiId)))
+                            .onStatus(status -> status.is4xxClientError(),
+                                     response -> Mono.error(new AccountServiceException("Client error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
+                            .onStatus(status -> status.is5xxServerError(),
+                                     response -> Mono.error(new AccountServiceException("Server error for UPI ID: " + upiId + ", Status: " + response.statusCode())))
+                            .bodyToMono(BalanceResponse.class)
+                            .doOnError(error -> reportIfUnreachable(owner, error));
+                })
                 .timeout(Duration.ofMillis(timeout))
                 .retryWhen(Retry.backoff(maxRetries, retryDelay)
                           .filter(this::isRetryableException)
@@ -99,6 +142,107 @@ public class AccountServiceClient {
                                                 upiId, amount, operation, error));
     }
     
+    /**
+     * Transfer funds between two UPI IDs in a single Account Service call, sent to the
+     * sender's owning instance when owner routing is enabled.
+     * The debit and credit commit together, so no compensation is needed on failure.
+     * Account Service does not deduplicate transfers, so the call is retried only when the
+     * connection could not be made: a transfer that timed out or failed with a server error
+     * may have committed, and fails with an AccountServiceException for
+     * PendingTransactionRecovery to settle from the journal entries of its reference.
+     */
+    public Mono<TransferResponse> transfer(String senderUpiId, String receiverUpiId, BigDecimal amount, 
+                                           String transactionRef) {
+        TransferRequest request = new TransferRequest(senderUpiId, receiverUpiId, amount, transactionRef);
+        
+        logger.debug("Transferring {} from {} to {}", amount, senderUpiId, receiverUpiId);
+        
+        return Mono.defer(() -> {
+                    Optional<URI> owner = ownerRouter.ownerOf(senderUpiId);
+                    WebClient.RequestBodySpec spec = owner
+                            .map(uri -> ownerWebClient.post().uri(uri + TRANSFER_PATH))
+                            .orElseGet(() -> webClient.post().uri(TRANSFER_PATH));
+                    return spec.bodyValue(request)
+                            .retrieve()
+                            .onStatus(HttpStatus.NOT_FOUND::equals, 
+                                     response -> Mono.error(new AccountNotFoundException("Account not found for transfer " + senderUpiId + " -> " + receiverUpiId)))
+                            .onStatus(HttpStatus.BAD_REQUEST::equals,
+                                     response -> Mono.error(new InsufficientBalanceException("Insufficient balance for UPI ID: " + senderUpiId)))
+                            .onStatus(status -> status.is4xxClientError(),
+                                     response -> Mono.error(new AccountServiceException("Client error for transfer from UPI ID: " + senderUpiId + ", Status: " + response.statusCode())))
+                            .onStatus(status -> status.is5xxServerError(),
+                                     response -> Mono.error(new AccountServiceException("Server error for transfer from UPI ID: " + senderUpiId + ", Status: " + response.statusCode())))
+                            .bodyToMono(TransferResponse.class)
+                            .doOnError(error -> reportIfUnreachable(owner, error));
+                })
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetries, retryDelay)
+                          .filter(this::isConnectFailure)
+                          .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> 
+                              new AccountServiceException("Failed to transfer after " + maxRetries + " retries from UPI ID: " + senderUpiId, 
+                                                         retrySignal.failure())))
+                .onErrorMap(error -> !(error instanceof AccountNotFoundException || error instanceof InsufficientBalanceException ||
+                                       error instanceof AccountServiceException),
+                            error -> new AccountServiceException("Outcome of transfer " + transactionRef + " unknown", error))
+                .doOnSuccess(response -> logger.debug("Successfully transferred {} from {} to {}", amount, senderUpiId, receiverUpiId))
+                .doOnError(error -> logger.error("Failed to transfer {} from {} to {}", 
+                                                amount, senderUpiId, receiverUpiId, error));
+    }
+    
+    /**
+     * Apply a batch of balance updates all together or not at all. A rejected batch fails with
+     * the exception of its first rejected entry and changes nothing. The batch is not retried,
+     * since a repeated batch would be applied twice: a batch whose outcome is unknown fails
+     * with an AccountServiceException, and the journal entries of its references tell.
+     * A batch that debits a single UPI ID is sent to that UPI ID's owning instance when owner
+     * routing is enabled.
+     */
+    public Mono<Void> updateBalancesAtomically(List<BatchBalanceEntry> entries) {
+        logger.debug("Applying atomic balance batch of {} entries", entries.size());
+        
+        Optional<URI> owner = debitedUpiId(entries).flatMap(ownerRouter::ownerOf);
+        WebClient.RequestBodySpec spec = owner
+                .map(uri -> ownerWebClient.put().uri(uri + BATCH_PATH))
+                .orElseGet(() -> webClient.put().uri(BATCH_PATH));
+        return spec.bodyValue(new BatchBalanceRequest(entries, true))
+                .retrieve()
+                .onStatus(HttpStatus.NOT_FOUND::equals, 
+                         response -> Mono.error(new AccountNotFoundException("Account not found in balance batch of " + entries.size() + " entries")))
+                .onStatus(HttpStatus.BAD_REQUEST::equals,
+                         response -> Mono.error(new InsufficientBalanceException("Balance batch of " + entries.size() + " entries rejected")))
+                .onStatus(status -> status.isError(),
+                         response -> Mono.error(new AccountServiceException("Failed to apply balance batch of " + entries.size() + " entries, Status: " + response.statusCode())))
+                .toBodilessEntity()
+                .doOnError(error -> reportIfUnreachable(owner, error))
+                .timeout(Duration.ofMillis(timeout))
+                .onErrorMap(error -> !(error instanceof AccountNotFoundException || error instanceof InsufficientBalanceException ||
+                                       error instanceof AccountServiceException),
+                            error -> new AccountServiceException("Outcome of balance batch of " + entries.size() + " entries unknown", error))
+                .then()
+                .doOnError(error -> logger.error("Failed to apply balance batch of {} entries", entries.size(), error));
+    }
+    
+    /**
+     * Get the account journal entries written for a transaction reference, on any account
+     */
+    public Mono<List<AccountEntry>> getEntriesByTransactionRef(String transactionRef) {
+        logger.debug("Getting account entries for transaction: {}", transactionRef);
+        
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/accounts/entries")
+                        .queryParam("transactionRef", transactionRef)
+                        .build())
+                .retrieve()
+                .onStatus(status -> status.isError(),
+                         response -> Mono.error(new AccountServiceException("Failed to get entries for transaction: " + transactionRef + ", Status: " + response.statusCode())))
+                .bodyToFlux(AccountEntry.class)
+                .collectList()
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetries, retryDelay)
+                          .filter(this::isRetryableException))
+                .doOnError(error -> logger.error("Failed to get account entries for transaction: {}", transactionRef, error));
+    }
+    
     /**
      * Validate UPI ID exists with retry and error handling
      */
@@ -117,6 +261,67 @@ public class AccountServiceClient {
                 .onErrorReturn(false); // Return false if validation fails
     }
     
+    /**
+     * Validate several UPI IDs in one call; maps each UPI ID to whether it exists.
+     * Unlike validateUpiId, a failed call is reported as an error rather than as invalid IDs.
+     */
+    public Mono<Map<String, Boolean>> validateUpiIds(List<String> upiIds) {
+        logger.debug("Validating {} UPI IDs", upiIds.size());
+        
+        return webClient.post()
+                .uri("/api/accounts/validate")
+                .bodyValue(new UpiIdValidationRequest(upiIds))
+                .retrieve()
+                .onStatus(status -> status.isError(),
+                         response -> Mono.error(new AccountServiceException("Failed to validate " + upiIds.size() + " UPI IDs, Status: " + response.statusCode())))
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Boolean>>() {})
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetries, retryDelay)
+                          .filter(this::isRetryableException))
+                .doOnError(error -> logger.warn("Failed to validate {} UPI IDs", upiIds.size(), error));
+    }
+    
+    /**
+     * The UPI ID every debit in a batch is taken from, or empty if the batch debits none or several
+     */
+    private static Optional<String> debitedUpiId(List<BatchBalanceEntry> entries) {
+        String debited = null;
+        for (BatchBalanceEntry entry : entries) {
+            if (!"DEBIT".equalsIgnoreCase(entry.getOperation())) {
+                continue;
+            }
+            if (debited != null && !debited.equals(entry.getUpiId())) {
+                return Optional.empty();
+            }
+            debited = entry.getUpiId();
+        }
+        return Optional.ofNullable(debited);
+    }
+    
+    /**
+     * Stop routing to an owner that refused the connection; retries then go through the load balancer
+     */
+    private void reportIfUnreachable(Optional<URI> owner, Throwable error) {
+        if (owner.isPresent() && error instanceof WebClientRequestException) {
+            ownerRouter.reportUnreachable(owner.get());
+        }
+    }
+    
+    /**
+     * Whether a request failed before it reached Account Service, so repeating it cannot apply it twice
+     */
+    private boolean isConnectFailure(Throwable throwable) {
+        if (!(throwable instanceof WebClientRequestException)) {
+            return false;
+        }
+        for (Throwable cause = throwable.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof java.net.ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     /**
      * Determine if an exception is retryable
      */
@@ -171,6 +376,7 @@ public class AccountServiceClient {
     public static class BalanceUpdateRequest {
         private BigDecimal amount;
         private String operation;
+        private String transactionRef;
         
         public BalanceUpdateRequest() {}
         
@@ -194,6 +400,228 @@ public class AccountServiceClient {
         public void setOperation(String operation) {
             this.operation = operation;
         }
+        
+        public String getTransactionRef() {
+            return transactionRef;
+        }
+        
+        public void setTransactionRef(String transactionRef) {
+            this.transactionRef = transactionRef;
+        }
+    }
+    
+    public static class BatchBalanceEntry extends BalanceUpdateRequest {
+        private String upiId;
+        
+        public BatchBalanceEntry() {}
+        
+        public BatchBalanceEntry(String upiId, BigDecimal amount, String operation, String transactionRef) {
+            super(amount, operation);
+            this.upiId = upiId;
+            setTransactionRef(transactionRef);
+        }
+        
+        public String getUpiId() {
+            return upiId;
+        }
+        
+        public void setUpiId(String upiId) {
+            this.upiId = upiId;
+        }
+    }
+    
+    public static class BatchBalanceRequest {
+        private List<BatchBalanceEntry> entries;
+        private boolean atomic;
+        
+        public BatchBalanceRequest() {}
+        
+        public BatchBalanceRequest(List<BatchBalanceEntry> entries, boolean atomic) {
+            this.entries = entries;
+            this.atomic = atomic;
+        }
+        
+        public List<BatchBalanceEntry> getEntries() {
+            return entries;
+        }
+        
+        public void setEntries(List<BatchBalanceEntry> entries) {
+            this.entries = entries;
+        }
+        
+        public boolean isAtomic() {
+            return atomic;
+        }
+        
+        public void setAtomic(boolean atomic) {
+            this.atomic = atomic;
+        }
+    }
+    
+    public static class UpiIdValidationRequest {
+        private List<String> upiIds;
+        
+        public UpiIdValidationRequest() {}
+        
+        public UpiIdValidationRequest(List<String> upiIds) {
+            this.upiIds = upiIds;
+        }
+        
+        public List<String> getUpiIds() {
+            return upiIds;
+        }
+        
+        public void setUpiIds(List<String> upiIds) {
+            this.upiIds = upiIds;
+        }
+    }
+    
+    public static class AccountEntry {
+        private String upiId;
+        private BigDecimal amount;
+        private String transactionRef;
+        
+        public AccountEntry() {}
+        
+        public AccountEntry(String upiId, BigDecimal amount, String transactionRef) {
+            this.upiId = upiId;
+            this.amount = amount;
+            this.transactionRef = transactionRef;
+        }
+        
+        public String getUpiId() {
+            return upiId;
+        }
+        
+        public void setUpiId(String upiId) {
+            this.upiId = upiId;
+        }
+        
+        /**
+         * Signed amount: negative for a debit
+         */
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+        
+        public String getTransactionRef() {
+            return transactionRef;
+        }
+        
+        public void setTransactionRef(String transactionRef) {
+            this.transactionRef = transactionRef;
+        }
+    }
+    
+    public static class TransferRequest {
+        private String senderUpiId;
+        private String receiverUpiId;
+        private BigDecimal amount;
+        private String transactionRef;
+        
+        public TransferRequest() {}
+        
+        public TransferRequest(String senderUpiId, String receiverUpiId, BigDecimal amount, String transactionRef) {
+            this.senderUpiId = senderUpiId;
+            this.receiverUpiId = receiverUpiId;
+            this.amount = amount;
+            this.transactionRef = transactionRef;
+        }
+        
+        public String getSenderUpiId() {
+            return senderUpiId;
+        }
+        
+        public void setSenderUpiId(String senderUpiId) {
+            this.senderUpiId = senderUpiId;
+        }
+        
+        public String getReceiverUpiId() {
+            return receiverUpiId;
+        }
+        
+        public void setReceiverUpiId(String receiverUpiId) {
+            this.receiverUpiId = receiverUpiId;
+        }
+        
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+        
+        public String getTransactionRef() {
+            return transactionRef;
+        }
+        
+        public void setTransactionRef(String transactionRef) {
+            this.transactionRef = transactionRef;
+        }
+    }
+    
+    public static class TransferResponse {
+        private String senderUpiId;
+        private BigDecimal senderBalance;
+        private String receiverUpiId;
+        private BigDecimal receiverBalance;
+        private BigDecimal amount;
+        
+        public TransferResponse() {}
+        
+        public TransferResponse(String senderUpiId, BigDecimal senderBalance, 
+                               String receiverUpiId, BigDecimal receiverBalance, BigDecimal amount) {
+            this.senderUpiId = senderUpiId;
+            this.senderBalance = senderBalance;
+            this.receiverUpiId = receiverUpiId;
+            this.receiverBalance = receiverBalance;
+            this.amount = amount;
+        }
+        
+        public String getSenderUpiId() {
+            return senderUpiId;
+        }
+        
+        public void setSenderUpiId(String senderUpiId) {
+            this.senderUpiId = senderUpiId;
+        }
+        
+        public BigDecimal getSenderBalance() {
+            return senderBalance;
+        }
+        
+        public void setSenderBalance(BigDecimal senderBalance) {
+            this.senderBalance = senderBalance;
+        }
+        
+        public String getReceiverUpiId() {
+            return receiverUpiId;
+        }
+        
+        public void setReceiverUpiId(String receiverUpiId) {
+            this.receiverUpiId = receiverUpiId;
+        }
+        
+        public BigDecimal getReceiverBalance() {
+            return receiverBalance;
+        }
+        
+        public void setReceiverBalance(BigDecimal receiverBalance) {
+            this.receiverBalance = receiverBalance;
+        }
+        
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
     }
     
     // Custom exceptions for Account Service communication
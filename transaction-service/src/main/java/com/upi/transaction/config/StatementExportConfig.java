@@ -0,0 +1,46 @@
+package com.upi.transaction.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Streaming responses (statement exports) run on their own bounded pool instead of the
+ * servlet request threads, so long exports cannot starve regular API calls. When the pool
+ * and its queue are full, new exports are rejected with 503 rather than piling up.
+ */
+@Configuration
+public class StatementExportConfig implements WebMvcConfigurer {
+    
+    private final int exportThreads;
+    private final int queueCapacity;
+    private final long timeoutMs;
+    
+    public StatementExportConfig(@Value("${transaction.statement.export-threads:4}") int exportThreads,
+                                 @Value("${transaction.statement.queue-capacity:20}") int queueCapacity,
+                                 @Value("${transaction.statement.timeout-ms:600000}") long timeoutMs) {
+        this.exportThreads = exportThreads;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    @Bean
+    public ThreadPoolTaskExecutor statementExportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(exportThreads);
+        executor.setMaxPoolSize(exportThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("statement-export-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(statementExportExecutor());
+        configurer.setDefaultTimeout(timeoutMs);
+    }
+}
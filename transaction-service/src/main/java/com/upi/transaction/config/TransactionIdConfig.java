@@ -0,0 +1,24 @@
+package com.upi.transaction.config;
+
+import com.upi.common.id.TransactionIdGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransactionIdConfig {
+    
+    /**
+     * Issues the "TXN" references of transfers; netting and payout refs reuse its IDs
+     */
+    @Bean
+    public TransactionIdGenerator transactionIdGenerator(
+            ObjectProvider<Registration> registration,
+            @Value("${transaction.id.node-id:-1}") int configuredNodeId) {
+        int nodeId = TransactionIdGenerator.resolveNodeId(registration.getIfAvailable(), configuredNodeId,
+                                                          "transaction.id.node-id");
+        return new TransactionIdGenerator("TXN", nodeId, System::currentTimeMillis);
+    }
+}
@@ -1,5 +1,8 @@
 package com.upi.transaction.config;
 
+import com.upi.common.ownership.AccountOwnerRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,4 +16,17 @@ public class WebClientConfig {
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Routes balance requests to the account-service instance owning the UPI ID
+     */
+    @Bean
+    public AccountOwnerRouter accountOwnerRouter(
+            DiscoveryClient discoveryClient,
+            @Value("${account-service.owner-routing.enabled:false}") boolean enabled,
+            @Value("${account-service.owner-routing.service-id:account-service}") String serviceId,
+            @Value("${account-service.owner-routing.virtual-nodes:128}") int virtualNodes,
+            @Value("${account-service.owner-routing.refresh-interval-ms:30000}") long refreshIntervalMs) {
+        return new AccountOwnerRouter(discoveryClient, enabled, serviceId, virtualNodes, refreshIntervalMs);
+    }
+}
@@ -1,34 +1,71 @@
 package com.upi.transaction.controller;
 
+import com.upi.transaction.dto.BulkPayoutRequest;
+import com.upi.transaction.dto.BulkPayoutResponse;
 import com.upi.transaction.dto.ErrorResponse;
+import com.upi.transaction.dto.TransactionPage;
 import com.upi.transaction.dto.TransactionResponse;
+import com.upi.transaction.dto.TransactionSummaryResponse;
 import com.upi.transaction.dto.TransferRequest;
 import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.StatementFormat;
 import com.upi.transaction.enums.TransactionStatus;
 import com.upi.transaction.exception.TransactionNotFoundException;
+import com.upi.transaction.service.BulkPayoutService;
+import com.upi.transaction.service.StatementExportService;
 import com.upi.transaction.service.TransactionService;
+import com.upi.transaction.service.TransactionStatusStream;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
     
+    public static final String NEXT_PAGE_TOKEN = "X-Next-Page-Token";
+    
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59);
+    
     private final TransactionService transactionService;
+    private final StatementExportService statementExportService;
+    private final TransactionStatusStream statusStream;
+    private final BulkPayoutService bulkPayoutService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
     
     @Autowired
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, 
+                                 StatementExportService statementExportService,
+                                 TransactionStatusStream statusStream,
+                                 BulkPayoutService bulkPayoutService,
+                                 @Value("${transaction.history.default-page-size:50}") int defaultPageSize,
+                                 @Value("${transaction.history.max-page-size:200}") int maxPageSize) {
         this.transactionService = transactionService;
+        this.statementExportService = statementExportService;
+        this.statusStream = statusStream;
+        this.bulkPayoutService = bulkPayoutService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
     
     /**
@@ -47,11 +84,53 @@ public class TransactionController {
                     return new ResponseEntity<>(response, HttpStatus.CREATED);
                 })
                 .onErrorResume(throwable -> {
+                    // The persistence queue is full: the transfer was not attempted and can be retried
+                    if (throwable instanceof RejectedExecutionException) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<TransactionResponse>build());
+                    }
                     // Return error response for failed transfers
                     return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).<TransactionResponse>build());
                 });
     }
     
+    /**
+     * Accept a money transfer and execute it in the background. Answers 202 with the PENDING
+     * transaction as soon as it is saved; its outcome is read from the Location URL
+     * (/ref/{transactionRef}). Answers 429 when the transfer queue is full.
+     */
+    @PostMapping("/transfer/async")
+    public Mono<ResponseEntity<TransactionResponse>> acceptTransfer(@Valid @RequestBody TransferRequest request) {
+        return transactionService.acceptTransfer(
+                        request.getSenderUpiId(),
+                        request.getReceiverUpiId(),
+                        request.getAmount(),
+                        request.getDescription()
+                )
+                .map(transaction -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .location(URI.create("/api/transactions/ref/" + transaction.getTransactionRef()))
+                        .body(new TransactionResponse(transaction)));
+    }
+    
+    /**
+     * Pay many receivers from one sender with a single debit. Answers 200 with one result
+     * per line; lines whose outcome is not yet known are PENDING.
+     */
+    @PostMapping("/bulk-payout")
+    public Mono<ResponseEntity<BulkPayoutResponse>> processPayout(@Valid @RequestBody BulkPayoutRequest request) {
+        return bulkPayoutService.processPayout(request.getSenderUpiId(), request.getLines(), request.getDescription())
+                .map(ResponseEntity::ok);
+    }
+    
+    /**
+     * Stream status changes of transactions sent or received by a user as server-sent events:
+     * a "transaction" event with the TransactionResponse whenever one reaches SUCCESS or FAILED.
+     * Replaces polling /ref/{transactionRef}; the stream ends periodically and clients reconnect.
+     */
+    @GetMapping(path = "/stream/{upiId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactions(@PathVariable String upiId) {
+        return statusStream.subscribe(upiId);
+    }
+    
     /**
      * Get transaction by ID
      */
@@ -81,42 +160,39 @@ public class TransactionController {
     }
     
     /**
-     * Get all transactions for a user (both sent and received)
+     * Get all transactions for a user (both sent and received), newest first, one page at a time.
+     * The token of the next page is returned in the X-Next-Page-Token header.
      */
     @GetMapping("/user/{upiId}")
-    public ResponseEntity<List<TransactionResponse>> getUserTransactions(@PathVariable String upiId) {
-        List<Transaction> transactions = transactionService.getUserTransactions(upiId);
-        List<TransactionResponse> responses = transactions.stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<List<TransactionResponse>> getUserTransactions(
+            @PathVariable String upiId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer limit) {
+        return toResponse(transactionService.getUserTransactionPage(upiId, pageToken, pageSize(limit)));
     }
     
     /**
-     * Get transactions sent by a user
+     * Get transactions sent by a user, newest first, one page at a time.
+     * The token of the next page is returned in the X-Next-Page-Token header.
      */
     @GetMapping("/user/{upiId}/sent")
-    public ResponseEntity<List<TransactionResponse>> getSentTransactions(@PathVariable String upiId) {
-        List<Transaction> transactions = transactionService.getSentTransactions(upiId);
-        List<TransactionResponse> responses = transactions.stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<List<TransactionResponse>> getSentTransactions(
+            @PathVariable String upiId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer limit) {
+        return toResponse(transactionService.getSentTransactionPage(upiId, pageToken, pageSize(limit)));
     }
     
     /**
-     * Get transactions received by a user
+     * Get transactions received by a user, newest first, one page at a time.
+     * The token of the next page is returned in the X-Next-Page-Token header.
      */
     @GetMapping("/user/{upiId}/received")
-    public ResponseEntity<List<TransactionResponse>> getReceivedTransactions(@PathVariable String upiId) {
-        List<Transaction> transactions = transactionService.getReceivedTransactions(upiId);
-        List<TransactionResponse> responses = transactions.stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<List<TransactionResponse>> getReceivedTransactions(
+            @PathVariable String upiId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer limit) {
+        return toResponse(transactionService.getReceivedTransactionPage(upiId, pageToken, pageSize(limit)));
     }
     
     /**
@@ -133,7 +209,8 @@ public class TransactionController {
     }
     
     /**
-     * Get filtered transactions for a user
+     * Get filtered transactions for a user, newest first, one page at a time.
+     * Missing dates leave that end of the range open.
      */
     @GetMapping("/user/{upiId}/filter")
     public ResponseEntity<List<TransactionResponse>> getFilteredTransactions(
@@ -141,39 +218,15 @@ public class TransactionController {
             @RequestParam(required = false) TransactionStatus status,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "50") int limit) {
-        
-        List<Transaction> transactions;
-        
-        if (status != null && startDate != null && endDate != null) {
-            // Filter by status and date range
-            transactions = transactionService.getUserTransactionsByDateRange(upiId, startDate, endDate)
-                    .stream()
-                    .filter(t -> t.getStatus() == status)
-                    .limit(limit)
-                    .collect(Collectors.toList());
-        } else if (status != null) {
-            // Filter by status only
-            transactions = transactionService.getUserTransactionsByStatus(upiId, status)
-                    .stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
-        } else if (startDate != null && endDate != null) {
-            // Filter by date range only
-            transactions = transactionService.getUserTransactionsByDateRange(upiId, startDate, endDate)
-                    .stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
-        } else {
-            // No filters, get recent transactions
-            transactions = transactionService.getRecentTransactions(upiId, limit);
-        }
-        
-        List<TransactionResponse> responses = transactions.stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer limit) {
         
-        return ResponseEntity.ok(responses);
+        TransactionPage page = transactionService.getFilteredTransactionPage(
+                upiId, status,
+                startDate != null ? startDate : EARLIEST,
+                endDate != null ? endDate : LATEST,
+                pageToken, pageSize(limit));
+        return toResponse(page);
     }
     
     /**
@@ -192,6 +245,31 @@ public class TransactionController {
         return ResponseEntity.ok(responses);
     }
     
+    /**
+     * Export the statement of a user for a date range (both days inclusive) as CSV or NDJSON.
+     * Rows are streamed from a database cursor on the export pool, not on a request thread.
+     */
+    @GetMapping("/user/{upiId}/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable String upiId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Statement start date must not be after end date");
+        }
+        StatementFormat statementFormat = StatementFormat.from(format);
+        String filename = "statement-" + upiId + "-" + from + "-" + to + "." + statementFormat.getFileExtension();
+        
+        StreamingResponseBody body = out -> statementExportService.export(upiId, from, to, statementFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(statementFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, 
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+    
     /**
      * Get transaction count for a user
      */
@@ -200,4 +278,37 @@ public class TransactionController {
         Long count = transactionService.countSuccessfulTransactions(upiId);
         return ResponseEntity.ok(count);
     }
+    
+    /**
+     * Get sent and received totals per status for a user
+     */
+    @GetMapping("/user/{upiId}/summary")
+    public ResponseEntity<TransactionSummaryResponse> getTransactionSummary(@PathVariable String upiId) {
+        return ResponseEntity.ok(transactionService.getTransactionSummary(upiId));
+    }
+    
+    /**
+     * Requested page size, capped at the configured maximum
+     */
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+    
+    private ResponseEntity<List<TransactionResponse>> toResponse(TransactionPage page) {
+        List<TransactionResponse> responses = page.getTransactions().stream()
+                .map(TransactionResponse::new)
+                .collect(Collectors.toList());
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextPageToken() != null) {
+            response.header(NEXT_PAGE_TOKEN, page.getNextPageToken());
+        }
+        return response.body(responses);
+    }
 }
\ No newline at end of file
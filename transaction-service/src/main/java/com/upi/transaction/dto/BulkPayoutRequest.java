@@ -0,0 +1,65 @@
+package com.upi.transaction.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkPayoutRequest {
+    
+    @NotBlank(message = "Sender UPI ID is required")
+    private String senderUpiId;
+    
+    @NotEmpty(message = "At least one payout line is required")
+    @Size(max = 1000, message = "A payout may contain at most 1000 lines")
+    private List<@Valid PayoutLineRequest> lines;
+    
+    // Used for lines without a description of their own
+    private String description;
+    
+    // Default constructor
+    public BulkPayoutRequest() {}
+    
+    // Constructor
+    public BulkPayoutRequest(String senderUpiId, List<PayoutLineRequest> lines, String description) {
+        this.senderUpiId = senderUpiId;
+        this.lines = lines;
+        this.description = description;
+    }
+    
+    // Getters and Setters
+    public String getSenderUpiId() {
+        return senderUpiId;
+    }
+    
+    public void setSenderUpiId(String senderUpiId) {
+        this.senderUpiId = senderUpiId;
+    }
+    
+    public List<PayoutLineRequest> getLines() {
+        return lines;
+    }
+    
+    public void setLines(List<PayoutLineRequest> lines) {
+        this.lines = lines;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkPayoutRequest{" +
+                "senderUpiId='" + senderUpiId + '\'' +
+                ", lines=" + lines +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package com.upi.transaction.dto;
+
+import com.upi.transaction.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of a bulk payout: the amount debited from the sender and one result per line,
+ * in request order
+ */
+public class BulkPayoutResponse {
+    
+    private String payoutRef;
+    private String senderUpiId;
+    private BigDecimal debitedAmount;
+    private int successCount;
+    private int failureCount;
+    private int pendingCount;
+    private List<PayoutLineResult> results;
+    
+    // Default constructor
+    public BulkPayoutResponse() {}
+    
+    // Constructor
+    public BulkPayoutResponse(String payoutRef, String senderUpiId, BigDecimal debitedAmount, 
+                              List<PayoutLineResult> results) {
+        this.payoutRef = payoutRef;
+        this.senderUpiId = senderUpiId;
+        this.debitedAmount = debitedAmount;
+        this.results = results;
+        for (PayoutLineResult result : results) {
+            if (result.getStatus() == TransactionStatus.SUCCESS) {
+                successCount++;
+            } else if (result.getStatus() == TransactionStatus.PENDING) {
+                pendingCount++;
+            } else {
+                failureCount++;
+            }
+        }
+    }
+    
+    // Getters and Setters
+    public String getPayoutRef() {
+        return payoutRef;
+    }
+    
+    public void setPayoutRef(String payoutRef) {
+        this.payoutRef = payoutRef;
+    }
+    
+    public String getSenderUpiId() {
+        return senderUpiId;
+    }
+    
+    public void setSenderUpiId(String senderUpiId) {
+        this.senderUpiId = senderUpiId;
+    }
+    
+    public BigDecimal getDebitedAmount() {
+        return debitedAmount;
+    }
+    
+    public void setDebitedAmount(BigDecimal debitedAmount) {
+        this.debitedAmount = debitedAmount;
+    }
+    
+    public int getSuccessCount() {
+        return successCount;
+    }
+    
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+    
+    public int getFailureCount() {
+        return failureCount;
+    }
+    
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+    
+    public int getPendingCount() {
+        return pendingCount;
+    }
+    
+    public void setPendingCount(int pendingCount) {
+        this.pendingCount = pendingCount;
+    }
+    
+    public List<PayoutLineResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<PayoutLineResult> results) {
+        this.results = results;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkPayoutResponse{" +
+                "payoutRef='" + payoutRef + '\'' +
+                ", senderUpiId='" + senderUpiId + '\'' +
+                ", debitedAmount=" + debitedAmount +
+                ", successCount=" + successCount +
+                ", failureCount=" + failureCount +
+                ", pendingCount=" + pendingCount +
+                '}';
+    }
+}
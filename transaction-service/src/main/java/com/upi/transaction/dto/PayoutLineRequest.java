@@ -0,0 +1,63 @@
+package com.upi.transaction.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public class PayoutLineRequest {
+    
+    @NotBlank(message = "Receiver UPI ID is required")
+    private String receiverUpiId;
+    
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    private BigDecimal amount;
+    
+    private String description;
+    
+    // Default constructor
+    public PayoutLineRequest() {}
+    
+    // Constructor
+    public PayoutLineRequest(String receiverUpiId, BigDecimal amount, String description) {
+        this.receiverUpiId = receiverUpiId;
+        this.amount = amount;
+        this.description = description;
+    }
+    
+    // Getters and Setters
+    public String getReceiverUpiId() {
+        return receiverUpiId;
+    }
+    
+    public void setReceiverUpiId(String receiverUpiId) {
+        this.receiverUpiId = receiverUpiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public String toString() {
+        return "PayoutLineRequest{" +
+                "receiverUpiId='" + receiverUpiId + '\'' +
+                ", amount=" + amount +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package com.upi.transaction.dto;
+
+import com.upi.transaction.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one line of a bulk payout. Lines rejected before being recorded have no
+ * transaction reference; PENDING lines are settled later by the recovery worker.
+ */
+public class PayoutLineResult {
+    
+    private int index;
+    private String receiverUpiId;
+    private BigDecimal amount;
+    private String transactionRef;
+    private TransactionStatus status;
+    private String error;
+    
+    // Default constructor
+    public PayoutLineResult() {}
+    
+    // Constructor
+    public PayoutLineResult(int index, String receiverUpiId, BigDecimal amount) {
+        this.index = index;
+        this.receiverUpiId = receiverUpiId;
+        this.amount = amount;
+    }
+    
+    public void completed(TransactionStatus status, String error) {
+        this.status = status;
+        this.error = error;
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getReceiverUpiId() {
+        return receiverUpiId;
+    }
+    
+    public void setReceiverUpiId(String receiverUpiId) {
+        this.receiverUpiId = receiverUpiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TransactionStatus status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    @Override
+    public String toString() {
+        return "PayoutLineResult{" +
+                "index=" + index +
+                ", receiverUpiId='" + receiverUpiId + '\'' +
+                ", amount=" + amount +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", status=" + status +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
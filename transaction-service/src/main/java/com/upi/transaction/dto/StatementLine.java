@@ -0,0 +1,110 @@
+package com.upi.transaction.dto;
+
+import com.upi.transaction.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of an account statement, seen from the statement owner's side:
+ * debits carry a negative amount and the counterparty is the other UPI ID.
+ */
+public class StatementLine {
+    
+    public static final String DEBIT = "DEBIT";
+    public static final String CREDIT = "CREDIT";
+    
+    private LocalDateTime createdAt;
+    private String transactionRef;
+    private String direction;
+    private String counterpartyUpiId;
+    private BigDecimal amount;
+    private TransactionStatus status;
+    private String description;
+    
+    // Default constructor
+    public StatementLine() {}
+    
+    // Constructor with all fields
+    public StatementLine(LocalDateTime createdAt, String transactionRef, String direction, 
+                         String counterpartyUpiId, BigDecimal amount, TransactionStatus status, 
+                         String description) {
+        this.createdAt = createdAt;
+        this.transactionRef = transactionRef;
+        this.direction = direction;
+        this.counterpartyUpiId = counterpartyUpiId;
+        this.amount = amount;
+        this.status = status;
+        this.description = description;
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+    
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+    
+    public String getDirection() {
+        return direction;
+    }
+    
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+    
+    public String getCounterpartyUpiId() {
+        return counterpartyUpiId;
+    }
+    
+    public void setCounterpartyUpiId(String counterpartyUpiId) {
+        this.counterpartyUpiId = counterpartyUpiId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TransactionStatus status) {
+        this.status = status;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public String toString() {
+        return "StatementLine{" +
+                "createdAt=" + createdAt +
+                ", transactionRef='" + transactionRef + '\'' +
+                ", direction='" + direction + '\'' +
+                ", counterpartyUpiId='" + counterpartyUpiId + '\'' +
+                ", amount=" + amount +
+                ", status=" + status +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.upi.transaction.dto;
+
+import com.upi.transaction.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * One page of a transaction history, newest first, with the token of the next page
+ * (null on the last page)
+ */
+public class TransactionPage {
+    
+    private List<Transaction> transactions;
+    private String nextPageToken;
+    
+    // Default constructor
+    public TransactionPage() {}
+    
+    // Constructor with all fields
+    public TransactionPage(List<Transaction> transactions, String nextPageToken) {
+        this.transactions = transactions;
+        this.nextPageToken = nextPageToken;
+    }
+    
+    // Getters and Setters
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+    
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+    
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+    
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionPage{" +
+                "transactions=" + transactions.size() +
+                ", nextPageToken='" + nextPageToken + '\'' +
+                '}';
+    }
+}
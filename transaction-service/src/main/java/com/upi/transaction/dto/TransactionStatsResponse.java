@@ -0,0 +1,89 @@
+package com.upi.transaction.dto;
+
+import com.upi.transaction.entity.TransactionUserStats;
+import com.upi.transaction.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * What a UPI ID sent and received in one status
+ */
+public class TransactionStatsResponse {
+    
+    private TransactionStatus status;
+    private long sentCount;
+    private BigDecimal sentAmount;
+    private long receivedCount;
+    private BigDecimal receivedAmount;
+    
+    // Default constructor
+    public TransactionStatsResponse() {}
+    
+    // Constructor for a status with no transactions
+    public TransactionStatsResponse(TransactionStatus status) {
+        this.status = status;
+        this.sentAmount = BigDecimal.ZERO;
+        this.receivedAmount = BigDecimal.ZERO;
+    }
+    
+    // Constructor from entity
+    public TransactionStatsResponse(TransactionUserStats stats) {
+        this.status = stats.getStatus();
+        this.sentCount = stats.getSentCount();
+        this.sentAmount = stats.getSentAmount();
+        this.receivedCount = stats.getReceivedCount();
+        this.receivedAmount = stats.getReceivedAmount();
+    }
+    
+    // Getters and Setters
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TransactionStatus status) {
+        this.status = status;
+    }
+    
+    public long getSentCount() {
+        return sentCount;
+    }
+    
+    public void setSentCount(long sentCount) {
+        this.sentCount = sentCount;
+    }
+    
+    public BigDecimal getSentAmount() {
+        return sentAmount;
+    }
+    
+    public void setSentAmount(BigDecimal sentAmount) {
+        this.sentAmount = sentAmount;
+    }
+    
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+    
+    public void setReceivedCount(long receivedCount) {
+        this.receivedCount = receivedCount;
+    }
+    
+    public BigDecimal getReceivedAmount() {
+        return receivedAmount;
+    }
+    
+    public void setReceivedAmount(BigDecimal receivedAmount) {
+        this.receivedAmount = receivedAmount;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionStatsResponse{" +
+                "status=" + status +
+                ", sentCount=" + sentCount +
+                ", sentAmount=" + sentAmount +
+                ", receivedCount=" + receivedCount +
+                ", receivedAmount=" + receivedAmount +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.upi.transaction.dto;
+
+import java.util.List;
+
+/**
+ * Transaction totals of a UPI ID: its successful transaction count and, for every status,
+ * what it sent and received
+ */
+public class TransactionSummaryResponse {
+    
+    private String upiId;
+    private long successfulCount;
+    private List<TransactionStatsResponse> statuses;
+    
+    // Default constructor
+    public TransactionSummaryResponse() {}
+    
+    // Constructor with all fields
+    public TransactionSummaryResponse(String upiId, long successfulCount, List<TransactionStatsResponse> statuses) {
+        this.upiId = upiId;
+        this.successfulCount = successfulCount;
+        this.statuses = statuses;
+    }
+    
+    // Getters and Setters
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public long getSuccessfulCount() {
+        return successfulCount;
+    }
+    
+    public void setSuccessfulCount(long successfulCount) {
+        this.successfulCount = successfulCount;
+    }
+    
+    public List<TransactionStatsResponse> getStatuses() {
+        return statuses;
+    }
+    
+    public void setStatuses(List<TransactionStatsResponse> statuses) {
+        this.statuses = statuses;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionSummaryResponse{" +
+                "upiId='" + upiId + '\'' +
+                ", successfulCount=" + successfulCount +
+                ", statuses=" + statuses +
+                '}';
+    }
+}
@@ -8,7 +8,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // History by UPI ID is served from these two range scans, newest first, with id as the keyset tie-breaker
+    @Index(name = "idx_transactions_sender_created", columnList = "sender_upi_id, created_at DESC, id DESC"),
+    @Index(name = "idx_transactions_receiver_created", columnList = "receiver_upi_id, created_at DESC, id DESC"),
+    @Index(name = "idx_transactions_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_transactions_payout_ref", columnList = "payout_ref"),
+    @Index(name = "idx_transactions_netting_ref", columnList = "netting_ref")
+})
 public class Transaction {
     
     @Id
@@ -34,6 +41,14 @@ public class Transaction {
     @Column(name = "transaction_ref", unique = true, nullable = false, length = 50)
     private String transactionRef;
     
+    // Reference of the bulk payout this transaction is a line of; null for single transfers
+    @Column(name = "payout_ref", length = 50)
+    private String payoutRef;
+    
+    // Netting batch that settles this transaction: UNSETTLED until a netting run claims it; null for gross transfers
+    @Column(name = "netting_ref", length = 50)
+    private String nettingRef;
+    
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -109,6 +124,22 @@ public class Transaction {
         this.transactionRef = transactionRef;
     }
     
+    public String getPayoutRef() {
+        return payoutRef;
+    }
+    
+    public void setPayoutRef(String payoutRef) {
+        this.payoutRef = payoutRef;
+    }
+    
+    public String getNettingRef() {
+        return nettingRef;
+    }
+    
+    public void setNettingRef(String nettingRef) {
+        this.nettingRef = nettingRef;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -127,6 +158,8 @@ public class Transaction {
                 ", description='" + description + '\'' +
                 ", status=" + status +
                 ", transactionRef='" + transactionRef + '\'' +
+                ", payoutRef='" + payoutRef + '\'' +
+                ", nettingRef='" + nettingRef + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
     }
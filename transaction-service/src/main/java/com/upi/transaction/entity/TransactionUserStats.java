@@ -0,0 +1,113 @@
+package com.upi.transaction.entity;
+
+import com.upi.transaction.enums.TransactionStatus;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals of the transactions a UPI ID sent and received in one status. Kept up to
+ * date as transactions are created and settled, and recomputed from the transactions
+ * table by UserStatsRebuildJob.
+ */
+@Entity
+@Table(name = "transaction_user_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_transaction_user_stats_upi_id_status", columnNames = {"upi_id", "status"})
+})
+public class TransactionUserStats {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "upi_id", nullable = false, length = 100)
+    private String upiId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TransactionStatus status;
+    
+    @Column(name = "sent_count", nullable = false)
+    private long sentCount;
+    
+    @Column(name = "sent_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal sentAmount;
+    
+    @Column(name = "received_count", nullable = false)
+    private long receivedCount;
+    
+    @Column(name = "received_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal receivedAmount;
+    
+    // Default constructor
+    public TransactionUserStats() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getUpiId() {
+        return upiId;
+    }
+    
+    public void setUpiId(String upiId) {
+        this.upiId = upiId;
+    }
+    
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TransactionStatus status) {
+        this.status = status;
+    }
+    
+    public long getSentCount() {
+        return sentCount;
+    }
+    
+    public void setSentCount(long sentCount) {
+        this.sentCount = sentCount;
+    }
+    
+    public BigDecimal getSentAmount() {
+        return sentAmount;
+    }
+    
+    public void setSentAmount(BigDecimal sentAmount) {
+        this.sentAmount = sentAmount;
+    }
+    
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+    
+    public void setReceivedCount(long receivedCount) {
+        this.receivedCount = receivedCount;
+    }
+    
+    public BigDecimal getReceivedAmount() {
+        return receivedAmount;
+    }
+    
+    public void setReceivedAmount(BigDecimal receivedAmount) {
+        this.receivedAmount = receivedAmount;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionUserStats{" +
+                "upiId='" + upiId + '\'' +
+                ", status=" + status +
+                ", sentCount=" + sentCount +
+                ", sentAmount=" + sentAmount +
+                ", receivedCount=" + receivedCount +
+                ", receivedAmount=" + receivedAmount +
+                '}';
+    }
+}
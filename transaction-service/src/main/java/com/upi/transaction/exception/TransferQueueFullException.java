@@ -0,0 +1,8 @@
+package com.upi.transaction.exception;
+
+public class TransferQueueFullException extends RuntimeException {
+    
+    public TransferQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,115 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC batches for the lines of a bulk payout, also used to settle netting runs. Transaction
+ * IDs are database identities, which stop Hibernate from batching inserts, so a payout's rows
+ * are written here in one batch and read back by payout reference. Each batch updates the
+ * user stats in the same database transaction.
+ */
+@Repository
+public class PayoutRepository {
+    
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO transactions (sender_upi_id, receiver_upi_id, amount, description, status, " +
+            "transaction_ref, payout_ref, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String COMPLETE_PENDING_SQL =
+            "UPDATE transactions SET status = ? WHERE id = ? AND status = 'PENDING'";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final UserStatsBatchRepository userStats;
+    private final TransactionTemplate transactionTemplate;
+    
+    public PayoutRepository(JdbcTemplate jdbcTemplate, UserStatsBatchRepository userStats,
+                            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userStats = userStats;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Insert payout lines as one JDBC batch
+     */
+    public void insertLines(List<Transaction> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<UserStatsBatchRepository.Delta> deltas = UserStatsBatchRepository.created(lines);
+        userStats.createMissingRows(deltas);
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(lines, now);
+            userStats.apply(deltas);
+        });
+    }
+    
+    private void insert(List<Transaction> lines, Timestamp now) {
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Transaction line = lines.get(i);
+                ps.setString(1, line.getSenderUpiId());
+                ps.setString(2, line.getReceiverUpiId());
+                ps.setBigDecimal(3, line.getAmount());
+                ps.setString(4, line.getDescription());
+                ps.setString(5, line.getStatus().name());
+                ps.setString(6, line.getTransactionRef());
+                ps.setString(7, line.getPayoutRef());
+                ps.setTimestamp(8, now);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+    }
+    
+    /**
+     * Move PENDING lines to their final status as one JDBC batch; lines no longer PENDING
+     * are left alone. Returns the update count per line.
+     */
+    public int[] completePending(List<Transaction> lines, List<TransactionStatus> statuses) {
+        userStats.createMissingRows(UserStatsBatchRepository.completed(lines, statuses));
+        return transactionTemplate.execute(status -> {
+            int[] updateCounts = jdbcTemplate.batchUpdate(COMPLETE_PENDING_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setString(1, statuses.get(i).name());
+                    ps.setLong(2, lines.get(i).getId());
+                }
+                
+                @Override
+                public int getBatchSize() {
+                    return lines.size();
+                }
+            });
+            
+            List<Transaction> completed = new ArrayList<>(lines.size());
+            List<TransactionStatus> completedStatuses = new ArrayList<>(lines.size());
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] != 0) {
+                    completed.add(lines.get(i));
+                    completedStatuses.add(statuses.get(i));
+                }
+            }
+            userStats.apply(UserStatsBatchRepository.completed(completed, completedStatuses));
+            return updateCounts;
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.dto.StatementLine;
+import com.upi.transaction.enums.TransactionStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Cursor-based statement reads. Rows are handed to the consumer one at a time while the
+ * result set is still open, so a statement never has to fit in memory.
+ */
+@Repository
+public class StatementRepository {
+    
+    // Two index range scans, as in TransactionRepository; the receiver side skips rows the sender side returned
+    private static final String STATEMENT_COLUMNS =
+            "SELECT id, created_at, transaction_ref, sender_upi_id, receiver_upi_id, amount, status, description " +
+            "FROM transactions ";
+    private static final String STATEMENT_SQL =
+            STATEMENT_COLUMNS + "WHERE sender_upi_id = ? AND created_at >= ? AND created_at < ? " +
+            "UNION ALL " +
+            STATEMENT_COLUMNS + "WHERE receiver_upi_id = ? AND sender_upi_id <> ? AND created_at >= ? AND created_at < ? " +
+            "ORDER BY created_at ASC, id ASC";
+    
+    private static final int FETCH_SIZE = 500;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public StatementRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Stream the statement lines of a UPI ID created in [from, to), oldest first,
+     * through a forward-only, read-only cursor
+     */
+    public void forEachStatementLine(String upiId, LocalDateTime from, LocalDateTime to, 
+                                     Consumer<StatementLine> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(STATEMENT_SQL, 
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, upiId);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            ps.setString(4, upiId);
+            ps.setString(5, upiId);
+            ps.setTimestamp(6, Timestamp.valueOf(from));
+            ps.setTimestamp(7, Timestamp.valueOf(to));
+            return ps;
+        }, rs -> {
+            boolean debit = upiId.equals(rs.getString("sender_upi_id"));
+            BigDecimal amount = rs.getBigDecimal("amount");
+            consumer.accept(new StatementLine(
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getString("transaction_ref"),
+                    debit ? StatementLine.DEBIT : StatementLine.CREDIT,
+                    rs.getString(debit ? "receiver_upi_id" : "sender_upi_id"),
+                    debit ? amount.negate() : amount,
+                    TransactionStatus.valueOf(rs.getString("status")),
+                    rs.getString("description")));
+        });
+    }
+}
@@ -2,10 +2,13 @@ package com.upi.transaction.repository;
 
 import com.upi.transaction.entity.Transaction;
 import com.upi.transaction.enums.TransactionStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,6 +17,21 @@ import java.util.Optional;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
+    // A user's history is the union of two index range scans: the transactions they sent
+    // (sender_upi_id, created_at, id) and the ones they received (receiver_upi_id, created_at, id).
+    // An OR across both columns cannot use either index and scans the whole table instead.
+    // The receiver side skips rows the sender side already returned. A limited branch orders by
+    // its key column first, which is constant, so the database reads the index in order and stops
+    // after :limit rows instead of sorting the user's whole range.
+    
+    String AS_SENDER = "SELECT * FROM transactions WHERE sender_upi_id = :upiId ";
+    String AS_RECEIVER = "SELECT * FROM transactions WHERE receiver_upi_id = :upiId AND sender_upi_id <> :upiId ";
+    String WITH_STATUS_SQL = "AND status = :status ";
+    String IN_DATE_RANGE_SQL = "AND created_at BETWEEN :startDate AND :endDate ";
+    String NEWEST_FIRST_SQL = "ORDER BY created_at DESC, id DESC ";
+    String SENT_NEWEST_FIRST_SQL = "ORDER BY sender_upi_id, created_at DESC, id DESC ";
+    String RECEIVED_NEWEST_FIRST_SQL = "ORDER BY receiver_upi_id, created_at DESC, id DESC ";
+    
     /**
      * Find transaction by transaction reference
      */
@@ -27,7 +45,8 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     /**
      * Find all transactions for a user (both sent and received)
      */
-    @Query("SELECT t FROM Transaction t WHERE t.senderUpiId = :upiId OR t.receiverUpiId = :upiId ORDER BY t.createdAt DESC")
+    @Query(value = "SELECT * FROM (" + AS_SENDER + ") s UNION ALL SELECT * FROM (" + AS_RECEIVER + ") r " + 
+                   NEWEST_FIRST_SQL, nativeQuery = true)
     List<Transaction> findAllTransactionsByUpiId(@Param("upiId") String upiId);
     
     /**
@@ -48,8 +67,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     /**
      * Find transactions for a user within date range
      */
-    @Query("SELECT t FROM Transaction t WHERE (t.senderUpiId = :upiId OR t.receiverUpiId = :upiId) " +
-           "AND t.createdAt BETWEEN :startDate AND :endDate ORDER BY t.createdAt DESC")
+    @Query(value = "SELECT * FROM (" + AS_SENDER + IN_DATE_RANGE_SQL + ") s " +
+                   "UNION ALL SELECT * FROM (" + AS_RECEIVER + IN_DATE_RANGE_SQL + ") r " + NEWEST_FIRST_SQL, 
+           nativeQuery = true)
     List<Transaction> findTransactionsByUpiIdAndDateRange(
             @Param("upiId") String upiId,
             @Param("startDate") LocalDateTime startDate,
@@ -58,34 +78,143 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     /**
      * Find transactions for a user by status
      */
-    @Query("SELECT t FROM Transaction t WHERE (t.senderUpiId = :upiId OR t.receiverUpiId = :upiId) " +
-           "AND t.status = :status ORDER BY t.createdAt DESC")
+    @Query(value = "SELECT * FROM (" + AS_SENDER + WITH_STATUS_SQL + ") s " +
+                   "UNION ALL SELECT * FROM (" + AS_RECEIVER + WITH_STATUS_SQL + ") r " + NEWEST_FIRST_SQL, 
+           nativeQuery = true)
     List<Transaction> findTransactionsByUpiIdAndStatus(
             @Param("upiId") String upiId,
-            @Param("status") TransactionStatus status);
+            @Param("status") String status);
     
     /**
      * Find transactions for a user by status and date range
      */
-    @Query("SELECT t FROM Transaction t WHERE (t.senderUpiId = :upiId OR t.receiverUpiId = :upiId) " +
-           "AND t.status = :status AND t.createdAt BETWEEN :startDate AND :endDate ORDER BY t.createdAt DESC")
+    @Query(value = "SELECT * FROM (" + AS_SENDER + WITH_STATUS_SQL + IN_DATE_RANGE_SQL + ") s " +
+                   "UNION ALL SELECT * FROM (" + AS_RECEIVER + WITH_STATUS_SQL + IN_DATE_RANGE_SQL + ") r " + 
+                   NEWEST_FIRST_SQL, nativeQuery = true)
     List<Transaction> findTransactionsByUpiIdStatusAndDateRange(
             @Param("upiId") String upiId,
-            @Param("status") TransactionStatus status,
+            @Param("status") String status,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
     /**
-     * Count successful transactions for a user
+     * Find recent transactions (last N transactions)
      */
-    @Query("SELECT COUNT(t) FROM Transaction t WHERE (t.senderUpiId = :upiId OR t.receiverUpiId = :upiId) " +
-           "AND t.status = 'SUCCESS'")
-    Long countSuccessfulTransactionsByUpiId(@Param("upiId") String upiId);
+    @Query(value = "SELECT * FROM (" + AS_SENDER + SENT_NEWEST_FIRST_SQL + "LIMIT :limit) s " +
+                   "UNION ALL SELECT * FROM (" + AS_RECEIVER + RECEIVED_NEWEST_FIRST_SQL + "LIMIT :limit) r " + 
+                   NEWEST_FIRST_SQL + "LIMIT :limit", nativeQuery = true)
+    List<Transaction> findRecentTransactionsByUpiId(@Param("upiId") String upiId, @Param("limit") int limit);
+    
+    // Keyset pages, newest first: each page starts strictly after the (createdAt, id) of the
+    // last row of the previous one, so any page costs the same as the first. The leading
+    // createdAt <= :createdAt is implied by the rest but lets the index seek to the cursor
+    
+    String AFTER_CURSOR = "t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) ";
+    String AFTER_CURSOR_SQL = "AND created_at <= :createdAt AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) ";
     
     /**
-     * Find recent transactions (last N transactions)
+     * Page of transactions for a user (both sent and received): the first :limit rows of
+     * each index range scan, merged
      */
-    @Query("SELECT t FROM Transaction t WHERE (t.senderUpiId = :upiId OR t.receiverUpiId = :upiId) " +
-           "ORDER BY t.createdAt DESC LIMIT :limit")
-    List<Transaction> findRecentTransactionsByUpiId(@Param("upiId") String upiId, @Param("limit") int limit);
-}
\ No newline at end of file
+    @Query(value = "SELECT * FROM (" + AS_SENDER + AFTER_CURSOR_SQL + SENT_NEWEST_FIRST_SQL + "LIMIT :limit) s " +
+                   "UNION ALL SELECT * FROM (" + AS_RECEIVER + AFTER_CURSOR_SQL + RECEIVED_NEWEST_FIRST_SQL + "LIMIT :limit) r " +
+                   NEWEST_FIRST_SQL + "LIMIT :limit", nativeQuery = true)
+    List<Transaction> findPageByUpiId(
+            @Param("upiId") String upiId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            @Param("limit") int limit);
+    
+    /**
+     * Page of transactions sent by a user
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.senderUpiId = :upiId AND " + AFTER_CURSOR + "ORDER BY t.senderUpiId, t.createdAt DESC, t.id DESC")
+    List<Transaction> findSentPage(
+            @Param("upiId") String upiId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Page of transactions received by a user
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.receiverUpiId = :upiId AND " + AFTER_CURSOR + "ORDER BY t.receiverUpiId, t.createdAt DESC, t.id DESC")
+    List<Transaction> findReceivedPage(
+            @Param("upiId") String upiId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Page of transactions for a user within a date range
+     */
+    @Query(value = "SELECT * FROM (" + AS_SENDER + IN_DATE_RANGE_SQL + AFTER_CURSOR_SQL + SENT_NEWEST_FIRST_SQL + 
+                   "LIMIT :limit) s UNION ALL SELECT * FROM (" + AS_RECEIVER + IN_DATE_RANGE_SQL + AFTER_CURSOR_SQL + 
+                   RECEIVED_NEWEST_FIRST_SQL + "LIMIT :limit) r " + NEWEST_FIRST_SQL + "LIMIT :limit", nativeQuery = true)
+    List<Transaction> findPageByUpiIdAndDateRange(
+            @Param("upiId") String upiId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            @Param("limit") int limit);
+    
+    /**
+     * Page of transactions for a user by status within a date range
+     */
+    @Query(value = "SELECT * FROM (" + AS_SENDER + WITH_STATUS_SQL + IN_DATE_RANGE_SQL + AFTER_CURSOR_SQL + 
+                   SENT_NEWEST_FIRST_SQL + "LIMIT :limit) s UNION ALL SELECT * FROM (" + AS_RECEIVER + WITH_STATUS_SQL + 
+                   IN_DATE_RANGE_SQL + AFTER_CURSOR_SQL + RECEIVED_NEWEST_FIRST_SQL + "LIMIT :limit) r " + 
+                   NEWEST_FIRST_SQL + "LIMIT :limit", nativeQuery = true)
+    List<Transaction> findPageByUpiIdStatusAndDateRange(
+            @Param("upiId") String upiId,
+            @Param("status") String status,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            @Param("limit") int limit);
+    
+    /**
+     * Transactions in a status created before a cutoff, oldest first, starting after the
+     * given (createdAt, id); served from the (status, created_at) index
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.status = :status AND t.createdAt < :cutoff AND " +
+           "t.createdAt >= :createdAt AND (t.createdAt > :createdAt OR t.id > :id) " +
+           "ORDER BY t.status, t.createdAt, t.id")
+    List<Transaction> findByStatusCreatedBefore(
+            @Param("status") TransactionStatus status,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Lines of a bulk payout, in the order they were written
+     */
+    List<Transaction> findByPayoutRefOrderByIdAsc(String payoutRef);
+    
+    /**
+     * Claim every PENDING transaction waiting for netting into one netting run; a transaction
+     * is claimed by one run only, even with several instances netting at once
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Transaction t SET t.nettingRef = :nettingRef WHERE t.nettingRef = :unsettled " +
+           "AND t.status = com.upi.transaction.enums.TransactionStatus.PENDING")
+    int claimForNetting(@Param("nettingRef") String nettingRef, @Param("unsettled") String unsettled);
+    
+    /**
+     * Transactions of a netting run, in the order they were recorded
+     */
+    List<Transaction> findByNettingRefOrderByIdAsc(String nettingRef);
+    
+    /**
+     * Move a transaction out of PENDING; returns 0 if it is no longer PENDING
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Transaction t SET t.status = :status WHERE t.id = :id " +
+           "AND t.status = com.upi.transaction.enums.TransactionStatus.PENDING")
+    int completePending(@Param("id") Long id, @Param("status") TransactionStatus status);
+}
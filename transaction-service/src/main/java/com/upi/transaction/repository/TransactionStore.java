@@ -0,0 +1,101 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking access to TransactionRepository for the reactive transfer pipeline.
+ *
+ * JPA calls block, so every call runs on a dedicated bounded scheduler instead of the
+ * thread that happens to emit the signal, which may be a Reactor Netty event loop. The
+ * scheduler has as many threads as the connection pool has connections and a bounded
+ * task queue: when the database falls behind, new work is rejected with a
+ * RejectedExecutionException rather than queueing without limit.
+ *
+ * Saves and completions update transaction_user_stats in the same database transaction
+ * (see UserStatsBatchRepository).
+ */
+@Component
+public class TransactionStore implements DisposableBean {
+
+    private final TransactionRepository transactionRepository;
+    private final UserStatsBatchRepository userStats;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public TransactionStore(TransactionRepository transactionRepository,
+                            UserStatsBatchRepository userStats,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${transaction.persistence.threads:10}") int threads,
+                            @Value("${transaction.persistence.queue-capacity:1000}") int queueCapacity) {
+        this.transactionRepository = transactionRepository;
+        this.userStats = userStats;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "transaction-db");
+    }
+
+    /**
+     * Save a transaction on the persistence scheduler. A new transaction counts in the
+     * user stats in its status; saving an existing one counts as moving it out of PENDING.
+     */
+    public Mono<Transaction> save(Transaction transaction) {
+        return Mono.fromCallable(() -> {
+                    List<UserStatsBatchRepository.Delta> deltas = transaction.getId() == null ?
+                            UserStatsBatchRepository.created(List.of(transaction)) :
+                            UserStatsBatchRepository.completed(List.of(transaction), List.of(transaction.getStatus()));
+                    userStats.createMissingRows(deltas);
+                    return transactionTemplate.execute(status -> {
+                        Transaction saved = transactionRepository.save(transaction);
+                        userStats.apply(deltas);
+                        return saved;
+                    });
+                })
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Run other blocking persistence work on the persistence scheduler
+     */
+    public <T> Mono<T> execute(Callable<T> work) {
+        return Mono.fromCallable(work)
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Move a PENDING transaction to a final status on the persistence scheduler;
+     * emits false if it had already left PENDING
+     */
+    public Mono<Boolean> completePending(Transaction transaction, TransactionStatus status) {
+        return Mono.fromCallable(() -> {
+                    List<UserStatsBatchRepository.Delta> deltas =
+                            UserStatsBatchRepository.completed(List.of(transaction), List.of(status));
+                    userStats.createMissingRows(deltas);
+                    return transactionTemplate.execute(txStatus -> {
+                        if (transactionRepository.completePending(transaction.getId(), status) == 0) {
+                            return false;
+                        }
+                        userStats.apply(deltas);
+                        return true;
+                    });
+                })
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,237 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Incremental maintenance of transaction_user_stats. A change to transactions is turned
+ * into deltas per (UPI ID, status): a new transaction counts once for its sender and once
+ * for its receiver in its status, and a settled one moves from PENDING to its final status.
+ *
+ * Rows are created before the change, each in its own statement outside any transaction,
+ * so two first transactions of a UPI ID cannot collide on the unique key inside their
+ * transactions. The deltas are then applied as one JDBC batch inside the transaction that
+ * changes the transactions, in key order, so concurrent changes lock rows in the same order.
+ */
+@Repository
+public class UserStatsBatchRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsBatchRepository.class);
+    
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE transaction_user_stats SET sent_count = sent_count + ?, sent_amount = sent_amount + ?, " +
+            "received_count = received_count + ?, received_amount = received_amount + ? " +
+            "WHERE upi_id = ? AND status = ?";
+    
+    private static final String INSERT_EMPTY_SQL =
+            "INSERT INTO transaction_user_stats (upi_id, status, sent_count, sent_amount, received_count, " +
+            "received_amount) VALUES (?, ?, 0, 0, 0, 0)";
+    
+    private static final String EXISTING_KEYS_SQL =
+            "SELECT upi_id, status FROM transaction_user_stats WHERE upi_id IN (:upiIds)";
+    
+    // Recompute every existing row in place, so changes applied meanwhile still add up on top
+    private static final String RECOMPUTE_SQL =
+            "UPDATE transaction_user_stats s SET " +
+            "sent_count = (SELECT COUNT(*) FROM transactions t WHERE t.sender_upi_id = s.upi_id AND t.status = s.status), " +
+            "sent_amount = (SELECT COALESCE(SUM(t.amount), 0) FROM transactions t " +
+            "WHERE t.sender_upi_id = s.upi_id AND t.status = s.status), " +
+            "received_count = (SELECT COUNT(*) FROM transactions t WHERE t.receiver_upi_id = s.upi_id AND t.status = s.status), " +
+            "received_amount = (SELECT COALESCE(SUM(t.amount), 0) FROM transactions t " +
+            "WHERE t.receiver_upi_id = s.upi_id AND t.status = s.status)";
+    
+    private static final String INSERT_MISSING_SQL =
+            "INSERT INTO transaction_user_stats (upi_id, status, sent_count, sent_amount, received_count, received_amount) " +
+            "SELECT a.upi_id, a.status, SUM(a.sent_count), SUM(a.sent_amount), SUM(a.received_count), SUM(a.received_amount) " +
+            "FROM (SELECT sender_upi_id AS upi_id, status, COUNT(*) AS sent_count, SUM(amount) AS sent_amount, " +
+            "0 AS received_count, 0 AS received_amount FROM transactions GROUP BY sender_upi_id, status " +
+            "UNION ALL SELECT receiver_upi_id, status, 0, 0, COUNT(*), SUM(amount) FROM transactions " +
+            "GROUP BY receiver_upi_id, status) a " +
+            "WHERE NOT EXISTS (SELECT 1 FROM transaction_user_stats s WHERE s.upi_id = a.upi_id AND s.status = a.status) " +
+            "GROUP BY a.upi_id, a.status";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    public UserStatsBatchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+    
+    /**
+     * Deltas of recording new transactions in their current status
+     */
+    public static List<Delta> created(List<Transaction> transactions) {
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            add(deltas, transaction, transaction.getStatus(), 1);
+        }
+        return nonZero(deltas);
+    }
+    
+    /**
+     * Deltas of moving transactions from PENDING to the given statuses
+     */
+    public static List<Delta> completed(List<Transaction> transactions, List<TransactionStatus> statuses) {
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            if (statuses.get(i) != TransactionStatus.PENDING) {
+                add(deltas, transactions.get(i), TransactionStatus.PENDING, -1);
+                add(deltas, transactions.get(i), statuses.get(i), 1);
+            }
+        }
+        return nonZero(deltas);
+    }
+    
+    private static void add(Map<String, Delta> deltas, Transaction transaction, TransactionStatus status, int sign) {
+        BigDecimal amount = sign < 0 ? transaction.getAmount().negate() : transaction.getAmount();
+        Delta sent = deltas.computeIfAbsent(transaction.getSenderUpiId() + '\0' + status,
+                key -> new Delta(transaction.getSenderUpiId(), status));
+        sent.sentCount += sign;
+        sent.sentAmount = sent.sentAmount.add(amount);
+        Delta received = deltas.computeIfAbsent(transaction.getReceiverUpiId() + '\0' + status,
+                key -> new Delta(transaction.getReceiverUpiId(), status));
+        received.receivedCount += sign;
+        received.receivedAmount = received.receivedAmount.add(amount);
+    }
+    
+    private static List<Delta> nonZero(Map<String, Delta> deltas) {
+        List<Delta> nonZero = new ArrayList<>(deltas.size());
+        for (Delta delta : deltas.values()) {
+            if (delta.sentCount != 0 || delta.receivedCount != 0 ||
+                delta.sentAmount.signum() != 0 || delta.receivedAmount.signum() != 0) {
+                nonZero.add(delta);
+            }
+        }
+        return nonZero;
+    }
+    
+    /**
+     * Create the rows the deltas apply to that do not exist yet. Call outside a transaction:
+     * each row is inserted on its own, and a row inserted concurrently is simply kept.
+     */
+    public void createMissingRows(List<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<String> upiIds = new HashSet<>();
+        deltas.forEach(delta -> upiIds.add(delta.upiId));
+        Set<String> existing = new HashSet<>();
+        namedParameterJdbcTemplate.query(EXISTING_KEYS_SQL, new MapSqlParameterSource("upiIds", upiIds),
+                rs -> {
+                    existing.add(rs.getString("upi_id") + '\0' + rs.getString("status"));
+                });
+        
+        for (Delta delta : deltas) {
+            if (!existing.contains(delta.upiId + '\0' + delta.status.name())) {
+                try {
+                    jdbcTemplate.update(INSERT_EMPTY_SQL, delta.upiId, delta.status.name());
+                } catch (DuplicateKeyException e) {
+                    // Created concurrently by another change
+                }
+            }
+        }
+    }
+    
+    /**
+     * Apply deltas to their rows as one JDBC batch, within the caller's transaction
+     */
+    public void apply(List<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Delta delta = deltas.get(i);
+                ps.setLong(1, delta.sentCount);
+                ps.setBigDecimal(2, delta.sentAmount);
+                ps.setLong(3, delta.receivedCount);
+                ps.setBigDecimal(4, delta.receivedAmount);
+                ps.setString(5, delta.upiId);
+                ps.setString(6, delta.status.name());
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                logger.warn("No user stats row for {} {}, left for the next rebuild",
+                           deltas.get(i).upiId, deltas.get(i).status);
+            }
+        }
+    }
+    
+    /**
+     * Recompute every row from the transactions table and add rows for UPI IDs and statuses
+     * that have none. Returns the number of rows added.
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update(RECOMPUTE_SQL);
+        return jdbcTemplate.update(INSERT_MISSING_SQL);
+    }
+    
+    /**
+     * Change to the totals of one UPI ID in one status
+     */
+    public static final class Delta {
+        private final String upiId;
+        private final TransactionStatus status;
+        private long sentCount;
+        private BigDecimal sentAmount = BigDecimal.ZERO;
+        private long receivedCount;
+        private BigDecimal receivedAmount = BigDecimal.ZERO;
+        
+        private Delta(String upiId, TransactionStatus status) {
+            this.upiId = upiId;
+            this.status = status;
+        }
+        
+        public String getUpiId() {
+            return upiId;
+        }
+        
+        public TransactionStatus getStatus() {
+            return status;
+        }
+        
+        public long getSentCount() {
+            return sentCount;
+        }
+        
+        public BigDecimal getSentAmount() {
+            return sentAmount;
+        }
+        
+        public long getReceivedCount() {
+            return receivedCount;
+        }
+        
+        public BigDecimal getReceivedAmount() {
+            return receivedAmount;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.entity.TransactionUserStats;
+import com.upi.transaction.enums.TransactionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<TransactionUserStats, Long> {
+    
+    /**
+     * Totals of a UPI ID, one row per status it has transactions in
+     */
+    List<TransactionUserStats> findByUpiId(String upiId);
+    
+    /**
+     * Totals of a UPI ID in one status
+     */
+    Optional<TransactionUserStats> findByUpiIdAndStatus(String upiId, TransactionStatus status);
+}
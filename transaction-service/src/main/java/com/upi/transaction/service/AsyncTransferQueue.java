@@ -0,0 +1,104 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.exception.TransferQueueFullException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded work queue for accepted (202) transfers, drained by a fixed pool of workers.
+ * Each worker runs one transfer to completion, so the number of transfers talking to
+ * Account Service at once is the worker count, whatever the request rate.
+ *
+ * A slot is reserved before the PENDING row is written and released when its transfer
+ * finishes, so a reserved transfer is never rejected by the pool afterwards. When every
+ * slot is taken, reserve() fails and the caller answers 429.
+ *
+ * A transfer that waited in the queue longer than transaction.async.max-queue-wait-ms is
+ * expired instead of started, which bounds how late a transfer can reach Account Service.
+ * Transfers still queued at shutdown stay PENDING for the recovery worker.
+ */
+@Component
+public class AsyncTransferQueue implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTransferQueue.class);
+
+    private final ThreadPoolExecutor workers;
+    private final Semaphore slots;
+    private final long maxQueueWaitNanos;
+
+    @Autowired
+    public AsyncTransferQueue(@Value("${transaction.async.workers:8}") int workerCount,
+                              @Value("${transaction.async.queue-capacity:500}") int queueCapacity,
+                              @Value("${transaction.async.max-queue-wait-ms:60000}") long maxQueueWaitMs,
+                              MeterRegistry meterRegistry) {
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("transfer-worker-"));
+        this.slots = new Semaphore(workerCount + queueCapacity);
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMs);
+
+        Gauge.builder("transaction.transfer.async.queued", workers, executor -> executor.getQueue().size())
+                .description("Accepted transfers waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("transaction.transfer.async.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Accepted transfers being executed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserve a slot for one transfer, or throw if the queue is full
+     */
+    public void reserve() {
+        if (!slots.tryAcquire()) {
+            throw new TransferQueueFullException("Transfer queue is full, retry later");
+        }
+    }
+
+    /**
+     * Give back a reserved slot whose transfer will not be submitted
+     */
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * Run a transfer for a previously reserved slot, or its expiry if it waited too long;
+     * the slot is released when either finishes
+     */
+    public void submit(Runnable transfer, Runnable expiry) {
+        long queuedAt = System.nanoTime();
+        workers.execute(() -> {
+            try {
+                if (System.nanoTime() - queuedAt > maxQueueWaitNanos) {
+                    expiry.run();
+                } else {
+                    transfer.run();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Accepted transfer failed: {}", e.getMessage());
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        List<Runnable> pending = workers.shutdownNow();
+        if (!pending.isEmpty()) {
+            logger.warn("{} accepted transfers were not started before shutdown and remain PENDING", pending.size());
+        }
+    }
+}
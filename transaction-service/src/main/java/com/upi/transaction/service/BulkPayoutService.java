@@ -0,0 +1,249 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.dto.BulkPayoutResponse;
+import com.upi.transaction.dto.PayoutLineRequest;
+import com.upi.transaction.dto.PayoutLineResult;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.PayoutRepository;
+import com.upi.transaction.repository.TransactionRepository;
+import com.upi.transaction.repository.TransactionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pays many receivers from one sender. The sender and every receiver are validated in one
+ * Account Service call, the lines are recorded PENDING in one JDBC batch, the sender is
+ * debited once for the total under the payout reference, and the receivers are credited
+ * in parallel, at most transaction.payout.credit-concurrency at a time, each under its own
+ * line reference.
+ *
+ * A line whose credit is refused is refunded to the sender under its line reference and
+ * FAILED. A line whose debit or credit outcome is unknown stays PENDING, and
+ * PendingTransactionRecovery settles it from the journal entries of the line and payout
+ * references. No credit is started after transaction.payout.max-duration-ms, so a payout
+ * is over well before recovery considers its lines stale; lines not reached by then are
+ * refunded.
+ */
+@Service
+public class BulkPayoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkPayoutService.class);
+
+    private static final String PAYOUT_REF_PREFIX = "PAY";
+    private static final String REFUND_KEY_PREFIX = "refund-";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionStore transactionStore;
+    private final PayoutRepository payoutRepository;
+    private final AccountServiceClient accountServiceClient;
+    private final TransactionIdGenerator idGenerator;
+    private final TransactionStatusStream statusStream;
+    private final MeterRegistry meterRegistry;
+    private final int creditConcurrency;
+    private final long maxDurationNanos;
+
+    public BulkPayoutService(TransactionRepository transactionRepository,
+                             TransactionStore transactionStore,
+                             PayoutRepository payoutRepository,
+                             AccountServiceClient accountServiceClient,
+                             TransactionIdGenerator idGenerator,
+                             TransactionStatusStream statusStream,
+                             MeterRegistry meterRegistry,
+                             @Value("${transaction.payout.credit-concurrency:16}") int creditConcurrency,
+                             @Value("${transaction.payout.max-duration-ms:120000}") long maxDurationMs) {
+        this.transactionRepository = transactionRepository;
+        this.transactionStore = transactionStore;
+        this.payoutRepository = payoutRepository;
+        this.accountServiceClient = accountServiceClient;
+        this.idGenerator = idGenerator;
+        this.statusStream = statusStream;
+        this.meterRegistry = meterRegistry;
+        this.creditConcurrency = creditConcurrency;
+        this.maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+    }
+
+    /**
+     * Pay every line from the sender. Fails as a whole only if the request itself or the
+     * sender is invalid; otherwise each line's outcome is in its result.
+     */
+    public Mono<BulkPayoutResponse> processPayout(String senderUpiId, List<PayoutLineRequest> lines,
+                                                  String description) {
+        if (senderUpiId == null || senderUpiId.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Sender UPI ID is required"));
+        }
+        if (lines == null || lines.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("At least one payout line is required"));
+        }
+
+        List<PayoutLineResult> results = new ArrayList<>(lines.size());
+        List<Integer> candidates = new ArrayList<>(lines.size());
+        Set<String> upiIds = new LinkedHashSet<>();
+        upiIds.add(senderUpiId);
+        for (int i = 0; i < lines.size(); i++) {
+            PayoutLineRequest line = lines.get(i);
+            PayoutLineResult result = new PayoutLineResult(i, line.getReceiverUpiId(), line.getAmount());
+            results.add(result);
+
+            if (line.getReceiverUpiId() == null || line.getReceiverUpiId().trim().isEmpty()) {
+                result.completed(TransactionStatus.FAILED, "Receiver UPI ID is required");
+            } else if (line.getAmount() == null || line.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                result.completed(TransactionStatus.FAILED, "Amount must be positive");
+            } else if (senderUpiId.equals(line.getReceiverUpiId())) {
+                result.completed(TransactionStatus.FAILED, "Cannot transfer to same account");
+            } else {
+                candidates.add(i);
+                upiIds.add(line.getReceiverUpiId());
+            }
+        }
+
+        return accountServiceClient.validateUpiIds(new ArrayList<>(upiIds))
+                .flatMap(valid -> {
+                    if (!Boolean.TRUE.equals(valid.get(senderUpiId))) {
+                        return Mono.error(new IllegalArgumentException("Invalid sender UPI ID: " + senderUpiId));
+                    }
+                    String payoutRef = PAYOUT_REF_PREFIX + TransactionIdGenerator.encode(idGenerator.nextId());
+                    List<Transaction> rows = new ArrayList<>(candidates.size());
+                    for (int i : candidates) {
+                        PayoutLineRequest line = lines.get(i);
+                        if (!Boolean.TRUE.equals(valid.get(line.getReceiverUpiId()))) {
+                            results.get(i).completed(TransactionStatus.FAILED,
+                                    "Invalid receiver UPI ID: " + line.getReceiverUpiId());
+                            continue;
+                        }
+                        Transaction row = new Transaction(senderUpiId, line.getReceiverUpiId(), line.getAmount(),
+                                line.getDescription() != null ? line.getDescription() : description,
+                                TransactionStatus.PENDING, idGenerator.nextReference());
+                        row.setPayoutRef(payoutRef);
+                        rows.add(row);
+                        results.get(i).setTransactionRef(row.getTransactionRef());
+                        results.get(i).setStatus(TransactionStatus.PENDING);
+                    }
+                    if (rows.isEmpty()) {
+                        return Mono.just(new BulkPayoutResponse(null, senderUpiId, BigDecimal.ZERO, results));
+                    }
+
+                    Map<String, PayoutLineResult> resultsByRef = new HashMap<>();
+                    results.stream()
+                            .filter(result -> result.getTransactionRef() != null)
+                            .forEach(result -> resultsByRef.put(result.getTransactionRef(), result));
+                    BigDecimal total = rows.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+
+                    logger.info("Processing payout {}: {} lines, {} from {}", payoutRef, rows.size(), total, senderUpiId);
+                    return transactionStore.execute(() -> {
+                                payoutRepository.insertLines(rows);
+                                return transactionRepository.findByPayoutRefOrderByIdAsc(payoutRef);
+                            })
+                            .flatMap(saved -> settle(payoutRef, senderUpiId, total, saved, resultsByRef))
+                            .map(debited -> new BulkPayoutResponse(payoutRef, senderUpiId, debited, results))
+                            // The debit's outcome is unknown: nothing can be said about the amount debited
+                            .switchIfEmpty(Mono.fromSupplier(() ->
+                                    new BulkPayoutResponse(payoutRef, senderUpiId, null, results)));
+                })
+                .doOnNext(response -> response.getResults().forEach(result ->
+                        meterRegistry.counter("transaction.payout.lines",
+                                "status", result.getStatus().name().toLowerCase()).increment()));
+    }
+
+    /**
+     * Debit the sender once for the whole payout, then credit every line. Emits the amount
+     * debited, or nothing if the debit's outcome is unknown.
+     */
+    private Mono<BigDecimal> settle(String payoutRef, String senderUpiId, BigDecimal total,
+                                    List<Transaction> lines, Map<String, PayoutLineResult> results) {
+        long startedAt = System.nanoTime();
+        return accountServiceClient.updateBalance(senderUpiId, total, "DEBIT", payoutRef, payoutRef)
+                .flatMap(debited -> Flux.fromIterable(lines)
+                        .flatMap(line -> Mono.defer(() -> System.nanoTime() - startedAt > maxDurationNanos ?
+                                refund(line, results.get(line.getTransactionRef()),
+                                       "Payout ran out of time before this line was credited") :
+                                credit(line, results.get(line.getTransactionRef()))), creditConcurrency)
+                        .then(Mono.defer(() -> complete(lines, results)))
+                        .thenReturn(total))
+                .onErrorResume(error -> {
+                    if (TransactionService.isRejection(error)) {
+                        logger.warn("Debit refused for payout {}: {}", payoutRef, error.getMessage());
+                        results.values().forEach(result -> result.completed(TransactionStatus.FAILED, error.getMessage()));
+                        return complete(lines, results).thenReturn(BigDecimal.ZERO);
+                    }
+                    logger.error("Debit outcome unknown for payout {}, {} lines left PENDING for recovery: {}",
+                                 payoutRef, lines.size(), error.getMessage());
+                    results.values().forEach(result ->
+                            result.completed(TransactionStatus.PENDING, "Outcome unknown, to be settled by recovery"));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> credit(Transaction line, PayoutLineResult result) {
+        String transactionRef = line.getTransactionRef();
+        return accountServiceClient.updateBalance(line.getReceiverUpiId(), line.getAmount(), "CREDIT",
+                                                  transactionRef, transactionRef)
+                .doOnNext(response -> result.completed(TransactionStatus.SUCCESS, null))
+                .then()
+                .onErrorResume(error -> TransactionService.isRejection(error) ?
+                        refund(line, result, error.getMessage()) :
+                        leavePending(line, result, error));
+    }
+
+    /**
+     * Give a line's amount back to the sender, journaled under the line reference
+     */
+    private Mono<Void> refund(Transaction line, PayoutLineResult result, String reason) {
+        String transactionRef = line.getTransactionRef();
+        return accountServiceClient.updateBalance(line.getSenderUpiId(), line.getAmount(), "CREDIT",
+                                                  transactionRef, REFUND_KEY_PREFIX + transactionRef)
+                .doOnNext(response -> result.completed(TransactionStatus.FAILED, reason))
+                .then()
+                .onErrorResume(error -> leavePending(line, result, error));
+    }
+
+    private Mono<Void> leavePending(Transaction line, PayoutLineResult result, Throwable error) {
+        logger.error("Outcome unknown for payout line {}, left PENDING for recovery: {}",
+                     line.getTransactionRef(), error.getMessage());
+        result.completed(TransactionStatus.PENDING, "Outcome unknown, to be settled by recovery");
+        return Mono.empty();
+    }
+
+    /**
+     * Write the final status of every settled line in one batch and publish it
+     */
+    private Mono<Void> complete(List<Transaction> lines, Map<String, PayoutLineResult> results) {
+        List<Transaction> settled = new ArrayList<>(lines.size());
+        List<TransactionStatus> statuses = new ArrayList<>(lines.size());
+        for (Transaction line : lines) {
+            TransactionStatus status = results.get(line.getTransactionRef()).getStatus();
+            if (status != TransactionStatus.PENDING) {
+                settled.add(line);
+                statuses.add(status);
+            }
+        }
+        if (settled.isEmpty()) {
+            return Mono.empty();
+        }
+        return transactionStore.execute(() -> payoutRepository.completePending(settled, statuses))
+                .doOnNext(updateCounts -> {
+                    for (int i = 0; i < settled.size(); i++) {
+                        if (updateCounts[i] != 0) {
+                            statusStream.publish(settled.get(i), statuses.get(i));
+                        }
+                    }
+                })
+                .then();
+    }
+}
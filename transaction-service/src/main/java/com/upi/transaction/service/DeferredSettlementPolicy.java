@@ -0,0 +1,50 @@
+package com.upi.transaction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+/**
+ * Decides which transfers are settled by the NettingEngine instead of one by one. A
+ * transfer is deferred when netting is enabled, both its sender and receiver are listed in
+ * transaction.netting.upi-ids, and its amount is at most transaction.netting.max-amount.
+ * Listing only the high-volume IDs that pay each other back and forth keeps every netting
+ * batch small and ordinary transfers unaffected.
+ */
+@Component
+public class DeferredSettlementPolicy {
+
+    private final boolean enabled;
+    private final Set<String> upiIds;
+    private final BigDecimal maxAmount;
+
+    @Autowired
+    public DeferredSettlementPolicy(@Value("${transaction.netting.enabled:false}") boolean enabled,
+                                    @Value("${transaction.netting.upi-ids:}") Set<String> upiIds,
+                                    @Value("${transaction.netting.max-amount:100000}") BigDecimal maxAmount) {
+        this.enabled = enabled;
+        this.upiIds = upiIds;
+        this.maxAmount = maxAmount;
+    }
+
+    public static DeferredSettlementPolicy disabled() {
+        return new DeferredSettlementPolicy(false, Set.of(), BigDecimal.ZERO);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a valid transfer should be recorded now and settled by the next netting run
+     */
+    public boolean isDeferred(String senderUpiId, String receiverUpiId, BigDecimal amount) {
+        return enabled &&
+               upiIds.contains(senderUpiId) &&
+               upiIds.contains(receiverUpiId) &&
+               amount.compareTo(maxAmount) <= 0;
+    }
+}
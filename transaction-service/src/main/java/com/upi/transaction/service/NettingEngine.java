@@ -0,0 +1,225 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.PayoutRepository;
+import com.upi.transaction.repository.TransactionRepository;
+import com.upi.transaction.repository.TransactionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settles deferred transfers (see DeferredSettlementPolicy) in netting runs. Every
+ * transaction.netting.interval-ms a run claims all transfers waiting for netting under a new
+ * netting reference, adds them up into one net position per UPI ID and applies only the
+ * non-zero positions, as one atomic Account Service batch journaled under the netting
+ * reference. Transfers that cancel out between the same IDs then cost no balance update at
+ * all; transaction.netting.mutations.saved counts the updates avoided.
+ *
+ * Balances are checked against net positions, not against each transfer. If the batch is
+ * refused, nothing was applied and the run falls back to settling each transfer on its own
+ * under its own reference, so one bad transfer fails alone. If the batch's outcome is
+ * unknown, the transfers stay PENDING and PendingTransactionRecovery settles them from the
+ * entries of the netting reference.
+ */
+@Component
+public class NettingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettingEngine.class);
+
+    /** Netting reference of deferred transfers no run has claimed yet */
+    public static final String UNSETTLED = "UNSETTLED";
+    public static final String NETTING_REF_PREFIX = "NET";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionStore transactionStore;
+    private final PayoutRepository payoutRepository;
+    private final AccountServiceClient accountServiceClient;
+    private final TransactionIdGenerator idGenerator;
+    private final TransactionStatusStream statusStream;
+    private final DeferredSettlementPolicy policy;
+    private final MeterRegistry meterRegistry;
+    private final int fallbackConcurrency;
+
+    public NettingEngine(TransactionRepository transactionRepository,
+                         TransactionStore transactionStore,
+                         PayoutRepository payoutRepository,
+                         AccountServiceClient accountServiceClient,
+                         TransactionIdGenerator idGenerator,
+                         TransactionStatusStream statusStream,
+                         DeferredSettlementPolicy policy,
+                         MeterRegistry meterRegistry,
+                         @Value("${transaction.netting.fallback-concurrency:8}") int fallbackConcurrency) {
+        this.transactionRepository = transactionRepository;
+        this.transactionStore = transactionStore;
+        this.payoutRepository = payoutRepository;
+        this.accountServiceClient = accountServiceClient;
+        this.idGenerator = idGenerator;
+        this.statusStream = statusStream;
+        this.policy = policy;
+        this.meterRegistry = meterRegistry;
+        this.fallbackConcurrency = fallbackConcurrency;
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.netting.interval-ms:1000}",
+               initialDelayString = "${transaction.netting.interval-ms:1000}")
+    public void settleDeferred() {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        try {
+            settle().block();
+        } catch (RuntimeException e) {
+            logger.error("Netting run failed, its transfers are left to recovery: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claim every transfer waiting for netting and settle them in one run; emits the
+     * number of transfers claimed
+     */
+    public Mono<Integer> settle() {
+        String nettingRef = NETTING_REF_PREFIX + TransactionIdGenerator.encode(idGenerator.nextId());
+        return transactionStore.execute(() -> transactionRepository.claimForNetting(nettingRef, UNSETTLED) == 0 ?
+                        List.<Transaction>of() : transactionRepository.findByNettingRefOrderByIdAsc(nettingRef))
+                .flatMap(transfers -> transfers.isEmpty() ?
+                        Mono.just(0) :
+                        settle(nettingRef, transfers).thenReturn(transfers.size()));
+    }
+
+    private Mono<Void> settle(String nettingRef, List<Transaction> transfers) {
+        List<AccountServiceClient.BatchBalanceEntry> entries = netPositions(nettingRef, transfers);
+        int saved = 2 * transfers.size() - entries.size();
+        logger.info("Netting run {}: {} transfers netted to {} balance updates", nettingRef, transfers.size(), entries.size());
+
+        Mono<Void> apply = entries.isEmpty() ? Mono.empty() : accountServiceClient.updateBalancesAtomically(entries);
+        return apply
+                .then(Mono.defer(() -> {
+                    meterRegistry.counter("transaction.netting.transfers").increment(transfers.size());
+                    meterRegistry.counter("transaction.netting.mutations.saved").increment(saved);
+                    batchOutcome("applied");
+                    return complete(transfers, Collections.nCopies(transfers.size(), TransactionStatus.SUCCESS));
+                }))
+                .onErrorResume(error -> {
+                    if (TransactionService.isRejection(error)) {
+                        logger.warn("Netting run {} refused, settling its {} transfers one by one: {}",
+                                    nettingRef, transfers.size(), error.getMessage());
+                        batchOutcome("rejected");
+                        return settleGross(transfers);
+                    }
+                    logger.error("Outcome of netting run {} unknown, {} transfers left PENDING for recovery: {}",
+                                 nettingRef, transfers.size(), error.getMessage());
+                    batchOutcome("unknown");
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * One balance update per UPI ID with a non-zero net position, in cents. Each UPI ID is
+     * given a dense index on first sight, so the positions add up in a primitive long array
+     * rather than in a map of BigDecimals.
+     */
+    static List<AccountServiceClient.BatchBalanceEntry> netPositions(String nettingRef, List<Transaction> transfers) {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> upiIds = new ArrayList<>();
+        long[] cents = new long[2 * transfers.size()];
+        for (Transaction transfer : transfers) {
+            long amount = transfer.getAmount().movePointRight(2).longValueExact();
+            cents[indexOf(transfer.getSenderUpiId(), indexes, upiIds)] -= amount;
+            cents[indexOf(transfer.getReceiverUpiId(), indexes, upiIds)] += amount;
+        }
+
+        List<AccountServiceClient.BatchBalanceEntry> entries = new ArrayList<>();
+        for (int i = 0; i < upiIds.size(); i++) {
+            if (cents[i] != 0) {
+                entries.add(new AccountServiceClient.BatchBalanceEntry(upiIds.get(i),
+                        BigDecimal.valueOf(Math.abs(cents[i]), 2), cents[i] > 0 ? "CREDIT" : "DEBIT", nettingRef));
+            }
+        }
+        return entries;
+    }
+
+    private static int indexOf(String upiId, Map<String, Integer> indexes, List<String> upiIds) {
+        Integer index = indexes.get(upiId);
+        if (index == null) {
+            index = upiIds.size();
+            indexes.put(upiId, index);
+            upiIds.add(upiId);
+        }
+        return index;
+    }
+
+    /**
+     * Settle each transfer of a refused run with its own transfer call. A transfer whose
+     * outcome is unknown stays PENDING for recovery.
+     */
+    private Mono<Void> settleGross(List<Transaction> transfers) {
+        Map<Long, TransactionStatus> statuses = new HashMap<>();
+        return Flux.fromIterable(transfers)
+                .flatMap(transfer -> accountServiceClient.transfer(transfer.getSenderUpiId(), transfer.getReceiverUpiId(),
+                                                                    transfer.getAmount(), transfer.getTransactionRef())
+                        .map(response -> TransactionStatus.SUCCESS)
+                        .onErrorResume(error -> {
+                            if (TransactionService.isRejection(error)) {
+                                return Mono.just(TransactionStatus.FAILED);
+                            }
+                            logger.error("Outcome unknown for netted transfer {}, left PENDING for recovery: {}",
+                                         transfer.getTransactionRef(), error.getMessage());
+                            return Mono.empty();
+                        })
+                        .doOnNext(status -> {
+                            synchronized (statuses) {
+                                statuses.put(transfer.getId(), status);
+                            }
+                        }), fallbackConcurrency)
+                .then(Mono.defer(() -> {
+                    List<Transaction> settled = new ArrayList<>(statuses.size());
+                    List<TransactionStatus> finalStatuses = new ArrayList<>(statuses.size());
+                    for (Transaction transfer : transfers) {
+                        TransactionStatus status = statuses.get(transfer.getId());
+                        if (status != null) {
+                            settled.add(transfer);
+                            finalStatuses.add(status);
+                        }
+                    }
+                    return complete(settled, finalStatuses);
+                }));
+    }
+
+    /**
+     * Write the final status of every settled transfer in one batch and publish it
+     */
+    private Mono<Void> complete(List<Transaction> settled, List<TransactionStatus> statuses) {
+        if (settled.isEmpty()) {
+            return Mono.empty();
+        }
+        return transactionStore.execute(() -> payoutRepository.completePending(settled, statuses))
+                .doOnNext(updateCounts -> {
+                    for (int i = 0; i < settled.size(); i++) {
+                        if (updateCounts[i] != 0) {
+                            statusStream.publish(settled.get(i), statuses.get(i));
+                        }
+                    }
+                })
+                .then();
+    }
+
+    private void batchOutcome(String outcome) {
+        meterRegistry.counter("transaction.netting.batches", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,250 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.TransactionRepository;
+import com.upi.transaction.repository.TransactionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Settles transactions left PENDING: by a crash mid-transfer, or by a transfer whose
+ * outcome was unknown (a timeout, a lost response). Every transfer writes its legs to the
+ * account journal under the transaction reference, so the journal says what happened:
+ * <ul>
+ *   <li>sender debited and receiver credited: SUCCESS</li>
+ *   <li>nothing applied, or applied and already reversed: FAILED</li>
+ *   <li>sender debited only: the debit is refunded under the same reference, then FAILED</li>
+ *   <li>anything else is left PENDING and reported for manual review</li>
+ * </ul>
+ * Bulk payout lines are debited once for the whole payout, under the payout reference, so
+ * a line with no entries of its own is refunded if that debit was applied and FAILED if not.
+ * Netted transfers are SUCCESS if their netting run's batch was applied, which its entries
+ * under the netting reference show, and are otherwise settled like any other transfer;
+ * transfers still waiting for netting, and runs younger than stale-after-ms, are skipped.
+ * Only transactions older than transaction.recovery.stale-after-ms are considered, which
+ * must exceed the longest a transfer can still be in flight: a synchronous transfer's full
+ * retry budget, plus transaction.async.max-queue-wait-ms for accepted ones. A row is moved
+ * out of PENDING only if it is still PENDING, so running on several instances is safe.
+ */
+@Component
+public class PendingTransactionRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingTransactionRecovery.class);
+
+    private static final LocalDateTime OLDEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public enum Outcome { SUCCESS, FAILED, COMPENSATED, MANUAL, ERROR }
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionStore transactionStore;
+    private final AccountServiceClient accountServiceClient;
+    private final MeterRegistry meterRegistry;
+    private final TransactionStatusStream statusStream;
+    private final DeferredSettlementPolicy deferredSettlementPolicy;
+    private final boolean enabled;
+    private final Duration staleAfter;
+    private final int batchSize;
+    private final int concurrency;
+
+    public PendingTransactionRecovery(TransactionRepository transactionRepository,
+                                      TransactionStore transactionStore,
+                                      AccountServiceClient accountServiceClient,
+                                      MeterRegistry meterRegistry,
+                                      TransactionStatusStream statusStream,
+                                      DeferredSettlementPolicy deferredSettlementPolicy,
+                                      @Value("${transaction.recovery.enabled:true}") boolean enabled,
+                                      @Value("${transaction.recovery.stale-after-ms:300000}") long staleAfterMs,
+                                      @Value("${transaction.recovery.batch-size:100}") int batchSize,
+                                      @Value("${transaction.recovery.concurrency:8}") int concurrency) {
+        this.transactionRepository = transactionRepository;
+        this.transactionStore = transactionStore;
+        this.accountServiceClient = accountServiceClient;
+        this.meterRegistry = meterRegistry;
+        this.statusStream = statusStream;
+        this.deferredSettlementPolicy = deferredSettlementPolicy;
+        this.enabled = enabled;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.recovery.interval-ms:60000}",
+               initialDelayString = "${transaction.recovery.interval-ms:60000}")
+    public void recoverStalePending() {
+        if (!enabled) {
+            return;
+        }
+        Map<Outcome, Long> outcomes = recover(LocalDateTime.now().minus(staleAfter));
+        if (!outcomes.isEmpty()) {
+            logger.info("Recovered stale PENDING transactions: {}", outcomes);
+        }
+    }
+
+    /**
+     * Settle every transaction still PENDING that was created before the cutoff, one batch
+     * at a time, with up to transaction.recovery.concurrency in progress at once
+     */
+    public Map<Outcome, Long> recover(LocalDateTime cutoff) {
+        Map<Outcome, Long> outcomes = new EnumMap<>(Outcome.class);
+        LocalDateTime afterCreatedAt = OLDEST;
+        Long afterId = 0L;
+        while (true) {
+            List<Transaction> batch = transactionRepository.findByStatusCreatedBefore(TransactionStatus.PENDING,
+                    cutoff, afterCreatedAt, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return outcomes;
+            }
+            List<Outcome> settled = Flux.fromIterable(batch)
+                    .flatMap(this::recover, concurrency)
+                    .collectList()
+                    .block();
+            settled.forEach(outcome -> outcomes.merge(outcome, 1L, Long::sum));
+
+            Transaction last = batch.get(batch.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+            if (batch.size() < batchSize) {
+                return outcomes;
+            }
+        }
+    }
+
+    /**
+     * Settle one PENDING transaction from its account journal entries; emits nothing for a
+     * transaction left to the netting engine
+     */
+    Mono<Outcome> recover(Transaction transaction) {
+        String transactionRef = transaction.getTransactionRef();
+        Mono<Outcome> settled = transaction.getNettingRef() == null ?
+                recoverFromEntries(transaction) :
+                recoverNetted(transaction);
+        return settled
+                .onErrorResume(error -> {
+                    logger.warn("Failed to recover transaction {}: {}", transactionRef, error.getMessage());
+                    return Mono.just(Outcome.ERROR);
+                })
+                .doOnNext(outcome -> meterRegistry.counter("transaction.recovery.outcomes",
+                        "outcome", outcome.name().toLowerCase()).increment());
+    }
+
+    private Mono<Outcome> recoverFromEntries(Transaction transaction) {
+        return accountServiceClient.getEntriesByTransactionRef(transaction.getTransactionRef())
+                .flatMap(entries -> {
+                    Map<String, BigDecimal> net = entries.stream().collect(Collectors.groupingBy(
+                            AccountServiceClient.AccountEntry::getUpiId,
+                            Collectors.reducing(BigDecimal.ZERO, AccountServiceClient.AccountEntry::getAmount, BigDecimal::add)));
+                    BigDecimal amount = transaction.getAmount();
+                    BigDecimal sent = net.getOrDefault(transaction.getSenderUpiId(), BigDecimal.ZERO).negate();
+                    BigDecimal received = net.getOrDefault(transaction.getReceiverUpiId(), BigDecimal.ZERO);
+                    if (transaction.getPayoutRef() != null) {
+                        return recoverPayoutLine(transaction, sent.negate(), received);
+                    }
+
+                    if (sent.compareTo(amount) == 0 && received.compareTo(amount) == 0) {
+                        return complete(transaction, TransactionStatus.SUCCESS, Outcome.SUCCESS);
+                    }
+                    if (sent.signum() == 0 && received.signum() == 0) {
+                        return complete(transaction, TransactionStatus.FAILED, Outcome.FAILED);
+                    }
+                    if (sent.compareTo(amount) == 0 && received.signum() == 0) {
+                        return refund(transaction);
+                    }
+                    return manualReview(transaction, sent.negate(), received);
+                });
+    }
+
+    /**
+     * Settle a netted transfer: SUCCESS if its run's batch was applied, otherwise from its
+     * own entries, which a refused run's one-by-one transfers are journaled under. A transfer
+     * waiting for netting is left to the netting engine while netting is enabled, as is one
+     * whose run may still be in flight.
+     */
+    private Mono<Outcome> recoverNetted(Transaction transaction) {
+        String nettingRef = transaction.getNettingRef();
+        if (NettingEngine.UNSETTLED.equals(nettingRef)) {
+            // Never claimed, so never applied: with netting off it fails like any unapplied transfer
+            return deferredSettlementPolicy.isEnabled() ? Mono.empty() : recoverFromEntries(transaction);
+        }
+        long runStartedAt = TransactionIdGenerator.timestampOf(TransactionIdGenerator.decode(
+                nettingRef.substring(NettingEngine.NETTING_REF_PREFIX.length())));
+        if (System.currentTimeMillis() - runStartedAt < staleAfter.toMillis()) {
+            return Mono.empty();
+        }
+        return accountServiceClient.getEntriesByTransactionRef(nettingRef)
+                .flatMap(entries -> entries.isEmpty() ?
+                        recoverFromEntries(transaction) :
+                        complete(transaction, TransactionStatus.SUCCESS, Outcome.SUCCESS));
+    }
+
+    /**
+     * Settle a bulk payout line. Its own entries hold the receiver's credit and any refund
+     * to the sender; the sender's debit is under the payout reference.
+     */
+    private Mono<Outcome> recoverPayoutLine(Transaction line, BigDecimal refunded, BigDecimal received) {
+        BigDecimal amount = line.getAmount();
+        if (received.compareTo(amount) == 0 && refunded.signum() == 0) {
+            return complete(line, TransactionStatus.SUCCESS, Outcome.SUCCESS);
+        }
+        if (received.signum() == 0 && refunded.compareTo(amount) == 0) {
+            return complete(line, TransactionStatus.FAILED, Outcome.FAILED);
+        }
+        if (received.signum() != 0 || refunded.signum() != 0) {
+            return manualReview(line, refunded, received);
+        }
+        return accountServiceClient.getEntriesByTransactionRef(line.getPayoutRef())
+                .flatMap(payoutEntries -> {
+                    boolean debited = payoutEntries.stream()
+                            .filter(entry -> entry.getUpiId().equals(line.getSenderUpiId()))
+                            .map(AccountServiceClient.AccountEntry::getAmount)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add)
+                            .signum() < 0;
+                    return debited ? refund(line) : complete(line, TransactionStatus.FAILED, Outcome.FAILED);
+                });
+    }
+
+    /**
+     * Give the amount back to the sender under the transaction's own reference, so a later
+     * scan sees the debit reversed, then fail it
+     */
+    private Mono<Outcome> refund(Transaction transaction) {
+        String transactionRef = transaction.getTransactionRef();
+        return accountServiceClient.updateBalance(transaction.getSenderUpiId(), transaction.getAmount(), "CREDIT",
+                        transactionRef, "recovery-" + transactionRef)
+                .then(complete(transaction, TransactionStatus.FAILED, Outcome.COMPENSATED));
+    }
+
+    private Mono<Outcome> manualReview(Transaction transaction, BigDecimal senderNet, BigDecimal receiverNet) {
+        logger.error("Transaction {} needs manual review: sender net {}, receiver net {}, amount {}",
+                     transaction.getTransactionRef(), senderNet, receiverNet, transaction.getAmount());
+        return Mono.just(Outcome.MANUAL);
+    }
+
+    private Mono<Outcome> complete(Transaction transaction, TransactionStatus status, Outcome outcome) {
+        return transactionStore.completePending(transaction, status)
+                .map(updated -> {
+                    if (updated) {
+                        logger.info("Recovered transaction {} as {}", transaction.getTransactionRef(), status);
+                        statusStream.publish(transaction, status);
+                    }
+                    return outcome;
+                });
+    }
+}
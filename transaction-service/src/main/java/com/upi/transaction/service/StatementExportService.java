@@ -0,0 +1,119 @@
+package com.upi.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.transaction.dto.StatementLine;
+import com.upi.transaction.enums.StatementFormat;
+import com.upi.transaction.repository.StatementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes account statements straight from a database cursor to an output stream.
+ * Memory use is constant: one row and one write buffer, however long the history is.
+ */
+@Service
+public class StatementExportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StatementExportService.class);
+    
+    private static final String CSV_HEADER = 
+            "created_at,transaction_ref,direction,counterparty_upi_id,amount,status,description\n";
+    
+    // Flush periodically so the client receives rows while the export is still running
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    
+    private final StatementRepository statementRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    public StatementExportService(StatementRepository statementRepository, ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.statementRepository = statementRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * Write the statement of a UPI ID for the days from..to (both inclusive), oldest first
+     */
+    public void export(String upiId, LocalDate from, LocalDate to, StatementFormat format, OutputStream out) 
+            throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == StatementFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        
+        AtomicLong rows = new AtomicLong();
+        // Some drivers only stream with a fetch size inside a transaction, so hold one read-only transaction
+        readOnlyTransaction.executeWithoutResult(status -> 
+                statementRepository.forEachStatementLine(upiId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), 
+                        line -> {
+                            try {
+                                if (format == StatementFormat.CSV) {
+                                    writeCsv(writer, line);
+                                } else {
+                                    writer.write(objectMapper.writeValueAsString(line));
+                                    writer.write('\n');
+                                }
+                                if (rows.incrementAndGet() % FLUSH_EVERY_ROWS == 0) {
+                                    writer.flush();
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+        writer.flush();
+        
+        logger.info("Exported {} statement lines for {} ({} to {}, {}) in {} ms", 
+                   rows.get(), upiId, from, to, format, System.currentTimeMillis() - start);
+    }
+    
+    private void writeCsv(Writer writer, StatementLine line) throws IOException {
+        writer.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(line.getCreatedAt()));
+        writer.write(',');
+        writer.write(csvText(line.getTransactionRef()));
+        writer.write(',');
+        writer.write(line.getDirection());
+        writer.write(',');
+        writer.write(csvText(line.getCounterpartyUpiId()));
+        writer.write(',');
+        writer.write(line.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(line.getStatus().name());
+        writer.write(',');
+        writer.write(csvText(line.getDescription()));
+        writer.write('\n');
+    }
+    
+    /**
+     * Quote a free-text CSV field when needed, and defuse values a spreadsheet would run as a formula
+     */
+    private String csvText(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if ("=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
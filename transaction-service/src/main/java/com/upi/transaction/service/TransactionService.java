@@ -1,21 +1,36 @@
 package com.upi.transaction.service;
 
+import com.upi.common.id.TransactionIdGenerator;
 import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.dto.PageCursor;
+import com.upi.transaction.dto.TransactionPage;
+import com.upi.transaction.dto.TransactionStatsResponse;
+import com.upi.transaction.dto.TransactionSummaryResponse;
 import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.entity.TransactionUserStats;
 import com.upi.transaction.enums.TransactionStatus;
 import com.upi.transaction.repository.TransactionRepository;
+import com.upi.transaction.repository.TransactionStore;
+import com.upi.transaction.repository.UserStatsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
 @Transactional
@@ -24,66 +39,204 @@ public class TransactionService {
     private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
     
     private final TransactionRepository transactionRepository;
+    private final TransactionStore transactionStore;
     private final AccountServiceClient accountServiceClient;
-    private final Random random = new Random();
+    private final MeterRegistry meterRegistry;
+    private final boolean fastPath;
+    private final TransactionIdGenerator idGenerator;
+    private final AsyncTransferQueue asyncTransferQueue;
+    private final TransactionStatusStream statusStream;
+    private final DeferredSettlementPolicy deferredSettlementPolicy;
+    private final UserStatsRepository userStatsRepository;
     
     @Autowired
     public TransactionService(TransactionRepository transactionRepository,
-                             AccountServiceClient accountServiceClient) {
+                             TransactionStore transactionStore,
+                             AccountServiceClient accountServiceClient,
+                             MeterRegistry meterRegistry,
+                             @Value("${transaction.transfer.fast-path:false}") boolean fastPath,
+                             TransactionIdGenerator idGenerator,
+                             AsyncTransferQueue asyncTransferQueue,
+                             TransactionStatusStream statusStream,
+                             DeferredSettlementPolicy deferredSettlementPolicy,
+                             UserStatsRepository userStatsRepository) {
         this.transactionRepository = transactionRepository;
+        this.transactionStore = transactionStore;
         this.accountServiceClient = accountServiceClient;
+        this.meterRegistry = meterRegistry;
+        this.fastPath = fastPath;
+        this.idGenerator = idGenerator;
+        this.asyncTransferQueue = asyncTransferQueue;
+        this.statusStream = statusStream;
+        this.deferredSettlementPolicy = deferredSettlementPolicy;
+        this.userStatsRepository = userStatsRepository;
+        logger.info("Transfers use the {} path", fastPath ? "fast" : "validated");
     }
     
     /**
-     * Process money transfer between two UPI IDs
+     * Process money transfer between two UPI IDs. Runs outside the class-level transaction:
+     * the returned Mono completes later on other threads, and every save goes through the
+     * TransactionStore in its own transaction. A transfer the DeferredSettlementPolicy
+     * defers is returned PENDING and settled by the next netting run.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Mono<Transaction> processTransfer(String senderUpiId, String receiverUpiId, 
                                            BigDecimal amount, String description) {
         
-        // Validate input parameters
+        IllegalArgumentException invalid = validateTransferRequest(senderUpiId, receiverUpiId, amount);
+        if (invalid != null) {
+            return Mono.error(invalid);
+        }
+        
+        // Create transaction with PENDING status
+        Transaction transaction = new Transaction(
+                senderUpiId, receiverUpiId, amount, description, 
+                TransactionStatus.PENDING, generateTransactionReference()
+        );
+        if (deferredSettlementPolicy.isDeferred(senderUpiId, receiverUpiId, amount)) {
+            return deferForNetting(transaction);
+        }
+        
+        // Save transaction, then process the transfer asynchronously
+        return transactionStore.save(transaction)
+                .flatMap(this::processTransferAsync);
+    }
+    
+    /**
+     * Accept a money transfer for later execution. The PENDING transaction is saved and
+     * returned at once; the transfer itself runs on the async transfer queue, and its
+     * outcome is read back by transaction reference. Fails with TransferQueueFullException,
+     * before anything is saved, when the queue has no room. A transfer the
+     * DeferredSettlementPolicy defers takes no queue slot and is settled by netting instead.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Mono<Transaction> acceptTransfer(String senderUpiId, String receiverUpiId, 
+                                          BigDecimal amount, String description) {
+        
+        IllegalArgumentException invalid = validateTransferRequest(senderUpiId, receiverUpiId, amount);
+        if (invalid != null) {
+            return Mono.error(invalid);
+        }
+        
+        if (deferredSettlementPolicy.isDeferred(senderUpiId, receiverUpiId, amount)) {
+            return deferForNetting(new Transaction(
+                    senderUpiId, receiverUpiId, amount, description, 
+                    TransactionStatus.PENDING, generateTransactionReference()
+            ));
+        }
+        
+        return Mono.defer(() -> {
+            asyncTransferQueue.reserve();
+            Transaction transaction = new Transaction(
+                    senderUpiId, receiverUpiId, amount, description, 
+                    TransactionStatus.PENDING, generateTransactionReference()
+            );
+            return transactionStore.save(transaction)
+                    .doOnError(error -> asyncTransferQueue.release())
+                    .map(saved -> {
+                        // The worker updates the saved entity; the caller gets the accepted state.
+                        // A failed transfer is already logged and marked FAILED by then.
+                        Transaction accepted = copyOf(saved);
+                        asyncTransferQueue.submit(
+                                () -> processTransferAsync(saved)
+                                        .onErrorResume(error -> Mono.empty())
+                                        .block(),
+                                () -> expireAcceptedTransfer(saved));
+                        logger.info("Transfer accepted: {}", saved.getTransactionRef());
+                        return accepted;
+                    });
+        });
+    }
+    
+    /**
+     * Record a transfer for the next netting run without calling Account Service
+     */
+    private Mono<Transaction> deferForNetting(Transaction transaction) {
+        transaction.setNettingRef(NettingEngine.UNSETTLED);
+        return transactionStore.save(transaction)
+                .doOnSuccess(saved -> {
+                    meterRegistry.counter("transaction.netting.deferred").increment();
+                    logger.info("Transfer deferred for netting: {}", saved.getTransactionRef());
+                });
+    }
+    
+    /**
+     * Fail an accepted transfer that waited too long for a worker. Account Service was never
+     * called, so nothing needs to be undone.
+     */
+    private void expireAcceptedTransfer(Transaction transaction) {
+        logger.warn("Accepted transfer {} expired in the queue before it was started", transaction.getTransactionRef());
+        if (transactionStore.completePending(transaction, TransactionStatus.FAILED).block()) {
+            statusStream.publish(transaction, TransactionStatus.FAILED);
+        }
+    }
+    
+    /**
+     * Check the parameters of a transfer request; returns the problem, or null if there is none
+     */
+    private IllegalArgumentException validateTransferRequest(String senderUpiId, String receiverUpiId, 
+                                                             BigDecimal amount) {
         if (senderUpiId == null || senderUpiId.trim().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("Sender UPI ID is required"));
+            return new IllegalArgumentException("Sender UPI ID is required");
         }
         
         if (receiverUpiId == null || receiverUpiId.trim().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("Receiver UPI ID is required"));
+            return new IllegalArgumentException("Receiver UPI ID is required");
         }
         
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Mono.error(new IllegalArgumentException("Amount must be positive"));
+            return new IllegalArgumentException("Amount must be positive");
         }
         
         if (senderUpiId.equals(receiverUpiId)) {
-            return Mono.error(new IllegalArgumentException("Cannot transfer to same account"));
+            return new IllegalArgumentException("Cannot transfer to same account");
         }
-        
-        // Generate transaction reference
-        String transactionRef = generateTransactionReference();
-        
-        // Create transaction with PENDING status
-        Transaction transaction = new Transaction(
-                senderUpiId, receiverUpiId, amount, description, 
-                TransactionStatus.PENDING, transactionRef
+        return null;
+    }
+    
+    private static Transaction copyOf(Transaction transaction) {
+        Transaction copy = new Transaction(
+                transaction.getSenderUpiId(), transaction.getReceiverUpiId(), transaction.getAmount(),
+                transaction.getDescription(), transaction.getStatus(), transaction.getTransactionRef()
         );
-        
-        // Save transaction
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        
-        // Process the transfer asynchronously
-        return processTransferAsync(savedTransaction);
+        copy.setId(transaction.getId());
+        copy.setCreatedAt(transaction.getCreatedAt());
+        return copy;
     }
     
     /**
-     * Process transfer asynchronously with Account Service calls
+     * Process transfer asynchronously with Account Service calls.
+     *
+     * The validated path checks both UPI IDs and the sender's balance before transferring.
+     * The fast path makes the single transfer call only: Account Service rejects unknown
+     * UPI IDs and insufficient funds inside the same guarded transfer anyway, so the
+     * pre-checks cost three extra round trips without making the transfer any safer.
      */
     private Mono<Transaction> processTransferAsync(Transaction transaction) {
-        return Mono.fromCallable(() -> transaction)
-                .flatMap(this::validateUpiIds)
-                .flatMap(this::validateSenderBalance)
-                .flatMap(this::executeTransfer)
+        Mono<Transaction> transfer = fastPath ?
+                Mono.defer(() -> executeTransfer(transaction)) :
+                Mono.fromCallable(() -> transaction)
+                        .flatMap(this::validateUpiIds)
+                        .flatMap(this::validateSenderBalance)
+                        .flatMap(this::executeTransfer);
+        
+        return Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    return transfer.doOnSuccess(completed -> sample.stop(transferTimer("success")))
+                            .doOnError(error -> sample.stop(transferTimer("failure")));
+                })
                 .onErrorResume(throwable -> handleTransferError(transaction, throwable));
     }
     
+    private Timer transferTimer(String outcome) {
+        return Timer.builder("transaction.transfer.latency")
+                .description("End-to-end latency of a transfer, including its Account Service calls")
+                .tag("mode", fastPath ? "fast" : "validated")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+    
     /**
      * Validate both sender and receiver UPI IDs exist
      */
@@ -119,98 +272,75 @@ public class TransactionService {
     }
     
     /**
-     * Execute the actual transfer by debiting sender and crediting receiver
+     * Execute the actual transfer by debiting sender and crediting receiver.
+     * Account Service applies both legs in one local transaction, so a failure
+     * leaves both balances untouched and no compensating credit is required.
      */
     private Mono<Transaction> executeTransfer(Transaction transaction) {
         logger.info("Executing transfer: {} -> {}, Amount: {}", 
                    transaction.getSenderUpiId(), transaction.getReceiverUpiId(), transaction.getAmount());
         
-        // Step 1: Debit from sender account
-        Mono<AccountServiceClient.BalanceResponse> debitSender = 
-                accountServiceClient.updateBalance(
-                        transaction.getSenderUpiId(), 
-                        transaction.getAmount(), 
-                        "DEBIT"
-                );
-        
-        // Step 2: Credit to receiver account
-        return debitSender
-                .flatMap(debitResponse -> {
-                    logger.debug("Successfully debited {} from sender {}", 
-                               transaction.getAmount(), transaction.getSenderUpiId());
-                    
-                    return accountServiceClient.updateBalance(
-                            transaction.getReceiverUpiId(), 
-                            transaction.getAmount(), 
-                            "CREDIT"
-                    );
-                })
-                .flatMap(creditResponse -> {
-                    logger.debug("Successfully credited {} to receiver {}", 
-                               transaction.getAmount(), transaction.getReceiverUpiId());
+        return accountServiceClient.transfer(
+                        transaction.getSenderUpiId(),
+                        transaction.getReceiverUpiId(),
+                        transaction.getAmount(),
+                        transaction.getTransactionRef()
+                )
+                .flatMap(transferResponse -> {
+                    logger.debug("Successfully moved {} from sender {} to receiver {}", 
+                               transaction.getAmount(), transaction.getSenderUpiId(), transaction.getReceiverUpiId());
                     
                     // Update transaction status to SUCCESS
                     transaction.setStatus(TransactionStatus.SUCCESS);
-                    Transaction updatedTransaction = transactionRepository.save(transaction);
-                    
-                    logger.info("Transaction completed successfully: {}", transaction.getTransactionRef());
-                    return Mono.just(updatedTransaction);
+                    return transactionStore.save(transaction);
                 })
-                .onErrorResume(error -> {
-                    logger.error("Error during transfer execution for transaction {}: {}", 
-                               transaction.getTransactionRef(), error.getMessage());
-                    
-                    // If credit fails, we need to rollback the debit
-                    return rollbackTransaction(transaction, error);
+                .doOnSuccess(updatedTransaction -> {
+                    logger.info("Transaction completed successfully: {}", transaction.getTransactionRef());
+                    statusStream.publish(updatedTransaction);
                 });
     }
     
     /**
-     * Rollback transaction by crediting back to sender if debit was successful
-     */
-    private Mono<Transaction> rollbackTransaction(Transaction transaction, Throwable originalError) {
-        logger.warn("Rolling back transaction: {}", transaction.getTransactionRef());
-        
-        // Try to credit back to sender (rollback the debit)
-        return accountServiceClient.updateBalance(
-                transaction.getSenderUpiId(), 
-                transaction.getAmount(), 
-                "CREDIT"
-        )
-        .doOnSuccess(response -> logger.info("Successfully rolled back transaction: {}", 
-                                           transaction.getTransactionRef()))
-        .doOnError(rollbackError -> logger.error("Failed to rollback transaction {}: {}", 
-                                                transaction.getTransactionRef(), rollbackError.getMessage()))
-        .then(Mono.<Transaction>error(originalError)) // Return original error after rollback attempt
-        .onErrorResume(rollbackError -> {
-            // If rollback also fails, log and return original error
-            logger.error("Critical: Rollback failed for transaction {}", 
-                        transaction.getTransactionRef(), rollbackError);
-            return Mono.error(originalError);
-        });
-    }
-    
-    /**
-     * Handle transfer errors and update transaction status
+     * Handle transfer errors and update transaction status. Only a definite rejection marks
+     * the transaction FAILED. After a timeout or any other error Account Service may still have
+     * applied the transfer, so the transaction stays PENDING and PendingTransactionRecovery
+     * settles it from the account journal.
      */
     private Mono<Transaction> handleTransferError(Transaction transaction, Throwable error) {
+        if (!isRejection(error)) {
+            logger.error("Transfer outcome unknown for transaction {}, left PENDING for recovery: {}", 
+                        transaction.getTransactionRef(), error.getMessage());
+            return Mono.error(error);
+        }
         logger.error("Transfer failed for transaction {}: {}", 
                     transaction.getTransactionRef(), error.getMessage());
         
-        // Update transaction status to FAILED
+        // Update transaction status to FAILED, keeping the original error if that fails too
         transaction.setStatus(TransactionStatus.FAILED);
-        Transaction failedTransaction = transactionRepository.save(transaction);
-        
-        return Mono.error(error);
+        return transactionStore.save(transaction)
+                .doOnSuccess(statusStream::publish)
+                .onErrorResume(saveError -> {
+                    logger.error("Failed to mark transaction {} as FAILED: {}", 
+                                transaction.getTransactionRef(), saveError.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.error(error));
+    }
+    
+    /**
+     * Whether an error means the transfer was refused and no balance changed
+     */
+    static boolean isRejection(Throwable error) {
+        return error instanceof IllegalArgumentException ||
+               error instanceof AccountServiceClient.InsufficientBalanceException ||
+               error instanceof AccountServiceClient.AccountNotFoundException;
     }
     
     /**
      * Generate unique transaction reference
      */
     private String generateTransactionReference() {
-        long timestamp = System.currentTimeMillis();
-        int randomNum = random.nextInt(10000);
-        return String.format("TXN%d%04d", timestamp, randomNum);
+        return idGenerator.nextReference();
     }
     
     /**
@@ -280,7 +410,7 @@ public class TransactionService {
      * Get user transactions by status
      */
     public List<Transaction> getUserTransactionsByStatus(String upiId, TransactionStatus status) {
-        return transactionRepository.findTransactionsByUpiIdAndStatus(upiId, status);
+        return transactionRepository.findTransactionsByUpiIdAndStatus(upiId, status.name());
     }
     
     /**
@@ -291,9 +421,82 @@ public class TransactionService {
     }
     
     /**
-     * Count successful transactions for a user
+     * Count successful transactions for a user, sent and received, from the user stats
      */
     public Long countSuccessfulTransactions(String upiId) {
-        return transactionRepository.countSuccessfulTransactionsByUpiId(upiId);
+        return userStatsRepository.findByUpiIdAndStatus(upiId, TransactionStatus.SUCCESS)
+                .map(stats -> stats.getSentCount() + stats.getReceivedCount())
+                .orElse(0L);
+    }
+    
+    /**
+     * Totals of a user's transactions in every status, from the user stats
+     */
+    public TransactionSummaryResponse getTransactionSummary(String upiId) {
+        Map<TransactionStatus, TransactionStatsResponse> byStatus = new EnumMap<>(TransactionStatus.class);
+        for (TransactionStatus status : TransactionStatus.values()) {
+            byStatus.put(status, new TransactionStatsResponse(status));
+        }
+        for (TransactionUserStats stats : userStatsRepository.findByUpiId(upiId)) {
+            byStatus.put(stats.getStatus(), new TransactionStatsResponse(stats));
+        }
+        TransactionStatsResponse successful = byStatus.get(TransactionStatus.SUCCESS);
+        return new TransactionSummaryResponse(upiId, successful.getSentCount() + successful.getReceivedCount(),
+                                              new ArrayList<>(byStatus.values()));
+    }
+    
+    /**
+     * Page of transactions for a user (both sent and received), newest first
+     */
+    public TransactionPage getUserTransactionPage(String upiId, String pageToken, int pageSize) {
+        PageCursor cursor = PageCursor.fromToken(pageToken);
+        return toPage(transactionRepository.findPageByUpiId(upiId, cursor.getCreatedAt(), cursor.getId(), 
+                                                            pageSize + 1), pageSize);
+    }
+    
+    /**
+     * Page of transactions sent by a user, newest first
+     */
+    public TransactionPage getSentTransactionPage(String upiId, String pageToken, int pageSize) {
+        PageCursor cursor = PageCursor.fromToken(pageToken);
+        return toPage(transactionRepository.findSentPage(upiId, cursor.getCreatedAt(), cursor.getId(), 
+                                                         PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+    
+    /**
+     * Page of transactions received by a user, newest first
+     */
+    public TransactionPage getReceivedTransactionPage(String upiId, String pageToken, int pageSize) {
+        PageCursor cursor = PageCursor.fromToken(pageToken);
+        return toPage(transactionRepository.findReceivedPage(upiId, cursor.getCreatedAt(), cursor.getId(), 
+                                                             PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+    
+    /**
+     * Page of transactions for a user, optionally by status, within a date range (both ends inclusive)
+     */
+    public TransactionPage getFilteredTransactionPage(String upiId, TransactionStatus status, 
+                                                      LocalDateTime startDate, LocalDateTime endDate,
+                                                      String pageToken, int pageSize) {
+        PageCursor cursor = PageCursor.fromToken(pageToken);
+        List<Transaction> rows = status != null ?
+                transactionRepository.findPageByUpiIdStatusAndDateRange(upiId, status.name(), startDate, endDate, 
+                                                                        cursor.getCreatedAt(), cursor.getId(), 
+                                                                        pageSize + 1) :
+                transactionRepository.findPageByUpiIdAndDateRange(upiId, startDate, endDate, 
+                                                                  cursor.getCreatedAt(), cursor.getId(), pageSize + 1);
+        return toPage(rows, pageSize);
+    }
+    
+    /**
+     * Trim the one extra row fetched to detect a next page, and point the next token at the last row kept
+     */
+    private TransactionPage toPage(List<Transaction> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new TransactionPage(rows, null);
+        }
+        List<Transaction> page = rows.subList(0, pageSize);
+        Transaction last = page.get(pageSize - 1);
+        return new TransactionPage(page, new PageCursor(last.getCreatedAt(), last.getId()).toToken());
     }
 }
\ No newline at end of file
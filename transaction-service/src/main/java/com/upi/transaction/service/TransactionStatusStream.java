@@ -0,0 +1,148 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.dto.TransactionResponse;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * In-process feed of transactions reaching SUCCESS or FAILED, streamed to clients as
+ * server-sent events so they need not poll by reference.
+ *
+ * Updates go through one multicast sink. Each subscriber filters it down to its UPI ID
+ * into its own buffer of transaction.stream.buffer-size updates; when a client reads
+ * slower than updates arrive, the oldest buffered update is dropped, so a slow client
+ * never holds back a transfer or another client. Events are written on a bounded
+ * transaction-stream pool, not on the thread that completed the transfer.
+ *
+ * Updates are only seen by clients connected to the instance that completed the
+ * transaction; the reference lookup stays the source of truth after a reconnect.
+ */
+@Component
+public class TransactionStatusStream implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionStatusStream.class);
+
+    private final Sinks.Many<TransactionResponse> sink = Sinks.many().multicast().directBestEffort();
+    private final Scheduler sendScheduler;
+    private final int bufferSize;
+    private final Duration heartbeat;
+    private final long maxDurationMs;
+    private final Counter dropped;
+
+    @Autowired
+    public TransactionStatusStream(@Value("${transaction.stream.buffer-size:32}") int bufferSize,
+                                   @Value("${transaction.stream.heartbeat-ms:15000}") long heartbeatMs,
+                                   @Value("${transaction.stream.max-duration-ms:300000}") long maxDurationMs,
+                                   @Value("${transaction.stream.send-threads:8}") int sendThreads,
+                                   MeterRegistry meterRegistry) {
+        this.sendScheduler = Schedulers.newBoundedElastic(sendThreads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                "transaction-stream");
+        this.bufferSize = bufferSize;
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+        this.maxDurationMs = maxDurationMs;
+        this.dropped = Counter.builder("transaction.stream.dropped")
+                .description("Status updates dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+
+        Gauge.builder("transaction.stream.subscribers", sink, Sinks.Many::currentSubscriberCount)
+                .description("Connected transaction status streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish the current status of a transaction to the streams of its sender and receiver
+     */
+    public void publish(Transaction transaction) {
+        publish(transaction, transaction.getStatus());
+    }
+
+    /**
+     * Publish a status a transaction was moved to without the entity being updated
+     */
+    public void publish(Transaction transaction, TransactionStatus status) {
+        TransactionResponse update = new TransactionResponse(transaction);
+        update.setStatus(status);
+        // The sink needs serialized emission; with no subscribers the update is simply not delivered
+        synchronized (sink) {
+            sink.tryEmitNext(update);
+        }
+    }
+
+    /**
+     * Updates for transactions sent or received by a UPI ID, from now on. The subscriber's
+     * buffer holds bufferSize updates and drops the oldest when full.
+     */
+    public Flux<TransactionResponse> updates(String upiId) {
+        return sink.asFlux()
+                .filter(update -> upiId.equals(update.getSenderUpiId()) || upiId.equals(update.getReceiverUpiId()))
+                .onBackpressureBuffer(bufferSize, update -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * Open a server-sent event stream of updates for a UPI ID. A comment is sent every
+     * heartbeat so proxies keep the connection open and a departed client is noticed; the
+     * stream ends after transaction.stream.max-duration-ms and the client reconnects.
+     */
+    public SseEmitter subscribe(String upiId) {
+        SseEmitter emitter = new SseEmitter(maxDurationMs);
+
+        Flux<SseEmitter.SseEventBuilder> events = Flux.merge(1,
+                updates(upiId).map(update -> SseEmitter.event()
+                        .id(update.getTransactionRef())
+                        .name("transaction")
+                        .data(update)),
+                Flux.interval(heartbeat, heartbeat)
+                        .onBackpressureDrop()
+                        .map(tick -> SseEmitter.event().comment("heartbeat")));
+
+        Disposable subscription = events
+                .publishOn(sendScheduler, 1)
+                .subscribe(event -> send(emitter, event),
+                           error -> {
+                               logger.debug("Transaction stream for {} closed: {}", upiId, error.getMessage());
+                               emitter.completeWithError(error);
+                           });
+
+        emitter.onCompletion(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        emitter.onTimeout(() -> {
+            subscription.dispose();
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sink.tryEmitComplete();
+        sendScheduler.dispose();
+    }
+}
@@ -0,0 +1,72 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.repository.UserStatsBatchRepository;
+import com.upi.transaction.repository.UserStatsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes transaction_user_stats from the transactions table: at startup if the table
+ * is empty, so existing transactions are counted, and then on transaction.user-stats.rebuild-cron
+ * to correct any drift. Rows are recomputed in place, so changes applied during a rebuild
+ * still add up on top; a change committed while the rebuild reads may be missed until
+ * the next rebuild.
+ */
+@Component
+public class UserStatsRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsRebuildJob.class);
+
+    private final UserStatsBatchRepository userStats;
+    private final UserStatsRepository userStatsRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public UserStatsRebuildJob(UserStatsBatchRepository userStats,
+                               UserStatsRepository userStatsRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${transaction.user-stats.rebuild-enabled:true}") boolean enabled) {
+        this.userStats = userStats;
+        this.userStatsRepository = userStatsRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (enabled && userStatsRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(cron = "${transaction.user-stats.rebuild-cron:0 30 3 * * *}")
+    public void rebuildScheduled() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recompute every user's totals; returns the number of rows added
+     */
+    public int rebuild() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            int added = userStats.rebuild();
+            logger.info("Rebuilt user stats, {} rows added", added);
+            return added;
+        } catch (RuntimeException e) {
+            logger.error("User stats rebuild failed: {}", e.getMessage());
+            return 0;
+        } finally {
+            sample.stop(meterRegistry.timer("transaction.user-stats.rebuild"));
+        }
+    }
+}
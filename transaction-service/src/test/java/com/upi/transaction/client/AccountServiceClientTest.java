@@ -0,0 +1,66 @@
+package com.upi.transaction.client;
+
+import com.upi.common.ownership.AccountOwnerRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountServiceClientTest {
+
+    private final AtomicInteger transferCalls = new AtomicInteger();
+
+    private DisposableServer accountService;
+    private AccountServiceClient accountServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        accountService = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/api/accounts/validate/{upiId}", (request, response) ->
+                                response.header("Content-Type", "application/json").sendString(Mono.just("true")))
+                        // Slower than the client timeout: the transfer may well have committed
+                        .post("/api/accounts/transfer", (request, response) -> {
+                            transferCalls.incrementAndGet();
+                            return request.receive().then(Mono.delay(Duration.ofMillis(2000)))
+                                    .then(response.status(500).send());
+                        }))
+                .bindNow();
+
+        AccountOwnerRouter ownerRouter = new AccountOwnerRouter(null, false, "account-service", 128, 30000);
+        accountServiceClient = new AccountServiceClient(WebClient.builder(), ownerRouter,
+                "http://localhost:" + accountService.port(), 1000, 2, 10);
+        // Connect once, so the timeout below measures the transfer alone. A cold JVM can take
+        // longer than the client timeout for the very first request, so allow a few attempts.
+        boolean connected = false;
+        for (int attempt = 0; attempt < 5 && !connected; attempt++) {
+            connected = accountServiceClient.validateUpiId("sender@upi").block();
+        }
+        assertTrue(connected);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountService.disposeNow();
+    }
+
+    @Test
+    void timedOutTransferIsNotRepeated() {
+        AccountServiceClient.AccountServiceException error = assertThrows(AccountServiceClient.AccountServiceException.class,
+                () -> accountServiceClient.transfer("sender@upi", "receiver@upi", BigDecimal.TEN, "TXN1").block());
+
+        assertTrue(error.getMessage().contains("TXN1"));
+        assertEquals(1, transferCalls.get());
+    }
+}
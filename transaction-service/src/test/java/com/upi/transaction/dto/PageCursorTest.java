@@ -0,0 +1,50 @@
+package com.upi.transaction.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void tokenRoundTrips() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_000), 42L);
+
+        PageCursor parsed = PageCursor.fromToken(cursor.toToken());
+
+        assertEquals(cursor.getCreatedAt(), parsed.getCreatedAt());
+        assertEquals(42L, parsed.getId());
+        assertEquals(cursor.toToken(), parsed.toToken());
+    }
+
+    @Test
+    void cursorIsTruncatedToMicroseconds() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789), 42L);
+
+        assertEquals(LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_000), cursor.getCreatedAt());
+        assertEquals(cursor.getCreatedAt(), PageCursor.fromToken(cursor.toToken()).getCreatedAt());
+    }
+
+    @Test
+    void missingTokenStartsAtTheFirstPage() {
+        assertSame(PageCursor.FIRST_PAGE, PageCursor.fromToken(null));
+        assertSame(PageCursor.FIRST_PAGE, PageCursor.fromToken(" "));
+    }
+
+    @Test
+    void foreignTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.fromToken("not a token!"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.fromToken(encode("v1|2026-03-01T12:30|x")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.fromToken(encode("v1|yesterday|42")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.fromToken(encode("v1|2026-03-01T12:30")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.fromToken(encode("v2|2026-03-01T12:30|42")));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
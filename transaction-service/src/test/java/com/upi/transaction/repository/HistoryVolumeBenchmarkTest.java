@@ -0,0 +1,197 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.dto.PageCursor;
+import com.upi.transaction.dto.TransactionPage;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Data-volume benchmark for history queries. Grows the transactions table through each
+ * requested size and measures, at every size, the first history page of random users and
+ * a deep page of a hot user through the indexed UNION ALL queries, next to the previous
+ * OR query for the same first page. Index-backed latency should stay flat as the table grows.
+ *
+ * Run with: mvn test -Dtest=HistoryVolumeBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=1000000,10000000]
+ * (10M rows needs a heap of several GB, e.g. -DargLine="-Xmx8g -XX:+AllowRedefinitionToAddDeleteMethods")
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.transaction=INFO",
+    "logging.level.org.springframework.web=INFO"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HistoryVolumeBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryVolumeBenchmarkTest.class);
+
+    private static final int USERS = 10_000;
+    private static final String HOT_USER = "hot@upi";
+    private static final int PAGE_SIZE = 50;
+    private static final int QUERIES = 200;
+    private static final int LEGACY_QUERIES = 20;
+    private static final int BATCH_SIZE = 5_000;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    // The OR query the history endpoints used before
+    private static final String LEGACY_HISTORY_JPQL =
+            "SELECT t FROM Transaction t WHERE t.senderUpiId = :upiId OR t.receiverUpiId = :upiId " +
+            "ORDER BY t.createdAt DESC, t.id DESC";
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void historyLatencyStaysFlatAsTableGrows() {
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.rows", "100000,1000000").split(","))
+                .mapToLong(size -> Long.parseLong(size.trim()))
+                .sorted()
+                .toArray();
+
+        jdbcTemplate.update("DELETE FROM transactions");
+        long rows = 0;
+        for (long size : sizes) {
+            long started = System.nanoTime();
+            insertRows(rows, size);
+            logger.info("Table grown to {} rows in {} s", size, (System.nanoTime() - started) / 1_000_000_000L);
+            rows = size;
+
+            verifySameRowsAsLegacyQuery();
+
+            long[] firstPage = measure(QUERIES, () -> transactionService.getUserTransactionPage(randomUser(), null, PAGE_SIZE));
+            String deepToken = deepPageToken(20);
+            long[] deepPage = measure(QUERIES, () -> transactionService.getUserTransactionPage(HOT_USER, deepToken, PAGE_SIZE));
+            long[] legacy = measure(LEGACY_QUERIES, () -> legacyFirstPage(randomUser()));
+
+            logger.info("{} rows: first page     p50 {} ms, p99 {} ms", size, millis(firstPage, 0.50), millis(firstPage, 0.99));
+            logger.info("{} rows: hot deep page  p50 {} ms, p99 {} ms", size, millis(deepPage, 0.50), millis(deepPage, 0.99));
+            logger.info("{} rows: OR first page  p50 {} ms, p99 {} ms", size, millis(legacy, 0.50), millis(legacy, 0.99));
+        }
+    }
+
+    /**
+     * Append rows [from, to). Every hundredth row involves the hot user; the others are spread
+     * uniformly over USERS users. created_at grows with the row number, a few rows share a second.
+     */
+    private void insertRows(long from, long to) {
+        for (long batchStart = from; batchStart < to; batchStart += BATCH_SIZE) {
+            long start = batchStart;
+            int count = (int) Math.min(BATCH_SIZE, to - batchStart);
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO transactions (sender_upi_id, receiver_upi_id, amount, description, status, " +
+                    "transaction_ref, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            long row = start + i;
+                            String sender = row % 100 == 0 ? HOT_USER : randomUser();
+                            String receiver = randomUser();
+                            if (receiver.equals(sender)) {
+                                receiver = "other@upi";
+                            }
+                            if (row % 200 == 100) {
+                                String swap = sender;
+                                sender = receiver;
+                                receiver = swap;
+                            }
+                            ps.setString(1, sender);
+                            ps.setString(2, receiver);
+                            ps.setBigDecimal(3, BigDecimal.valueOf(1 + row % 1000));
+                            ps.setString(4, "benchmark");
+                            ps.setString(5, row % 10 == 0 ? "FAILED" : "SUCCESS");
+                            ps.setString(6, "BENCH" + row);
+                            ps.setTimestamp(7, Timestamp.valueOf(EPOCH.plusSeconds(row / 3)));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return count;
+                        }
+                    });
+        }
+    }
+
+    private void verifySameRowsAsLegacyQuery() {
+        for (String upiId : List.of(HOT_USER, randomUser(), randomUser())) {
+            List<String> union = transactionService.getUserTransactionPage(upiId, null, PAGE_SIZE).getTransactions()
+                    .stream().map(Transaction::getTransactionRef).collect(Collectors.toList());
+            List<String> legacy = legacyFirstPage(upiId).stream()
+                    .map(Transaction::getTransactionRef).collect(Collectors.toList());
+            assertEquals(legacy, union, "UNION ALL page must match the OR query for " + upiId);
+        }
+    }
+
+    private List<Transaction> legacyFirstPage(String upiId) {
+        return entityManager.createQuery(LEGACY_HISTORY_JPQL, Transaction.class)
+                .setParameter("upiId", upiId)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+
+    private String deepPageToken(int pages) {
+        String token = null;
+        for (int i = 0; i < pages; i++) {
+            TransactionPage page = transactionService.getUserTransactionPage(HOT_USER, token, PAGE_SIZE);
+            if (page.getNextPageToken() == null) {
+                break;
+            }
+            token = page.getNextPageToken();
+        }
+        return token != null ? token : PageCursor.FIRST_PAGE.toToken();
+    }
+
+    private String randomUser() {
+        return "user" + random.nextInt(USERS) + "@upi";
+    }
+
+    private long[] measure(int queries, Supplier<?> query) {
+        for (int i = 0; i < Math.min(queries, 20); i++) {
+            query.get();
+        }
+        long[] latencies = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            long start = System.nanoTime();
+            query.get();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static String millis(long[] sorted, double percentile) {
+        long nanos = sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
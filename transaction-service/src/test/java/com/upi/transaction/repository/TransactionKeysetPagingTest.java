@@ -0,0 +1,142 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.dto.PageCursor;
+import com.upi.transaction.dto.TransactionPage;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keyset paging over (created_at, id), newest first: walking every page returns each row
+ * exactly once, even when many rows share a created_at, and a page token that is not ours
+ * is rejected with 400
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.transaction=INFO",
+    "logging.level.org.springframework.web=INFO"
+})
+class TransactionKeysetPagingTest {
+
+    private static final String UPI_ID = "alice@upi";
+    // Microsecond precision, as stored
+    private static final LocalDateTime SAME_INSTANT = LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_456_000);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM transaction_user_stats");
+
+        insert(UPI_ID, "bob@upi", "TXN1", SAME_INSTANT.minusMinutes(1));
+        for (int i = 2; i <= 8; i++) {
+            // Sent and received rows interleaved, all at the same instant
+            insert(i % 2 == 0 ? UPI_ID : "bob@upi", i % 2 == 0 ? "bob@upi" : UPI_ID, "TXN" + i, SAME_INSTANT);
+        }
+        insert("bob@upi", UPI_ID, "TXN9", SAME_INSTANT.plusMinutes(1));
+        insert("bob@upi", "carol@upi", "TXN10", SAME_INSTANT);
+    }
+
+    @Test
+    void everyPageMethodReturnsEachRowOnce() {
+        List<Transaction> expected = transactionRepository.findAll().stream()
+                .filter(t -> UPI_ID.equals(t.getSenderUpiId()) || UPI_ID.equals(t.getReceiverUpiId()))
+                .sorted((a, b) -> a.getCreatedAt().equals(b.getCreatedAt()) ?
+                        b.getId().compareTo(a.getId()) : b.getCreatedAt().compareTo(a.getCreatedAt()))
+                .toList();
+        assertEquals(9, expected.size());
+
+        for (int pageSize : new int[] {1, 2, 3, 4}) {
+            assertEquals(refs(expected), refs(walk((token, size) ->
+                    transactionService.getUserTransactionPage(UPI_ID, token, size), pageSize)));
+            assertEquals(refs(expected), refs(walk((token, size) ->
+                    transactionService.getFilteredTransactionPage(UPI_ID, TransactionStatus.SUCCESS,
+                            SAME_INSTANT.minusDays(1), SAME_INSTANT.plusDays(1), token, size), pageSize)));
+            assertEquals(refs(expected.stream().filter(t -> UPI_ID.equals(t.getSenderUpiId())).toList()),
+                    refs(walk((token, size) -> transactionService.getSentTransactionPage(UPI_ID, token, size), pageSize)));
+            assertEquals(refs(expected.stream().filter(t -> UPI_ID.equals(t.getReceiverUpiId())).toList()),
+                    refs(walk((token, size) -> transactionService.getReceivedTransactionPage(UPI_ID, token, size), pageSize)));
+        }
+    }
+
+    @Test
+    void cursorWithNanosecondsDoesNotRepeatItsRow() {
+        Transaction row = transactionRepository.findByTransactionRef("TXN5").orElseThrow();
+
+        // An in-memory timestamp is finer than the stored one; the cursor must not land just after it
+        String token = new PageCursor(row.getCreatedAt().plusNanos(789), row.getId()).toToken();
+        List<Transaction> rest = transactionService.getUserTransactionPage(UPI_ID, token, 100).getTransactions();
+
+        assertEquals(List.of("TXN4", "TXN3", "TXN2", "TXN1"), refs(rest));
+    }
+
+    @Test
+    void foreignPageTokenIsRejected() throws Exception {
+        mockMvc.perform(get("/api/transactions/user/{upiId}", UPI_ID).param("pageToken", "garbage"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_REQUEST"));
+        String wrongVersion = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("v0|2026-03-01T12:00|5".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(get("/api/transactions/user/{upiId}/sent", UPI_ID).param("pageToken", wrongVersion))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<Transaction> walk(BiFunction<String, Integer, TransactionPage> pages, int pageSize) {
+        List<Transaction> rows = new ArrayList<>();
+        String token = null;
+        do {
+            TransactionPage page = pages.apply(token, pageSize);
+            assertTrue(page.getTransactions().size() <= pageSize);
+            rows.addAll(page.getTransactions());
+            token = page.getNextPageToken();
+        } while (token != null);
+        return rows;
+    }
+
+    private static List<String> refs(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionRef).toList();
+    }
+
+    private void insert(String sender, String receiver, String transactionRef, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO transactions (sender_upi_id, receiver_upi_id, amount, status, " +
+                            "transaction_ref, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                            sender, receiver, BigDecimal.TEN, TransactionStatus.SUCCESS.name(), transactionRef,
+                            Timestamp.valueOf(createdAt));
+    }
+}
@@ -0,0 +1,119 @@
+package com.upi.transaction.repository;
+
+import com.upi.transaction.dto.TransactionStatsResponse;
+import com.upi.transaction.dto.TransactionSummaryResponse;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The user stats kept incrementally by every write path must match a rebuild from the
+ * transactions table
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.transaction=INFO",
+    "logging.level.org.springframework.web=INFO"
+})
+class UserStatsBatchRepositoryTest {
+
+    private static final String STATS_SQL =
+            "SELECT upi_id, status, sent_count, sent_amount, received_count, received_amount " +
+            "FROM transaction_user_stats WHERE sent_count <> 0 OR received_count <> 0 ORDER BY upi_id, status";
+
+    @Autowired
+    private TransactionStore transactionStore;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private UserStatsBatchRepository userStats;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM transaction_user_stats");
+    }
+
+    @Test
+    void incrementalStatsMatchARebuild() {
+        Transaction first = transactionStore.save(transaction("a@upi", "b@upi", "100.00", "TXN1")).block();
+        Transaction second = transactionStore.save(transaction("b@upi", "c@upi", "40.50", "TXN2")).block();
+        transactionStore.save(transaction("c@upi", "a@upi", "7.25", "TXN3")).block();
+
+        first.setStatus(TransactionStatus.SUCCESS);
+        transactionStore.save(first).block();
+        assertTrue(transactionStore.completePending(second, TransactionStatus.FAILED).block());
+        // Already settled: neither the row nor the stats change again
+        assertFalse(transactionStore.completePending(second, TransactionStatus.SUCCESS).block());
+
+        List<Transaction> lines = List.of(line("a@upi", "d@upi", "10.00", "TXN4"), line("a@upi", "e@upi", "20.00", "TXN5"));
+        payoutRepository.insertLines(lines);
+        List<Transaction> saved = jdbcTemplate.query("SELECT id FROM transactions WHERE payout_ref = 'PAY1' ORDER BY id",
+                (rs, i) -> {
+                    Transaction line = lines.get(i);
+                    line.setId(rs.getLong("id"));
+                    return line;
+                });
+        payoutRepository.completePending(saved, List.of(TransactionStatus.SUCCESS, TransactionStatus.FAILED));
+
+        List<Map<String, Object>> incremental = jdbcTemplate.queryForList(STATS_SQL);
+        assertEquals(2L, transactionService.countSuccessfulTransactions("a@upi"));
+        assertEquals(1L, transactionService.countSuccessfulTransactions("b@upi"));
+
+        jdbcTemplate.update("DELETE FROM transaction_user_stats");
+        assertEquals(incremental.size(), userStats.rebuild());
+        assertEquals(incremental, jdbcTemplate.queryForList(STATS_SQL));
+    }
+
+    @Test
+    void rebuildCorrectsDriftInPlace() {
+        transactionStore.save(transaction("a@upi", "b@upi", "100.00", "TXN1")).block();
+        jdbcTemplate.update("UPDATE transaction_user_stats SET sent_count = 5, sent_amount = 999 WHERE upi_id = 'a@upi'");
+        jdbcTemplate.update("INSERT INTO transactions (sender_upi_id, receiver_upi_id, amount, description, status, " +
+                            "transaction_ref, created_at) VALUES ('b@upi', 'c@upi', 3.00, 'Imported', 'SUCCESS', " +
+                            "'TXN2', CURRENT_TIMESTAMP)");
+
+        // Only the rows for c@upi and b@upi's SUCCESS are new
+        assertEquals(2, userStats.rebuild());
+
+        TransactionSummaryResponse summary = transactionService.getTransactionSummary("a@upi");
+        assertEquals(TransactionStatus.values().length, summary.getStatuses().size());
+        TransactionStatsResponse pending = summary.getStatuses().get(TransactionStatus.PENDING.ordinal());
+        assertEquals(1, pending.getSentCount());
+        assertEquals(0, new BigDecimal("100.00").compareTo(pending.getSentAmount()));
+        assertEquals(0, summary.getSuccessfulCount());
+        assertEquals(1L, transactionService.countSuccessfulTransactions("c@upi"));
+    }
+
+    private static Transaction transaction(String sender, String receiver, String amount, String transactionRef) {
+        return new Transaction(sender, receiver, new BigDecimal(amount), "Stats", TransactionStatus.PENDING, transactionRef);
+    }
+
+    private static Transaction line(String sender, String receiver, String amount, String transactionRef) {
+        Transaction line = transaction(sender, receiver, amount, transactionRef);
+        line.setPayoutRef("PAY1");
+        return line;
+    }
+}
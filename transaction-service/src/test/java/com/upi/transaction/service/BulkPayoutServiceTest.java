@@ -0,0 +1,158 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.dto.BulkPayoutResponse;
+import com.upi.transaction.dto.PayoutLineRequest;
+import com.upi.transaction.dto.PayoutLineResult;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.PayoutRepository;
+import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkPayoutServiceTest {
+
+    private static final String SENDER = "9000000000@upi";
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PayoutRepository payoutRepository;
+
+    @Mock
+    private AccountServiceClient accountServiceClient;
+
+    private BulkPayoutService bulkPayoutService;
+
+    private final TransactionTestFixture fixture = new TransactionTestFixture();
+
+    private final List<Transaction> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bulkPayoutService = new BulkPayoutService(transactionRepository,
+                fixture.store(transactionRepository), payoutRepository,
+                accountServiceClient, fixture.idGenerator(), fixture.statusStream(), fixture.meterRegistry, 4, 120000);
+
+        // Rows come back from the batch insert with their identities assigned
+        lenient().doAnswer(invocation -> {
+            List<Transaction> lines = invocation.getArgument(0);
+            for (Transaction line : lines) {
+                line.setId((long) inserted.size() + 1);
+                inserted.add(line);
+            }
+            return null;
+        }).when(payoutRepository).insertLines(anyList());
+        lenient().when(transactionRepository.findByPayoutRefOrderByIdAsc(anyString())).thenAnswer(invocation -> inserted);
+        lenient().when(payoutRepository.completePending(anyList(), anyList()))
+                .thenAnswer(invocation -> new int[((List<?>) invocation.getArgument(0)).size()]);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void debitsOnceAndCreditsEveryValidLine() {
+        givenValid(Map.of(SENDER, true, "9000000001@upi", true, "9000000002@upi", true, "9000000009@upi", false));
+        when(accountServiceClient.updateBalance(eq(SENDER), eq(new BigDecimal("200.00")), eq("DEBIT"), anyString(), anyString()))
+                .thenReturn(Mono.just(new AccountServiceClient.BalanceResponse(BigDecimal.ZERO, SENDER)));
+        when(accountServiceClient.updateBalance(startsWith("90000000"), eq(AMOUNT), eq("CREDIT"), anyString(), anyString()))
+                .thenAnswer(invocation -> Mono.just(new AccountServiceClient.BalanceResponse(AMOUNT, invocation.getArgument(0))));
+
+        BulkPayoutResponse response = bulkPayoutService.processPayout(SENDER, List.of(
+                line("9000000001@upi"), line("9000000009@upi"), line(SENDER), line("9000000002@upi")), "Payroll").block();
+
+        assertEquals(new BigDecimal("200.00"), response.getDebitedAmount());
+        assertEquals(List.of(TransactionStatus.SUCCESS, TransactionStatus.FAILED, TransactionStatus.FAILED, TransactionStatus.SUCCESS),
+                response.getResults().stream().map(PayoutLineResult::getStatus).toList());
+        assertEquals(2, response.getSuccessCount());
+        assertEquals(2, response.getFailureCount());
+
+        // One validation call for all UPI IDs, one insert batch and one status batch
+        verify(accountServiceClient, times(1)).validateUpiIds(anyList());
+        verify(accountServiceClient, times(1)).updateBalance(eq(SENDER), any(), eq("DEBIT"), eq(response.getPayoutRef()), anyString());
+        verify(payoutRepository, times(1)).insertLines(argThat(lines -> lines.size() == 2 &&
+                lines.stream().allMatch(row -> response.getPayoutRef().equals(row.getPayoutRef()))));
+        verify(payoutRepository).completePending(inserted, List.of(TransactionStatus.SUCCESS, TransactionStatus.SUCCESS));
+    }
+
+    @Test
+    void refusedDebitFailsEveryLine() {
+        givenValid(Map.of(SENDER, true, "9000000001@upi", true, "9000000002@upi", true));
+        when(accountServiceClient.updateBalance(eq(SENDER), any(), eq("DEBIT"), anyString(), anyString()))
+                .thenReturn(Mono.error(new AccountServiceClient.InsufficientBalanceException("Insufficient balance")));
+
+        BulkPayoutResponse response = bulkPayoutService.processPayout(SENDER,
+                List.of(line("9000000001@upi"), line("9000000002@upi")), "Payroll").block();
+
+        assertEquals(BigDecimal.ZERO, response.getDebitedAmount());
+        assertEquals(2, response.getFailureCount());
+        verify(accountServiceClient, never()).updateBalance(anyString(), any(), eq("CREDIT"), anyString(), anyString());
+        verify(payoutRepository).completePending(inserted, List.of(TransactionStatus.FAILED, TransactionStatus.FAILED));
+    }
+
+    @Test
+    void refusedCreditIsRefundedAndUnknownCreditStaysPending() {
+        givenValid(Map.of(SENDER, true, "9000000001@upi", true, "9000000002@upi", true));
+        when(accountServiceClient.updateBalance(eq(SENDER), eq(new BigDecimal("200.00")), eq("DEBIT"), anyString(), anyString()))
+                .thenReturn(Mono.just(new AccountServiceClient.BalanceResponse(BigDecimal.ZERO, SENDER)));
+        when(accountServiceClient.updateBalance(eq("9000000001@upi"), eq(AMOUNT), eq("CREDIT"), anyString(), anyString()))
+                .thenReturn(Mono.error(new AccountServiceClient.AccountNotFoundException("Account not found")));
+        when(accountServiceClient.updateBalance(eq("9000000002@upi"), eq(AMOUNT), eq("CREDIT"), anyString(), anyString()))
+                .thenReturn(Mono.error(new AccountServiceClient.AccountServiceException("Failed after 3 retries")));
+        when(accountServiceClient.updateBalance(eq(SENDER), eq(AMOUNT), eq("CREDIT"), anyString(), startsWith("refund-")))
+                .thenReturn(Mono.just(new AccountServiceClient.BalanceResponse(AMOUNT, SENDER)));
+
+        BulkPayoutResponse response = bulkPayoutService.processPayout(SENDER,
+                List.of(line("9000000001@upi"), line("9000000002@upi")), "Payroll").block();
+
+        PayoutLineResult refunded = response.getResults().get(0);
+        assertEquals(TransactionStatus.FAILED, refunded.getStatus());
+        assertEquals(TransactionStatus.PENDING, response.getResults().get(1).getStatus());
+        verify(accountServiceClient).updateBalance(SENDER, AMOUNT, "CREDIT", refunded.getTransactionRef(),
+                "refund-" + refunded.getTransactionRef());
+
+        // The PENDING line is left to the recovery worker
+        ArgumentCaptor<List<Transaction>> lines = ArgumentCaptor.forClass(List.class);
+        verify(payoutRepository).completePending(lines.capture(), eq(List.of(TransactionStatus.FAILED)));
+        assertEquals(List.of(1L), lines.getValue().stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    void invalidSenderRejectsThePayout() {
+        givenValid(Map.of(SENDER, false, "9000000001@upi", true));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                bulkPayoutService.processPayout(SENDER, List.of(line("9000000001@upi")), "Payroll").block());
+        verify(payoutRepository, never()).insertLines(anyList());
+    }
+
+    private void givenValid(Map<String, Boolean> valid) {
+        when(accountServiceClient.validateUpiIds(anyList())).thenReturn(Mono.just(valid));
+    }
+
+    private static PayoutLineRequest line(String receiverUpiId) {
+        return new PayoutLineRequest(receiverUpiId, AMOUNT, null);
+    }
+}
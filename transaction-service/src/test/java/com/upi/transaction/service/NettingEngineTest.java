@@ -0,0 +1,157 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.client.AccountServiceClient.BatchBalanceEntry;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.PayoutRepository;
+import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NettingEngineTest {
+
+    private static final String MERCHANT = "merchant@upi";
+    private static final String AGGREGATOR = "aggregator@upi";
+    private static final String SETTLEMENT = "settlement@upi";
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PayoutRepository payoutRepository;
+
+    @Mock
+    private AccountServiceClient accountServiceClient;
+
+    private final TransactionTestFixture fixture = new TransactionTestFixture();
+
+    private NettingEngine nettingEngine;
+
+    @BeforeEach
+    void setUp() {
+        nettingEngine = new NettingEngine(transactionRepository,
+                fixture.store(transactionRepository), payoutRepository,
+                accountServiceClient, fixture.idGenerator(), fixture.statusStream(),
+                new DeferredSettlementPolicy(true, Set.of(MERCHANT, AGGREGATOR, SETTLEMENT), new BigDecimal("1000.00")),
+                fixture.meterRegistry, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void appliesOnlyTheNetPositionsAsOneBatch() {
+        List<Transaction> transfers = givenClaimed(transfer(1L, MERCHANT, AGGREGATOR, "100.00"),
+                                                   transfer(2L, AGGREGATOR, MERCHANT, "60.00"),
+                                                   transfer(3L, MERCHANT, AGGREGATOR, "10.00"),
+                                                   transfer(4L, AGGREGATOR, SETTLEMENT, "20.00"));
+        when(accountServiceClient.updateBalancesAtomically(anyList())).thenReturn(Mono.empty());
+        when(payoutRepository.completePending(anyList(), anyList())).thenReturn(new int[] {1, 1, 1, 1});
+
+        assertEquals(4, nettingEngine.settle().block());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BatchBalanceEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(accountServiceClient).updateBalancesAtomically(entries.capture());
+        assertEquals(List.of("merchant@upi DEBIT 50.00", "aggregator@upi CREDIT 30.00", "settlement@upi CREDIT 20.00"),
+                     entries.getValue().stream()
+                             .map(entry -> entry.getUpiId() + " " + entry.getOperation() + " " + entry.getAmount())
+                             .toList());
+        String nettingRef = entries.getValue().get(0).getTransactionRef();
+        assertTrue(nettingRef.startsWith(NettingEngine.NETTING_REF_PREFIX));
+        verify(payoutRepository).completePending(transfers, Collections.nCopies(4, TransactionStatus.SUCCESS));
+        verify(accountServiceClient, never()).transfer(anyString(), anyString(), any(), anyString());
+
+        // Eight balance updates one by one, three netted
+        assertEquals(5.0, fixture.meterRegistry.counter("transaction.netting.mutations.saved").count());
+        assertEquals(4.0, fixture.meterRegistry.counter("transaction.netting.transfers").count());
+    }
+
+    @Test
+    void transfersThatCancelOutNeedNoBalanceUpdate() {
+        givenClaimed(transfer(1L, MERCHANT, AGGREGATOR, "25.00"),
+                     transfer(2L, AGGREGATOR, MERCHANT, "25.00"));
+        when(payoutRepository.completePending(anyList(), anyList())).thenReturn(new int[] {1, 1});
+
+        assertEquals(2, nettingEngine.settle().block());
+
+        verifyNoInteractions(accountServiceClient);
+        assertEquals(4.0, fixture.meterRegistry.counter("transaction.netting.mutations.saved").count());
+    }
+
+    @Test
+    void refusedBatchFallsBackToOneTransferEach() {
+        List<Transaction> transfers = givenClaimed(transfer(1L, MERCHANT, AGGREGATOR, "100.00"),
+                                                   transfer(2L, AGGREGATOR, SETTLEMENT, "500.00"),
+                                                   transfer(3L, SETTLEMENT, MERCHANT, "5.00"));
+        when(accountServiceClient.updateBalancesAtomically(anyList()))
+                .thenReturn(Mono.error(new AccountServiceClient.InsufficientBalanceException("Balance batch rejected")));
+        when(accountServiceClient.transfer(MERCHANT, AGGREGATOR, new BigDecimal("100.00"), "TXN1"))
+                .thenReturn(Mono.just(new AccountServiceClient.TransferResponse()));
+        when(accountServiceClient.transfer(AGGREGATOR, SETTLEMENT, new BigDecimal("500.00"), "TXN2"))
+                .thenReturn(Mono.error(new AccountServiceClient.InsufficientBalanceException("Insufficient balance")));
+        when(accountServiceClient.transfer(SETTLEMENT, MERCHANT, new BigDecimal("5.00"), "TXN3"))
+                .thenReturn(Mono.error(new AccountServiceClient.AccountServiceException("Timed out")));
+        when(payoutRepository.completePending(anyList(), anyList())).thenReturn(new int[] {1, 1});
+
+        assertEquals(3, nettingEngine.settle().block());
+
+        // The transfer whose outcome is unknown stays PENDING for recovery
+        verify(payoutRepository).completePending(transfers.subList(0, 2), List.of(TransactionStatus.SUCCESS, TransactionStatus.FAILED));
+        assertEquals(1.0, fixture.meterRegistry.counter("transaction.netting.batches", "outcome", "rejected").count());
+    }
+
+    @Test
+    void batchWithUnknownOutcomeLeavesTransfersPending() {
+        givenClaimed(transfer(1L, MERCHANT, AGGREGATOR, "100.00"));
+        when(accountServiceClient.updateBalancesAtomically(anyList()))
+                .thenReturn(Mono.error(new AccountServiceClient.AccountServiceException("Outcome unknown")));
+
+        assertEquals(1, nettingEngine.settle().block());
+
+        verify(accountServiceClient, never()).transfer(anyString(), anyString(), any(), anyString());
+        verifyNoInteractions(payoutRepository);
+    }
+
+    @Test
+    void nothingToClaimIsANoOp() {
+        when(transactionRepository.claimForNetting(anyString(), eq(NettingEngine.UNSETTLED))).thenReturn(0);
+
+        assertEquals(0, nettingEngine.settle().block());
+
+        verify(transactionRepository, never()).findByNettingRefOrderByIdAsc(anyString());
+        verifyNoInteractions(accountServiceClient);
+    }
+
+    private List<Transaction> givenClaimed(Transaction... transfers) {
+        when(transactionRepository.claimForNetting(anyString(), eq(NettingEngine.UNSETTLED))).thenReturn(transfers.length);
+        when(transactionRepository.findByNettingRefOrderByIdAsc(anyString())).thenReturn(List.of(transfers));
+        return List.of(transfers);
+    }
+
+    private static Transaction transfer(Long id, String sender, String receiver, String amount) {
+        Transaction transaction = new Transaction(sender, receiver, new BigDecimal(amount), "Netted",
+                                                  TransactionStatus.PENDING, "TXN" + id);
+        transaction.setId(id);
+        return transaction;
+    }
+}
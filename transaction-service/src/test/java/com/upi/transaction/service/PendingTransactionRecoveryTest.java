@@ -0,0 +1,216 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.client.AccountServiceClient.AccountEntry;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingTransactionRecoveryTest {
+
+    private static final String SENDER = "sender@bank";
+    private static final String RECEIVER = "receiver@bank";
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountServiceClient accountServiceClient;
+
+    private final TransactionTestFixture fixture = new TransactionTestFixture();
+
+    private PendingTransactionRecovery recovery;
+
+    @BeforeEach
+    void setUp() {
+        recovery = new PendingTransactionRecovery(transactionRepository,
+                fixture.store(transactionRepository), accountServiceClient,
+                fixture.meterRegistry, fixture.statusStream(),
+                new DeferredSettlementPolicy(true, Set.of(SENDER, RECEIVER), new BigDecimal("1000.00")),
+                true, 300000, 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void bothLegsAppliedCompletesAsSuccess() {
+        Transaction transaction = pending(1L, "TXN1");
+        givenEntries("TXN1", new AccountEntry(SENDER, AMOUNT.negate(), "TXN1"), new AccountEntry(RECEIVER, AMOUNT, "TXN1"));
+        when(transactionRepository.completePending(1L, TransactionStatus.SUCCESS)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.SUCCESS, recovery.recover(transaction).block());
+    }
+
+    @Test
+    void nothingAppliedCompletesAsFailed() {
+        Transaction transaction = pending(1L, "TXN1");
+        givenEntries("TXN1");
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.FAILED, recovery.recover(transaction).block());
+        verify(accountServiceClient, never()).updateBalance(anyString(), any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void debitWithoutCreditIsRefundedThenFailed() {
+        Transaction transaction = pending(1L, "TXN1");
+        givenEntries("TXN1", new AccountEntry(SENDER, AMOUNT.negate(), "TXN1"));
+        when(accountServiceClient.updateBalance(SENDER, AMOUNT, "CREDIT", "TXN1", "recovery-TXN1"))
+                .thenReturn(Mono.just(new AccountServiceClient.BalanceResponse(AMOUNT, SENDER)));
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.COMPENSATED, recovery.recover(transaction).block());
+    }
+
+    @Test
+    void refundedDebitCompletesAsFailedWithoutRefundingAgain() {
+        Transaction transaction = pending(1L, "TXN1");
+        givenEntries("TXN1", new AccountEntry(SENDER, AMOUNT.negate(), "TXN1"), new AccountEntry(SENDER, AMOUNT, "TXN1"));
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.FAILED, recovery.recover(transaction).block());
+        verify(accountServiceClient, never()).updateBalance(anyString(), any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void creditWithoutDebitIsLeftForManualReview() {
+        Transaction transaction = pending(1L, "TXN1");
+        givenEntries("TXN1", new AccountEntry(RECEIVER, AMOUNT, "TXN1"));
+
+        assertEquals(PendingTransactionRecovery.Outcome.MANUAL, recovery.recover(transaction).block());
+        verify(transactionRepository, never()).completePending(anyLong(), any());
+    }
+
+    @Test
+    void payoutLineIsRefundedWhenOnlyThePayoutDebitWasApplied() {
+        Transaction line = pending(1L, "TXN1");
+        line.setPayoutRef("PAY1");
+        givenEntries("TXN1");
+        givenEntries("PAY1", new AccountEntry(SENDER, new BigDecimal("-300.00"), "PAY1"));
+        when(accountServiceClient.updateBalance(SENDER, AMOUNT, "CREDIT", "TXN1", "recovery-TXN1"))
+                .thenReturn(Mono.just(new AccountServiceClient.BalanceResponse(AMOUNT, SENDER)));
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.COMPENSATED, recovery.recover(line).block());
+    }
+
+    @Test
+    void payoutLineFailsWhenThePayoutDebitWasNotApplied() {
+        Transaction line = pending(1L, "TXN1");
+        line.setPayoutRef("PAY1");
+        givenEntries("TXN1");
+        givenEntries("PAY1");
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.FAILED, recovery.recover(line).block());
+        verify(accountServiceClient, never()).updateBalance(anyString(), any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void creditedPayoutLineCompletesAsSuccess() {
+        Transaction line = pending(1L, "TXN1");
+        line.setPayoutRef("PAY1");
+        givenEntries("TXN1", new AccountEntry(RECEIVER, AMOUNT, "TXN1"));
+        when(transactionRepository.completePending(1L, TransactionStatus.SUCCESS)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.SUCCESS, recovery.recover(line).block());
+        verify(accountServiceClient, never()).getEntriesByTransactionRef("PAY1");
+    }
+
+    @Test
+    void nettedTransferCompletesAsSuccessWhenItsRunWasApplied() {
+        Transaction transaction = pending(1L, "TXN1");
+        transaction.setNettingRef(nettingRef(10));
+        givenEntries(transaction.getNettingRef(), new AccountEntry(SENDER, new BigDecimal("-40.00"), transaction.getNettingRef()),
+                     new AccountEntry(RECEIVER, new BigDecimal("40.00"), transaction.getNettingRef()));
+        when(transactionRepository.completePending(1L, TransactionStatus.SUCCESS)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.SUCCESS, recovery.recover(transaction).block());
+        verify(accountServiceClient, never()).getEntriesByTransactionRef("TXN1");
+    }
+
+    @Test
+    void nettedTransferOfARefusedRunIsSettledFromItsOwnEntries() {
+        Transaction transaction = pending(1L, "TXN1");
+        transaction.setNettingRef(nettingRef(10));
+        givenEntries(transaction.getNettingRef());
+        givenEntries("TXN1");
+        when(transactionRepository.completePending(1L, TransactionStatus.FAILED)).thenReturn(1);
+
+        assertEquals(PendingTransactionRecovery.Outcome.FAILED, recovery.recover(transaction).block());
+    }
+
+    @Test
+    void transfersLeftToTheNettingEngineAreSkipped() {
+        Transaction unclaimed = pending(1L, "TXN1");
+        unclaimed.setNettingRef(NettingEngine.UNSETTLED);
+        Transaction inFlight = pending(2L, "TXN2");
+        inFlight.setNettingRef(nettingRef(1));
+
+        assertNull(recovery.recover(unclaimed).block());
+        assertNull(recovery.recover(inFlight).block());
+        verifyNoInteractions(accountServiceClient);
+        verify(transactionRepository, never()).completePending(anyLong(), any());
+    }
+
+    @Test
+    void scansEveryBatchOldestFirst() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        Transaction first = pending(1L, "TXN1");
+        Transaction second = pending(2L, "TXN2");
+        Transaction third = pending(3L, "TXN3");
+        when(transactionRepository.findByStatusCreatedBefore(eq(TransactionStatus.PENDING), eq(cutoff), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+        givenEntries("TXN1");
+        givenEntries("TXN2");
+        givenEntries("TXN3", new AccountEntry(SENDER, AMOUNT.negate(), "TXN3"), new AccountEntry(RECEIVER, AMOUNT, "TXN3"));
+        when(transactionRepository.completePending(anyLong(), any())).thenReturn(1);
+
+        Map<PendingTransactionRecovery.Outcome, Long> outcomes = recovery.recover(cutoff);
+
+        assertEquals(Map.of(PendingTransactionRecovery.Outcome.FAILED, 2L, PendingTransactionRecovery.Outcome.SUCCESS, 1L), outcomes);
+        verify(transactionRepository).findByStatusCreatedBefore(TransactionStatus.PENDING, cutoff,
+                second.getCreatedAt(), 2L, Pageable.ofSize(2));
+    }
+
+    private void givenEntries(String transactionRef, AccountEntry... entries) {
+        when(accountServiceClient.getEntriesByTransactionRef(transactionRef)).thenReturn(Mono.just(List.of(entries)));
+    }
+
+    private static String nettingRef(long minutesAgo) {
+        long startedAt = System.currentTimeMillis() - minutesAgo * 60_000;
+        return NettingEngine.NETTING_REF_PREFIX + TransactionIdGenerator.encode(new TransactionIdGenerator("TXN", 0, () -> startedAt).nextId());
+    }
+
+    private static Transaction pending(Long id, String transactionRef) {
+        Transaction transaction = new Transaction(SENDER, RECEIVER, AMOUNT, "Test", TransactionStatus.PENDING, transactionRef);
+        transaction.setId(id);
+        transaction.setCreatedAt(LocalDateTime.now().minusMinutes(10).plusSeconds(id));
+        return transaction;
+    }
+}
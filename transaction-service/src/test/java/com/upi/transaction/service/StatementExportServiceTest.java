@@ -0,0 +1,171 @@
+package com.upi.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.transaction.dto.StatementLine;
+import com.upi.transaction.enums.StatementFormat;
+import com.upi.transaction.enums.TransactionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement exports: the CSV and NDJSON row formats, CSV quoting and formula defusing,
+ * the inclusive date range and the UNION ALL listing a self-transfer once
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.upi.transaction=INFO",
+    "logging.level.org.springframework.web=INFO"
+})
+class StatementExportServiceTest {
+
+    private static final String UPI_ID = "alice@upi";
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementExportService statementExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM transaction_user_stats");
+    }
+
+    @Test
+    void csvStatementCoversBothDaysOldestFirst() throws Exception {
+        insert(UPI_ID, "bob@upi", "10.00", "before", "TXN0", LocalDateTime.of(2026, 2, 28, 23, 59, 59));
+        insert(UPI_ID, "bob@upi", "25.50", "rent", "TXN1", LocalDateTime.of(2026, 3, 1, 0, 0));
+        insert("carol@upi", UPI_ID, "7.25", null, "TXN2", LocalDateTime.of(2026, 3, 1, 12, 30));
+        insert(UPI_ID, UPI_ID, "1.00", "self", "TXN3", LocalDateTime.of(2026, 3, 2, 8, 0));
+        // The last second of the end date is in, midnight after it is out
+        insert("carol@upi", UPI_ID, "3.00", "late", "TXN4", LocalDateTime.of(2026, 3, 2, 23, 59, 59));
+        insert("carol@upi", UPI_ID, "4.00", "after", "TXN5", LocalDateTime.of(2026, 3, 3, 0, 0));
+
+        MvcResult started = mockMvc.perform(get("/api/transactions/user/{upiId}/statement", UPI_ID)
+                        .param("from", FROM.toString())
+                        .param("to", TO.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"statement-alice@upi-2026-03-01-2026-03-02.csv\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertEquals(String.join("\n",
+                "created_at,transaction_ref,direction,counterparty_upi_id,amount,status,description",
+                "2026-03-01T00:00:00,TXN1,DEBIT,bob@upi,-25.50,SUCCESS,rent",
+                "2026-03-01T12:30:00,TXN2,CREDIT,carol@upi,7.25,SUCCESS,",
+                "2026-03-02T08:00:00,TXN3,DEBIT,alice@upi,-1.00,SUCCESS,self",
+                "2026-03-02T23:59:59,TXN4,CREDIT,carol@upi,3.00,SUCCESS,late") + "\n", csv);
+    }
+
+    @Test
+    void csvTextIsQuotedAndFormulasAreDefused() throws Exception {
+        insert(UPI_ID, "bob@upi", "1.00", "=SUM(A1:A9)", "TXN1", LocalDateTime.of(2026, 3, 1, 1, 0));
+        insert(UPI_ID, "bob@upi", "1.00", "lunch, dinner", "TXN2", LocalDateTime.of(2026, 3, 1, 2, 0));
+        insert(UPI_ID, "bob@upi", "1.00", "say \"hi\"", "TXN3", LocalDateTime.of(2026, 3, 1, 3, 0));
+        insert(UPI_ID, "bob@upi", "1.00", "-2+3,\"x\"", "TXN4", LocalDateTime.of(2026, 3, 1, 4, 0));
+        insert(UPI_ID, "bob@upi", "1.00", "two\nlines", "TXN5", LocalDateTime.of(2026, 3, 1, 5, 0));
+        insert(UPI_ID, "@bob@upi", "1.00", "+1", "TXN6", LocalDateTime.of(2026, 3, 1, 6, 0));
+
+        List<String> rows = export(StatementFormat.CSV).lines().skip(1).toList();
+
+        assertEquals("2026-03-01T01:00:00,TXN1,DEBIT,bob@upi,-1.00,SUCCESS,'=SUM(A1:A9)", rows.get(0));
+        assertEquals("2026-03-01T02:00:00,TXN2,DEBIT,bob@upi,-1.00,SUCCESS,\"lunch, dinner\"", rows.get(1));
+        assertEquals("2026-03-01T03:00:00,TXN3,DEBIT,bob@upi,-1.00,SUCCESS,\"say \"\"hi\"\"\"", rows.get(2));
+        assertEquals("2026-03-01T04:00:00,TXN4,DEBIT,bob@upi,-1.00,SUCCESS,\"'-2+3,\"\"x\"\"\"", rows.get(3));
+        // A quoted line break stays inside its field
+        assertEquals("2026-03-01T05:00:00,TXN5,DEBIT,bob@upi,-1.00,SUCCESS,\"two", rows.get(4));
+        assertEquals("lines\"", rows.get(5));
+        assertEquals("2026-03-01T06:00:00,TXN6,DEBIT,'@bob@upi,-1.00,SUCCESS,'+1", rows.get(6));
+    }
+
+    @Test
+    void ndjsonStatementHasOneLinePerRow() throws Exception {
+        insert(UPI_ID, "bob@upi", "25.50", "rent, march", "TXN1", LocalDateTime.of(2026, 3, 1, 9, 0));
+        insert("carol@upi", UPI_ID, "7.25", null, "TXN2", LocalDateTime.of(2026, 3, 2, 10, 0));
+        insert(UPI_ID, UPI_ID, "1.00", "self", "TXN3", LocalDateTime.of(2026, 3, 2, 11, 0));
+
+        List<String> lines = export(StatementFormat.NDJSON).lines().toList();
+
+        assertEquals(3, lines.size());
+        StatementLine debit = objectMapper.readValue(lines.get(0), StatementLine.class);
+        assertEquals(LocalDateTime.of(2026, 3, 1, 9, 0), debit.getCreatedAt());
+        assertEquals("TXN1", debit.getTransactionRef());
+        assertEquals(StatementLine.DEBIT, debit.getDirection());
+        assertEquals("bob@upi", debit.getCounterpartyUpiId());
+        assertEquals(0, new BigDecimal("-25.50").compareTo(debit.getAmount()));
+        assertEquals(TransactionStatus.SUCCESS, debit.getStatus());
+        assertEquals("rent, march", debit.getDescription());
+
+        StatementLine credit = objectMapper.readValue(lines.get(1), StatementLine.class);
+        assertEquals(StatementLine.CREDIT, credit.getDirection());
+        assertEquals("carol@upi", credit.getCounterpartyUpiId());
+        assertEquals(0, new BigDecimal("7.25").compareTo(credit.getAmount()));
+        assertNull(credit.getDescription());
+
+        // Matched by both halves of the UNION ALL, listed once as a debit
+        StatementLine self = objectMapper.readValue(lines.get(2), StatementLine.class);
+        assertEquals("TXN3", self.getTransactionRef());
+        assertEquals(StatementLine.DEBIT, self.getDirection());
+    }
+
+    @Test
+    void startAfterEndIsRejected() throws Exception {
+        mockMvc.perform(get("/api/transactions/user/{upiId}/statement", UPI_ID)
+                        .param("from", TO.toString())
+                        .param("to", FROM.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String export(StatementFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementExportService.export(UPI_ID, FROM, TO, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void insert(String sender, String receiver, String amount, String description, String transactionRef,
+                        LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO transactions (sender_upi_id, receiver_upi_id, amount, description, status, " +
+                            "transaction_ref, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                            sender, receiver, new BigDecimal(amount), description, TransactionStatus.SUCCESS.name(),
+                            transactionRef, Timestamp.valueOf(createdAt));
+    }
+}
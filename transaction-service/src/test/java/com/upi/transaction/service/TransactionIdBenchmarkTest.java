@@ -0,0 +1,95 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for transaction reference generation: the previous String.format with a
+ * shared Random against TransactionIdGenerator, on one thread and on eight contending threads.
+ *
+ * Run with: mvn test -Dtest=TransactionIdBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TransactionIdBenchmarkTest {
+
+    @Test
+    void runBenchmarks() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransactionIdBenchmarkTest.class.getName() + ".*")
+                .shouldFailOnError(true)
+                .build()).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Generators {
+        final Random random = new Random();
+        final TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 1, System::currentTimeMillis);
+    }
+
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public abstract static class Settings {
+    }
+
+    public static class SingleThread extends Settings {
+
+        @Benchmark
+        public String formatWithSharedRandom(Generators generators) {
+            return legacyReference(generators.random);
+        }
+
+        @Benchmark
+        public String snowflakeReference(Generators generators) {
+            return generators.generator.nextReference();
+        }
+
+        @Benchmark
+        public long snowflakeId(Generators generators) {
+            return generators.generator.nextId();
+        }
+    }
+
+    @Threads(8)
+    public static class EightThreads extends Settings {
+
+        @Benchmark
+        public String formatWithSharedRandom(Generators generators) {
+            return legacyReference(generators.random);
+        }
+
+        @Benchmark
+        public String snowflakeReference(Generators generators) {
+            return generators.generator.nextReference();
+        }
+
+        @Benchmark
+        public long snowflakeId(Generators generators) {
+            return generators.generator.nextId();
+        }
+    }
+
+    // The reference format TransactionService used before TransactionIdGenerator
+    private static String legacyReference(Random random) {
+        return String.format("TXN%d%04d", System.currentTimeMillis(), random.nextInt(10000));
+    }
+}
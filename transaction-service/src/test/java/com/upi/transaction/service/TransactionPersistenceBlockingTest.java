@@ -0,0 +1,110 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fails if the transfer pipeline makes a blocking call on a non-blocking thread. The account
+ * service client is mocked to answer on Reactor's parallel scheduler, as an event loop would,
+ * and the repository blocks on every save like a slow database.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionPersistenceBlockingTest {
+
+    private static final String SENDER = "sender@bank";
+    private static final String RECEIVER = "receiver@bank";
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountServiceClient accountServiceClient;
+
+    private final TransactionTestFixture fixture = new TransactionTestFixture();
+    private final AtomicInteger completedSaves = new AtomicInteger();
+    private TransactionService transactionService;
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install();
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionService = fixture.service(transactionRepository,
+                fixture.store(transactionRepository, 2, 100), accountServiceClient, true,
+                fixture.queue(1, 10), fixture.statusStream(), DeferredSettlementPolicy.disabled());
+
+        lenient().when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            completedSaves.incrementAndGet();
+            return invocation.getArgument(0);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Disposes the persistence scheduler with the store
+        fixture.close();
+    }
+
+    @Test
+    void successfulTransferPersistsOffTheEventLoop() {
+        AccountServiceClient.TransferResponse transferResponse =
+                new AccountServiceClient.TransferResponse(SENDER, new BigDecimal("400.00"),
+                        RECEIVER, new BigDecimal("600.00"), AMOUNT);
+        when(accountServiceClient.transfer(eq(SENDER), eq(RECEIVER), eq(AMOUNT), anyString()))
+                .thenReturn(Mono.just(transferResponse).delayElement(Duration.ofMillis(1)));
+
+        Transaction transaction = transactionService.processTransfer(SENDER, RECEIVER, AMOUNT, "Test").block();
+
+        assertNotNull(transaction);
+        assertEquals(TransactionStatus.SUCCESS, transaction.getStatus());
+        assertEquals(2, completedSaves.get());
+    }
+
+    @Test
+    void failedTransferPersistsOffTheEventLoop() {
+        when(accountServiceClient.transfer(eq(SENDER), eq(RECEIVER), eq(AMOUNT), anyString()))
+                .thenReturn(Mono.delay(Duration.ofMillis(1)).then(Mono.error(
+                        new AccountServiceClient.InsufficientBalanceException("Insufficient balance for UPI ID: " + SENDER))));
+
+        Mono<Transaction> result = transactionService.processTransfer(SENDER, RECEIVER, AMOUNT, "Test");
+
+        assertThrows(AccountServiceClient.InsufficientBalanceException.class, result::block);
+        // The FAILED status must actually be written, not rejected as a blocking call and logged
+        assertEquals(2, completedSaves.get());
+    }
+
+    @Test
+    void blockingSaveOnEventLoopIsDetected() {
+        // Guards the guard: a save made directly on a non-blocking thread must be caught
+        Mono<Transaction> blocking = Mono.delay(Duration.ofMillis(1))
+                .map(tick -> transactionRepository.save(new Transaction(SENDER, RECEIVER, AMOUNT, "Test",
+                        TransactionStatus.PENDING, "TXN123456")));
+
+        Throwable error = assertThrows(RuntimeException.class, blocking::block);
+        assertInstanceOf(BlockingOperationError.class, error.getCause() != null ? error.getCause() : error);
+    }
+}
@@ -1,18 +1,30 @@
 package com.upi.transaction.service;
 
 import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.dto.TransactionResponse;
 import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.entity.TransactionUserStats;
 import com.upi.transaction.enums.TransactionStatus;
+import com.upi.transaction.exception.TransferQueueFullException;
 import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -27,11 +39,18 @@ class TransactionServiceIntegrationTest {
     @Mock
     private AccountServiceClient accountServiceClient;
 
+    private final TransactionTestFixture fixture = new TransactionTestFixture();
+
     private TransactionService transactionService;
 
     @BeforeEach
     void setUp() {
-        transactionService = new TransactionService(transactionRepository, accountServiceClient);
+        transactionService = fixture.service(transactionRepository, accountServiceClient, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
     }
 
     @Test
@@ -51,16 +70,13 @@ class TransactionServiceIntegrationTest {
                 new AccountServiceClient.BalanceResponse(new BigDecimal("500.00"), senderUpiId);
         when(accountServiceClient.getBalance(senderUpiId)).thenReturn(Mono.just(balanceResponse));
 
-        // Mock successful debit and credit operations
-        AccountServiceClient.BalanceResponse debitResponse = 
-                new AccountServiceClient.BalanceResponse(new BigDecimal("400.00"), senderUpiId);
-        AccountServiceClient.BalanceResponse creditResponse = 
-                new AccountServiceClient.BalanceResponse(new BigDecimal("600.00"), receiverUpiId);
+        // Mock successful atomic transfer
+        AccountServiceClient.TransferResponse transferResponse = 
+                new AccountServiceClient.TransferResponse(senderUpiId, new BigDecimal("400.00"), 
+                        receiverUpiId, new BigDecimal("600.00"), amount);
 
-        when(accountServiceClient.updateBalance(eq(senderUpiId), eq(amount.negate()), eq("DEBIT")))
-                .thenReturn(Mono.just(debitResponse));
-        when(accountServiceClient.updateBalance(eq(receiverUpiId), eq(amount), eq("CREDIT")))
-                .thenReturn(Mono.just(creditResponse));
+        when(accountServiceClient.transfer(senderUpiId, receiverUpiId, amount, "TXN123456"))
+                .thenReturn(Mono.just(transferResponse));
 
         // Mock transaction save operations
         Transaction pendingTransaction = new Transaction(senderUpiId, receiverUpiId, amount, description, 
@@ -87,8 +103,8 @@ class TransactionServiceIntegrationTest {
         verify(accountServiceClient).validateUpiId(senderUpiId);
         verify(accountServiceClient).validateUpiId(receiverUpiId);
         verify(accountServiceClient).getBalance(senderUpiId);
-        verify(accountServiceClient).updateBalance(senderUpiId, amount.negate(), "DEBIT");
-        verify(accountServiceClient).updateBalance(receiverUpiId, amount, "CREDIT");
+        verify(accountServiceClient).transfer(senderUpiId, receiverUpiId, amount, "TXN123456");
+        verify(accountServiceClient, never()).updateBalance(anyString(), any(BigDecimal.class), anyString());
         verify(transactionRepository, times(2)).save(any(Transaction.class));
     }
 
@@ -130,7 +146,7 @@ class TransactionServiceIntegrationTest {
         verify(accountServiceClient).validateUpiId(senderUpiId);
         verify(accountServiceClient).validateUpiId(receiverUpiId);
         verify(accountServiceClient).getBalance(senderUpiId);
-        verify(accountServiceClient, never()).updateBalance(anyString(), any(BigDecimal.class), anyString());
+        verify(accountServiceClient, never()).transfer(anyString(), anyString(), any(BigDecimal.class), anyString());
         verify(transactionRepository, times(2)).save(any(Transaction.class));
     }
 
@@ -167,8 +183,199 @@ class TransactionServiceIntegrationTest {
         verify(accountServiceClient).validateUpiId(senderUpiId);
         verify(accountServiceClient).validateUpiId(receiverUpiId);
         verify(accountServiceClient, never()).getBalance(anyString());
-        verify(accountServiceClient, never()).updateBalance(anyString(), any(BigDecimal.class), anyString());
+        verify(accountServiceClient, never()).transfer(anyString(), anyString(), any(BigDecimal.class), anyString());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+    }
+
+    @Test
+    void testFastPathTransferSkipsPreValidation() {
+        // Arrange
+        String senderUpiId = "sender@bank";
+        String receiverUpiId = "receiver@bank";
+        BigDecimal amount = new BigDecimal("100.00");
+        String description = "Test transfer";
+        TransactionService fastPathService = fixture.service(transactionRepository, accountServiceClient, true);
+
+        // Mock insufficient balance reported by the guarded transfer itself
+        when(accountServiceClient.transfer(senderUpiId, receiverUpiId, amount, "TXN123456"))
+                .thenReturn(Mono.error(new AccountServiceClient.InsufficientBalanceException(
+                        "Insufficient balance for UPI ID: " + senderUpiId)));
+
+        // Mock transaction save
+        Transaction pendingTransaction = new Transaction(senderUpiId, receiverUpiId, amount, description, 
+                TransactionStatus.PENDING, "TXN123456");
+        Transaction failedTransaction = new Transaction(senderUpiId, receiverUpiId, amount, description, 
+                TransactionStatus.FAILED, "TXN123456");
+
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(pendingTransaction)
+                .thenReturn(failedTransaction);
+
+        // Act & Assert
+        Mono<Transaction> result = fastPathService.processTransfer(senderUpiId, receiverUpiId, amount, description);
+        
+        assertThrows(AccountServiceClient.InsufficientBalanceException.class, () -> {
+            result.block();
+        });
+
+        // Verify interactions
+        verify(accountServiceClient, never()).validateUpiId(anyString());
+        verify(accountServiceClient, never()).getBalance(anyString());
+        verify(accountServiceClient).transfer(senderUpiId, receiverUpiId, amount, "TXN123456");
         verify(transactionRepository, times(2)).save(any(Transaction.class));
+        assertEquals(1, fixture.meterRegistry.get("transaction.transfer.latency")
+                .tags("mode", "fast", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testTransferWithUnknownOutcomeStaysPending() {
+        // Arrange
+        String senderUpiId = "sender@bank";
+        String receiverUpiId = "receiver@bank";
+        BigDecimal amount = new BigDecimal("100.00");
+        TransactionService fastPathService = fixture.service(transactionRepository, accountServiceClient, true);
+
+        // The transfer may have been applied: Account Service timed out on every attempt
+        when(accountServiceClient.transfer(eq(senderUpiId), eq(receiverUpiId), eq(amount), anyString()))
+                .thenReturn(Mono.error(new AccountServiceClient.AccountServiceException("Failed to transfer after 3 retries")));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act & Assert
+        Mono<Transaction> result = fastPathService.processTransfer(senderUpiId, receiverUpiId, amount, "Test");
+        assertThrows(AccountServiceClient.AccountServiceException.class, result::block);
+
+        // Only the PENDING row is written; recovery settles it later
+        verify(transactionRepository, times(1)).save(argThat(transaction -> 
+                transaction.getStatus() == TransactionStatus.PENDING));
+    }
+
+    @Test
+    void testAcceptedTransferRunsInBackground() throws InterruptedException {
+        // Arrange
+        String senderUpiId = "sender@bank";
+        String receiverUpiId = "receiver@bank";
+        BigDecimal amount = new BigDecimal("100.00");
+        TransactionService asyncService = fixture.service(transactionRepository, accountServiceClient, true);
+        Sinks.One<AccountServiceClient.TransferResponse> transferDone = Sinks.one();
+        CountDownLatch savedAsSuccess = new CountDownLatch(1);
+
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            if (saved.getStatus() == TransactionStatus.SUCCESS) {
+                savedAsSuccess.countDown();
+            }
+            return saved;
+        });
+        when(accountServiceClient.transfer(eq(senderUpiId), eq(receiverUpiId), eq(amount), anyString()))
+                .thenReturn(transferDone.asMono());
+
+        // Act: accepted while the transfer is still in flight
+        Transaction accepted = asyncService.acceptTransfer(senderUpiId, receiverUpiId, amount, "Test").block();
+        
+        // Assert
+        assertNotNull(accepted);
+        assertEquals(TransactionStatus.PENDING, accepted.getStatus());
+        assertNotNull(accepted.getTransactionRef());
+
+        transferDone.tryEmitValue(new AccountServiceClient.TransferResponse(senderUpiId, new BigDecimal("400.00"), 
+                receiverUpiId, new BigDecimal("600.00"), amount));
+        assertTrue(savedAsSuccess.await(5, TimeUnit.SECONDS));
+        assertEquals(TransactionStatus.PENDING, accepted.getStatus());
+    }
+
+    @Test
+    void testAcceptTransferRejectedWhenQueueIsFull() {
+        // Arrange: one worker and one queued transfer, both held by transfers that never finish
+        String senderUpiId = "sender@bank";
+        String receiverUpiId = "receiver@bank";
+        BigDecimal amount = new BigDecimal("100.00");
+        TransactionService asyncService = fixture.service(transactionRepository,
+                fixture.store(transactionRepository), accountServiceClient, true,
+                fixture.queue(1, 1), fixture.statusStream(), DeferredSettlementPolicy.disabled());
+
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(accountServiceClient.transfer(eq(senderUpiId), eq(receiverUpiId), eq(amount), anyString()))
+                .thenReturn(Mono.never());
+
+        asyncService.acceptTransfer(senderUpiId, receiverUpiId, amount, "First").block();
+        asyncService.acceptTransfer(senderUpiId, receiverUpiId, amount, "Second").block();
+
+        // Act & Assert: rejected before anything is saved
+        assertThrows(TransferQueueFullException.class, () -> 
+                asyncService.acceptTransfer(senderUpiId, receiverUpiId, amount, "Third").block());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+    }
+
+    @Test
+    void testCompletedTransfersArePublishedToBothParties() {
+        // Arrange
+        String senderUpiId = "sender@bank";
+        String receiverUpiId = "receiver@bank";
+        BigDecimal amount = new BigDecimal("100.00");
+        TransactionStatusStream statusStream = fixture.statusStream();
+        TransactionService streamingService = fixture.service(transactionRepository,
+                fixture.store(transactionRepository), accountServiceClient, true,
+                fixture.queue(1, 1), statusStream, DeferredSettlementPolicy.disabled());
+
+        List<TransactionResponse> senderUpdates = new CopyOnWriteArrayList<>();
+        List<TransactionResponse> receiverUpdates = new CopyOnWriteArrayList<>();
+        List<TransactionResponse> otherUpdates = new CopyOnWriteArrayList<>();
+        Disposable subscriptions = Disposables.composite(
+                statusStream.updates(senderUpiId).subscribe(senderUpdates::add),
+                statusStream.updates(receiverUpiId).subscribe(receiverUpdates::add),
+                statusStream.updates("other@bank").subscribe(otherUpdates::add));
+
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(accountServiceClient.transfer(eq(senderUpiId), eq(receiverUpiId), eq(amount), anyString()))
+                .thenReturn(Mono.just(new AccountServiceClient.TransferResponse()))
+                .thenReturn(Mono.error(new AccountServiceClient.InsufficientBalanceException("Insufficient balance")));
+
+        // Act
+        try {
+            Transaction completed = streamingService.processTransfer(senderUpiId, receiverUpiId, amount, "First").block();
+            assertThrows(AccountServiceClient.InsufficientBalanceException.class, () -> 
+                    streamingService.processTransfer(senderUpiId, receiverUpiId, amount, "Second").block());
+
+            // Assert: only terminal statuses are published, to both parties and nobody else
+            assertEquals(2, senderUpdates.size());
+            assertEquals(completed.getTransactionRef(), senderUpdates.get(0).getTransactionRef());
+            assertEquals(TransactionStatus.SUCCESS, senderUpdates.get(0).getStatus());
+            assertEquals(TransactionStatus.FAILED, senderUpdates.get(1).getStatus());
+            assertEquals(2, receiverUpdates.size());
+            assertTrue(otherUpdates.isEmpty());
+        } finally {
+            subscriptions.dispose();
+        }
+    }
+
+    @Test
+    void testEligibleTransferIsDeferredForNetting() {
+        // Arrange: netting between the two UPI IDs, for amounts up to 500
+        String senderUpiId = "merchant@bank";
+        String receiverUpiId = "aggregator@bank";
+        TransactionService nettingService = fixture.service(transactionRepository,
+                fixture.store(transactionRepository), accountServiceClient, true,
+                fixture.queue(1, 1), fixture.statusStream(),
+                new DeferredSettlementPolicy(true, Set.of(senderUpiId, receiverUpiId), new BigDecimal("500.00")));
+
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(accountServiceClient.transfer(eq(senderUpiId), eq(receiverUpiId), eq(new BigDecimal("900.00")), anyString()))
+                .thenReturn(Mono.just(new AccountServiceClient.TransferResponse()));
+
+        // Act
+        Transaction deferred = nettingService.processTransfer(senderUpiId, receiverUpiId, new BigDecimal("100.00"), "Netted").block();
+        Transaction accepted = nettingService.acceptTransfer(receiverUpiId, senderUpiId, new BigDecimal("40.00"), "Netted").block();
+        Transaction gross = nettingService.processTransfer(senderUpiId, receiverUpiId, new BigDecimal("900.00"), "Too large").block();
+
+        // Assert: recorded PENDING for the netting engine without calling Account Service
+        assertEquals(TransactionStatus.PENDING, deferred.getStatus());
+        assertEquals(NettingEngine.UNSETTLED, deferred.getNettingRef());
+        assertEquals(TransactionStatus.PENDING, accepted.getStatus());
+        assertEquals(NettingEngine.UNSETTLED, accepted.getNettingRef());
+        assertEquals(TransactionStatus.SUCCESS, gross.getStatus());
+        assertNull(gross.getNettingRef());
+        verify(accountServiceClient, times(1)).transfer(anyString(), anyString(), any(), anyString());
+        assertEquals(2.0, fixture.meterRegistry.counter("transaction.netting.deferred").count());
     }
 
     @Test
@@ -201,4 +408,18 @@ class TransactionServiceIntegrationTest {
         assertEquals(transactionRef, result.get().getTransactionRef());
         verify(transactionRepository).findByTransactionRef(transactionRef);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCountSuccessfulTransactionsFromUserStats() {
+        // Arrange
+        String upiId = "user@bank";
+        TransactionUserStats stats = new TransactionUserStats();
+        stats.setSentCount(3);
+        stats.setReceivedCount(2);
+        when(fixture.userStatsRepository.findByUpiIdAndStatus(upiId, TransactionStatus.SUCCESS))
+                .thenReturn(Optional.of(stats));
+        
+        // Act & Assert
+        assertEquals(5L, transactionService.countSuccessfulTransactions(upiId));
+    }
+}
@@ -0,0 +1,81 @@
+package com.upi.transaction.service;
+
+import com.upi.transaction.dto.TransactionResponse;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.enums.TransactionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStatusStreamTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionStatusStream statusStream = new TransactionStatusStream(2, 15000, 300000, 1, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        statusStream.destroy();
+    }
+
+    @Test
+    void slowSubscriberKeepsTheNewestUpdates() {
+        SlowSubscriber slow = new SlowSubscriber();
+        List<TransactionResponse> fast = new CopyOnWriteArrayList<>();
+        statusStream.updates("sender@bank").subscribe(slow);
+        statusStream.updates("sender@bank").subscribe(fast::add);
+
+        for (int i = 1; i <= 5; i++) {
+            statusStream.publish(transaction("TXN" + i), TransactionStatus.SUCCESS);
+        }
+
+        // The fast subscriber saw everything; the slow one kept the two newest
+        assertEquals(5, fast.size());
+        slow.request(10);
+        assertEquals(List.of("TXN4", "TXN5"), slow.received.stream().map(TransactionResponse::getTransactionRef).toList());
+        assertEquals(3, meterRegistry.counter("transaction.stream.dropped").count());
+        slow.dispose();
+    }
+
+    @Test
+    void updatesAreFilteredByUpiIdAndCarryThePublishedStatus() {
+        List<TransactionResponse> receiver = new CopyOnWriteArrayList<>();
+        List<TransactionResponse> other = new CopyOnWriteArrayList<>();
+        statusStream.updates("receiver@bank").subscribe(receiver::add);
+        statusStream.updates("other@bank").subscribe(other::add);
+
+        Transaction transaction = transaction("TXN1");
+        statusStream.publish(transaction, TransactionStatus.FAILED);
+
+        assertEquals(1, receiver.size());
+        assertEquals(TransactionStatus.FAILED, receiver.get(0).getStatus());
+        assertEquals(TransactionStatus.PENDING, transaction.getStatus());
+        assertTrue(other.isEmpty());
+    }
+
+    private static Transaction transaction(String transactionRef) {
+        return new Transaction("sender@bank", "receiver@bank", new BigDecimal("100.00"), "Test",
+                TransactionStatus.PENDING, transactionRef);
+    }
+
+    // Requests nothing until told to, like a client that stopped reading
+    private static class SlowSubscriber extends BaseSubscriber<TransactionResponse> {
+        final List<TransactionResponse> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(TransactionResponse value) {
+            received.add(value);
+        }
+    }
+}
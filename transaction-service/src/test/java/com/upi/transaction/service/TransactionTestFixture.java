@@ -0,0 +1,83 @@
+package com.upi.transaction.service;
+
+import com.upi.common.id.TransactionIdGenerator;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.repository.TransactionRepository;
+import com.upi.transaction.repository.TransactionStore;
+import com.upi.transaction.repository.UserStatsBatchRepository;
+import com.upi.transaction.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Builds fully wired services for unit tests around mocked repositories and clients. The
+ * user stats repositories and the transaction manager are mocks too. Every worker pool and
+ * stream it starts is disposed by close(), so tests do not leak threads.
+ */
+class TransactionTestFixture implements AutoCloseable {
+
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final UserStatsBatchRepository userStats = mock(UserStatsBatchRepository.class);
+    final UserStatsRepository userStatsRepository = mock(UserStatsRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final Deque<Runnable> disposers = new ArrayDeque<>();
+
+    TransactionStore store(TransactionRepository transactionRepository) {
+        return store(transactionRepository, 4, 100);
+    }
+
+    TransactionStore store(TransactionRepository transactionRepository, int threads, int queueCapacity) {
+        TransactionStore store = new TransactionStore(transactionRepository, userStats, transactionManager,
+                                                      threads, queueCapacity);
+        disposers.push(store::destroy);
+        return store;
+    }
+
+    TransactionIdGenerator idGenerator() {
+        return new TransactionIdGenerator("TXN", 0, System::currentTimeMillis);
+    }
+
+    AsyncTransferQueue queue(int workerCount, int capacity) {
+        AsyncTransferQueue queue = new AsyncTransferQueue(workerCount, capacity, 60000, meterRegistry);
+        disposers.push(queue::destroy);
+        return queue;
+    }
+
+    TransactionStatusStream statusStream() {
+        TransactionStatusStream statusStream = new TransactionStatusStream(32, 15000, 300000, 1, meterRegistry);
+        disposers.push(statusStream::destroy);
+        return statusStream;
+    }
+
+    /**
+     * A service persisting on the shared bounded-elastic scheduler, with netting disabled
+     */
+    TransactionService service(TransactionRepository transactionRepository, AccountServiceClient accountServiceClient,
+                               boolean fastPath) {
+        return service(transactionRepository, store(transactionRepository),
+                       accountServiceClient, fastPath, queue(2, 100), statusStream(), DeferredSettlementPolicy.disabled());
+    }
+
+    TransactionService service(TransactionRepository transactionRepository, TransactionStore transactionStore,
+                               AccountServiceClient accountServiceClient, boolean fastPath,
+                               AsyncTransferQueue queue, TransactionStatusStream statusStream,
+                               DeferredSettlementPolicy deferredSettlementPolicy) {
+        return new TransactionService(transactionRepository, transactionStore, accountServiceClient, meterRegistry,
+                                      fastPath, idGenerator(), queue, statusStream, deferredSettlementPolicy,
+                                      userStatsRepository);
+    }
+
+    @Override
+    public void close() {
+        while (!disposers.isEmpty()) {
+            disposers.pop().run();
+        }
+    }
+}
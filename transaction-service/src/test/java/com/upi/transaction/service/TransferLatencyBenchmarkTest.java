@@ -0,0 +1,130 @@
+package com.upi.transaction.service;
+
+import ch.qos.logback.classic.Level;
+import com.upi.common.ownership.AccountOwnerRouter;
+import com.upi.transaction.client.AccountServiceClient;
+import com.upi.transaction.entity.Transaction;
+import com.upi.transaction.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency benchmark for the transfer pipeline: the validated path (validate both UPI IDs,
+ * read the sender's balance, transfer) against the fast path (transfer only). Account
+ * Service is replaced by a local HTTP stub that adds a fixed delay to every request,
+ * standing in for the network round trip and Account Service's own work.
+ *
+ * Run with: mvn test -Dtest=TransferLatencyBenchmarkTest -Dbenchmark=true [-Dbenchmark.account-latency-ms=2]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransferLatencyBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferLatencyBenchmarkTest.class);
+
+    private static final int WARMUP_TRANSFERS = 200;
+    private static final int MEASURED_TRANSFERS = 2000;
+    private static final long ACCOUNT_LATENCY_MS = Long.getLong("benchmark.account-latency-ms", 1);
+
+    private static DisposableServer accountService;
+    private static AccountServiceClient accountServiceClient;
+    private static TransactionRepository transactionRepository;
+
+    @BeforeAll
+    static void startAccountServiceStub() {
+        // Without a Spring context every logger defaults to DEBUG, which would dominate the timings
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        accountService = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/api/accounts/validate/{upiId}", (request, response) -> respond(response, "true"))
+                        .get("/api/accounts/upi/{upiId}/balance", (request, response) ->
+                                respond(response, "{\"balance\":1000000.00,\"upiId\":\"sender@upi\"}"))
+                        .post("/api/accounts/transfer", (request, response) -> request.receive().then(
+                                respond(response, "{\"senderUpiId\":\"sender@upi\",\"senderBalance\":999999.00," +
+                                                  "\"receiverUpiId\":\"receiver@upi\",\"receiverBalance\":1.00,\"amount\":1.00}"))))
+                .bindNow();
+
+        String baseUrl = "http://localhost:" + accountService.port();
+        AccountOwnerRouter ownerRouter = new AccountOwnerRouter(null, false, "account-service", 128, 30000);
+        accountServiceClient = new AccountServiceClient(WebClient.builder(), ownerRouter, baseUrl, 5000, 0, 0);
+
+        transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterAll
+    static void stopAccountServiceStub() {
+        accountService.disposeNow();
+    }
+
+    @Test
+    void compareValidatedAndFastPathLatency() {
+        long[] validated = measure(false);
+        long[] fast = measure(true);
+
+        logger.info("Account Service stub latency {} ms per call, {} transfers per mode",
+                    ACCOUNT_LATENCY_MS, MEASURED_TRANSFERS);
+        logger.info("validated path: p50 {} ms, p99 {} ms", millis(percentile(validated, 0.50)),
+                    millis(percentile(validated, 0.99)));
+        logger.info("fast path:      p50 {} ms, p99 {} ms", millis(percentile(fast, 0.50)),
+                    millis(percentile(fast, 0.99)));
+
+        assertTrue(percentile(fast, 0.50) < percentile(validated, 0.50),
+                   "fast path should need fewer round trips than the validated path");
+    }
+
+    private long[] measure(boolean fastPath) {
+        try (TransactionTestFixture fixture = new TransactionTestFixture()) {
+            TransactionService transactionService = fixture.service(transactionRepository, accountServiceClient, fastPath);
+            for (int i = 0; i < WARMUP_TRANSFERS; i++) {
+                transfer(transactionService);
+            }
+
+            long[] latencies = new long[MEASURED_TRANSFERS];
+            for (int i = 0; i < MEASURED_TRANSFERS; i++) {
+                long start = System.nanoTime();
+                transfer(transactionService);
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        }
+    }
+
+    private void transfer(TransactionService transactionService) {
+        transactionService.processTransfer("sender@upi", "receiver@upi", BigDecimal.ONE, "benchmark").block();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private static Mono<Void> respond(HttpServerResponse response, String body) {
+        return Mono.delay(Duration.ofMillis(ACCOUNT_LATENCY_MS))
+                .then(response.header("Content-Type", "application/json").sendString(Mono.just(body)).then());
+    }
+}
@@ -0,0 +1,149 @@
+package com.upi.common.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.serviceregistry.Registration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style generator of 64-bit, time-ordered transaction IDs, laid out as
+ * 41 bits of milliseconds since 2024-01-01, a 12-bit per-millisecond sequence and a
+ * 10-bit node ID. Lock-free: the (millisecond, sequence) pair is one AtomicLong advanced
+ * by compare-and-set. A node that issues more than 4096 IDs in one millisecond, or whose
+ * clock steps back, carries on from the last value issued rather than waiting, so IDs
+ * never repeat or go backwards on a node.
+ *
+ * The node ID is usually derived from the instance's registry instance ID (see resolveNodeId)
+ * unless the service pins one. Two instances hashing to the same node ID could issue the
+ * same ID in the same millisecond; pin node IDs explicitly when running many instances.
+ * The unique constraint on the stored reference stays the last line of defence.
+ *
+ * Shared by the services that issue transaction references, so refs from all of them sort
+ * and decode the same way; each service only picks its own reference prefix.
+ */
+public class TransactionIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdGenerator.class);
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    /** Length of an encoded ID: 64 bits in 5-bit digits */
+    public static final int ENCODED_LENGTH = 13;
+
+    // Crockford base 32: no I, L, O or U; ASCII order matches digit order, so refs sort like IDs
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final String refPrefix;
+    private final int nodeId;
+    private final LongSupplier clock;
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public TransactionIdGenerator(String refPrefix, int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.refPrefix = refPrefix;
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Next ID for this node
+     */
+    public long nextId() {
+        long floor = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.accumulateAndGet(floor, (last, now) -> Math.max(last + 1, now));
+        return tick << NODE_BITS | nodeId;
+    }
+
+    /**
+     * Next transaction reference: the reference prefix followed by the encoded next ID
+     */
+    public String nextReference() {
+        return refPrefix + encode(nextId());
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Fixed-width base 32 encoding of an ID. Encodings of non-negative IDs sort in the same
+     * order as the IDs themselves.
+     */
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The ID an encoding was made from
+     */
+    public static long decode(String encoded) {
+        if (encoded.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Not an encoded ID: " + encoded);
+        }
+        long id = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int digit = Arrays.binarySearch(DIGITS, encoded.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not an encoded ID: " + encoded);
+            }
+            id = (id << 5) | digit;
+        }
+        return id;
+    }
+
+    /**
+     * Creation time of an ID, in epoch milliseconds
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Node ID for a registry instance ID: its FNV-1a hash folded to NODE_BITS
+     */
+    static int nodeIdOf(String instanceId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : instanceId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return (int) ((hash ^ (hash >>> 32)) & MAX_NODE_ID);
+    }
+
+    /**
+     * Node ID for this instance: the configured one if set (0 or more), else one derived
+     * from the registry instance ID, else a random one. nodeIdProperty names the property
+     * that pins it, for the log.
+     */
+    public static int resolveNodeId(Registration registration, int configuredNodeId, String nodeIdProperty) {
+        if (configuredNodeId >= 0) {
+            logger.info("Transaction IDs use configured node ID {}", configuredNodeId);
+            return configuredNodeId;
+        }
+        if (registration != null && registration.getInstanceId() != null) {
+            int nodeId = nodeIdOf(registration.getInstanceId());
+            logger.info("Transaction IDs use node ID {} from instance {}", nodeId, registration.getInstanceId());
+            return nodeId;
+        }
+        int nodeId = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        logger.warn("No service registration to derive a transaction ID node from; using random node ID {}. " +
+                    "Set {} to pin it", nodeId, nodeIdProperty);
+        return nodeId;
+    }
+}
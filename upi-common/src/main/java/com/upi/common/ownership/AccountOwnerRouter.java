@@ -0,0 +1,116 @@
+package com.upi.common.ownership;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the account-service instance that owns a UPI ID, using the same consistent-hash
+ * ring the account-service instances build from the registry. Sending a balance request
+ * straight to the owner saves the forwarding hop a non-owner would otherwise add.
+ *
+ * The ring is rebuilt from the registry at most once per refresh interval, on demand.
+ * An owner that cannot be reached is left out of the ring until the next refresh, so its
+ * UPI IDs go through the load balancer meanwhile.
+ */
+public class AccountOwnerRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountOwnerRouter.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final boolean enabled;
+    private final String serviceId;
+    private final int virtualNodes;
+    private final long refreshIntervalMs;
+
+    private volatile Snapshot snapshot = new Snapshot(new ConsistentHashRing(Set.of(), 0), Map.of(), 0);
+
+    public AccountOwnerRouter(DiscoveryClient discoveryClient, boolean enabled, String serviceId,
+                              int virtualNodes, long refreshIntervalMs) {
+        this.discoveryClient = discoveryClient;
+        this.enabled = enabled;
+        this.serviceId = serviceId;
+        this.virtualNodes = virtualNodes;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Base URI of the instance owning a UPI ID, or empty if routing is disabled or no owner is known
+     */
+    public Optional<URI> ownerOf(String upiId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        if (System.currentTimeMillis() - current.loadedAt >= refreshIntervalMs) {
+            current = refresh();
+        }
+        String owner = current.ring.nodeFor(upiId);
+        return owner != null ? Optional.ofNullable(current.uris.get(owner)) : Optional.empty();
+    }
+
+    /**
+     * Leave an unreachable owner out of the ring until the next refresh
+     */
+    public synchronized void reportUnreachable(URI owner) {
+        Snapshot current = snapshot;
+        String node = node(owner.getHost(), owner.getPort());
+        if (!current.ring.getNodes().contains(node)) {
+            return;
+        }
+        Set<String> remaining = new HashSet<>(current.ring.getNodes());
+        remaining.remove(node);
+        snapshot = new Snapshot(new ConsistentHashRing(remaining, virtualNodes), current.uris, current.loadedAt);
+        logger.warn("Account-service instance {} unreachable, routing its UPI IDs through the load balancer", node);
+    }
+
+    private synchronized Snapshot refresh() {
+        Snapshot current = snapshot;
+        if (System.currentTimeMillis() - current.loadedAt < refreshIntervalMs) {
+            return current;
+        }
+
+        Map<String, URI> uris = new HashMap<>();
+        try {
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                uris.put(node(instance.getHost(), instance.getPort()), instance.getUri());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load account-service instances, keeping the current ring: {}", e.getMessage());
+            uris = current.uris;
+        }
+
+        Snapshot next = uris.keySet().equals(current.ring.getNodes()) ?
+                new Snapshot(current.ring, current.uris, System.currentTimeMillis()) :
+                new Snapshot(new ConsistentHashRing(uris.keySet(), virtualNodes), uris, System.currentTimeMillis());
+        if (next.ring != current.ring) {
+            logger.info("Account-service ownership ring: {}", next.ring.getNodes());
+        }
+        snapshot = next;
+        return next;
+    }
+
+    private static String node(String host, int port) {
+        return host + ":" + port;
+    }
+
+    private static final class Snapshot {
+        private final ConsistentHashRing ring;
+        private final Map<String, URI> uris;
+        private final long loadedAt;
+
+        private Snapshot(ConsistentHashRing ring, Map<String, URI> uris, long loadedAt) {
+            this.ring = ring;
+            this.uris = uris;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
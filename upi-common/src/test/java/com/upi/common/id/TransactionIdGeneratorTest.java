@@ -0,0 +1,134 @@
+package com.upi.common.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.serviceregistry.Registration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionIdGeneratorTest {
+
+    private static final long NOW = TransactionIdGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void idsAreUniqueAndIncreasingAcrossThreads() throws Exception {
+        int threads = 16;
+        int idsPerThread = 100_000;
+        TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 7, System::currentTimeMillis);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(threads * idsPerThread);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> increasing = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                increasing.add(executor.submit(() -> {
+                    start.await();
+                    boolean ordered = true;
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        long id = generator.nextId();
+                        ordered &= id > previous;
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return ordered;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> ordered : increasing) {
+                assertTrue(ordered.get(60, TimeUnit.SECONDS), "IDs seen by one thread must increase");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * idsPerThread, ids.size());
+        assertTrue(ids.stream().allMatch(id -> (id & TransactionIdGenerator.MAX_NODE_ID) == 7));
+    }
+
+    @Test
+    void sequenceOverflowBorrowsFromNextMillisecond() {
+        TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 1, () -> NOW);
+
+        long previous = 0;
+        for (int i = 0; i < 5000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertEquals(NOW + 1, TransactionIdGenerator.timestampOf(previous));
+    }
+
+    @Test
+    void clockMovingBackwardsDoesNotRepeatIds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 1, clock::get);
+
+        long before = generator.nextId();
+        clock.set(NOW - 1000);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+        assertEquals(NOW, TransactionIdGenerator.timestampOf(after));
+    }
+
+    @Test
+    void encodingIsFixedWidthAndPreservesOrder() {
+        assertEquals("0000000000000", TransactionIdGenerator.encode(0));
+        assertEquals("7ZZZZZZZZZZZZ", TransactionIdGenerator.encode(Long.MAX_VALUE));
+
+        TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 1023, System::currentTimeMillis);
+        String previous = TransactionIdGenerator.encode(generator.nextId());
+        for (int i = 0; i < 10_000; i++) {
+            String next = TransactionIdGenerator.encode(generator.nextId());
+            assertEquals(TransactionIdGenerator.ENCODED_LENGTH, next.length());
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+        assertTrue(generator.nextReference().matches("TXN[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+
+    @Test
+    void decodingReversesEncoding() {
+        TransactionIdGenerator generator = new TransactionIdGenerator("TXN", 7, System::currentTimeMillis);
+        for (long id : new long[] {0, 1, Long.MAX_VALUE, generator.nextId()}) {
+            assertEquals(id, TransactionIdGenerator.decode(TransactionIdGenerator.encode(id)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> TransactionIdGenerator.decode("000000000000I"));
+        assertThrows(IllegalArgumentException.class, () -> TransactionIdGenerator.decode("0"));
+    }
+
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator("TXN", 1024, System::currentTimeMillis));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator("TXN", -1, System::currentTimeMillis));
+        int nodeId = TransactionIdGenerator.nodeIdOf("10.0.0.5:transaction-service:8082");
+        assertTrue(nodeId >= 0 && nodeId <= TransactionIdGenerator.MAX_NODE_ID);
+        assertEquals(nodeId, TransactionIdGenerator.nodeIdOf("10.0.0.5:transaction-service:8082"));
+    }
+
+    @Test
+    void configuredNodeIdWinsOverTheRegistration() {
+        Registration registration = mock(Registration.class);
+        when(registration.getInstanceId()).thenReturn("10.0.0.5:transaction-service:8082");
+
+        assertEquals(5, TransactionIdGenerator.resolveNodeId(registration, 5, "transaction.id.node-id"));
+        assertEquals(TransactionIdGenerator.nodeIdOf("10.0.0.5:transaction-service:8082"),
+                     TransactionIdGenerator.resolveNodeId(registration, -1, "transaction.id.node-id"));
+        int random = TransactionIdGenerator.resolveNodeId(null, -1, "transaction.id.node-id");
+        assertTrue(random >= 0 && random <= TransactionIdGenerator.MAX_NODE_ID);
+    }
+}
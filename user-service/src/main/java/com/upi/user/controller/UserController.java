@@ -66,6 +66,20 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Get several users by ID in one call; unknown IDs are left out of the response
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserResponse>> getUsersByIds(@Valid @RequestBody UserBatchRequest request) {
+        logger.debug("Received request to get {} users by ID", request.getIds().size());
+        
+        List<UserResponse> responses = userService.getUsersByIds(request.getIds()).stream()
+                .map(UserResponse::new)
+                .collect(Collectors.toList());
+        
+        return ResponseEntity.ok(responses);
+    }
+    
     /**
      * Get user by username
      */
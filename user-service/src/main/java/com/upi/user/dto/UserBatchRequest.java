@@ -0,0 +1,36 @@
+package com.upi.user.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class UserBatchRequest {
+    
+    @NotEmpty(message = "At least one user ID is required")
+    @Size(max = 1000, message = "A batch may contain at most 1000 user IDs")
+    private List<Long> ids;
+    
+    // Constructors
+    public UserBatchRequest() {}
+    
+    public UserBatchRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+    
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+    
+    @Override
+    public String toString() {
+        return "UserBatchRequest{" +
+                "ids=" + ids +
+                '}';
+    }
+}
@@ -84,6 +84,16 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + id));
     }
     
+    /**
+     * Get users by IDs in one query. Unknown IDs are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(List<Long> ids) {
+        logger.debug("Fetching {} users by ID", ids.size());
+        
+        return userRepository.findAllById(ids);
+    }
+    
     /**
      * Get user by username
      */
@@ -1,48 +1,72 @@
 package com.upi.utility.client;
 
+import com.upi.common.ownership.AccountOwnerRouter;
 import com.upi.utility.dto.BalanceResponse;
-import com.upi.utility.dto.BalanceUpdateRequest;
+import com.upi.utility.dto.HoldRequest;
+import com.upi.utility.dto.HoldResponse;
+import com.upi.utility.exception.InsufficientBalanceException;
+import com.upi.utility.exception.PaymentProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.function.BiFunction;
 
 @Component
 @Slf4j
 public class AccountServiceClient {
 
+    private static final String BALANCE_PATH = "/api/accounts/upi/{upiId}/balance";
+
     private final WebClient webClient;
+    private final WebClient ownerWebClient;
+    private final AccountOwnerRouter ownerRouter;
     private final String accountServiceBaseUrl;
     private final long timeout;
     private final int maxRetries;
+    private final long holdTtlSeconds;
 
     public AccountServiceClient(
             WebClient webClient,
+            AccountOwnerRouter ownerRouter,
             @Value("${account-service.base-url}") String accountServiceBaseUrl,
             @Value("${account-service.timeout:5000}") long timeout,
-            @Value("${account-service.max-retries:3}") int maxRetries) {
+            @Value("${account-service.max-retries:3}") int maxRetries,
+            @Value("${account-service.hold-ttl-seconds:300}") long holdTtlSeconds) {
         this.webClient = webClient;
+        // Requests routed to a UPI ID's owner target one specific instance, so they bypass the load balancer
+        this.ownerWebClient = WebClient.builder()
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+        this.ownerRouter = ownerRouter;
         this.accountServiceBaseUrl = accountServiceBaseUrl;
         this.timeout = timeout;
         this.maxRetries = maxRetries;
+        this.holdTtlSeconds = holdTtlSeconds;
     }
 
     /**
-     * Get account balance for a UPI ID
+     * Get account balance for a UPI ID, from its owning instance when owner routing is enabled
      */
     public Mono<BalanceResponse> getBalance(String upiId) {
         log.debug("Fetching balance for UPI ID: {}", upiId);
         
-        return webClient.get()
-                .uri(accountServiceBaseUrl + "/api/accounts/upi/{upiId}/balance", upiId)
-                .retrieve()
-                .bodyToMono(BalanceResponse.class)
+        return toOwner(upiId, (client, baseUrl) -> client.get()
+                        .uri(baseUrl + BALANCE_PATH, upiId)
+                        .retrieve()
+                        .bodyToMono(BalanceResponse.class))
                 .timeout(Duration.ofMillis(timeout))
                 .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
                         .filter(this::isRetryableException))
@@ -53,46 +77,87 @@ public class AccountServiceClient {
     }
 
     /**
-     * Debit amount from account
+     * Reserve an amount on the account until it is captured or released, on the UPI ID's
+     * owning instance when owner routing is enabled. Not retried: a retry after a lost response would place a second hold, and an
+     * orphaned hold is released by account-service when its TTL passes.
      */
-    public Mono<BalanceResponse> debitAmount(String upiId, BigDecimal amount) {
-        log.debug("Debiting amount {} from UPI ID: {}", amount, upiId);
+    public Mono<HoldResponse> placeHold(String upiId, BigDecimal amount, String transactionRef) {
+        log.debug("Placing hold of {} on UPI ID: {}", amount, upiId);
         
-        // Send positive amount with DEBIT operation - controller will negate it
-        BalanceUpdateRequest request = new BalanceUpdateRequest(amount, "DEBIT");
+        HoldRequest request = new HoldRequest(upiId, amount, transactionRef, holdTtlSeconds);
         
-        return webClient.put()
-                .uri(accountServiceBaseUrl + "/api/accounts/upi/{upiId}/balance", upiId)
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(BalanceResponse.class)
+        return toOwner(upiId, (client, baseUrl) -> client.post()
+                        .uri(baseUrl + "/api/accounts/holds")
+                        .bodyValue(request)
+                        .retrieve()
+                        .onStatus(status -> status.value() == HttpStatus.BAD_REQUEST.value(),
+                                response -> response.bodyToMono(String.class)
+                                        .<Throwable>map(body -> body.contains("INSUFFICIENT_BALANCE")
+                                                ? new InsufficientBalanceException("Insufficient balance to hold " + 
+                                                        amount + " on " + upiId)
+                                                : new PaymentProcessingException("Unable to place hold on " + 
+                                                        upiId + ": " + body)))
+                        .bodyToMono(HoldResponse.class))
+                .timeout(Duration.ofMillis(timeout))
+                .doOnSuccess(response -> log.debug("Hold {} placed on {}", response.getHoldId(), upiId))
+                .doOnError(error -> log.error("Error placing hold on {}: {}", 
+                        upiId, error.getMessage()));
+    }
+
+    /**
+     * Mark a hold as being captured before the provider is paid, so account-service no
+     * longer expires it. Safe to retry.
+     */
+    public Mono<HoldResponse> beginCapture(Long holdId, String upiId) {
+        log.debug("Beginning capture of hold {}", holdId);
+        
+        return toOwner(upiId, (client, baseUrl) -> client.post()
+                        .uri(baseUrl + "/api/accounts/holds/{holdId}/begin-capture", holdId)
+                        .retrieve()
+                        .bodyToMono(HoldResponse.class))
                 .timeout(Duration.ofMillis(timeout))
                 .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
                         .filter(this::isRetryableException))
-                .doOnSuccess(response -> log.debug("Amount debited successfully from {}", upiId))
-                .doOnError(error -> log.error("Error debiting amount from {}: {}", 
-                        upiId, error.getMessage()));
+                .doOnSuccess(response -> log.debug("Hold {} is capturing", holdId))
+                .doOnError(error -> log.error("Error beginning capture of hold {}: {}", 
+                        holdId, error.getMessage()));
     }
 
     /**
-     * Refund amount to account (used for rollback)
+     * Capture a hold, making the reserved debit final. Safe to retry: the hold ID keys the
+     * capture, so a repeated capture is a no-op.
      */
-    public Mono<BalanceResponse> refundAmount(String upiId, BigDecimal amount) {
-        log.debug("Refunding amount {} to UPI ID: {}", amount, upiId);
+    public Mono<HoldResponse> captureHold(Long holdId, String upiId) {
+        log.debug("Capturing hold {}", holdId);
         
-        BalanceUpdateRequest request = new BalanceUpdateRequest(amount, "CREDIT");
+        return toOwner(upiId, (client, baseUrl) -> client.post()
+                        .uri(baseUrl + "/api/accounts/holds/{holdId}/capture", holdId)
+                        .retrieve()
+                        .bodyToMono(HoldResponse.class))
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
+                        .filter(this::isRetryableException))
+                .doOnSuccess(response -> log.debug("Hold {} captured", holdId))
+                .doOnError(error -> log.error("Error capturing hold {}: {}", 
+                        holdId, error.getMessage()));
+    }
+
+    /**
+     * Release a hold, returning the reserved amount. Safe to retry.
+     */
+    public Mono<HoldResponse> releaseHold(Long holdId, String upiId) {
+        log.debug("Releasing hold {}", holdId);
         
-        return webClient.put()
-                .uri(accountServiceBaseUrl + "/api/accounts/upi/{upiId}/balance", upiId)
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(BalanceResponse.class)
+        return toOwner(upiId, (client, baseUrl) -> client.post()
+                        .uri(baseUrl + "/api/accounts/holds/{holdId}/release", holdId)
+                        .retrieve()
+                        .bodyToMono(HoldResponse.class))
                 .timeout(Duration.ofMillis(timeout))
                 .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
                         .filter(this::isRetryableException))
-                .doOnSuccess(response -> log.debug("Amount refunded successfully to {}", upiId))
-                .doOnError(error -> log.error("Error refunding amount to {}: {}", 
-                        upiId, error.getMessage()));
+                .doOnSuccess(response -> log.debug("Hold {} released", holdId))
+                .doOnError(error -> log.error("Error releasing hold {}: {}", 
+                        holdId, error.getMessage()));
     }
 
     /**
@@ -110,6 +175,22 @@ public class AccountServiceClient {
                 .doOnSuccess(exists -> log.debug("UPI ID {} validation result: {}", upiId, exists));
     }
 
+    /**
+     * Send a balance or hold request to the instance owning the UPI ID when owner routing is enabled,
+     * otherwise through the load balancer. The owner is resolved again on every retry, and an
+     * owner that refuses the connection is skipped until the ring is next refreshed.
+     */
+    private <T> Mono<T> toOwner(String upiId, BiFunction<WebClient, String, Mono<T>> request) {
+        return Mono.defer(() -> {
+            Optional<URI> owner = ownerRouter.ownerOf(upiId);
+            if (owner.isEmpty()) {
+                return request.apply(webClient, accountServiceBaseUrl);
+            }
+            return request.apply(ownerWebClient, owner.get().toString())
+                    .doOnError(WebClientRequestException.class, error -> ownerRouter.reportUnreachable(owner.get()));
+        });
+    }
+
     /**
      * Check if exception is retryable
      */
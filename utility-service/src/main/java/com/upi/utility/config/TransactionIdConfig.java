@@ -0,0 +1,24 @@
+package com.upi.utility.config;
+
+import com.upi.common.id.TransactionIdGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransactionIdConfig {
+
+    /**
+     * Issues the "UTL-" references of utility payments
+     */
+    @Bean
+    public TransactionIdGenerator transactionIdGenerator(
+            ObjectProvider<Registration> registration,
+            @Value("${utility.transaction-id.node-id:-1}") int configuredNodeId) {
+        int nodeId = TransactionIdGenerator.resolveNodeId(registration.getIfAvailable(), configuredNodeId,
+                                                          "utility.transaction-id.node-id");
+        return new TransactionIdGenerator("UTL-", nodeId, System::currentTimeMillis);
+    }
+}
@@ -9,8 +9,10 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class BalanceUpdateRequest {
+public class HoldRequest {
 
+    private String upiId;
     private BigDecimal amount;
-    private String operation; // DEBIT or CREDIT
+    private String transactionRef;
+    private Long ttlSeconds;
 }
@@ -0,0 +1,21 @@
+package com.upi.utility.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldResponse {
+
+    private Long holdId;
+    private String upiId;
+    private BigDecimal amount;
+    private String status;
+    private String transactionRef;
+    private LocalDateTime expiresAt;
+}
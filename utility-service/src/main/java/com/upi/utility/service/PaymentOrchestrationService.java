@@ -1,5 +1,6 @@
 package com.upi.utility.service;
 
+import com.upi.common.id.TransactionIdGenerator;
 import com.upi.utility.client.AccountServiceClient;
 import com.upi.utility.client.TransactionServiceClient;
 import com.upi.utility.dto.*;
@@ -32,6 +33,7 @@ public class PaymentOrchestrationService {
     private final UtilityPaymentRepository utilityPaymentRepository;
     private final ServiceProviderRepository serviceProviderRepository;
     private final PaymentCategoryRepository paymentCategoryRepository;
+    private final TransactionIdGenerator transactionIdGenerator;
 
     public PaymentOrchestrationService(
             AccountServiceClient accountServiceClient,
@@ -39,18 +41,28 @@ public class PaymentOrchestrationService {
             ServiceProviderGatewayFactory gatewayFactory,
             UtilityPaymentRepository utilityPaymentRepository,
             ServiceProviderRepository serviceProviderRepository,
-            PaymentCategoryRepository paymentCategoryRepository) {
+            PaymentCategoryRepository paymentCategoryRepository,
+            TransactionIdGenerator transactionIdGenerator) {
         this.accountServiceClient = accountServiceClient;
         this.transactionServiceClient = transactionServiceClient;
         this.gatewayFactory = gatewayFactory;
         this.utilityPaymentRepository = utilityPaymentRepository;
         this.serviceProviderRepository = serviceProviderRepository;
         this.paymentCategoryRepository = paymentCategoryRepository;
+        this.transactionIdGenerator = transactionIdGenerator;
     }
 
     /**
      * Process utility payment with complete orchestration
-     * Steps: Validate -> Check Balance -> Create Pending -> Debit -> Process -> Update -> Record
+     * Steps: Validate -> Create Pending -> Hold -> Process -> Capture -> Update -> Record
+     *
+     * The amount is reserved with a hold rather than debited up front, so a provider failure
+     * releases the hold instead of issuing a refund, and a crash mid-payment leaves a hold that
+     * account-service expires on its own.
+     *
+     * The hold is marked CAPTURING before the provider is called, which stops it expiring. From
+     * then on the hold is only released when the provider definitely refused the payment; if the
+     * outcome is unknown, or the capture itself fails, the hold stays CAPTURING for manual follow-up.
      */
     @Transactional
     public UtilityPaymentResponse processUtilityPayment(UtilityPaymentRequest request) {
@@ -59,7 +71,8 @@ public class PaymentOrchestrationService {
 
         String transactionRef = generateTransactionRef();
         UtilityPayment payment = null;
-        boolean amountDebited = false;
+        HoldResponse hold = null;
+        boolean providerCalled = false;
 
         try {
             // Step 1: Validate user account
@@ -70,19 +83,8 @@ public class PaymentOrchestrationService {
                 throw new PaymentProcessingException("Invalid UPI ID: " + request.getUpiId());
             }
 
-            // Step 2: Check balance sufficiency
-            log.debug("Step 2: Checking balance sufficiency");
-            BalanceResponse balanceResponse = accountServiceClient.getBalance(request.getUpiId())
-                    .block();
-            if (balanceResponse == null || balanceResponse.getBalance().compareTo(request.getAmount()) < 0) {
-                throw new InsufficientBalanceException(
-                        String.format("Insufficient balance. Available: %s, Required: %s",
-                                balanceResponse != null ? balanceResponse.getBalance() : "0",
-                                request.getAmount()));
-            }
-
-            // Step 3: Validate service provider is active
-            log.debug("Step 3: Validating service provider");
+            // Step 2: Validate service provider is active
+            log.debug("Step 2: Validating service provider");
             ServiceProvider provider = serviceProviderRepository
                     .findByProviderCode(request.getProviderCode())
                     .orElseThrow(() -> new ProviderUnavailableException(
@@ -93,28 +95,36 @@ public class PaymentOrchestrationService {
                         "Provider is currently unavailable: " + request.getProviderCode());
             }
 
-            // Step 4: Create pending payment record
-            log.debug("Step 4: Creating pending payment record");
+            // Step 3: Create pending payment record
+            log.debug("Step 3: Creating pending payment record");
             payment = createPendingPayment(request, provider, transactionRef);
 
-            // Step 5: Debit user account
-            log.debug("Step 5: Debiting user account");
-            BalanceResponse debitResponse = accountServiceClient
-                    .debitAmount(request.getUpiId(), request.getAmount())
+            // Step 4: Reserve the amount with a hold (fails with insufficient balance)
+            log.debug("Step 4: Placing hold on user account");
+            hold = accountServiceClient
+                    .placeHold(request.getUpiId(), request.getAmount(), transactionRef)
                     .block();
-            amountDebited = true;
-            log.info("Amount debited successfully. New balance: {}", debitResponse.getBalance());
+            log.info("Hold {} placed for amount {}, expires at {}", 
+                    hold.getHoldId(), hold.getAmount(), hold.getExpiresAt());
 
-            // Step 6: Process payment with provider
-            log.debug("Step 6: Processing payment with provider");
+            // Step 5: Process payment with provider, after taking the hold out of expiry
+            log.debug("Step 5: Processing payment with provider");
             ServiceProviderGateway gateway = gatewayFactory.getGateway(request.getProviderCode());
+            accountServiceClient.beginCapture(hold.getHoldId(), request.getUpiId()).block();
+            providerCalled = true;
             PaymentResponse providerResponse = processWithProvider(gateway, request, provider);
 
             if (!providerResponse.isSuccess()) {
+                // A definite refusal: the provider was not paid, so the hold can be released
+                providerCalled = false;
                 throw new PaymentProcessingException(
                         "Provider payment failed: " + providerResponse.getMessage());
             }
 
+            // Step 6: Capture the hold now that the provider has accepted the payment
+            log.debug("Step 6: Capturing hold {}", hold.getHoldId());
+            captureHold(hold, request.getUpiId(), transactionRef);
+
             // Step 7: Update payment status to COMPLETED
             log.debug("Step 7: Updating payment status to COMPLETED");
             payment.setPaymentStatus(PaymentStatus.COMPLETED);
@@ -138,7 +148,7 @@ public class PaymentOrchestrationService {
 
         } catch (Exception e) {
             log.error("Payment processing failed: {}", e.getMessage(), e);
-            handlePaymentFailure(payment, request.getUpiId(), request.getAmount(), amountDebited, e, transactionRef);
+            handlePaymentFailure(payment, request.getUpiId(), request.getAmount(), hold, providerCalled, e, transactionRef);
             throw new PaymentProcessingException("Payment processing failed: " + e.getMessage(), e);
         }
     }
@@ -187,6 +197,23 @@ public class PaymentOrchestrationService {
                 .build();
     }
 
+    /**
+     * Capture the hold after the provider has been paid. The client retries the capture, keyed
+     * by the hold ID. The payment cannot be undone at this point, so a capture that still fails
+     * is flagged for manual follow-up rather than failing the payment; the hold stays CAPTURING,
+     * which keeps the amount debited and never expires.
+     */
+    private void captureHold(HoldResponse hold, String upiId, String transactionRef) {
+        try {
+            accountServiceClient.captureHold(hold.getHoldId(), upiId).block();
+            log.info("Hold {} captured", hold.getHoldId());
+        } catch (Exception captureError) {
+            log.error("✗ CRITICAL: Failed to capture hold {}", hold.getHoldId(), captureError);
+            logCriticalUnresolvedHold(upiId, hold, transactionRef,
+                    "Provider paid, capture failed: " + captureError.getMessage());
+        }
+    }
+
     /**
      * Record payment in transaction service
      */
@@ -212,7 +239,8 @@ public class PaymentOrchestrationService {
     /**
      * Handle payment failure and rollback
      * This method implements comprehensive failure handling including:
-     * - Automatic refund if amount was debited
+     * - Automatic release of the hold if one was placed and the provider was not paid
+     * - Leaving the hold CAPTURING when the provider may have been paid
      * - Payment status update with failure reason
      * - Detailed logging for troubleshooting
      * - User-friendly error message generation
@@ -221,7 +249,8 @@ public class PaymentOrchestrationService {
             UtilityPayment payment,
             String upiId,
             BigDecimal amount,
-            boolean amountDebited,
+            HoldResponse hold,
+            boolean providerCalled,
             Exception error,
             String transactionRef) {
         
@@ -229,58 +258,74 @@ public class PaymentOrchestrationService {
         log.error("Transaction Ref: {}", transactionRef);
         log.error("UPI ID: {}", upiId);
         log.error("Amount: {}", amount);
-        log.error("Amount Debited: {}", amountDebited);
+        log.error("Hold ID: {}", hold != null ? hold.getHoldId() : "N/A");
         log.error("Error Type: {}", error.getClass().getSimpleName());
         log.error("Error Message: {}", error.getMessage());
         log.error("Stack Trace: ", error);
 
-        // Step 1: Refund debited amount if payment fails after deduction
-        if (amountDebited) {
-            log.warn("Amount was debited before failure. Initiating automatic refund...");
+        // Step 1: Release the hold if payment fails after the amount was reserved,
+        // unless the provider may have been paid
+        if (hold != null && providerCalled) {
+            log.error("✗ CRITICAL: Provider outcome unknown. Hold {} stays capturing", hold.getHoldId());
+            logCriticalUnresolvedHold(upiId, hold, transactionRef, error.getMessage());
+            
+            // The payment may have gone through, so it stays PENDING rather than FAILED
+            if (payment != null) {
+                String failureDetails = String.format(
+                    "Provider outcome unknown: %s. Hold %s awaits manual capture or release.",
+                    error.getMessage(),
+                    hold.getHoldId()
+                );
+                updatePaymentStatus(payment, PaymentStatus.PENDING, failureDetails);
+            }
+        } else if (hold != null) {
+            log.warn("Amount was held before failure. Releasing hold {}...", hold.getHoldId());
             try {
-                log.info("Attempting to refund amount {} to UPI ID: {}", amount, upiId);
+                log.info("Attempting to release hold of {} on UPI ID: {}", amount, upiId);
                 
-                BalanceResponse refundResponse = accountServiceClient.refundAmount(upiId, amount)
+                HoldResponse releaseResponse = accountServiceClient.releaseHold(hold.getHoldId(), upiId)
                         .block();
                 
-                if (refundResponse != null) {
-                    log.info("✓ Amount refunded successfully. New balance: {}", refundResponse.getBalance());
+                if (releaseResponse != null) {
+                    log.info("✓ Hold released successfully. Status: {}", releaseResponse.getStatus());
                     
-                    // Update payment record with refund information
+                    // Update payment record with release information
                     if (payment != null) {
                         String failureDetails = String.format(
-                            "Payment failed: %s. Amount refunded successfully at %s",
+                            "Payment failed: %s. Held amount released successfully at %s",
                             error.getMessage(),
                             LocalDateTime.now()
                         );
                         updatePaymentStatus(payment, PaymentStatus.FAILED, failureDetails);
                     }
                 } else {
-                    log.error("✗ Refund response was null");
-                    logCriticalRefundFailure(upiId, amount, transactionRef, "Null response from refund service");
+                    log.error("✗ Release response was null");
+                    logCriticalRefundFailure(upiId, amount, transactionRef, "Null response from hold release");
                 }
                 
             } catch (Exception refundError) {
-                log.error("✗ CRITICAL: Failed to refund amount", refundError);
+                log.error("✗ CRITICAL: Failed to release hold {}; unless capture had begun it will be refunded when it expires at {}",
+                        hold.getHoldId(), hold.getExpiresAt(), refundError);
                 logCriticalRefundFailure(upiId, amount, transactionRef, refundError.getMessage());
                 
                 // Update payment with refund failure information
                 if (payment != null) {
                     String failureDetails = String.format(
-                        "Payment failed: %s. REFUND FAILED: %s. Manual intervention required.",
+                        "Payment failed: %s. HOLD RELEASE FAILED: %s. Hold expires at %s.",
                         error.getMessage(),
-                        refundError.getMessage()
+                        refundError.getMessage(),
+                        hold.getExpiresAt()
                     );
                     updatePaymentStatus(payment, PaymentStatus.FAILED, failureDetails);
                 }
             }
         } else {
-            log.info("Amount was not debited. No refund required.");
+            log.info("No hold was placed. No release required.");
             
             // Update payment status to FAILED with failure reason
             if (payment != null) {
                 String failureDetails = String.format(
-                    "Payment failed before debit: %s",
+                    "Payment failed before hold: %s",
                     error.getMessage()
                 );
                 updatePaymentStatus(payment, PaymentStatus.FAILED, failureDetails);
@@ -288,7 +333,7 @@ public class PaymentOrchestrationService {
         }
 
         // Step 2: Log failure details for troubleshooting
-        logFailureDetailsForTroubleshooting(payment, upiId, amount, amountDebited, error, transactionRef);
+        logFailureDetailsForTroubleshooting(payment, upiId, amount, hold, error, transactionRef);
         
         log.error("=== PAYMENT FAILURE HANDLING COMPLETED ===");
     }
@@ -310,6 +355,25 @@ public class PaymentOrchestrationService {
         log.error("╚════════════════════════════════════════════════════════════════╝");
     }
 
+    /**
+     * Log a hold whose payment may have reached the provider. It is never refunded
+     * automatically and must be captured or released by hand.
+     */
+    private void logCriticalUnresolvedHold(String upiId, HoldResponse hold, String transactionRef, String errorMessage) {
+        log.error("╔════════════════════════════════════════════════════════════════╗");
+        log.error("║          CRITICAL: MANUAL INTERVENTION REQUIRED                ║");
+        log.error("╠════════════════════════════════════════════════════════════════╣");
+        log.error("║ Transaction Ref : {}                                    ║", transactionRef);
+        log.error("║ UPI ID          : {}                                    ║", upiId);
+        log.error("║ Hold ID         : {}                                    ║", hold.getHoldId());
+        log.error("║ Amount Held     : {}                                    ║", hold.getAmount());
+        log.error("║ Error           : {}                                    ║", errorMessage);
+        log.error("║ Timestamp       : {}                                    ║", LocalDateTime.now());
+        log.error("╠════════════════════════════════════════════════════════════════╣");
+        log.error("║ ACTION REQUIRED: Confirm with provider, then capture or release ║");
+        log.error("╚════════════════════════════════════════════════════════════════╝");
+    }
+
     /**
      * Log comprehensive failure details for troubleshooting
      */
@@ -317,7 +381,7 @@ public class PaymentOrchestrationService {
             UtilityPayment payment,
             String upiId,
             BigDecimal amount,
-            boolean amountDebited,
+            HoldResponse hold,
             Exception error,
             String transactionRef) {
         
@@ -325,7 +389,7 @@ public class PaymentOrchestrationService {
         log.info("Transaction Reference: {}", transactionRef);
         log.info("UPI ID: {}", upiId);
         log.info("Amount: {}", amount);
-        log.info("Amount Debited: {}", amountDebited);
+        log.info("Hold ID: {}", hold != null ? hold.getHoldId() : "N/A");
         
         if (payment != null) {
             log.info("Payment ID: {}", payment.getId());
@@ -382,7 +446,6 @@ public class PaymentOrchestrationService {
      * Generate unique transaction reference
      */
     private String generateTransactionRef() {
-        return "UTL-" + System.currentTimeMillis() + "-" + 
-                UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return transactionIdGenerator.nextReference();
     }
 }